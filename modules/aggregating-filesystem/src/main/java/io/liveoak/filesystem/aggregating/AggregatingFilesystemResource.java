@@ -5,6 +5,8 @@
  */
 package io.liveoak.filesystem.aggregating;
 
+import java.util.concurrent.Executor;
+
 import io.liveoak.filesystem.FileResource;
 import io.liveoak.filesystem.FileSystemAdminResource;
 import io.liveoak.filesystem.FilesystemResource;
@@ -19,8 +21,8 @@ import org.vertx.java.core.Vertx;
  */
 public class AggregatingFilesystemResource extends FilesystemResource {
 
-    public AggregatingFilesystemResource(FileSystemAdminResource adminResource, String id, Vertx vertx) {
-        super(adminResource, id, vertx);
+    public AggregatingFilesystemResource(FileSystemAdminResource adminResource, String id, Vertx vertx, Executor workerPool) {
+        super(adminResource, id, vertx, workerPool);
     }
 
     @Override
@@ -49,5 +51,9 @@ public class AggregatingFilesystemResource extends FilesystemResource {
         });
     }
 
+    public BundleCache bundles() {
+        return this.bundles;
+    }
 
+    private final BundleCache bundles = new BundleCache();
 }
@@ -5,12 +5,6 @@
  */
 package io.liveoak.filesystem.aggregating;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.util.LinkedList;
-import java.util.List;
-
 import io.liveoak.filesystem.FileResource;
 import io.liveoak.spi.MediaType;
 import io.liveoak.spi.RequestContext;
@@ -18,15 +12,14 @@ import io.liveoak.spi.resource.async.BinaryContentSink;
 import io.liveoak.spi.resource.async.BinaryResource;
 import io.liveoak.spi.resource.async.Resource;
 import io.liveoak.spi.resource.async.Responder;
-import org.jboss.logging.Logger;
-import org.vertx.java.core.buffer.Buffer;
+import io.netty.buffer.ByteBuf;
 
 /**
  * @author Bob McWhirter
  */
 public class AggregatingResource implements BinaryResource {
 
-    public AggregatingResource(Resource parent, String id, FileResource manifest) {
+    public AggregatingResource(AggregatingFilesystemResource parent, String id, FileResource manifest) {
         this.parent = parent;
         this.id = id;
         this.manifest = manifest;
@@ -41,65 +34,62 @@ public class AggregatingResource implements BinaryResource {
 
     @Override
     public long contentLength() {
-        List<File> files = getFilesList();
-        long total = 0;
-        for (File file: files) {
-            total += file.length();
-        }
-        return total;
+        return bundle().contentLength();
+    }
+
+    @Override
+    public long lastModified() {
+        return bundle().lastModified();
+    }
+
+    @Override
+    public String entityTag() {
+        return bundle().entityTag();
+    }
+
+    @Override
+    public ByteBuf cachedContent() {
+        return content(bundle().content());
     }
 
+    @Override
+    public BinaryResource encodedVariant(String contentCoding) {
+        if (!GZIP.equals(contentCoding) || !this.parent.bundles().gzip()) {
+            return null;
+        }
+        long length = bundle().gzippedLength();
+        if (length < 0 || length >= contentLength()) {
+            return null;
+        }
+        return new GzippedResource(bundle(), length);
+    }
 
-    private List<File> getFilesList() {
-        if (filesList == null) {
-            List<File> list = new LinkedList<>();
-
-            File file = this.manifest.file();
-            try {
-                BufferedReader reader = new BufferedReader(new FileReader(file));
-                try {
-                    String line = null;
-                    while ((line = reader.readLine()) != null) {
-                        line = line.trim();
-                        if (line.equals("") || line.startsWith("//")) {
-                            continue;
-                        }
-                        if (line.startsWith("require")) {
-                            String rest = line.substring("require".length()).trim();
-                            File sub = new File(file.getParent(), rest);
-                            list.add(sub);
-                        } else if (line.startsWith("optional")) {
-                            String rest = line.substring("optional".length()).trim();
-                            File sub = new File(file.getParent(), rest);
-                            if (sub.exists()) {
-                                list.add(sub);
-                            }
-                        }
-                    }
-                } finally {
-                    reader.close();
-                }
-            } catch (Exception e) {
-                log.debug("Failed to parse aggregating resource file: " + file, e);
-            }
-            filesList = list;
+    /**
+     * The bundle this resource is served from, looked up once so that the length, validators and content all
+     * come from the same one, even if it is replaced while the response is being written.
+     */
+    private Bundle bundle() {
+        if (this.bundle == null) {
+            this.bundle = this.parent.bundles().bundle(this.manifest.file());
         }
+        return this.bundle;
+    }
 
-        return filesList;
+    /**
+     * The content of another bundle would not match the length and entity tag already taken from this one,
+     * so failing the response is all there is left to do once it is gone.
+     */
+    private ByteBuf content(ByteBuf content) {
+        if (content == null) {
+            throw new IllegalStateException("Bundle released before its content was written: " + this.bundle);
+        }
+        return content;
     }
 
     @Override
     public void readContent(RequestContext ctx, BinaryContentSink sink) {
-        try {
-            for (File file: getFilesList()) {
-                Buffer buffer = manifest.vertx().fileSystem().readFileSync(file.getPath());
-                sink.accept(buffer.getByteBuf());
-            }
-        } catch (Exception e) {
-            log.debug("Failed to serve content: " + ctx.resourcePath(), e);
-        } finally {
-            sink.close();
-        }
+        sink.accept(content(bundle().content()));
+        sink.close();
     }
 
     @Override
@@ -117,10 +107,71 @@ public class AggregatingResource implements BinaryResource {
         responder.deleteNotSupported(this);
     }
 
-    private Resource parent;
+    /**
+     * The bundle gzipped, served in place of it to clients that accept gzip.
+     */
+    private class GzippedResource implements BinaryResource {
+
+        GzippedResource(Bundle bundle, long contentLength) {
+            this.bundle = bundle;
+            this.contentLength = contentLength;
+        }
+
+        @Override
+        public MediaType mediaType() {
+            return AggregatingResource.this.mediaType();
+        }
+
+        @Override
+        public long contentLength() {
+            return this.contentLength;
+        }
+
+        @Override
+        public long lastModified() {
+            return AggregatingResource.this.lastModified();
+        }
+
+        @Override
+        public String entityTag() {
+            String tag = AggregatingResource.this.entityTag();
+            return tag.substring(0, tag.length() - 1) + "-" + GZIP + "\"";
+        }
+
+        @Override
+        public String contentEncoding() {
+            return GZIP;
+        }
+
+        @Override
+        public ByteBuf cachedContent() {
+            return content(this.bundle.gzipped());
+        }
+
+        @Override
+        public void readContent(RequestContext ctx, BinaryContentSink sink) {
+            sink.accept(content(this.bundle.gzipped()));
+            sink.close();
+        }
+
+        @Override
+        public Resource parent() {
+            return AggregatingResource.this.parent();
+        }
+
+        @Override
+        public String id() {
+            return AggregatingResource.this.id();
+        }
+
+        private final Bundle bundle;
+        private final long contentLength;
+    }
+
+    private AggregatingFilesystemResource parent;
     private String id;
     private FileResource manifest;
-    private List<File> filesList;
+    private Bundle bundle;
 
-    private static final Logger log = Logger.getLogger(AggregatingResource.class);
+    private static final String GZIP = "gzip";
 }
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.filesystem.aggregating;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import org.jboss.logging.Logger;
+
+/**
+ * The files listed in an aggregation manifest, concatenated into a single direct buffer.
+ *
+ * <p>A bundle is immutable once built. When the manifest or any of the files change, a new bundle is built,
+ * copying the content of unchanged files over from the previous one rather than reading them again.
+ * Content handed out is retained, so a bundle that is replaced while its content is still being written
+ * out is only freed once the last write is done.</p>
+ */
+public class Bundle {
+
+    private final File manifest;
+    private final long manifestLastModified;
+    private final long manifestLength;
+    private final List<Component> components;
+    private final List<File> missing;
+    private final ByteBuf content;
+    private final long lastModified;
+    private final String entityTag;
+
+    private ByteBuf gzipped;
+    private boolean released;
+    private volatile long checked;
+
+    private Bundle(File manifest, List<Component> components, List<File> missing, ByteBuf content, byte[] digest) {
+        this.manifest = manifest;
+        this.manifestLastModified = manifest.lastModified();
+        this.manifestLength = manifest.length();
+        this.components = components;
+        this.missing = missing;
+        this.content = content;
+        long lastModified = this.manifestLastModified;
+        for (Component component : components) {
+            lastModified = Math.max(lastModified, component.lastModified);
+        }
+        this.lastModified = lastModified;
+        this.entityTag = "\"" + hex(digest) + "\"";
+        this.checked = System.currentTimeMillis();
+    }
+
+    /**
+     * Build a bundle from the manifest, reusing what is unchanged from the previous bundle.
+     *
+     * @param manifest The manifest listing the files to concatenate
+     * @param previous The bundle built from the manifest before, or null
+     */
+    static Bundle build(File manifest, Bundle previous) {
+        List<File> files = new ArrayList<>();
+        List<File> missing = new ArrayList<>();
+        if (previous == null || previous.manifestChanged() || previous.missingAppeared()) {
+            parse(manifest, files, missing);
+        } else {
+            for (Component component : previous.components) {
+                files.add(component.file);
+            }
+            missing.addAll(previous.missing);
+        }
+
+        Map<File, Component> reusable = new HashMap<>();
+        if (previous != null) {
+            for (Component component : previous.components) {
+                reusable.put(component.file, component);
+            }
+        }
+
+        List<Component> components = new ArrayList<>(files.size());
+        List<ByteBuf> parts = new ArrayList<>(files.size());
+        List<ByteBuf> read = new ArrayList<>();
+        MessageDigest bundleDigest = digest();
+        try {
+            int offset = 0;
+            for (File file : files) {
+                long lastModified = file.lastModified();
+                long length = file.length();
+                Component component = reusable.get(file);
+                ByteBuf part;
+                byte[] hash;
+                if (component != null && component.lastModified == lastModified && component.length == length) {
+                    part = previous.content.slice(component.offset, component.length);
+                    hash = component.hash;
+                } else {
+                    part = read(file, length);
+                    if (part == null) {
+                        missing.add(file);
+                        continue;
+                    }
+                    read.add(part);
+                    MessageDigest digest = digest();
+                    digest.update(part.nioBuffer());
+                    hash = digest.digest();
+                }
+                components.add(new Component(file, lastModified, part.readableBytes(), offset, hash));
+                parts.add(part);
+                offset += part.readableBytes();
+                bundleDigest.update(hash);
+            }
+
+            ByteBuf content = Unpooled.directBuffer(offset, offset);
+            for (ByteBuf part : parts) {
+                content.writeBytes(part, part.readerIndex(), part.readableBytes());
+            }
+            return new Bundle(manifest, components, missing, content, bundleDigest.digest());
+        } finally {
+            for (ByteBuf part : read) {
+                part.release();
+            }
+        }
+    }
+
+    private static void parse(File manifest, List<File> files, List<File> missing) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(manifest))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.equals("") || line.startsWith("//")) {
+                    continue;
+                }
+                if (line.startsWith("require")) {
+                    String rest = line.substring("require".length()).trim();
+                    files.add(new File(manifest.getParent(), rest));
+                } else if (line.startsWith("optional")) {
+                    String rest = line.substring("optional".length()).trim();
+                    File sub = new File(manifest.getParent(), rest);
+                    if (sub.exists()) {
+                        files.add(sub);
+                    } else {
+                        missing.add(sub);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Failed to parse aggregating resource file: " + manifest, e);
+        }
+    }
+
+    private static ByteBuf read(File file, long length) {
+        if (!file.isFile() || length > Integer.MAX_VALUE) {
+            log.debug("Skipping missing aggregated file: " + file);
+            return null;
+        }
+        ByteBuf part = Unpooled.buffer((int) length);
+        try (FileInputStream in = new FileInputStream(file)) {
+            while (part.writableBytes() > 0) {
+                if (part.writeBytes(in.getChannel(), part.writableBytes()) == -1) {
+                    break;
+                }
+            }
+            return part;
+        } catch (IOException e) {
+            log.debug("Failed to read aggregated file: " + file, e);
+            part.release();
+            return null;
+        }
+    }
+
+    /**
+     * Tell whether the bundle still reflects the manifest and the files it lists, checking at most once per interval.
+     *
+     * @param interval Milliseconds during which the bundle is taken to be current since the last check
+     */
+    boolean isCurrent(long interval) {
+        long now = System.currentTimeMillis();
+        if (now - this.checked < interval) {
+            return true;
+        }
+        if (manifestChanged() || missingAppeared()) {
+            return false;
+        }
+        for (Component component : this.components) {
+            if (component.file.lastModified() != component.lastModified || component.file.length() != component.length) {
+                return false;
+            }
+        }
+        this.checked = now;
+        return true;
+    }
+
+    private boolean manifestChanged() {
+        return this.manifest.lastModified() != this.manifestLastModified || this.manifest.length() != this.manifestLength;
+    }
+
+    private boolean missingAppeared() {
+        for (File file : this.missing) {
+            if (file.exists()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The content, retained for the caller to release, or null if the bundle has been released
+     */
+    public synchronized ByteBuf content() {
+        if (this.released) {
+            return null;
+        }
+        return this.content.duplicate().retain();
+    }
+
+    /**
+     * @return The content gzipped, retained for the caller to release, or null if the bundle has been released
+     */
+    public synchronized ByteBuf gzipped() {
+        if (this.released) {
+            return null;
+        }
+        if (this.gzipped == null) {
+            this.gzipped = gzip(this.content);
+        }
+        return this.gzipped.duplicate().retain();
+    }
+
+    /**
+     * @return Length of the gzipped content, gzipping it if that hasn't been done yet, or -1 if the bundle has been released
+     */
+    public synchronized long gzippedLength() {
+        if (this.released) {
+            return -1;
+        }
+        if (this.gzipped == null) {
+            this.gzipped = gzip(this.content);
+        }
+        return this.gzipped.readableBytes();
+    }
+
+    private static ByteBuf gzip(ByteBuf content) {
+        ByteBuf gzipped = Unpooled.directBuffer(Math.max(64, content.readableBytes() / 3));
+        try (GZIPOutputStream out = new GZIPOutputStream(new ByteBufOutputStream(gzipped)) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            content.getBytes(content.readerIndex(), out, content.readableBytes());
+        } catch (IOException e) {
+            gzipped.release();
+            throw new IllegalStateException(e);
+        }
+        return gzipped;
+    }
+
+    public long contentLength() {
+        return this.content.readableBytes();
+    }
+
+    public long lastModified() {
+        return this.lastModified;
+    }
+
+    /**
+     * @return A strong entity tag, made from the hashes of the content of each of the files
+     */
+    public String entityTag() {
+        return this.entityTag;
+    }
+
+    /**
+     * Give up the bundle's own reference to its content. Content handed out before stays valid until released.
+     */
+    synchronized void release() {
+        if (!this.released) {
+            this.released = true;
+            this.content.release();
+            if (this.gzipped != null) {
+                this.gzipped.release();
+            }
+        }
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    public String toString() {
+        return "[Bundle: manifest=" + this.manifest + ", files=" + this.components.size() + ", length=" + contentLength() + ", etag=" + this.entityTag + "]";
+    }
+
+    private static class Component {
+        private final File file;
+        private final long lastModified;
+        private final int length;
+        private final int offset;
+        private final byte[] hash;
+
+        Component(File file, long lastModified, int length, int offset, byte[] hash) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.offset = offset;
+            this.hash = hash;
+        }
+    }
+
+    private static final Logger log = Logger.getLogger(Bundle.class);
+}
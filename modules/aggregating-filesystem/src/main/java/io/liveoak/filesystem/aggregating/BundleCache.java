@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.filesystem.aggregating;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The current {@link Bundle} of each aggregation manifest.
+ *
+ * <p>A replaced bundle is kept until it is replaced in turn, so that responses which took their length and
+ * entity tag from it just before can still get its content.</p>
+ */
+public class BundleCache {
+
+    public static final String CHECK_INTERVAL_PROPERTY = "liveoak.filesystem.aggregating.check-interval";
+    public static final String GZIP_PROPERTY = "liveoak.filesystem.aggregating.gzip";
+
+    private final long checkInterval;
+    private final boolean gzip;
+    private final Map<String, Bundle> bundles = new HashMap<>();
+    // the bundle each current one replaced, released once that is replaced too
+    private final Map<String, Bundle> replaced = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+
+    public BundleCache() {
+        this(Long.getLong(CHECK_INTERVAL_PROPERTY, 0), Boolean.parseBoolean(System.getProperty(GZIP_PROPERTY, "true")));
+    }
+
+    /**
+     * @param checkInterval Milliseconds for which a bundle is served without checking the files for changes
+     * @param gzip Whether to keep a gzipped copy of bundles
+     */
+    public BundleCache(long checkInterval, boolean gzip) {
+        this.checkInterval = checkInterval;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Get the bundle for the manifest, building it if there is none yet or the files have changed since.
+     */
+    public Bundle bundle(File manifest) {
+        String key = manifest.getPath();
+        synchronized (this.bundles) {
+            Bundle bundle = this.bundles.get(key);
+            if (bundle != null && bundle.isCurrent(this.checkInterval)) {
+                hits.incrementAndGet();
+                return bundle;
+            }
+            builds.incrementAndGet();
+            Bundle built = Bundle.build(manifest, bundle);
+            this.bundles.put(key, built);
+            if (bundle != null) {
+                Bundle older = this.replaced.put(key, bundle);
+                if (older != null) {
+                    older.release();
+                }
+            }
+            return built;
+        }
+    }
+
+    public boolean gzip() {
+        return this.gzip;
+    }
+
+    /**
+     * Release all the bundles.
+     */
+    public void clear() {
+        synchronized (this.bundles) {
+            for (Bundle bundle : this.bundles.values()) {
+                bundle.release();
+            }
+            for (Bundle bundle : this.replaced.values()) {
+                bundle.release();
+            }
+            this.bundles.clear();
+            this.replaced.clear();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long builds() {
+        return builds.get();
+    }
+
+    public String toString() {
+        synchronized (this.bundles) {
+            return "[BundleCache: count=" + this.bundles.size() + ", hits=" + hits() + ", builds=" + builds() + "]";
+        }
+    }
+}
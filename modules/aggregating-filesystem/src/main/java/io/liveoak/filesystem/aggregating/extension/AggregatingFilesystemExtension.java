@@ -1,6 +1,7 @@
 package io.liveoak.filesystem.aggregating.extension;
 
 import java.io.File;
+import java.util.concurrent.Executor;
 
 import io.liveoak.filesystem.FileSystemAdminResource;
 import io.liveoak.filesystem.aggregating.service.AggregatingFilesystemResourceService;
@@ -31,6 +32,7 @@ public class AggregatingFilesystemExtension extends FilesystemExtension {
         context.target().addService(Services.resource(context.application().id(), context.resourceId()), publicResource)
                 .addDependency(Services.VERTX, Vertx.class, publicResource.vertxInjector())
                 .addDependency(privateResourceServiceName, FileSystemAdminResource.class, publicResource.adminResourceInjector())
+                .addDependency(Services.WORKER_POOL, Executor.class, publicResource.workerPoolInjector())
                 .install();
 
         context.mountPublic(Services.resource(context.application().id(), context.resourceId()));
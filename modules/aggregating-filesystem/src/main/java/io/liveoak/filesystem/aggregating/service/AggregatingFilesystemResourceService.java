@@ -4,6 +4,7 @@ import io.liveoak.filesystem.aggregating.AggregatingFilesystemResource;
 import io.liveoak.filesystem.service.FilesystemResourceService;
 import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
+import org.jboss.msc.service.StopContext;
 
 /**
  * @author Bob McWhirter
@@ -19,6 +20,13 @@ public class AggregatingFilesystemResourceService extends FilesystemResourceServ
         this.resource = new AggregatingFilesystemResource(
                 this.adminResourceInjector.getValue(),
                 this.id,
-                this.vertxInjector.getValue());
+                this.vertxInjector.getValue(),
+                this.workerPoolInjector.getValue());
+    }
+
+    @Override
+    public void stop(StopContext context) {
+        ((AggregatingFilesystemResource) this.resource).bundles().clear();
+        super.stop(context);
     }
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.filesystem.aggregating;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BundleCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplacedBundleKeptUntilReplacedAgain() throws Exception {
+        File manifest = write("aggregate.js.aggr", "require first.js\n");
+        write("first.js", "var a = 1;\n");
+
+        BundleCache cache = new BundleCache(0, false);
+        Bundle first = cache.bundle(manifest);
+
+        write("first.js", "var a = 12;\n");
+        Bundle second = cache.bundle(manifest);
+        assertThat(second).isNotSameAs(first);
+
+        // a response that took its length and entity tag from the first bundle can still get its content
+        ByteBuf content = first.content();
+        assertThat(content).isNotNull();
+        assertThat(content.readableBytes()).isEqualTo((int) first.contentLength());
+        content.release();
+
+        write("first.js", "var a = 123;\n");
+        Bundle third = cache.bundle(manifest);
+        assertThat(third).isNotSameAs(second);
+        assertThat(first.content()).isNull();
+
+        content = second.content();
+        assertThat(content).isNotNull();
+        content.release();
+
+        cache.clear();
+        assertThat(second.content()).isNull();
+        assertThat(third.content()).isNull();
+    }
+
+    private File write(String name, String text) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        try (FileWriter out = new FileWriter(file)) {
+            out.write(text);
+        }
+        return file;
+    }
+}
@@ -9,6 +9,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.zip.GZIPInputStream;
 
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import io.liveoak.filesystem.aggregating.extension.AggregatingFilesystemExtension;
@@ -16,6 +17,7 @@ import io.liveoak.testtools.AbstractHTTPResourceTestCase;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
 import org.junit.After;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -164,4 +166,64 @@ public class HTTPAggregatingFilesystemResourceTest extends AbstractHTTPResourceT
             httpClient.close();
         }
     }
+
+    @Test
+    public void testReadAggregateCached() throws Exception {
+        setupNoOptional();
+        String uri = "http://localhost:8080/testApp/aggr/aggregate.js";
+
+        try {
+            HttpGet get = new HttpGet(uri);
+            get.addHeader("Accept", "*/*");
+
+            String entityTag;
+            try (CloseableHttpResponse result = httpClient.execute(get)) {
+                assertThat(result.getStatusLine().getStatusCode()).isEqualTo(200);
+                assertThat(EntityUtils.toString(result.getEntity())).isEqualTo("// first.js\n// second.js\n");
+                entityTag = result.getFirstHeader("ETag").getValue();
+            }
+
+            // unchanged since
+            get = new HttpGet(uri);
+            get.addHeader("Accept", "*/*");
+            get.addHeader("If-None-Match", entityTag);
+            try (CloseableHttpResponse result = httpClient.execute(get)) {
+                assertThat(result.getStatusLine().getStatusCode()).isEqualTo(304);
+            }
+
+            // compressed
+            get = new HttpGet(uri);
+            get.addHeader("Accept", "*/*");
+            get.addHeader("Accept-Encoding", "gzip");
+            try (CloseableHttpResponse result = httpClient.execute(get)) {
+                assertThat(result.getStatusLine().getStatusCode()).isEqualTo(200);
+                assertThat(result.getFirstHeader("Content-Encoding").getValue()).isEqualTo("gzip");
+                GZIPInputStream in = new GZIPInputStream(result.getEntity().getContent());
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buf = new byte[1024];
+                int len;
+                while ((len = in.read(buf)) != -1) {
+                    out.write(buf, 0, len);
+                }
+                assertThat(new String(out.toByteArray())).isEqualTo("// first.js\n// second.js\n");
+            }
+
+            // an optional file turns up
+            FileWriter writer = new FileWriter(new File(new File(projectRoot, "aggr"), "third.js"));
+            writer.write("// third.js\n");
+            writer.close();
+
+            get = new HttpGet(uri);
+            get.addHeader("Accept", "*/*");
+            get.addHeader("If-None-Match", entityTag);
+            try (CloseableHttpResponse result = httpClient.execute(get)) {
+                assertThat(result.getStatusLine().getStatusCode()).isEqualTo(200);
+                assertThat(EntityUtils.toString(result.getEntity())).isEqualTo("// first.js\n// second.js\n// third.js\n");
+                assertThat(result.getFirstHeader("ETag").getValue()).isNotEqualTo(entityTag);
+            }
+
+        } finally {
+            httpClient.close();
+        }
+    }
 }
@@ -9,12 +9,18 @@ public class DefaultPagination implements Pagination {
 
     private int offset;
     private int limit;
+    private String cursor;
 
     public DefaultPagination(int offset, int limit) {
         this.offset = offset;
         this.limit = limit;
     }
 
+    public DefaultPagination(int limit, String cursor) {
+        this.limit = limit;
+        this.cursor = cursor;
+    }
+
     @Override
     public int offset() {
         return offset;
@@ -24,4 +30,9 @@ public class DefaultPagination implements Pagination {
     public int limit() {
         return limit;
     }
+
+    @Override
+    public String cursor() {
+        return cursor;
+    }
 }
@@ -115,8 +115,11 @@ public class DefaultRequestContext implements RequestContext {
 
     @Override
     public void dispose() {
-        if (disposeTasks != null) {
-            for (Runnable r : disposeTasks) {
+        // a response may be written more than once, such as when streaming it fails part way, so only dispose once
+        List<Runnable> tasks = disposeTasks;
+        disposeTasks = null;
+        if (tasks != null) {
+            for (Runnable r : tasks) {
                 r.run();
             }
         }
@@ -7,6 +7,7 @@ package io.liveoak.common;
 
 import java.util.UUID;
 
+import io.liveoak.common.codec.EncodingResult;
 import io.liveoak.spi.MediaTypeMatcher;
 import io.liveoak.spi.ResourceRequest;
 import io.liveoak.spi.ResourceResponse;
@@ -59,6 +60,16 @@ public class DefaultResourceResponse implements ResourceResponse {
         this.state = state;
     }
 
+    /**
+     * The response body, if the resource was stream-encoded without materializing its state.
+     */
+    public EncodingResult encoded() {
+        return this.encoded;
+    }
+
+    public void encoded(EncodingResult encoded) {
+        this.encoded = encoded;
+    }
 
     @Override
     public Resource resource() {
@@ -73,4 +84,5 @@ public class DefaultResourceResponse implements ResourceResponse {
     private ResponseType responseType;
     private ResourceState state;
     private Resource resource;
+    private EncodingResult encoded;
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.common.codec;
+
+import java.util.function.Consumer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * An encoder able to hand its output over in chunks while encoding is still in progress.
+ */
+public interface ChunkedEncoder {
+
+    /**
+     * Hand the output encoded so far to the chunk handler whenever it is worth sending ahead,
+     * continuing the encoding in a fresh buffer obtained from the allocator.
+     *
+     * <p>Ownership of each chunk passes to the handler, which may block to apply back-pressure.</p>
+     *
+     * @param allocator The allocator for buffers replacing those handed over.
+     * @param chunkHandler The handler receiving the chunks.
+     */
+    void chunkHandler(ByteBufAllocator allocator, Consumer<ByteBuf> chunkHandler);
+
+    /**
+     * @return The buffer currently being encoded into, holding everything not yet handed over.
+     */
+    ByteBuf buffer();
+}
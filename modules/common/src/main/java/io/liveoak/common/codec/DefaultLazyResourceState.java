@@ -14,6 +14,7 @@ import java.util.List;
 import java.util.Set;
 
 import io.liveoak.spi.MediaType;
+import io.liveoak.spi.resource.async.BinaryContentSink;
 import io.liveoak.spi.state.LazyResourceState;
 import io.liveoak.spi.state.ResourceState;
 import io.netty.buffer.ByteBuf;
@@ -32,6 +33,7 @@ public class DefaultLazyResourceState implements LazyResourceState {
     private ResourceState delegate;
     private FileUpload fileUpload;
     private boolean delegateFromFileUpload;
+    private volatile BinaryContentSink contentSink;
 
     public DefaultLazyResourceState(ResourceCodecManager mgr, MediaType mediaType) {
         this.mgr = mgr;
@@ -229,4 +231,14 @@ public class DefaultLazyResourceState implements LazyResourceState {
     public void content(ByteBuf content) {
         this.buffer = content;
     }
+
+    @Override
+    public void contentSink(BinaryContentSink sink) {
+        this.contentSink = sink;
+    }
+
+    @Override
+    public BinaryContentSink contentSink() {
+        return contentSink;
+    }
 }
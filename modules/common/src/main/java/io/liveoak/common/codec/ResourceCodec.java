@@ -5,10 +5,19 @@
  */
 package io.liveoak.common.codec;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.liveoak.common.codec.driver.RootEncodingDriver;
 import io.liveoak.common.codec.driver.StateEncodingDriver;
 import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.ReturnFields;
+import io.liveoak.spi.resource.async.Resource;
 import io.liveoak.spi.state.ResourceState;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 
 /**
@@ -18,14 +27,26 @@ import io.netty.buffer.Unpooled;
 public class ResourceCodec {
 
     public ResourceCodec(Class<? extends StateEncoder> encoderClass, ResourceDecoder decoder) {
+        this(encoderClass, decoder, null);
+    }
+
+    public ResourceCodec(Class<? extends StateEncoder> encoderClass, ResourceDecoder decoder, Function<ReturnFields, ResourceEncoder> streamingEncoderFactory) {
         this.encoderClass = encoderClass;
         this.decoder = decoder;
+        this.streamingEncoderFactory = streamingEncoderFactory;
     }
 
     public boolean hasEncoder() {
         return this.encoderClass != null;
     }
 
+    /**
+     * Whether this codec can encode a Resource directly, without first materializing its ResourceState.
+     */
+    public boolean hasStreamingEncoder() {
+        return this.streamingEncoderFactory != null;
+    }
+
     public boolean hasDecoder() {
         return this.decoder != null;
     }
@@ -40,11 +61,88 @@ public class ResourceCodec {
         return buffer;
     }
 
+    /**
+     * Encode a resource straight into the supplied buffer, driving the resource's properties and members
+     * through this codec's streaming encoder as they are read.
+     *
+     * <p>Completion is asynchronous, as resources may produce their properties and members on other threads.
+     * The buffer is left untouched on error, releasing it is up to the caller.</p>
+     *
+     * @param ctx The request context, supplying the return fields and pagination.
+     * @param resource The resource to encode.
+     * @param buffer The buffer to encode into.
+     * @param completionHandler Invoked once the resource has been fully encoded.
+     * @param errorHandler Invoked if encoding fails.
+     * @throws Exception If the encoding could not be started.
+     */
+    public void encode(RequestContext ctx, Resource resource, ByteBuf buffer, Runnable completionHandler, Consumer<Throwable> errorHandler) throws Exception {
+        ResourceEncoder encoder = this.streamingEncoderFactory.apply(ctx.returnFields());
+        encoder.initialize(buffer);
+        RootEncodingDriver driver = new RootEncodingDriver(ctx, encoder, resource, completionHandler, errorHandler);
+        driver.encode();
+    }
+
+    /**
+     * Encode a resource into buffers obtained from the allocator, handing chunks of the output over
+     * while encoding is still in progress if the streaming encoder supports it.
+     *
+     * <p>Exactly one of the completion and error handlers is invoked. The completion handler receives
+     * whatever output has not been handed over as a chunk yet, possibly the whole resource. On error the
+     * pending output is released, while chunks already handed over remain the chunk handler's.</p>
+     *
+     * @param ctx The request context, supplying the return fields and pagination.
+     * @param resource The resource to encode.
+     * @param allocator The allocator for the output buffers.
+     * @param chunkHandler Receives chunks of output, and may block to slow down encoding.
+     * @param completionHandler Receives the remaining output once the resource has been fully encoded.
+     * @param errorHandler Invoked if encoding fails.
+     */
+    public void encode(RequestContext ctx, Resource resource, ByteBufAllocator allocator, Consumer<ByteBuf> chunkHandler,
+                       Consumer<ByteBuf> completionHandler, Consumer<Throwable> errorHandler) {
+        AtomicBoolean done = new AtomicBoolean();
+        ResourceEncoder encoder = this.streamingEncoderFactory.apply(ctx.returnFields());
+        ByteBuf buffer = allocator.buffer();
+        try {
+            encoder.initialize(buffer);
+        } catch (Throwable t) {
+            buffer.release();
+            errorHandler.accept(t);
+            return;
+        }
+
+        Supplier<ByteBuf> pending = () -> buffer;
+        if (encoder instanceof ChunkedEncoder) {
+            ChunkedEncoder chunkedEncoder = (ChunkedEncoder) encoder;
+            chunkedEncoder.chunkHandler(allocator, chunkHandler);
+            pending = chunkedEncoder::buffer;
+        }
+
+        Supplier<ByteBuf> remaining = pending;
+        Consumer<Throwable> onError = t -> {
+            if (done.compareAndSet(false, true)) {
+                remaining.get().release();
+                errorHandler.accept(t);
+            }
+        };
+
+        try {
+            RootEncodingDriver driver = new RootEncodingDriver(ctx, encoder, resource, () -> {
+                if (done.compareAndSet(false, true)) {
+                    completionHandler.accept(remaining.get());
+                }
+            }, onError);
+            driver.encode();
+        } catch (Throwable t) {
+            onError.accept(t);
+        }
+    }
+
     public ResourceState decode(ByteBuf resource) throws Exception {
         return this.decoder.decode(resource);
     }
 
     private final Class<? extends StateEncoder> encoderClass;
     private final ResourceDecoder decoder;
+    private final Function<ReturnFields, ResourceEncoder> streamingEncoderFactory;
 
 }
@@ -85,6 +85,25 @@ public class ResourceCodecManager {
         return new EncodingResult(bestMatch, codec.encode(ctx, response.state()));
     }
 
+    /**
+     * Determine the media type a resource could be stream-encoded to, bypassing its ResourceState.
+     *
+     * @param mediaTypeMatcher The matcher for the media types accepted by the requester.
+     * @return The best matching media type, or null if its codec does not support streaming.
+     */
+    public MediaType streamingMediaType(MediaTypeMatcher mediaTypeMatcher) {
+        MediaType bestMatch = mediaTypeMatcher.findBestMatch(mediaTypes());
+        if (bestMatch == null) {
+            return null;
+        }
+
+        ResourceCodec codec = getResourceCodec(bestMatch);
+        if (codec == null || !codec.hasStreamingEncoder()) {
+            return null;
+        }
+        return bestMatch;
+    }
+
     public List<MediaType> mediaTypes() {
         return this.codecs.stream().map(e->  e.mediaType ).collect(Collectors.toList());
     }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.common.codec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import io.liveoak.spi.MediaType;
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.resource.async.Resource;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * An encoding result whose content has yet to be produced, encoded as it is written out.
+ *
+ * <p>{@link #encoded()} is always null; the content is obtained through {@link #encode}. Whatever has to outlive
+ * the encoding, such as the request context, can be released from {@link #onComplete}.</p>
+ */
+public class StreamingEncodingResult extends EncodingResult {
+
+    public StreamingEncodingResult(MediaType mediaType, ResourceCodec codec, RequestContext requestContext, Resource resource, Executor executor) {
+        super(mediaType, null);
+        this.codec = codec;
+        this.requestContext = requestContext;
+        this.resource = resource;
+        this.executor = executor;
+    }
+
+    /**
+     * Encode the resource on this result's executor.
+     *
+     * @see ResourceCodec#encode(RequestContext, Resource, ByteBufAllocator, Consumer, Consumer, Consumer)
+     */
+    public void encode(ByteBufAllocator allocator, Consumer<ByteBuf> chunkHandler, Consumer<ByteBuf> completionHandler, Consumer<Throwable> errorHandler) {
+        this.executor.execute(() -> {
+            this.codec.encode(this.requestContext, this.resource, allocator, chunkHandler, (remaining) -> {
+                try {
+                    completionHandler.accept(remaining);
+                } finally {
+                    complete();
+                }
+            }, (t) -> {
+                try {
+                    errorHandler.accept(t);
+                } finally {
+                    complete();
+                }
+            });
+        });
+    }
+
+    /**
+     * Run the task once encoding has completed or failed, or right away if it already has.
+     */
+    public void onComplete(Runnable task) {
+        synchronized (this.completionTasks) {
+            if (!this.complete) {
+                this.completionTasks.add(task);
+                return;
+            }
+        }
+        task.run();
+    }
+
+    /**
+     * Give up on encoding that is never going to be started, running the completion tasks.
+     */
+    public void discard() {
+        complete();
+    }
+
+    private void complete() {
+        List<Runnable> tasks;
+        synchronized (this.completionTasks) {
+            if (this.complete) {
+                return;
+            }
+            this.complete = true;
+            tasks = new ArrayList<>(this.completionTasks);
+            this.completionTasks.clear();
+        }
+        tasks.forEach(Runnable::run);
+    }
+
+    private final ResourceCodec codec;
+    private final RequestContext requestContext;
+    private final Resource resource;
+    private final Executor executor;
+    private final List<Runnable> completionTasks = new ArrayList<>();
+    private boolean complete;
+}
@@ -5,22 +5,32 @@
  */
 package io.liveoak.common.codec.driver;
 
+import java.util.LinkedList;
 import java.util.function.BiFunction;
 
 import io.liveoak.spi.LiveOak;
 import io.liveoak.spi.ReturnFields;
+import io.liveoak.spi.resource.BlockingResource;
 import io.liveoak.spi.resource.StatusResource;
 import io.liveoak.spi.resource.async.Resource;
 import io.liveoak.spi.resource.async.ResourceSink;
 import org.jboss.logging.Logger;
 
 /**
+ * Encodes the members of a resource.
+ *
+ * <p>Members of a {@link BlockingResource} are encoded as soon as they are accepted. Such resources are read on
+ * the worker pool, where writing out what has been encoded so far can be waited for, so the members don't have to
+ * be held until the last one has been read. Members of any other resource are read on the event loop, where waiting
+ * for writes is not possible - those are encoded once all of them have been accepted, as before.</p>
+ *
  * @author Bob McWhirter
  */
 public class MembersEncodingDriver extends ResourceEncodingDriver {
 
     public MembersEncodingDriver(EncodingDriver parent, Resource resource, ReturnFields returnFields, BiFunction<String[], Object, Object> configReplaceFunction) {
         super(parent, resource, returnFields, configReplaceFunction);
+        this.incremental = resource instanceof BlockingResource;
     }
 
     @Override
@@ -31,8 +41,47 @@ public class MembersEncodingDriver extends ResourceEncodingDriver {
         if (requestContext().returnFields().included(LiveOak.MEMBERS) && requestContext().pagination().limit() > 0) {
             resource().readMembers(requestContext(), new MyResourceSink());
         } else {
-            encodeNext();
+            close();
+        }
+    }
+
+    /**
+     * Encode the next member waiting, if any.
+     */
+    @Override
+    public void encodeNext() throws Exception {
+        EncodingDriver next;
+        synchronized (this) {
+            next = this.pending.poll();
+            if (next == null) {
+                this.active = false;
+                if (!this.completed) {
+                    return;
+                }
+            }
+        }
+        if (next != null) {
+            next.encode();
+        } else {
+            close();
+        }
+    }
+
+    private void schedule(EncodingDriver member, boolean complete) throws Exception {
+        synchronized (this) {
+            if (member != null) {
+                this.pending.add(member);
+            }
+            if (complete) {
+                this.completed = true;
+            }
+            if (this.active) {
+                // the member currently being encoded picks up the rest once done
+                return;
+            }
+            this.active = true;
         }
+        encodeNext();
     }
 
     @Override
@@ -47,7 +96,7 @@ public class MembersEncodingDriver extends ResourceEncodingDriver {
 
         @Override
         public void accept(Resource resource) {
-            if (!returnFields().included(LiveOak.MEMBERS)) {
+            if (!returnFields().included(LiveOak.MEMBERS) || error != null) {
                 return;
             }
             if (!hasMembers) {
@@ -61,12 +110,24 @@ public class MembersEncodingDriver extends ResourceEncodingDriver {
                 }
                 hasMembers = true;
             }
+            EncodingDriver member;
             if (resource instanceof StatusResource) {
-                addChildDriver(new ResourceEncodingDriver(MembersEncodingDriver.this, resource, ReturnFields.ALL, replaceConfigFunction()));
+                member = new ResourceEncodingDriver(MembersEncodingDriver.this, resource, ReturnFields.ALL, replaceConfigFunction());
             } else if (returnFields().child(LiveOak.MEMBERS).isEmpty()) {
-                addChildDriver(new ValueEncodingDriver(MembersEncodingDriver.this, resource));
+                member = new ValueEncodingDriver(MembersEncodingDriver.this, resource);
             } else {
-                addChildDriver(new ResourceEncodingDriver(MembersEncodingDriver.this, resource, returnFields().child(LiveOak.MEMBERS), replaceConfigFunction()));
+                member = new ResourceEncodingDriver(MembersEncodingDriver.this, resource, returnFields().child(LiveOak.MEMBERS), replaceConfigFunction());
+            }
+            if (!incremental) {
+                synchronized (MembersEncodingDriver.this) {
+                    pending.add(member);
+                }
+                return;
+            }
+            try {
+                schedule(member, false);
+            } catch (Exception e) {
+                error = e;
             }
         }
 
@@ -79,7 +140,7 @@ public class MembersEncodingDriver extends ResourceEncodingDriver {
         public void complete() {
             try {
                 if (error == null) {
-                    encodeNext();
+                    schedule(null, true);
                 }
             } catch (Exception e) {
                 error = e;
@@ -96,10 +157,14 @@ public class MembersEncodingDriver extends ResourceEncodingDriver {
             }
         }
 
-        private Throwable error;
+        private volatile Throwable error;
     }
 
+    private final boolean incremental;
     private boolean hasMembers;
+    private final LinkedList<EncodingDriver> pending = new LinkedList<>();
+    private boolean active;
+    private boolean completed;
 
     private static final Logger log = Logger.getLogger(MembersEncodingDriver.class);
 }
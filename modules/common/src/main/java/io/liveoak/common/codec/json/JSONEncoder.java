@@ -6,6 +6,8 @@
 package io.liveoak.common.codec.json;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
@@ -34,8 +36,11 @@ public class JSONEncoder implements StateEncoder {
 
     @Override
     public void initialize(ByteBuf buffer) throws Exception {
+        initialize(new ByteBufOutputStream(buffer));
+    }
+
+    public void initialize(OutputStream out) throws Exception {
         JsonFactory factory = new JsonFactory();
-        ByteBufOutputStream out = new ByteBufOutputStream(buffer);
         this.generator = factory.createGenerator(out);
         this.generator.setPrettyPrinter(new DefaultPrettyPrinter("\\n"));
     }
@@ -50,28 +55,43 @@ public class JSONEncoder implements StateEncoder {
 
     @Override
     public void startResource(ResourceState resourceState) throws Exception {
+        startResource(resourceState.id(), resourceState.uri());
+    }
+
+    public void startResource(String id, URI uri) throws Exception {
         this.generator.writeStartObject();
         if (this.inhibitIds) {
             return;
         }
-        if (resourceState.id() != null) {
+        if (id != null) {
             this.generator.writeFieldName(LiveOak.ID);
-            this.generator.writeString(resourceState.id());
+            this.generator.writeString(id);
         }
-        if (resourceState.uri() != null) {
+        if (uri != null) {
             this.generator.writeFieldName(LiveOak.SELF);
             this.generator.writeStartObject();
             this.generator.writeFieldName(LiveOak.HREF);
-            this.generator.writeString(resourceState.uri().toString());
+            this.generator.writeString(uri.toString());
             this.generator.writeEndObject();
         }
     }
 
     @Override
     public void endResource(ResourceState resourceState) throws IOException {
+        endResource();
+    }
+
+    public void endResource() throws IOException {
         this.generator.writeEndObject();
     }
 
+    /**
+     * Push everything generated so far into the underlying buffer, without closing the generator.
+     */
+    public void flush() throws IOException {
+        this.generator.flush();
+    }
+
     @Override
     public void startProperties() throws Exception {
         // not needed
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.common.codec.json;
+
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import io.liveoak.common.codec.ChunkedEncoder;
+import io.liveoak.common.codec.ResourceEncoder;
+import io.liveoak.spi.LiveOak;
+import io.liveoak.spi.ReturnFields;
+import io.liveoak.spi.resource.async.Resource;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * Encodes resources straight to JSON as the encoding drivers walk them, without
+ * building an intermediate ResourceState tree first.
+ *
+ * <p>The output matches what the JSONEncoder produces for the equivalent ResourceState,
+ * including the id/self exclusion rules applied by the StateEncodingDriver.</p>
+ *
+ * <p>When a chunk handler is set, the head of the document is handed over as soon as the members
+ * start, and the members themselves in chunks of roughly {@link #CHUNK_SIZE} bytes as they are encoded.</p>
+ */
+public class JSONResourceEncoder implements ResourceEncoder, ChunkedEncoder {
+
+    public static final int CHUNK_SIZE = 8192;
+
+    public JSONResourceEncoder(ReturnFields returnFields) {
+        this.returnFields = returnFields != null ? returnFields : ReturnFields.ALL;
+    }
+
+    @Override
+    public void initialize(ByteBuf buffer) throws Exception {
+        this.buffer = buffer;
+        this.delegate.initialize(new BufferOutputStream());
+    }
+
+    @Override
+    public void chunkHandler(ByteBufAllocator allocator, Consumer<ByteBuf> chunkHandler) {
+        this.allocator = allocator;
+        this.chunkHandler = chunkHandler;
+    }
+
+    @Override
+    public ByteBuf buffer() {
+        return this.buffer;
+    }
+
+    @Override
+    public void close() throws Exception {
+        this.delegate.close();
+    }
+
+    /**
+     * Push everything encoded so far into the buffer, so it may be written out before encoding completes.
+     */
+    public void flush() throws Exception {
+        this.delegate.flush();
+    }
+
+    // ----------------------------------------
+
+    @Override
+    public void startResource(Resource resource) throws Exception {
+        if (resource.id() != null && resource.uri() == null) {
+            throw new IllegalStateException("Resource has id() but not uri(): " + resource.id());
+        }
+
+        ReturnFields fields = fieldsForResource(resource.id());
+        this.frames.push(new Frame(Kind.RESOURCE, fields));
+
+        this.delegate.startResource(fields.excluded(LiveOak.ID) ? null : resource.id(),
+                fields.excluded(LiveOak.SELF) ? null : resource.uri());
+    }
+
+    @Override
+    public void endResource(Resource resource) throws Exception {
+        this.frames.pop();
+        this.delegate.endResource();
+        memberEncoded();
+    }
+
+    @Override
+    public void writeLink(Resource resource) throws Exception {
+        if (!this.frames.isEmpty() && this.frames.peek().kind == Kind.MEMBERS) {
+            ReturnFields fields = this.returnFields.child(LiveOak.MEMBERS);
+            this.delegate.startResource(fields.excluded(LiveOak.ID) ? null : resource.id(),
+                    fields.excluded(LiveOak.SELF) ? null : resource.uri());
+        } else {
+            // links outside of members are plain references
+            this.delegate.startResource(null, resource.uri());
+        }
+        this.delegate.endResource();
+        memberEncoded();
+    }
+
+    @Override
+    public void startProperties() throws Exception {
+        this.delegate.startProperties();
+    }
+
+    @Override
+    public void endProperties() throws Exception {
+        this.delegate.endProperties();
+    }
+
+    @Override
+    public void startProperty(String propertyName) throws Exception {
+        this.frames.push(new Frame(Kind.PROPERTY, this.frames.peek().fields));
+        this.delegate.startProperty(propertyName);
+    }
+
+    @Override
+    public void endProperty(String propertyName) throws Exception {
+        this.frames.pop();
+        this.delegate.endProperty(propertyName);
+    }
+
+    @Override
+    public void startMembers() throws Exception {
+        this.frames.push(new Frame(Kind.MEMBERS, this.frames.peek().fields));
+        this.delegate.startMembers();
+        if (this.frames.size() == 2) {
+            // get the properties out the door while the members are still being read
+            emitChunk(0);
+        }
+    }
+
+    @Override
+    public void endMembers() throws Exception {
+        this.frames.pop();
+        this.delegate.endMembers();
+    }
+
+    @Override
+    public void startList() throws Exception {
+        this.frames.push(new Frame(Kind.LIST, this.frames.isEmpty() ? this.returnFields : this.frames.peek().fields));
+        this.delegate.startList();
+    }
+
+    @Override
+    public void endList() throws Exception {
+        this.frames.pop();
+        this.delegate.endList();
+    }
+
+    // ----------------------------------------
+
+    @Override
+    public void writeValue(String value) throws Exception {
+        this.delegate.writeValue(value);
+    }
+
+    @Override
+    public void writeValue(Integer value) throws Exception {
+        this.delegate.writeValue(value);
+    }
+
+    @Override
+    public void writeValue(Double value) throws Exception {
+        this.delegate.writeValue(value);
+    }
+
+    @Override
+    public void writeValue(Long value) throws Exception {
+        this.delegate.writeValue(value);
+    }
+
+    @Override
+    public void writeValue(Boolean value) throws Exception {
+        this.delegate.writeValue(value);
+    }
+
+    @Override
+    public void writeValue(Date value) throws Exception {
+        this.delegate.writeValue(value);
+    }
+
+    @Override
+    public void writeValue(Map value) throws Exception {
+        this.delegate.writeValue(value);
+    }
+
+    @Override
+    public void writeNullValue() throws Exception {
+        this.delegate.writeNullValue();
+    }
+
+    // ----------------------------------------
+
+    private void memberEncoded() throws Exception {
+        if (this.frames.size() == 2 && this.frames.peek().kind == Kind.MEMBERS) {
+            emitChunk(CHUNK_SIZE);
+        }
+    }
+
+    private void emitChunk(int threshold) throws Exception {
+        if (this.chunkHandler == null) {
+            return;
+        }
+        this.delegate.flush();
+        if (!this.buffer.isReadable() || this.buffer.readableBytes() < threshold) {
+            return;
+        }
+        ByteBuf chunk = this.buffer;
+        this.buffer = this.allocator.buffer();
+        this.chunkHandler.accept(chunk);
+    }
+
+    private ReturnFields fieldsForResource(String id) {
+        if (this.frames.isEmpty()) {
+            return this.returnFields;
+        }
+        Frame top = this.frames.peek();
+        switch (top.kind) {
+            case MEMBERS:
+                return this.returnFields.child(LiveOak.MEMBERS);
+            case PROPERTY:
+                // embedded resources (no id) are always fully expanded
+                return id != null ? top.fields.child(id) : ReturnFields.ALL;
+            default:
+                return top.fields;
+        }
+    }
+
+    private class BufferOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+            buffer.writeByte(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buffer.writeBytes(b, off, len);
+        }
+    }
+
+    private enum Kind {
+        RESOURCE,
+        PROPERTY,
+        MEMBERS,
+        LIST
+    }
+
+    private static class Frame {
+        Frame(Kind kind, ReturnFields fields) {
+            this.kind = kind;
+            this.fields = fields;
+        }
+
+        final Kind kind;
+        final ReturnFields fields;
+    }
+
+    private final JSONEncoder delegate = new JSONEncoder();
+    private final ReturnFields returnFields;
+    private final LinkedList<Frame> frames = new LinkedList<>();
+    private ByteBuf buffer;
+    private ByteBufAllocator allocator;
+    private Consumer<ByteBuf> chunkHandler;
+}
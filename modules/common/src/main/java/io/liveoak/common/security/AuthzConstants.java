@@ -16,11 +16,18 @@ public class AuthzConstants {
     public static final String ATTR_REQUEST_RESOURCE_STATE = "ATTR_REQUEST_RESOURCE_STATE";
     // Attribute where resourceState of response will be saved (used when authz check is done when resource is already available)
     public static final String ATTR_RESPONSE_RESOURCE_STATE = "ATTR_RESPONSE_RESOURCE_STATE";
+    // Attribute where resourceStates of members to authorize in one go are saved. ATTR_REQUEST_CONTEXT is then the request for their parent
+    public static final String ATTR_MEMBER_RESOURCE_STATES = "ATTR_MEMBER_RESOURCE_STATES";
 
     // Attribute where boolean decision of authzService response will be saved
     public static final String ATTR_AUTHZ_RESULT = "ATTR_AUTHZ_RESULT";
     // Attribute where authzDecision of policy response will be saved
     public static final String ATTR_AUTHZ_POLICY_RESULT = "ATTR_AUTHZ_POLICY_RESULT";
+    // Attribute where bitmap of authorized members of authzService response will be saved
+    public static final String ATTR_AUTHZ_MEMBER_RESULTS = "ATTR_AUTHZ_MEMBER_RESULTS";
+    // Attributes where bitmaps of members accepted and rejected by policy will be saved. Members in neither of them are ignored
+    public static final String ATTR_AUTHZ_POLICY_ACCEPTED = "ATTR_AUTHZ_POLICY_ACCEPTED";
+    public static final String ATTR_AUTHZ_POLICY_REJECTED = "ATTR_AUTHZ_POLICY_REJECTED";
 
     public static final String AUTHZ_CHECK_RESOURCE_ID = "authzCheck";
 
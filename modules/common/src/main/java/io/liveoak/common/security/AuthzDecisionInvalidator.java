@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.common.security;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Lets policies announce changes which may alter authorization decisions, so that anything
+ * remembering past decisions can forget them. Policies live in their own modules, which is why
+ * this goes through common rather than straight to the security module.
+ */
+public class AuthzDecisionInvalidator {
+
+    private static final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param listener Receives the prefix of the application whose decisions are invalidated, or null for all applications.
+     */
+    public static void addListener(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Consumer<String> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Invalidate the decisions about resources of one application.
+     *
+     * @param applicationPrefix The application prefix, for example "/myapp".
+     */
+    public static void invalidate(String applicationPrefix) {
+        for (Consumer<String> listener : listeners) {
+            listener.accept(applicationPrefix);
+        }
+    }
+
+    public static void invalidateAll() {
+        invalidate(null);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.common.security;
+
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.RequestType;
+import io.liveoak.spi.ResourcePath;
+import io.liveoak.spi.resource.async.PropertySink;
+import io.liveoak.spi.state.ResourceState;
+
+/**
+ * Decisions of a policy about a batch of members, kept as bitmaps indexed by the position of the member in the batch.
+ *
+ * <p>The batch is sent to the policy as {@link AuthzConstants#ATTR_MEMBER_RESOURCE_STATES} together with the request
+ * for their parent as {@link AuthzConstants#ATTR_REQUEST_CONTEXT}. The policy answers with
+ * {@link AuthzConstants#ATTR_AUTHZ_POLICY_ACCEPTED} and {@link AuthzConstants#ATTR_AUTHZ_POLICY_REJECTED}.</p>
+ */
+public class AuthzMemberDecisions {
+
+    private final int size;
+    private final BitSet accepted = new BitSet();
+    private final BitSet rejected = new BitSet();
+
+    public AuthzMemberDecisions(int size) {
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void set(int index, AuthzDecision decision) {
+        accepted.set(index, decision == AuthzDecision.ACCEPT);
+        rejected.set(index, decision == AuthzDecision.REJECT);
+    }
+
+    public AuthzDecision get(int index) {
+        if (rejected.get(index)) {
+            return AuthzDecision.REJECT;
+        } else if (accepted.get(index)) {
+            return AuthzDecision.ACCEPT;
+        } else {
+            return AuthzDecision.IGNORE;
+        }
+    }
+
+    public void writeTo(PropertySink sink) {
+        sink.accept(AuthzConstants.ATTR_AUTHZ_POLICY_ACCEPTED, encode(accepted));
+        sink.accept(AuthzConstants.ATTR_AUTHZ_POLICY_REJECTED, encode(rejected));
+    }
+
+    /**
+     * @return Decisions from the response of a policy, or null if the policy didn't answer for a batch.
+     */
+    public static AuthzMemberDecisions readFrom(ResourceState state, int size) {
+        if (state == null) {
+            return null;
+        }
+        Object accepted = state.getProperty(AuthzConstants.ATTR_AUTHZ_POLICY_ACCEPTED);
+        Object rejected = state.getProperty(AuthzConstants.ATTR_AUTHZ_POLICY_REJECTED);
+        if (!(accepted instanceof String) || !(rejected instanceof String)) {
+            return null;
+        }
+
+        AuthzMemberDecisions decisions = new AuthzMemberDecisions(size);
+        decisions.accepted.or(decode((String) accepted));
+        decisions.rejected.or(decode((String) rejected));
+        return decisions;
+    }
+
+    /**
+     * @return States of the members to authorize, or empty list if the request isn't for a batch.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<ResourceState> memberStates(RequestContext ctx) {
+        Object states = ctx.requestAttributes() != null ? ctx.requestAttributes().getAttribute(AuthzConstants.ATTR_MEMBER_RESOURCE_STATES) : null;
+        if (states instanceof List) {
+            return (List<ResourceState>) states;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return Request for reading the member, as it would be checked if the member was authorized on its own.
+     */
+    public static RequestContext memberRequest(RequestContext parentRequest, ResourceState memberState) {
+        ResourcePath memberPath = new ResourcePath(parentRequest.resourcePath());
+        memberPath.appendSegment(memberState.id());
+        return new RequestContext.Builder()
+                .resourcePath(memberPath)
+                .requestType(RequestType.READ)
+                .securityContext(parentRequest.securityContext());
+    }
+
+    public static String encode(BitSet bits) {
+        return Base64.getEncoder().encodeToString(bits.toByteArray());
+    }
+
+    public static BitSet decode(String bits) {
+        return BitSet.valueOf(Base64.getDecoder().decode(bits));
+    }
+
+    @Override
+    public String toString() {
+        return "[AuthzMemberDecisions: size=" + size + ", accepted=" + accepted + ", rejected=" + rejected + "]";
+    }
+}
@@ -20,6 +20,25 @@ public final class SecurityHelper {
 
     public static void auth(Client client, DefaultSecurityContext securityContext, String applicationId, String token, Runnable success,
                             Runnable noSuchResource, Consumer<Object> notAuthorized, Consumer<Throwable> handleError) {
+        auth(client, null, securityContext, applicationId, token, success, noSuchResource, notAuthorized, handleError);
+    }
+
+    /**
+     * Same as above, but tokens found in the cache aren't verified again, and newly verified tokens are added to it.
+     */
+    public static void auth(Client client, VerifiedTokenCache tokenCache, DefaultSecurityContext securityContext, String applicationId, String token,
+                            Runnable success, Runnable noSuchResource, Consumer<Object> notAuthorized, Consumer<Throwable> handleError) {
+
+        if (tokenCache != null) {
+            VerifiedTokenCache.Entry verified = tokenCache.get(applicationId, token);
+            if (verified != null) {
+                verified.apply(securityContext, token);
+                if (success != null) {
+                    success.run();
+                }
+                return;
+            }
+        }
 
         final RequestContext tokenRequestContext = new RequestContext.Builder().build();
 
@@ -56,6 +75,12 @@ public final class SecurityHelper {
                         roles.addAll((Collection<? extends String>) state.getProperty("roles"));
                         securityContext.setRoles(roles);
 
+                        // Without expiration there is no telling for how long the token stays valid
+                        if (tokenCache != null && state.getProperty("expires-at") != null) {
+                            tokenCache.put(applicationId, token, new VerifiedTokenCache.Entry(securityContext.getRealm(), securityContext.getSubject(),
+                                    roles, securityContext.lastVerified(), ((Date) state.getProperty("expires-at")).getTime(), securityContext.getUser()));
+                        }
+
                         if (success != null) {
                             success.run();
                         }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.common.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.liveoak.spi.security.UserProfile;
+
+/**
+ * Bounded cache of bearer tokens already verified by the auth service, so that repeated requests with the same token
+ * skip both the token-info request and the signature check.
+ *
+ * <p>Entries are keyed by a hash of the application and the token, so the tokens themselves aren't kept around.
+ * An entry expires together with its token, or once the revalidation interval is over if that comes first, so that
+ * a token revoked before its expiration is only accepted for that long. Least recently used entries are evicted once
+ * the cache is full.</p>
+ */
+public class VerifiedTokenCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    public static final String REVALIDATE_INTERVAL_PROPERTY = "liveoak.security.token-cache.revalidate-interval";
+    public static final long DEFAULT_REVALIDATE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final int maxSize;
+    private final long revalidateMillis;
+    private final Map<String, Cached> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public VerifiedTokenCache() {
+        this(DEFAULT_MAX_SIZE, Long.getLong(REVALIDATE_INTERVAL_PROPERTY, DEFAULT_REVALIDATE_INTERVAL_MILLIS));
+    }
+
+    /**
+     * @param maxSize Most tokens kept
+     * @param revalidateMillis Longest a token is taken as valid without asking the auth service again
+     */
+    public VerifiedTokenCache(int maxSize, long revalidateMillis) {
+        this.maxSize = maxSize;
+        this.revalidateMillis = revalidateMillis;
+        this.entries = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > VerifiedTokenCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return The verified token, or null if it isn't cached, has expired or is due to be verified again.
+     */
+    public Entry get(String applicationId, String token) {
+        String key = key(applicationId, token);
+        Cached cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+            if (cached != null && cached.until <= System.currentTimeMillis()) {
+                entries.remove(key);
+                cached = null;
+            }
+        }
+
+        if (cached == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cached.entry;
+    }
+
+    public void put(String applicationId, String token, Entry entry) {
+        long now = System.currentTimeMillis();
+        if (entry.expiresAt <= now || revalidateMillis <= 0) {
+            return;
+        }
+        Cached cached = new Cached(entry, Math.min(entry.expiresAt, now + revalidateMillis));
+        synchronized (entries) {
+            entries.put(key(applicationId, token), cached);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Share of lookups answered from the cache, between 0 and 1.
+     */
+    public double hitRate() {
+        long hits = hits();
+        long total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "[VerifiedTokenCache: size=" + size() + ", hits=" + hits() + ", misses=" + misses() + ", hitRate=" + hitRate() + "]";
+    }
+
+    private static String key(String applicationId, String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(applicationId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Cached {
+        private final Entry entry;
+        private final long until;
+
+        Cached(Entry entry, long until) {
+            this.entry = entry;
+            this.until = until;
+        }
+    }
+
+    /**
+     * What the auth service resolved the token to.
+     */
+    public static class Entry {
+
+        private final String realm;
+        private final String subject;
+        private final Set<String> roles;
+        private final long issuedAt;
+        private final long expiresAt;
+        private final UserProfile user;
+
+        public Entry(String realm, String subject, Set<String> roles, long issuedAt, long expiresAt, UserProfile user) {
+            this.realm = realm;
+            this.subject = subject;
+            this.roles = Collections.unmodifiableSet(new HashSet<>(roles));
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+            this.user = user;
+        }
+
+        public long expiresAt() {
+            return expiresAt;
+        }
+
+        public void apply(DefaultSecurityContext securityContext, String token) {
+            securityContext.setOriginal(token);
+            securityContext.setRealm(realm);
+            securityContext.setSubject(subject);
+            securityContext.setLastVerified(issuedAt);
+            securityContext.setUser(user);
+            securityContext.setRoles(new HashSet<>(roles));
+        }
+    }
+}
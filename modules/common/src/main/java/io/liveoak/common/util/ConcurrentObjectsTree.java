@@ -0,0 +1,93 @@
+package io.liveoak.common.util;
+
+import io.liveoak.spi.ResourcePath;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe variant of {@link ObjectsTree}, for trees that are read far more often than they change and which
+ * are changed and read from different threads.
+ *
+ * <p>Children are kept in concurrent maps and objects in copy-on-write lists, so reading never locks and
+ * a stream of objects is never disturbed by objects being added or removed in the meantime.</p>
+ */
+public class ConcurrentObjectsTree<T> {
+
+    public void addObject(T object, ResourcePath resourcePath) {
+        ConcurrentObjectsTree<T> leaf = findLeaf(resourcePath);
+        leaf.objects.add(object);
+    }
+
+    public void removeObject(T object, ResourcePath resourcePath) {
+        ConcurrentObjectsTree<T> leaf = findLeaf(resourcePath);
+        leaf.objects.remove(object);
+    }
+
+    public ConcurrentObjectsTree<T> findLeaf(ResourcePath path) {
+        if (path.isEmpty()) {
+            return this;
+        }
+        String id = path.head().name();
+
+        // For now, support * just at the end
+        if (id.equals("*") && !path.subPath().isEmpty()) {
+            throw new IllegalArgumentException("* supported just at the end. Remaining path is " + path.subPath());
+        }
+
+        ConcurrentObjectsTree<T> child = this.children.computeIfAbsent(id, (key) -> new ConcurrentObjectsTree<>());
+        return child.findLeaf(path.subPath());
+    }
+
+    public Stream<T> objects(ResourcePath path) {
+        return objects(path.segments(), 0);
+    }
+
+    private Stream<T> objects(List<ResourcePath.Segment> segments, int index) {
+        if (index == segments.size()) {
+            return this.objects.stream();
+        }
+
+        ConcurrentObjectsTree<T> wildcardChild = this.children.get("*");
+        Stream<T> wildcardSubs = null;
+        if (wildcardChild != null && !wildcardChild.objects.isEmpty()) {
+            wildcardSubs = wildcardChild.objects.stream();
+        }
+
+        ConcurrentObjectsTree<T> child = this.children.get(segments.get(index).name());
+        Stream<T> childSubs = null;
+        if (child != null) {
+            childSubs = child.objects(segments, index + 1);
+        }
+
+        if (wildcardSubs != null && childSubs != null) {
+            return Stream.concat(childSubs, wildcardSubs);
+        }
+
+        if (wildcardSubs != null) {
+            return wildcardSubs;
+        }
+
+        if (childSubs != null) {
+            return childSubs;
+        }
+
+        List<T> empty = Collections.emptyList();
+        return empty.stream();
+    }
+
+    public Stream<T> objects() {
+        return Stream.concat(this.objects.stream(),
+                this.children.values().stream().flatMap((e) -> {
+                    return e.objects();
+                }));
+    }
+
+    private final Map<String, ConcurrentObjectsTree<T>> children = new ConcurrentHashMap<>();
+    private final List<T> objects = new CopyOnWriteArrayList<>();
+
+}
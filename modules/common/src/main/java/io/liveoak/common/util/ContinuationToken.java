@@ -0,0 +1,62 @@
+package io.liveoak.common.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import io.liveoak.spi.Sorting;
+
+/**
+ * Opaque token standing for the position in a collection right after the last member of a page,
+ * so that the next page can be read with a range condition instead of skipping over all the preceding members.
+ *
+ * <p>What the position is made of is up to the resource, usually the values of the sort fields and of the id
+ * of the last member. The token remembers the sorting it was issued for, and is only accepted for the same sorting.</p>
+ */
+public class ContinuationToken {
+
+    public static final String PARAMETER = "cursor";
+
+    /**
+     * @param position The position, as serialized by the resource.
+     */
+    public static String encode(Sorting sorting, String position) {
+        String token = sortingSpec(sorting) + "\n" + position;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The position, as serialized by the resource, or null if the token is empty, asking for the first page.
+     * @throws IllegalArgumentException If the token is invalid or was issued for a different sorting.
+     */
+    public static String decode(String token, Sorting sorting) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        int separator = decoded.indexOf('\n');
+        if (separator == -1) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+        if (!decoded.substring(0, separator).equals(sortingSpec(sorting))) {
+            throw new IllegalArgumentException("Continuation token was issued for a different sorting: " + token);
+        }
+        return decoded.substring(separator + 1);
+    }
+
+    private static String sortingSpec(Sorting sorting) {
+        StringBuilder sb = new StringBuilder();
+        if (sorting != null) {
+            for (Sorting.Spec spec : sorting) {
+                if (sb.length() > 0) {
+                    sb.append(",");
+                }
+                if (!spec.ascending()) {
+                    sb.append("-");
+                }
+                sb.append(spec.name());
+            }
+        }
+        return sb.toString();
+    }
+}
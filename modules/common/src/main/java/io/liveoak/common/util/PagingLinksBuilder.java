@@ -18,6 +18,8 @@ public class PagingLinksBuilder {
     private final RequestContext ctx;
     private int count = -1;
     private int totalCount = -1;
+    private Boolean hasNext;
+    private String nextCursor;
     private URI uri;
 
     public PagingLinksBuilder(RequestContext ctx) {
@@ -39,6 +41,24 @@ public class PagingLinksBuilder {
         return this;
     }
 
+    /**
+     * Whether there are more results after the current page, for when the total count is not known.
+     * Saves the link to an empty next page when the current page happens to be exactly full.
+     */
+    public PagingLinksBuilder hasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+        return this;
+    }
+
+    /**
+     * Continuation token of the next page, or null if this is the last one. Used instead of offsets
+     * when the request pages with a continuation token.
+     */
+    public PagingLinksBuilder nextCursor(String cursor) {
+        this.nextCursor = cursor;
+        return this;
+    }
+
     public List<SynchronousResource> build() {
         try {
             return generatePagingLinks();
@@ -54,7 +74,7 @@ public class PagingLinksBuilder {
 
         MapResource link;
         for (String name: ctx.resourceParams().names()) {
-            if ("offset".equals(name) || "limit".equals(name)) {
+            if ("offset".equals(name) || "limit".equals(name) || ContinuationToken.PARAMETER.equals(name)) {
                 continue;
             }
             List<String> values = ctx.resourceParams().values(name);
@@ -65,6 +85,30 @@ public class PagingLinksBuilder {
         int offset = ctx.pagination().offset();
         int limit = ctx.pagination().limit();
 
+        // with continuation tokens we can only go forward, or back to the start
+        String cursor = ctx.pagination().cursor();
+        if (cursor != null) {
+            if (!cursor.isEmpty()) {
+                link = new MapResource();
+                link.put("rel", "first");
+                link.put(LiveOak.HREF, uriBuilder.copy()
+                        .addParam(ContinuationToken.PARAMETER, "")
+                        .addParam("limit", limit)
+                        .build());
+                links.add(link);
+            }
+            if (nextCursor != null) {
+                link = new MapResource();
+                link.put("rel", "next");
+                link.put(LiveOak.HREF, uriBuilder.copy()
+                        .addParam(ContinuationToken.PARAMETER, nextCursor)
+                        .addParam("limit", limit)
+                        .build());
+                links.add(link);
+            }
+            return links;
+        }
+
         int lastPageOffset = 0;
         if (totalCount > 0 & limit != 0) {
             int mod = totalCount % limit;
@@ -97,9 +141,11 @@ public class PagingLinksBuilder {
 
         // add next / last links if current 'page' is not the last page
         // When totalCount is not known, and the number of all results
-        // is equal to limit() we still add links to next (empty) page
+        // is equal to limit() we still add links to next (empty) page,
+        // unless we were told whether there are more results
         if ((totalCount != -1 && offset < lastPageOffset)
-                || (totalCount == -1 && count == limit)) {
+                || (totalCount == -1 && hasNext != null && hasNext)
+                || (totalCount == -1 && hasNext == null && count == limit)) {
 
             link = new MapResource();
             link.put("rel", "next");
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.common.security;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VerifiedTokenCacheTest {
+
+    @Test
+    public void testHit() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, TimeUnit.MINUTES.toMillis(1));
+        cache.put("/testApp", "token", entry(TimeUnit.HOURS.toMillis(1)));
+
+        assertThat(cache.get("/testApp", "token")).isNotNull();
+        assertThat(cache.get("/otherApp", "token")).isNull();
+        assertThat(cache.get("/testApp", "other")).isNull();
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRevalidatedBeforeExpiry() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 50);
+        cache.put("/testApp", "token", entry(TimeUnit.HOURS.toMillis(1)));
+        assertThat(cache.get("/testApp", "token")).isNotNull();
+
+        // valid for another hour, but a revoked token must not be taken for valid that long
+        Thread.sleep(100);
+        assertThat(cache.get("/testApp", "token")).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testExpiredBeforeRevalidation() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, TimeUnit.MINUTES.toMillis(1));
+        cache.put("/testApp", "token", entry(50));
+        Thread.sleep(100);
+        assertThat(cache.get("/testApp", "token")).isNull();
+
+        cache.put("/testApp", "expired", entry(-1));
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    private VerifiedTokenCache.Entry entry(long expiresIn) {
+        long now = System.currentTimeMillis();
+        return new VerifiedTokenCache.Entry("liveoak-apps", "john", Collections.singleton("user"), now, now + expiresIn, null);
+    }
+}
@@ -13,6 +13,7 @@ import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.ResourceParams;
 import io.liveoak.spi.Sorting;
 import io.liveoak.spi.resource.SynchronousResource;
+import org.junit.Assert;
 import org.junit.Test;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -317,6 +318,91 @@ public class PagingLinksTest {
         assertThat(props.get("href").toString()).isEqualTo(uri + "&offset=20&limit=10");
     }
 
+    @Test
+    public void testWithoutTotalCountKnowingNextPage() throws Exception {
+
+        URI uri = uri();
+        ResourceParams params = params();
+        Sorting sorting = sorting();
+
+        // full page with more results after it
+
+        Pagination pagination = new DefaultPagination(10, 10);
+        RequestContext ctx = createContext(pagination, params, sorting);
+        List<SynchronousResource> links = new PagingLinksBuilder(ctx)
+                .uri(uri)
+                .count(10)
+                .hasNext(true)
+                .build();
+
+        assertThat(links.size()).isEqualTo(3);
+        Map<String, ?> props = links.get(2).properties(ctx);
+        assertThat(props.get("rel")).isEqualTo("next");
+        assertThat(props.get("href").toString()).isEqualTo(uri + "&offset=20&limit=10");
+
+
+        // full page being the last one, no link to an empty next page
+
+        links = new PagingLinksBuilder(ctx)
+                .uri(uri)
+                .count(10)
+                .hasNext(false)
+                .build();
+
+        assertThat(links.size()).isEqualTo(2);
+        props = links.get(0).properties(ctx);
+        assertThat(props.get("rel")).isEqualTo("first");
+        props = links.get(1).properties(ctx);
+        assertThat(props.get("rel")).isEqualTo("prev");
+        assertThat(props.get("href").toString()).isEqualTo(uri + "&limit=10");
+    }
+
+    @Test
+    public void testWithContinuationToken() throws Exception {
+
+        URI uri = uri();
+        ResourceParams params = params();
+        Sorting sorting = sorting();
+
+        String token = ContinuationToken.encode(sorting, "[\"Doe\",42]");
+        assertThat(ContinuationToken.decode(token, sorting)).isEqualTo("[\"Doe\",42]");
+        assertThat(ContinuationToken.decode("", sorting)).isNull();
+        try {
+            ContinuationToken.decode(token, new Sorting("lastName"));
+            Assert.fail("Token accepted for a different sorting");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // first page
+
+        RequestContext ctx = createContext(new DefaultPagination(10, ""), params, sorting);
+        List<SynchronousResource> links = new PagingLinksBuilder(ctx)
+                .uri(uri)
+                .count(10)
+                .nextCursor(token)
+                .build();
+
+        assertThat(links.size()).isEqualTo(1);
+        Map<String, ?> props = links.get(0).properties(ctx);
+        assertThat(props.get("rel")).isEqualTo("next");
+        assertThat(props.get("href").toString()).isEqualTo(uri + "&cursor=" + token + "&limit=10");
+
+
+        // last page
+
+        ctx = createContext(new DefaultPagination(10, token), params, sorting);
+        links = new PagingLinksBuilder(ctx)
+                .uri(uri)
+                .count(5)
+                .build();
+
+        assertThat(links.size()).isEqualTo(1);
+        props = links.get(0).properties(ctx);
+        assertThat(props.get("rel")).isEqualTo("first");
+        assertThat(props.get("href").toString()).isEqualTo(uri + "&cursor=&limit=10");
+    }
+
 
 
     protected URI uri() throws URISyntaxException {
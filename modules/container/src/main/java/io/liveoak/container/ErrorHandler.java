@@ -30,6 +30,13 @@ public class ErrorHandler extends ChannelDuplexHandler {
     }
 
     public static void handleError(ChannelHandlerContext ctx, ResourceRequest inReplyTo, Throwable t) {
+        ctx.writeAndFlush(errorResponse(inReplyTo, t));
+    }
+
+    /**
+     * Map an exception to the error response describing it.
+     */
+    public static DefaultResourceErrorResponse errorResponse(ResourceRequest inReplyTo, Throwable t) {
         ResourceErrorResponse.ErrorType errorType;
         Logger.Level level = Logger.Level.TRACE;
 
@@ -52,7 +59,7 @@ public class ErrorHandler extends ChannelDuplexHandler {
 
         log.log(level, errorType, t);
 
-        ctx.writeAndFlush(new DefaultResourceErrorResponse(inReplyTo, errorType, t.getMessage(), t));
+        return new DefaultResourceErrorResponse(inReplyTo, errorType, t.getMessage(), t);
     }
 
     @Override
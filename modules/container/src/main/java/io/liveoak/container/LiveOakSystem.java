@@ -4,6 +4,7 @@ import io.liveoak.common.codec.ResourceCodecManager;
 import io.liveoak.container.extension.system.ExtensionInstaller;
 import io.liveoak.container.resource.PropertiesResource;
 import io.liveoak.container.resource.ServersResource;
+import io.liveoak.container.resource.SubscriptionsResource;
 import io.liveoak.container.tenancy.InternalApplicationRegistry;
 import io.liveoak.spi.Services;
 import io.liveoak.spi.RequestContext;
@@ -33,6 +34,7 @@ public class LiveOakSystem implements SynchronousResource {
         this.serviceContainer = serviceContainer;
         this.propertiesResource = new PropertiesResource(this);
         this.serversResource = new ServersResource(this, serviceContainer);
+        this.subscriptionsResource = new SubscriptionsResource(this, serviceContainer);
     }
 
     public void stop() {
@@ -110,6 +112,7 @@ public class LiveOakSystem implements SynchronousResource {
         LinkedList<Resource> members = new LinkedList<>();
         members.add(this.serversResource);
         members.add(this.propertiesResource);
+        members.add(this.subscriptionsResource);
         return members;
     }
 
@@ -117,6 +120,7 @@ public class LiveOakSystem implements SynchronousResource {
 
     private PropertiesResource propertiesResource;
     private ServersResource serversResource;
+    private SubscriptionsResource subscriptionsResource;
 
     private static final Logger log = Logger.getLogger(LiveOakSystem.class);
 
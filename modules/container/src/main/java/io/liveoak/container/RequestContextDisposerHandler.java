@@ -5,6 +5,9 @@
  */
 package io.liveoak.container;
 
+import io.liveoak.common.DefaultResourceResponse;
+import io.liveoak.common.codec.StreamingEncodingResult;
+import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.ResourceResponse;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -14,7 +17,11 @@ public class RequestContextDisposerHandler extends ChannelDuplexHandler {
 
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
-        if (msg instanceof ResourceResponse) {
+        if (msg instanceof DefaultResourceResponse && ((DefaultResourceResponse) msg).encoded() instanceof StreamingEncodingResult) {
+            // the resource is yet to be encoded as it is written out, and may still need the context until it's done
+            RequestContext requestContext = ((ResourceResponse) msg).inReplyTo().requestContext();
+            ((StreamingEncodingResult) ((DefaultResourceResponse) msg).encoded()).onComplete(requestContext::dispose);
+        } else if (msg instanceof ResourceResponse) {
             ((ResourceResponse) msg).inReplyTo().requestContext().dispose();
         }
 
@@ -8,14 +8,21 @@ package io.liveoak.container;
 import java.util.concurrent.Executor;
 
 import io.liveoak.client.impl.ClientResourceResponseImpl;
+import io.liveoak.common.DefaultResourceResponse;
+import io.liveoak.common.codec.ResourceCodecManager;
+import io.liveoak.common.codec.StreamingEncodingResult;
 import io.liveoak.common.codec.driver.RootEncodingDriver;
 import io.liveoak.common.codec.state.ResourceStateEncoder;
 import io.liveoak.container.protocols.RequestCompleteEvent;
+import io.liveoak.spi.MediaType;
+import io.liveoak.spi.MediaTypeMatcher;
 import io.liveoak.spi.ResourceErrorResponse;
 import io.liveoak.spi.ResourceRequest;
 import io.liveoak.spi.ResourceResponse;
 import io.liveoak.spi.client.ClientResourceResponse;
+import io.liveoak.spi.container.interceptor.InterceptorManager;
 import io.liveoak.spi.resource.BlockingResource;
+import io.liveoak.spi.resource.async.BinaryResource;
 import io.liveoak.spi.state.ResourceState;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
@@ -33,15 +40,35 @@ public class ResourceStateHandler extends ChannelOutboundHandlerAdapter {
     private static final Logger log = Logger.getLogger(ResourceStateHandler.class);
 
     private Executor workerPool;
+    private ResourceCodecManager codecManager;
+    private InterceptorManager interceptorManager;
+    private String chainName;
 
     public ResourceStateHandler(Executor workerPool) {
         this.workerPool = workerPool;
     }
 
+    /**
+     * Create a handler which encodes READ responses straight to the wire format, whenever no outbound
+     * interceptor on the given chain requires the materialized ResourceState.
+     */
+    public ResourceStateHandler(Executor workerPool, ResourceCodecManager codecManager, InterceptorManager interceptorManager, String chainName) {
+        this.workerPool = workerPool;
+        this.codecManager = codecManager;
+        this.interceptorManager = interceptorManager;
+        this.chainName = chainName;
+    }
+
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
         if (msg instanceof ResourceResponse && !(msg instanceof ResourceErrorResponse)) {
             ResourceResponse response = (ResourceResponse) msg;
+            MediaType streamingMediaType = streamingMediaType(response);
+            if (streamingMediaType != null) {
+                stream(ctx, (DefaultResourceResponse) response, streamingMediaType, promise);
+                return;
+            }
+
             Runnable action = () -> {
                 encode(ctx, response, promise);
             };
@@ -87,6 +114,31 @@ public class ResourceStateHandler extends ChannelOutboundHandlerAdapter {
         }
     }
 
+    /**
+     * Pass the response on without encoding it yet; the protocol encoder encodes the resource
+     * as it writes it out, on the worker pool if the resource may block.
+     */
+    protected void stream(ChannelHandlerContext ctx, DefaultResourceResponse response, MediaType mediaType, ChannelPromise promise) {
+        Executor executor = response.resource() instanceof BlockingResource ? this.workerPool : Runnable::run;
+        response.encoded(new StreamingEncodingResult(mediaType, this.codecManager.getResourceCodec(mediaType),
+                response.inReplyTo().requestContext(), response.resource(), executor));
+        ctx.writeAndFlush(response, promise).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+    }
+
+    private MediaType streamingMediaType(ResourceResponse response) {
+        if (this.codecManager == null || !(response instanceof DefaultResourceResponse) || response.resource() == null) {
+            return null;
+        }
+        if (response.responseType() != ResourceResponse.ResponseType.READ || response.resource() instanceof BinaryResource) {
+            return null;
+        }
+        if (this.interceptorManager != null && this.interceptorManager.requiresResponseState(this.chainName, response.inReplyTo())) {
+            return null;
+        }
+        MediaTypeMatcher matcher = response.inReplyTo().mediaTypeMatcher();
+        return matcher != null ? this.codecManager.streamingMediaType(matcher) : null;
+    }
+
     private void handleError(ChannelHandlerContext ctx, ResourceRequest inReplyTo, Throwable e) {
         ErrorHandler.handleError(ctx, inReplyTo, e);
         ctx.fireUserEventTriggered(new RequestCompleteEvent(inReplyTo.requestId()));
@@ -15,6 +15,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
 import io.netty.handler.codec.http.DefaultHttpRequest;
 import io.netty.handler.codec.http.DefaultHttpResponse;
 import org.jboss.logging.Logger;
@@ -148,6 +149,9 @@ public class AnalyticsBandwidthHandler extends ChannelDuplexHandler {
         if (msg instanceof ByteBuf) {
             bytesWritten += ((ByteBuf) msg).readableBytes();
             lastTime = System.currentTimeMillis();
+        } else if (msg instanceof FileRegion) {
+            bytesWritten += ((FileRegion) msg).count();
+            lastTime = System.currentTimeMillis();
         }
         super.write(ctx, msg, promise);
     }
@@ -0,0 +1,148 @@
+package io.liveoak.container.interceptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.liveoak.container.interceptor.extension.InterceptorConfigEntry;
+import io.liveoak.spi.RequestType;
+import io.liveoak.spi.ResourcePath;
+import io.liveoak.spi.ResourceRequest;
+import io.liveoak.spi.container.interceptor.Interceptor;
+import org.jboss.logging.Logger;
+
+/**
+ * Interceptors of a single chain, indexed by the resource path prefix and the request types they are mapped to.
+ *
+ * <p>The prefixes form a trie over resource path segments. Every node of the trie holds, per request type, the
+ * interceptors mapped to its own prefix or any shorter one, in the order of the chain configuration. Resolving the
+ * interceptors of a request is then a walk down the trie along the request path, without any allocation.</p>
+ *
+ * <p>Instances are immutable. A new one is compiled whenever the configuration or the registered interceptors change.</p>
+ */
+public class CompiledInterceptorChain {
+
+    private static final Logger log = Logger.getLogger(CompiledInterceptorChain.class);
+
+    private static final int ALL_REQUEST_TYPES = (1 << RequestType.values().length) - 1;
+
+    public static final CompiledInterceptorChain EMPTY = compile(null, Collections.emptyList(), Collections.emptyMap());
+
+    public static CompiledInterceptorChain compile(String chainName, List<InterceptorConfigEntry> configEntries, Map<String, Interceptor> interceptors) {
+        Node root = new Node();
+        List<Interceptor> all = new ArrayList<>();
+
+        for (InterceptorConfigEntry configEntry : configEntries) {
+            String interceptorName = configEntry.getInterceptorName();
+            Interceptor interceptor = interceptors.get(interceptorName);
+            if (interceptor == null) {
+                // interceptors may still be on their way, the chain is compiled again once they register
+                log.debugf("No interceptor under key '%s' in chain '%s'", interceptorName, chainName);
+                continue;
+            }
+
+            Node node = root;
+            if (configEntry.getResourcePathMapping() != null) {
+                for (ResourcePath.Segment segment : new ResourcePath(configEntry.getResourcePathMapping()).segments()) {
+                    node = node.children.computeIfAbsent(segment.name(), (name) -> new Node());
+                }
+            }
+            node.entries.add(new Entry(all.size(), interceptor, requestTypeMask(configEntry.getRequestTypeMapping())));
+            all.add(interceptor);
+        }
+
+        root.resolve(Collections.emptyList());
+        return new CompiledInterceptorChain(all, root);
+    }
+
+    private CompiledInterceptorChain(List<Interceptor> all, Node root) {
+        this.all = Collections.unmodifiableList(all);
+        this.root = root;
+    }
+
+    /**
+     * @return All interceptors of the chain, regardless of their mappings.
+     */
+    public List<Interceptor> all() {
+        return this.all;
+    }
+
+    /**
+     * @return Interceptors mapped to the path and type of the request, in chain order. All interceptors for a null request.
+     */
+    public List<Interceptor> interceptors(ResourceRequest request) {
+        if (request == null) {
+            return this.all;
+        }
+
+        Node node = this.root;
+        List<ResourcePath.Segment> segments = request.resourcePath().segments();
+        for (int i = 0; i < segments.size(); ++i) {
+            Node child = node.children.get(segments.get(i).name());
+            if (child == null) {
+                break;
+            }
+            node = child;
+        }
+        return node.resolved[request.requestType().ordinal()];
+    }
+
+    private static int requestTypeMask(String requestTypeMapping) {
+        if (requestTypeMapping == null) {
+            return ALL_REQUEST_TYPES;
+        }
+        int mask = 0;
+        for (RequestType type : RequestType.values()) {
+            if (type.matches(requestTypeMapping)) {
+                mask |= 1 << type.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    private static class Entry {
+        Entry(int index, Interceptor interceptor, int requestTypes) {
+            this.index = index;
+            this.interceptor = interceptor;
+            this.requestTypes = requestTypes;
+        }
+
+        final int index;
+        final Interceptor interceptor;
+        final int requestTypes;
+    }
+
+    private static class Node {
+
+        /**
+         * Resolve the interceptors of this node and its descendants.
+         *
+         * @param inherited Entries mapped to the prefixes above this node, in chain order.
+         */
+        void resolve(List<Entry> inherited) {
+            List<Entry> applicable = new ArrayList<>(inherited);
+            applicable.addAll(this.entries);
+            applicable.sort((e1, e2) -> Integer.compare(e1.index, e2.index));
+            for (RequestType type : RequestType.values()) {
+                List<Interceptor> interceptors = new ArrayList<>();
+                for (Entry entry : applicable) {
+                    if ((entry.requestTypes & (1 << type.ordinal())) != 0) {
+                        interceptors.add(entry.interceptor);
+                    }
+                }
+                this.resolved[type.ordinal()] = Collections.unmodifiableList(interceptors);
+            }
+            this.children.values().forEach((child) -> child.resolve(applicable));
+        }
+
+        final Map<String, Node> children = new HashMap<>();
+        final List<Entry> entries = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        final List<Interceptor>[] resolved = new List[RequestType.values().length];
+    }
+
+    private final List<Interceptor> all;
+    private final Node root;
+}
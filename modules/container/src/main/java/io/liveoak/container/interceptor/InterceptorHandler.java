@@ -1,13 +1,24 @@
 package io.liveoak.container.interceptor;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
 import io.liveoak.container.protocols.RequestCompleteEvent;
 import io.liveoak.spi.ResourceRequest;
 import io.liveoak.spi.ResourceResponse;
+import io.liveoak.spi.container.interceptor.Interceptor;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 
 /**
+ * Runs requests and responses of a channel through an interceptor chain.
+ *
+ * <p>The interceptors are resolved once, when the request comes in, and kept until the request completes so that the
+ * response and the completion go through the very same interceptors.</p>
+ *
  * @author Bob McWhirter
  */
 public class InterceptorHandler extends ChannelDuplexHandler {
@@ -20,7 +31,12 @@ public class InterceptorHandler extends ChannelDuplexHandler {
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
         if (msg instanceof ResourceResponse) {
-            this.manager.fireOutbound(chainName, ctx, (ResourceResponse) msg);
+            ResourceResponse response = (ResourceResponse) msg;
+            List<Interceptor> interceptors = this.inFlight.get(response.requestId());
+            if (interceptors == null) {
+                interceptors = this.manager.getInterceptors(this.chainName, response.inReplyTo());
+            }
+            this.manager.fireOutbound(ctx, interceptors, response);
         } else {
             super.write(ctx, msg, promise);
         }
@@ -29,7 +45,10 @@ public class InterceptorHandler extends ChannelDuplexHandler {
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         if (msg instanceof ResourceRequest) {
-            this.manager.fireInbound(chainName, ctx, (ResourceRequest) msg);
+            ResourceRequest request = (ResourceRequest) msg;
+            List<Interceptor> interceptors = this.manager.getInterceptors(this.chainName, request);
+            this.inFlight.put(request.requestId(), interceptors);
+            this.manager.fireInbound(ctx, interceptors, request);
         } else {
             super.channelRead(ctx, msg);
         }
@@ -38,12 +57,27 @@ public class InterceptorHandler extends ChannelDuplexHandler {
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
         if (evt instanceof RequestCompleteEvent) {
-            this.manager.fireComplete(chainName, ((RequestCompleteEvent) evt).requestId());
+            UUID requestId = ((RequestCompleteEvent) evt).requestId();
+            List<Interceptor> interceptors = this.inFlight.remove(requestId);
+            if (interceptors != null) {
+                this.manager.fireComplete(interceptors, requestId);
+            } else {
+                this.manager.fireComplete(this.chainName, requestId);
+            }
         }
         super.userEventTriggered(ctx, evt);
     }
 
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        this.inFlight.clear();
+        super.channelInactive(ctx);
+    }
+
     private final InterceptorManagerImpl manager;
     private final String chainName;
 
+    // only touched from the event loop of the channel
+    private final Map<UUID, List<Interceptor>> inFlight = new HashMap<>();
+
 }
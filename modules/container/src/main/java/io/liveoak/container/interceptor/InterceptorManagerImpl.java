@@ -1,16 +1,15 @@
 package io.liveoak.container.interceptor;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
-import io.liveoak.container.interceptor.extension.InterceptorConfigEntry;
 import io.liveoak.container.interceptor.extension.InterceptorsConfig;
-import io.liveoak.spi.ResourcePath;
 import io.liveoak.spi.ResourceRequest;
 import io.liveoak.spi.ResourceResponse;
 import io.liveoak.spi.container.interceptor.Interceptor;
@@ -29,6 +28,7 @@ public class InterceptorManagerImpl implements InterceptorManager {
     @Override
     public synchronized void register(String interceptorName, Interceptor interceptor) {
         this.interceptors.put(interceptorName, interceptor);
+        compile();
     }
 
     @Override
@@ -39,12 +39,16 @@ public class InterceptorManagerImpl implements InterceptorManager {
                 break;
             }
         }
+        compile();
     }
 
     @Override
     public void setInterceptorsConfig(ResourceState resourceState) throws IOException {
         InterceptorsConfig result = InterceptorsConfig.createConfigFromResourceState(resourceState);
-        this.interceptorsConfig.set(result);
+        synchronized (this) {
+            this.interceptorsConfig.set(result);
+            compile();
+        }
         if (log.isDebugEnabled()) {
             log.debugf("Interceptors configuration updated: %s", interceptorsConfig);
         }
@@ -58,60 +62,72 @@ public class InterceptorManagerImpl implements InterceptorManager {
 
     @Override
     public void fireInbound(String chainName, ChannelHandlerContext ctx, ResourceRequest request) {
-        List<Interceptor> interceptors = getInterceptors(chainName, request);
+        fireInbound(ctx, getInterceptors(chainName, request), request);
+    }
+
+    public void fireInbound(ChannelHandlerContext ctx, List<Interceptor> interceptors, ResourceRequest request) {
         InterceptorChain chain = new InterceptorChain(ctx, interceptors, request);
         chain.fireInbound();
     }
 
     @Override
     public void fireOutbound(String chainName, ChannelHandlerContext ctx, ResourceResponse response) {
-        List<Interceptor> interceptors = getInterceptors(chainName, response.inReplyTo());
+        fireOutbound(ctx, getInterceptors(chainName, response.inReplyTo()), response);
+    }
+
+    public void fireOutbound(ChannelHandlerContext ctx, List<Interceptor> interceptors, ResourceResponse response) {
         InterceptorChain chain = new InterceptorChain(ctx, interceptors, response);
         chain.fireOutbound();
     }
 
     @Override
     public void fireComplete(String chainName, UUID requestId) {
-        List<Interceptor> interceptors = getInterceptors(chainName, null);
+        fireComplete(getInterceptors(chainName, null), requestId);
+    }
+
+    public void fireComplete(List<Interceptor> interceptors, UUID requestId) {
         for (Interceptor each : interceptors) {
             each.onComplete(requestId);
         }
     }
 
-    private List<Interceptor> getInterceptors(String chainName, ResourceRequest request) {
-        List<Interceptor> result = new LinkedList<>();
-
-        List<InterceptorConfigEntry> chainConfigEntries = interceptorsConfig.get().getChainConfig(chainName);
-        for (InterceptorConfigEntry configEntry : chainConfigEntries) {
-
-            String interceptorName = configEntry.getInterceptorName();
-            Interceptor interceptor = interceptors.get(interceptorName);
-            if (interceptor == null) {
-                log.warnf("No interceptor under key '%s'", interceptorName);
-                continue;
-            }
-
-            // Verify resourcePath matches
-            if (configEntry.getResourcePathMapping() != null && request != null) {
-                ResourcePath interceptorResPath = new ResourcePath(configEntry.getResourcePathMapping());
-                if (!interceptorResPath.isParentOf(request.resourcePath())) {
-                    continue;
-                }
-            }
-
-            // Verify requestType matches
-            if (configEntry.getRequestTypeMapping() != null && request != null) {
-                if (!request.requestType().matches(configEntry.getRequestTypeMapping())) {
-                    continue;
-                }
+    @Override
+    public boolean requiresResponseState(String chainName, ResourceRequest request) {
+        List<Interceptor> interceptors = getInterceptors(chainName, request);
+        for (int i = 0; i < interceptors.size(); ++i) {
+            if (interceptors.get(i).requiresResponseState()) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            result.add(interceptor);
+    /**
+     * @return Interceptors of the chain mapped to the request, or all interceptors of the chain for a null request.
+     * The returned list is immutable and remains valid after the configuration changes.
+     */
+    public List<Interceptor> getInterceptors(String chainName, ResourceRequest request) {
+        CompiledInterceptorChain chain = this.compiledChains.get().get(chainName);
+        if (chain == null) {
+            chain = CompiledInterceptorChain.EMPTY;
         }
+        return chain.interceptors(request);
+    }
 
-        return result;
+    /**
+     * Compile the chains again from the current configuration and registered interceptors.
+     * Callers hold the lock of this manager, so concurrent changes don't overtake each other.
+     */
+    private void compile() {
+        InterceptorsConfig config = this.interceptorsConfig.get();
+        Map<String, CompiledInterceptorChain> compiled = new HashMap<>();
+        for (String chainName : config.getChainNames()) {
+            compiled.put(chainName, CompiledInterceptorChain.compile(chainName, config.getChainConfig(chainName), this.interceptors));
+        }
+        this.compiledChains.set(compiled);
     }
 
     private AtomicReference<InterceptorsConfig> interceptorsConfig = new AtomicReference<>(new InterceptorsConfig());
     private Map<String, Interceptor> interceptors = new ConcurrentHashMap<>();
+    private AtomicReference<Map<String, CompiledInterceptorChain>> compiledChains = new AtomicReference<>(Collections.emptyMap());
 }
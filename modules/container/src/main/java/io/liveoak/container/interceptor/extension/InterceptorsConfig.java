@@ -16,6 +16,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
@@ -33,6 +34,10 @@ public class InterceptorsConfig {
         return chainConfig!=null ? chainConfig : Collections.EMPTY_LIST;
     }
 
+    public Set<String> getChainNames() {
+        return Collections.unmodifiableSet(interceptorChainConfigs.keySet());
+    }
+
     public static InterceptorsConfig createConfigFromResourceState(ResourceState resourceState) throws IOException {
         ObjectNode config = ConversionUtils.convert(resourceState);
         InterceptorsConfig result = new InterceptorsConfig();
@@ -21,6 +21,7 @@ import io.liveoak.container.protocols.http.CORSPreflightOptionsHandler;
 import io.liveoak.container.protocols.http.HttpRequestBodyHandler;
 import io.liveoak.container.protocols.http.HttpResourceRequestDecoder;
 import io.liveoak.container.protocols.http.HttpResourceResponseEncoder;
+import io.liveoak.container.protocols.http.HttpResponseCompressor;
 import io.liveoak.container.protocols.local.LocalResourceResponseEncoder;
 import io.liveoak.container.protocols.websocket.WebSocketHandshakerHandler;
 import io.liveoak.container.protocols.websocket.WebSocketStompFrameDecoder;
@@ -44,7 +45,6 @@ import io.liveoak.stomp.server.protocol.SubscribeHandler;
 import io.liveoak.stomp.server.protocol.UnsubscribeHandler;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelPipeline;
-import io.netty.handler.codec.http.HttpContentCompressor;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
@@ -217,11 +217,11 @@ public class PipelineConfigurator {
         pipeline.addLast("cors-preflight-handler", new CORSPreflightOptionsHandler());
         //pipeline.addLast( new DebugHandler( "server-post-cors" ) );
 
-        pipeline.addLast("deflater", new HttpContentCompressor(1));
+        pipeline.addLast("deflater", new HttpResponseCompressor(1));
 
         pipeline.addLast("http-resource-decoder", new HttpResourceRequestDecoder(this.codecManager));
-        pipeline.addLast("http-resource-encoder", new HttpResourceResponseEncoder(this.codecManager));
-        pipeline.addLast("http-request-body-handler", new HttpRequestBodyHandler());
+        pipeline.addLast("http-resource-encoder", new HttpResourceResponseEncoder(this.codecManager, this.workerPool));
+        pipeline.addLast("http-request-body-handler", new HttpRequestBodyHandler(this.workerPool));
         pipeline.addLast("interceptor", new InterceptorHandler("http", this.interceptorManager));
         pipeline.addLast("request-context-disposer", new RequestContextDisposerHandler());
 
@@ -230,7 +230,7 @@ public class PipelineConfigurator {
 
         pipeline.addLast("subscription-watcher", new SubscriptionWatcher(this.subscriptionManager));
         //pipeline.addLast( new DebugHandler( "server-debug" ) );
-        pipeline.addLast("resource-state-handler", new ResourceStateHandler(this.workerPool));
+        pipeline.addLast("resource-state-handler", new ResourceStateHandler(this.workerPool, this.codecManager, this.interceptorManager, "http"));
         pipeline.addLast("object-handler", new ResourceHandler(this.globalContext, this.workerPool));
         pipeline.addLast("error-handler", new ErrorHandler());
     }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.protocols.http;
+
+/**
+ * A single range of bytes requested with a Range header.
+ */
+public class ByteRange {
+
+    /**
+     * A range that starts past the end of the content.
+     */
+    public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    private static final String UNIT = "bytes=";
+
+    private final long first;
+    private final long last;
+
+    public ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * Parse the value of a Range header against content of the given length.
+     *
+     * <p>Only a single range is supported. A header that can't be parsed, or asks for more than one range,
+     * is to be ignored and the whole content served.</p>
+     *
+     * @return The range, clamped to the content, {@link #UNSATISFIABLE}, or null if the header is to be ignored
+     */
+    public static ByteRange parse(String header, long length) {
+        if (header == null || !header.regionMatches(true, 0, UNIT, 0, UNIT.length())) {
+            return null;
+        }
+        String spec = header.substring(UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1 || spec.indexOf(',') != -1) {
+            return null;
+        }
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+
+            if (first.isEmpty()) {
+                // the last n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix < 0) {
+                    return null;
+                }
+                if (suffix == 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, length - suffix), length - 1);
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= length) {
+                return UNSATISFIABLE;
+            }
+            return new ByteRange(start, Math.min(end, length - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public long first() {
+        return this.first;
+    }
+
+    public long last() {
+        return this.last;
+    }
+
+    public long length() {
+        return this.last - this.first + 1;
+    }
+
+    /**
+     * @return Value of the Content-Range header for this range of content of the given length
+     */
+    public String contentRange(long length) {
+        if (this == UNSATISFIABLE) {
+            return "bytes */" + length;
+        }
+        return "bytes " + this.first + "-" + this.last + "/" + length;
+    }
+
+    public String toString() {
+        return "[ByteRange: first=" + this.first + ", last=" + this.last + "]";
+    }
+}
@@ -7,12 +7,16 @@ package io.liveoak.container.protocols.http;
 
 import java.nio.charset.Charset;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import io.liveoak.spi.RequestType;
 import io.liveoak.spi.ResourcePath;
 import io.liveoak.spi.ResourceRequest;
+import io.liveoak.spi.resource.async.BinaryContentSink;
 import io.liveoak.spi.state.LazyResourceState;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
 import io.netty.handler.codec.http.HttpContent;
@@ -35,6 +39,11 @@ import org.jboss.logging.Logger;
  *
  * Up to some limit body content is copied to memory buffer. If size exceeds certain limit a disk cache is used.
  *
+ * Unless the resource asks for the body to be streamed to it, by setting a content sink on the request state.
+ * Then whatever was received before that is passed to the sink first, and the rest as it arrives. Each piece of the
+ * body is passed on the worker pool, and the next one is only read once the sink has taken it - so memory use doesn't
+ * grow with the size of the body, however slowly the sink takes it.
+ *
  * @author <a href="mailto:marko.strukelj@gmail.com">Marko Strukelj</a>
  */
 public class HttpRequestBodyHandler extends MessageToMessageDecoder<Object> {
@@ -49,10 +58,20 @@ public class HttpRequestBodyHandler extends MessageToMessageDecoder<Object> {
 
     private boolean complete;
     private Invocation completion;
+    private StreamedBody streamedBody;
+
+    private final Executor workerPool;
 
     private static final HttpDataFactory factory =
             new DefaultHttpDataFactory(DefaultHttpDataFactory.MINSIZE); //Use disk if size exceed
 
+    public HttpRequestBodyHandler() {
+        this(Runnable::run);
+    }
+
+    public HttpRequestBodyHandler(Executor workerPool) {
+        this.workerPool = workerPool;
+    }
 
     /*
      */
@@ -62,7 +81,13 @@ public class HttpRequestBodyHandler extends MessageToMessageDecoder<Object> {
         if (msg instanceof LastHttpContent) {
 
             ByteBuf content = ((HttpContent) msg).content();
-            if (fileUpload != null) {
+            if (streamedBody != null) {
+                streamedBody.write(content.retain());
+                Invocation invocation = completion;
+                streamedBody.close(() -> ctx.executor().execute(invocation::run));
+                streamedBody = null;
+                completion = null;
+            } else if (fileUpload != null) {
                 // if it's a PUT or a POST
                 fileUpload.addContent(content.retain(), true);
 
@@ -88,6 +113,11 @@ public class HttpRequestBodyHandler extends MessageToMessageDecoder<Object> {
         } else if (msg instanceof HttpContent) {
 
             ByteBuf content = ((HttpContent) msg).content();
+            if (streamedBody != null) {
+                // continue reading once the sink has taken this
+                streamedBody.write(content.retain()).thenRun(() -> resumeRead(ctx));
+                return;
+            }
             if (fileUpload != null) {
                 fileUpload.addContent(content.retain(), false);
             } else if (content.readableBytes() > 0) {
@@ -102,6 +132,10 @@ public class HttpRequestBodyHandler extends MessageToMessageDecoder<Object> {
         } else if (msg instanceof ResourceRequest) {
             // beginning of a new request
             complete = false;
+            if (streamedBody != null) {
+                streamedBody.abort();
+                streamedBody = null;
+            }
             if (fileUpload != null) {
                 fileUpload.delete();
             }
@@ -153,7 +187,24 @@ public class HttpRequestBodyHandler extends MessageToMessageDecoder<Object> {
         } else if (msg instanceof Invocation) {
 
             Invocation invocation = (Invocation) msg;
-            if (complete) {
+            BinaryContentSink sink = request != null && request.state() instanceof LazyResourceState
+                    ? ((LazyResourceState) request.state()).contentSink() : null;
+            if (sink != null && fileUpload != null) {
+                // resource wants the body streamed to it, starting with what has been received so far
+                StreamedBody body = new StreamedBody(sink, workerPool);
+                byte[] received = fileUpload.get();
+                fileUpload.delete();
+                fileUpload = null;
+                ((LazyResourceState) request.state()).fileUpload(null);
+                CompletableFuture<Void> written = body.write(Unpooled.wrappedBuffer(received));
+                if (complete) {
+                    body.close(() -> ctx.executor().execute(invocation::run));
+                } else {
+                    streamedBody = body;
+                    completion = invocation;
+                    written.thenRun(() -> resumeRead(ctx));
+                }
+            } else if (complete) {
                 // body is fully available we should continue processing the request
                 invocation.run();
             } else {
@@ -165,6 +216,94 @@ public class HttpRequestBodyHandler extends MessageToMessageDecoder<Object> {
         }
     }
 
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (streamedBody != null) {
+            // the rest of the body is never going to arrive
+            streamedBody.abort();
+            streamedBody = null;
+        }
+        super.channelInactive(ctx);
+    }
+
+    private static void resumeRead(ChannelHandlerContext ctx) {
+        ctx.executor().execute(() -> {
+            ChannelHandlerContext first = ctx.pipeline().firstContext();
+            if (first != null) {
+                first.read();
+            }
+        });
+    }
+
+    /**
+     * A request body being passed on to a content sink, one piece at a time on the worker pool.
+     */
+    private static class StreamedBody {
+
+        private final BinaryContentSink sink;
+        private final Executor executor;
+        private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+        private volatile boolean failed;
+
+        StreamedBody(BinaryContentSink sink, Executor executor) {
+            this.sink = sink;
+            this.executor = executor;
+        }
+
+        /**
+         * @return Completed once the sink has taken the content
+         */
+        CompletableFuture<Void> write(ByteBuf content) {
+            pending = pending.thenRunAsync(() -> {
+                if (failed || !content.isReadable()) {
+                    content.release();
+                    return;
+                }
+                try {
+                    sink.accept(content);
+                } catch (Throwable t) {
+                    fail(t);
+                }
+            }, executor);
+            return pending;
+        }
+
+        /**
+         * Close the sink once it has taken all of the content, then carry on with completing the request.
+         */
+        void close(Runnable completion) {
+            pending = pending.thenRunAsync(() -> {
+                if (!failed) {
+                    try {
+                        sink.close();
+                    } catch (Throwable t) {
+                        fail(t);
+                    }
+                }
+            }, executor);
+            pending.thenRun(completion);
+        }
+
+        void abort() {
+            pending = pending.thenRunAsync(() -> {
+                if (!failed) {
+                    failed = true;
+                    sink.abort();
+                }
+            }, executor);
+        }
+
+        private void fail(Throwable t) {
+            log.debug("Content sink failed: " + sink, t);
+            failed = true;
+            try {
+                sink.abort();
+            } catch (Throwable ignored) {
+                log.debug("Failed to abort content sink: " + sink, ignored);
+            }
+        }
+    }
+
     public static class Invocation {
         private Runnable invocation;
 
@@ -9,6 +9,7 @@ import java.net.URI;
 import java.util.List;
 
 import io.liveoak.common.DefaultMediaTypeMatcher;
+import io.liveoak.common.DefaultPagination;
 import io.liveoak.common.DefaultResourceParams;
 import io.liveoak.common.DefaultResourceRequest;
 import io.liveoak.common.codec.DefaultLazyResourceState;
@@ -159,6 +160,12 @@ public class HttpResourceRequestDecoder extends MessageToMessageDecoder<DefaultH
         int offset = limit(intValue(params.value("offset"), 0), 0, Integer.MAX_VALUE);
         int limit = limit(intValue(params.value("limit"), Pagination.DEFAULT_LIMIT), 0, Pagination.MAX_LIMIT);
 
+        // a continuation token replaces the offset
+        String cursor = params.value("cursor");
+        if (cursor != null) {
+            return new DefaultPagination(limit, cursor);
+        }
+
         return new Pagination() {
             public int offset() {
                 return offset;
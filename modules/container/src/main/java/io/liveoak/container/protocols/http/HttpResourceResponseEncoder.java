@@ -5,7 +5,13 @@
  */
 package io.liveoak.container.protocols.http;
 
+import java.io.FileNotFoundException;
+import java.io.RandomAccessFile;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.liveoak.common.DefaultResourceErrorResponse;
 import io.liveoak.common.DefaultResourceRequest;
@@ -13,6 +19,8 @@ import io.liveoak.common.DefaultResourceResponse;
 import io.liveoak.common.codec.EncodingResult;
 import io.liveoak.common.codec.IncompatibleMediaTypeException;
 import io.liveoak.common.codec.ResourceCodecManager;
+import io.liveoak.common.codec.StreamingEncodingResult;
+import io.liveoak.container.ErrorHandler;
 import io.liveoak.container.protocols.RequestCompleteEvent;
 import io.liveoak.container.tenancy.InternalApplication;
 import io.liveoak.spi.Application;
@@ -25,11 +33,15 @@ import io.liveoak.spi.ResourceMovedResponse;
 import io.liveoak.spi.ResourcePath;
 import io.liveoak.spi.ResourceRequest;
 import io.liveoak.spi.ResourceResponse;
+import io.liveoak.spi.resource.BlockingResource;
 import io.liveoak.spi.resource.async.BinaryContentSink;
 import io.liveoak.spi.resource.async.BinaryResource;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.DefaultHttpContent;
@@ -37,9 +49,11 @@ import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.DefaultLastHttpContent;
 import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
 import org.jboss.logging.Logger;
 
 /**
@@ -48,7 +62,12 @@ import org.jboss.logging.Logger;
 public class HttpResourceResponseEncoder extends MessageToMessageEncoder<DefaultResourceResponse> {
 
     public HttpResourceResponseEncoder(ResourceCodecManager codecManager) {
+        this(codecManager, Runnable::run);
+    }
+
+    public HttpResourceResponseEncoder(ResourceCodecManager codecManager, Executor workerPool) {
         this.codecManager = codecManager;
+        this.workerPool = workerPool;
     }
 
     @Override
@@ -176,6 +195,10 @@ public class HttpResourceResponseEncoder extends MessageToMessageEncoder<Default
                             // HTML was requested and we have an HTML app
                             ResourceRequest htmlAppRequest = new DefaultResourceRequest.Builder(RequestType.READ, htmlAppPath).mediaTypeMatcher(msg.inReplyTo().mediaTypeMatcher())
                                     .requestAttributes(msg.inReplyTo().requestContext().requestAttributes()).build();
+                            if (msg.encoded() instanceof StreamingEncodingResult) {
+                                // never going to be streamed
+                                ((StreamingEncodingResult) msg.encoded()).discard();
+                            }
                             ctx.channel().pipeline().fireChannelRead(htmlAppRequest);
                             return;
                         }
@@ -183,6 +206,11 @@ public class HttpResourceResponseEncoder extends MessageToMessageEncoder<Default
                 }
             }
 
+            if (msg.encoded() instanceof StreamingEncodingResult) {
+                streamContent(ctx, msg, new HttpResponseStatus(responseStatusCode, responseMessage), responseHeaders, (StreamingEncodingResult) msg.encoded());
+                return;
+            }
+
             try {
                 encodingResult = encodeState(msg.inReplyTo().requestContext(), matcher, msg);
             } catch (IncompatibleMediaTypeException e) {
@@ -208,6 +236,10 @@ public class HttpResourceResponseEncoder extends MessageToMessageEncoder<Default
 
             if (msg.resource() instanceof BinaryResource) {
                 BinaryResource bin = (BinaryResource) msg.resource();
+                if (msg.responseType() == ResourceResponse.ResponseType.READ) {
+                    writeBinaryRead(ctx, msg, responseStatus, responseHeaders, bin);
+                    return;
+                }
                 if (bin.contentLength() == 0) {
                     response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, responseStatus);
                     response.headers().add(HttpHeaders.Names.CONTENT_LENGTH, 0);
@@ -216,24 +248,7 @@ public class HttpResourceResponseEncoder extends MessageToMessageEncoder<Default
                     response.headers().add(HttpHeaders.Names.CONTENT_LENGTH, bin.contentLength());
                     response.headers().add(HttpHeaders.Names.LOCATION, msg.resource().uri().toString());
                     response.headers().add(HttpHeaders.Names.CONTENT_TYPE, bin.mediaType());
-
-                    final HttpResponse res = response;
-                    bin.readContent(msg.inReplyTo().requestContext(), new BinaryContentSink() {
-                        {
-                            ctx.write(res);
-                        }
-
-                        @Override
-                        public void close() {
-                            ctx.writeAndFlush(new DefaultLastHttpContent(Unpooled.EMPTY_BUFFER));
-                            ctx.pipeline().fireUserEventTriggered(new RequestCompleteEvent(msg.requestId()));
-                        }
-
-                        @Override
-                        public void accept(ByteBuf byteBuf) {
-                            ctx.write(new DefaultHttpContent(byteBuf));
-                        }
-                    });
+                    writeBinaryContent(ctx, msg, response, bin, null);
                     return;
                 }
             } else {
@@ -259,11 +274,346 @@ public class HttpResourceResponseEncoder extends MessageToMessageEncoder<Default
         ctx.fireUserEventTriggered(new RequestCompleteEvent(msg.requestId()));
     }
 
+    /**
+     * Write out the content of a binary resource in reply to a read.
+     *
+     * <p>Compressible content is sent as its gzipped variant, if the resource has one and the client accepts gzip.
+     * Reads made conditional with If-None-Match or If-Modified-Since are answered with 304 Not Modified when
+     * the content has not changed. Content held in memory is written out as is. Content held in a file is sent
+     * straight from the file with a {@link DefaultFileRegion}, without being copied through user space, whenever
+     * it is not going to be compressed on the way out - because it is encoded already, because a byte range of it
+     * was requested, or because the client doesn't accept compressed content. Byte ranges are only served for
+     * content held in memory or in a file, or by resources that {@link BinaryResource#supportsRanges() support} them.</p>
+     */
+    protected void writeBinaryRead(ChannelHandlerContext ctx, DefaultResourceResponse msg, HttpResponseStatus responseStatus,
+                                   HttpHeaders responseHeaders, BinaryResource bin) throws Exception {
+        HttpRequest request = (HttpRequest) msg.inReplyTo().requestContext().requestAttributes().getAttribute(HttpResourceRequestDecoder.HTTP_REQUEST);
+        MediaType mediaType = bin.mediaType();
+
+        boolean compressible = mediaType != null && !mediaType.isCompressed();
+        if (compressible) {
+            // compressed or not, the response depends on what the client accepts
+            responseHeaders.add(HttpHeaders.Names.VARY, HttpHeaders.Names.ACCEPT_ENCODING);
+            BinaryResource encoded = accepts(request, HttpHeaders.Values.GZIP) ? bin.encodedVariant(HttpHeaders.Values.GZIP) : null;
+            if (encoded != null) {
+                bin = encoded;
+            }
+        }
+        if (bin.contentEncoding() != null) {
+            responseHeaders.add(HttpHeaders.Names.CONTENT_ENCODING, bin.contentEncoding());
+        }
+
+        long lastModified = bin.lastModified();
+        String entityTag = bin.entityTag();
+
+        if (request != null && notModified(request, entityTag, lastModified)) {
+            HttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_MODIFIED);
+            addValidators(response, entityTag, lastModified);
+            response.headers().add(responseHeaders);
+            ctx.writeAndFlush(response);
+            ctx.pipeline().fireUserEventTriggered(new RequestCompleteEvent(msg.requestId()));
+            return;
+        }
+
+        ByteBuf content = bin.cachedContent();
+        RandomAccessFile file = null;
+        if (content == null && bin.file() != null) {
+            try {
+                file = new RandomAccessFile(bin.file(), "r");
+            } catch (FileNotFoundException e) {
+                log.debug("Could not open file, falling back to reading content: " + bin.file(), e);
+            }
+        }
+        long length = content != null ? content.readableBytes() : file != null ? file.length() : bin.contentLength();
+
+        ByteRange range = null;
+        boolean ranges = content != null || file != null || bin.supportsRanges();
+        if (ranges && request != null && length > 0 && ifRange(request, entityTag, lastModified)) {
+            range = ByteRange.parse(request.headers().get(HttpHeaders.Names.RANGE), length);
+            if (range == ByteRange.UNSATISFIABLE) {
+                if (content != null) {
+                    content.release();
+                }
+                if (file != null) {
+                    file.close();
+                }
+                HttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.headers().add(HttpHeaders.Names.CONTENT_LENGTH, 0);
+                response.headers().add(HttpHeaders.Names.CONTENT_RANGE, range.contentRange(length));
+                ctx.writeAndFlush(response);
+                ctx.pipeline().fireUserEventTriggered(new RequestCompleteEvent(msg.requestId()));
+                return;
+            }
+        }
+
+        HttpResponseStatus status = range != null ? HttpResponseStatus.PARTIAL_CONTENT : responseStatus;
+        HttpResponse response;
+        if (content != null) {
+            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, range != null ? content.slice((int) range.first(), (int) range.length()) : content);
+        } else if (length == 0) {
+            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status);
+        } else {
+            response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+        }
+        if (length > 0) {
+            response.headers().add(HttpHeaders.Names.LOCATION, msg.resource().uri().toString());
+            response.headers().add(HttpHeaders.Names.CONTENT_TYPE, mediaType);
+        }
+        response.headers().add(HttpHeaders.Names.CONTENT_LENGTH, range != null ? range.length() : length);
+        if (range != null) {
+            response.headers().add(HttpHeaders.Names.CONTENT_RANGE, range.contentRange(length));
+        }
+        if (ranges) {
+            response.headers().add(HttpHeaders.Names.ACCEPT_RANGES, HttpHeaders.Values.BYTES);
+        }
+        addValidators(response, entityTag, lastModified);
+        response.headers().add(responseHeaders);
+
+        if (file != null && length > 0 && (range != null || !compressible || bin.contentEncoding() != null || !acceptsCompression(request))) {
+            ctx.write(response);
+            ctx.write(new DefaultFileRegion(file.getChannel(), range != null ? range.first() : 0, range != null ? range.length() : length));
+            ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+            ctx.pipeline().fireUserEventTriggered(new RequestCompleteEvent(msg.requestId()));
+            return;
+        }
+
+        if (file != null) {
+            file.close();
+        }
+        if (response instanceof DefaultFullHttpResponse) {
+            ctx.writeAndFlush(response);
+            ctx.pipeline().fireUserEventTriggered(new RequestCompleteEvent(msg.requestId()));
+        } else {
+            writeBinaryContent(ctx, msg, response, bin, range);
+        }
+    }
+
+    /**
+     * Write out the content of a binary resource, or a range of it, as it is read.
+     *
+     * <p>Resources that may block are read on the worker pool, and held up while the channel is not writable,
+     * so that a slow client pauses the reading rather than having the whole content pile up in memory.</p>
+     */
+    private void writeBinaryContent(ChannelHandlerContext ctx, DefaultResourceResponse msg, HttpResponse response, BinaryResource bin, ByteRange range) throws Exception {
+        boolean blocking = bin instanceof BlockingResource;
+        BinaryContentSink sink = new BinaryContentSink() {
+            {
+                ctx.write(response);
+            }
+
+            @Override
+            public void close() {
+                ctx.writeAndFlush(new DefaultLastHttpContent(Unpooled.EMPTY_BUFFER));
+                ctx.pipeline().fireUserEventTriggered(new RequestCompleteEvent(msg.requestId()));
+            }
+
+            @Override
+            public void accept(ByteBuf byteBuf) {
+                if (blocking) {
+                    awaitWritable(ctx, ctx.writeAndFlush(new DefaultHttpContent(byteBuf)));
+                } else {
+                    ctx.write(new DefaultHttpContent(byteBuf));
+                }
+            }
+        };
+
+        RequestContext requestContext = msg.inReplyTo().requestContext();
+        if (!blocking) {
+            readContent(requestContext, bin, range, sink);
+            return;
+        }
+        this.workerPool.execute(() -> {
+            try {
+                readContent(requestContext, bin, range, sink);
+            } catch (Throwable t) {
+                // the status line is already out, all we can do is cut the response short
+                log.error("Could not write binary content", t);
+                ctx.close();
+                ctx.pipeline().fireUserEventTriggered(new RequestCompleteEvent(msg.requestId()));
+            }
+        });
+    }
+
+    private static boolean notModified(HttpRequest request, String entityTag, long lastModified) {
+        String ifNoneMatch = request.headers().get(HttpHeaders.Names.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // If-Modified-Since is not to be looked at when If-None-Match is present
+            return entityTag != null && matches(ifNoneMatch, entityTag, true);
+        }
+        if (lastModified < 0) {
+            return false;
+        }
+        Date since = HttpHeaders.getDateHeader(request, HttpHeaders.Names.IF_MODIFIED_SINCE, null);
+        // dates in headers are only precise to the second
+        return since != null && lastModified / 1000 <= since.getTime() / 1000;
+    }
+
+    /**
+     * @return Whether a Range header is to be honored, that is if there's no If-Range or it matches the current content
+     */
+    private static boolean ifRange(HttpRequest request, String entityTag, long lastModified) {
+        String ifRange = request.headers().get(HttpHeaders.Names.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return entityTag != null && matches(ifRange, entityTag, false);
+        }
+        Date date = HttpHeaders.getDateHeader(request, HttpHeaders.Names.IF_RANGE, null);
+        return date != null && lastModified >= 0 && lastModified / 1000 == date.getTime() / 1000;
+    }
+
+    /**
+     * @param weak Whether to use weak comparison, where tags match regardless of either of them being weak
+     */
+    private static boolean matches(String header, String entityTag, boolean weak) {
+        if (!weak && entityTag.startsWith("W/")) {
+            return false;
+        }
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (weak) {
+                tag = tag.startsWith("W/") ? tag.substring(2) : tag;
+                if (tag.equals(entityTag.startsWith("W/") ? entityTag.substring(2) : entityTag)) {
+                    return true;
+                }
+            } else if (tag.equals(entityTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addValidators(HttpResponse response, String entityTag, long lastModified) {
+        if (entityTag != null) {
+            response.headers().add(HttpHeaders.Names.ETAG, entityTag);
+        }
+        if (lastModified >= 0) {
+            HttpHeaders.setDateHeader(response, HttpHeaders.Names.LAST_MODIFIED, new Date(lastModified));
+        }
+    }
+
+    /**
+     * Whether the deflater further down the pipeline may compress the response.
+     */
+    private static boolean acceptsCompression(HttpRequest request) {
+        return accepts(request, HttpHeaders.Values.GZIP) || accepts(request, HttpHeaders.Values.DEFLATE);
+    }
+
+    /**
+     * Whether the Accept-Encoding header of the request allows the given content coding, by name or by '*',
+     * with a quality value other than zero.
+     */
+    private static boolean accepts(HttpRequest request, String contentCoding) {
+        String acceptEncoding = request != null ? request.headers().get(HttpHeaders.Names.ACCEPT_ENCODING) : null;
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim();
+            if (name.equalsIgnoreCase(contentCoding) || name.equals("*")) {
+                for (int i = 1; i < params.length; i++) {
+                    String param = params[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            return Float.parseFloat(param.substring(2)) > 0;
+                        } catch (NumberFormatException e) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write out a response whose content is encoded while it is being written.
+     *
+     * <p>Content completed without ever producing a chunk is sent as a plain response with a Content-Length.
+     * Otherwise the headers go out with the first chunk and the response uses chunked transfer-encoding.
+     * Encoding off the event loop is held up while the channel is not writable, so a slow client pauses
+     * the producer rather than having the whole response pile up in memory.</p>
+     */
+    protected void streamContent(ChannelHandlerContext ctx, DefaultResourceResponse msg, HttpResponseStatus responseStatus,
+                                 HttpHeaders responseHeaders, StreamingEncodingResult encodingResult) {
+        AtomicBoolean chunked = new AtomicBoolean();
+
+        encodingResult.encode(ctx.alloc(), (chunk) -> {
+            if (chunked.compareAndSet(false, true)) {
+                HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, responseStatus);
+                HttpHeaders.setTransferEncodingChunked(response);
+                addContentHeaders(response, msg, encodingResult.mediaType(), responseHeaders);
+                ctx.write(response);
+            }
+            awaitWritable(ctx, ctx.writeAndFlush(new DefaultHttpContent(chunk)));
+        }, (remaining) -> {
+            if (chunked.get()) {
+                ctx.writeAndFlush(new DefaultLastHttpContent(remaining));
+            } else {
+                DefaultFullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, responseStatus, remaining);
+                response.headers().add(HttpHeaders.Names.CONTENT_LENGTH, remaining.readableBytes());
+                addContentHeaders(response, msg, encodingResult.mediaType(), responseHeaders);
+                ctx.writeAndFlush(response);
+            }
+            ctx.pipeline().fireUserEventTriggered(new RequestCompleteEvent(msg.requestId()));
+        }, (t) -> {
+            if (chunked.get()) {
+                // the status line is already out, all we can do is cut the response short
+                log.error("Could not stream HTTP response", t);
+                ctx.close();
+                ctx.pipeline().fireUserEventTriggered(new RequestCompleteEvent(msg.requestId()));
+            } else {
+                // nothing is out yet, so respond with the error the way any other failed request is,
+                // through the outbound interceptors
+                ctx.pipeline().writeAndFlush(ErrorHandler.errorResponse(msg.inReplyTo(), t));
+            }
+        });
+    }
+
+    private static void readContent(RequestContext requestContext, BinaryResource bin, ByteRange range, BinaryContentSink sink) throws Exception {
+        if (range != null) {
+            bin.readContent(requestContext, range.first(), range.length(), sink);
+        } else {
+            bin.readContent(requestContext, sink);
+        }
+    }
+
+    private void addContentHeaders(HttpResponse response, DefaultResourceResponse msg, MediaType mediaType, HttpHeaders responseHeaders) {
+        response.headers().add(HttpHeaders.Names.LOCATION, msg.resource().uri().toString());
+        response.headers().add(HttpHeaders.Names.CONTENT_TYPE, mediaType);
+        response.headers().add(responseHeaders);
+    }
+
+    private void awaitWritable(ChannelHandlerContext ctx, ChannelFuture future) {
+        // blocking the event loop would stop it draining the very writes we are waiting on
+        if (!ctx.channel().isWritable() && !ctx.executor().inEventLoop()) {
+            if (!future.awaitUninterruptibly(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new EncoderException("Timed out waiting for the client to accept more of the response");
+            }
+        }
+        if (future.isDone() && !future.isSuccess()) {
+            throw new EncoderException(future.cause());
+        }
+    }
+
     protected EncodingResult encodeState(RequestContext ctx, MediaTypeMatcher mediaTypeMatcher, ResourceResponse response) throws Exception {
+        if (response instanceof DefaultResourceResponse && ((DefaultResourceResponse) response).encoded() != null) {
+            // already stream-encoded by the ResourceStateHandler
+            return ((DefaultResourceResponse) response).encoded();
+        }
         return this.codecManager.encode(ctx, mediaTypeMatcher, response);
     }
 
     private ResourceCodecManager codecManager;
+    private final Executor workerPool;
+
+    private static final int WRITE_TIMEOUT_SECONDS = 30;
 
     private static final Logger log = Logger.getLogger(HttpResourceResponseEncoder.class);
 }
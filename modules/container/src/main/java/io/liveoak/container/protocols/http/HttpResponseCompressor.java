@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.protocols.http;
+
+import io.liveoak.spi.MediaType;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponse;
+
+/**
+ * Compresses responses, except for content that is compressed already and byte ranges of content.
+ */
+public class HttpResponseCompressor extends HttpContentCompressor {
+
+    public HttpResponseCompressor(int compressionLevel) {
+        super(compressionLevel);
+    }
+
+    @Override
+    protected Result beginEncode(HttpResponse response, String acceptEncoding) throws Exception {
+        HttpHeaders headers = response.headers();
+        if (headers.contains(HttpHeaders.Names.CONTENT_RANGE)) {
+            return null;
+        }
+        String contentType = headers.get(HttpHeaders.Names.CONTENT_TYPE);
+        if (contentType != null && new MediaType(contentType).isCompressed()) {
+            return null;
+        }
+
+        Result result = super.beginEncode(response, acceptEncoding);
+
+        // compressed content is no longer byte for byte the same as what a strong entity tag stands for
+        String entityTag = headers.get(HttpHeaders.Names.ETAG);
+        if (result != null && entityTag != null && !entityTag.startsWith("W/")) {
+            headers.set(HttpHeaders.Names.ETAG, "W/" + entityTag);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,57 @@
+package io.liveoak.container.resource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.liveoak.container.subscriptions.DefaultSubscriptionManager;
+import io.liveoak.container.subscriptions.SubscriptionDispatcher;
+import io.liveoak.spi.Services;
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.resource.SynchronousResource;
+import io.liveoak.spi.resource.async.Resource;
+import org.jboss.msc.service.ServiceContainer;
+import org.jboss.msc.service.ServiceController;
+
+/**
+ * Counters of the delivery of subscription notifications.
+ */
+public class SubscriptionsResource implements SynchronousResource {
+
+    public SubscriptionsResource(Resource parent, ServiceContainer serviceContainer) {
+        this.parent = parent;
+        this.serviceContainer = serviceContainer;
+    }
+
+    @Override
+    public Resource parent() {
+        return this.parent;
+    }
+
+    @Override
+    public String id() {
+        return "subscriptions";
+    }
+
+    @Override
+    public Map<String, ?> properties(RequestContext ctx) throws Exception {
+        Map<String, Object> result = new HashMap<>();
+        ServiceController<?> controller = this.serviceContainer.getService(Services.SUBSCRIPTION_MANAGER);
+        Object manager = controller == null ? null : controller.getValue();
+        if (manager instanceof DefaultSubscriptionManager) {
+            DefaultSubscriptionManager subscriptionManager = (DefaultSubscriptionManager) manager;
+            SubscriptionDispatcher dispatcher = subscriptionManager.dispatcher();
+            result.put("subscriptions", subscriptionManager.subscriptionIds().size());
+            result.put("overflowPolicy", dispatcher.overflowPolicy().toString());
+            result.put("queueCapacity", dispatcher.queueCapacity());
+            result.put("pending", dispatcher.pending());
+            result.put("dispatched", dispatcher.dispatched());
+            result.put("delivered", dispatcher.delivered());
+            result.put("overflows", dispatcher.overflows());
+            result.put("disconnects", dispatcher.disconnects());
+        }
+        return result;
+    }
+
+    private Resource parent;
+    private ServiceContainer serviceContainer;
+}
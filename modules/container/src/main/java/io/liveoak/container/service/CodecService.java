@@ -1,8 +1,12 @@
 package io.liveoak.container.service;
 
+import java.util.function.Function;
+
 import io.liveoak.common.codec.ResourceCodec;
 import io.liveoak.common.codec.ResourceDecoder;
+import io.liveoak.common.codec.ResourceEncoder;
 import io.liveoak.common.codec.StateEncoder;
+import io.liveoak.spi.ReturnFields;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
@@ -14,7 +18,11 @@ import org.jboss.msc.service.StopContext;
 public class CodecService implements Service<ResourceCodec> {
 
     public CodecService(Class<? extends StateEncoder> encoderClass, ResourceDecoder decoder) {
-        this.codec = new ResourceCodec(encoderClass, decoder);
+        this(encoderClass, decoder, null);
+    }
+
+    public CodecService(Class<? extends StateEncoder> encoderClass, ResourceDecoder decoder, Function<ReturnFields, ResourceEncoder> streamingEncoderFactory) {
+        this.codec = new ResourceCodec(encoderClass, decoder, streamingEncoderFactory);
     }
 
     @Override
@@ -1,8 +1,13 @@
 package io.liveoak.container.service;
 
+import java.util.concurrent.Executor;
+
 import io.liveoak.container.subscriptions.DefaultSubscriptionManager;
 import io.liveoak.container.subscriptions.SecuredSubscriptionManager;
+import io.liveoak.container.subscriptions.SubscriptionAuthzCache;
+import io.liveoak.container.subscriptions.SubscriptionDispatcher;
 import io.liveoak.spi.client.Client;
+import org.jboss.logging.Logger;
 import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.StartContext;
@@ -14,13 +19,43 @@ import org.jboss.msc.value.InjectedValue;
  * @author Bob McWhirter
  */
 public class SubscriptionManagerService implements Service<DefaultSubscriptionManager> {
+
+    /**
+     * System property with the maximum number of notifications queued for a single connection.
+     */
+    public static final String QUEUE_CAPACITY_PROPERTY = "liveoak.subscriptions.queue-capacity";
+
+    /**
+     * System property with the policy applied to connections, whose queue is full. Either DROP or DISCONNECT.
+     */
+    public static final String OVERFLOW_POLICY_PROPERTY = "liveoak.subscriptions.overflow-policy";
+
+    /**
+     * System property with the milliseconds an authorization decision about a notified resource is reused for, 0 to
+     * only share it between the subscribers of a single notification.
+     */
+    public static final String AUTHZ_CACHE_TTL_PROPERTY = "liveoak.subscriptions.authz-cache.ttl";
+
     @Override
     public void start(StartContext context) throws StartException {
-        this.subscriptionManager = new SecuredSubscriptionManager(clientInjector.getValue());
+        int queueCapacity = Integer.getInteger(QUEUE_CAPACITY_PROPERTY, SubscriptionDispatcher.DEFAULT_QUEUE_CAPACITY);
+        SubscriptionDispatcher.OverflowPolicy overflowPolicy;
+        try {
+            overflowPolicy = SubscriptionDispatcher.OverflowPolicy.valueOf(
+                    System.getProperty(OVERFLOW_POLICY_PROPERTY, SubscriptionDispatcher.OverflowPolicy.DROP.name()).toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new StartException("Invalid value of " + OVERFLOW_POLICY_PROPERTY, e);
+        }
+
+        SubscriptionAuthzCache authzCache = new SubscriptionAuthzCache(SubscriptionAuthzCache.DEFAULT_MAX_SIZE,
+                Long.getLong(AUTHZ_CACHE_TTL_PROPERTY, SubscriptionAuthzCache.DEFAULT_TTL_MILLIS));
+        this.subscriptionManager = new SecuredSubscriptionManager(clientInjector.getValue(), authzCache, workerPoolInjector.getValue(), queueCapacity, overflowPolicy);
     }
 
     @Override
     public void stop(StopContext context) {
+        log.debugf("Subscription notifications: %s, authorization: %s", this.subscriptionManager.dispatcher(), this.subscriptionManager.authzCache());
+        this.subscriptionManager.close();
         this.subscriptionManager = null;
     }
 
@@ -33,7 +68,14 @@ public class SubscriptionManagerService implements Service<DefaultSubscriptionMa
         return this.clientInjector;
     }
 
-    private DefaultSubscriptionManager subscriptionManager;
+    public Injector<Executor> workerPoolInjector() {
+        return this.workerPoolInjector;
+    }
+
+    private SecuredSubscriptionManager subscriptionManager;
     private InjectedValue<Client> clientInjector = new InjectedValue<>();
+    private InjectedValue<Executor> workerPoolInjector = new InjectedValue<>();
+
+    private static final Logger log = Logger.getLogger(SubscriptionManagerService.class);
 
 }
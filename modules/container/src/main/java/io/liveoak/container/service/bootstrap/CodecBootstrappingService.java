@@ -2,20 +2,24 @@ package io.liveoak.container.service.bootstrap;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 import io.liveoak.common.codec.ResourceCodec;
 import io.liveoak.common.codec.ResourceCodecManager;
 import io.liveoak.common.codec.ResourceDecoder;
+import io.liveoak.common.codec.ResourceEncoder;
 import io.liveoak.common.codec.StateEncoder;
 import io.liveoak.common.codec.form.FormURLDecoder;
 import io.liveoak.common.codec.html.HTMLEncoder;
 import io.liveoak.common.codec.json.JSONDecoder;
 import io.liveoak.common.codec.json.JSONEncoder;
+import io.liveoak.common.codec.json.JSONResourceEncoder;
 import io.liveoak.container.service.CodecInstallationCompleteService;
 import io.liveoak.container.service.CodecInstallationService;
 import io.liveoak.container.service.CodecManagerService;
 import io.liveoak.container.service.CodecService;
 import io.liveoak.spi.MediaType;
+import io.liveoak.spi.ReturnFields;
 
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.ServiceBuilder;
@@ -44,7 +48,7 @@ public class CodecBootstrappingService implements Service<Void> {
 
         List<ServiceName> codecCompletionDependencies = new ArrayList<>();
 
-        codecCompletionDependencies.add(installCodec(target, MediaType.JSON, JSONEncoder.class, new JSONDecoder()));
+        codecCompletionDependencies.add(installCodec(target, MediaType.JSON, JSONEncoder.class, new JSONDecoder(), JSONResourceEncoder::new));
         codecCompletionDependencies.add(installCodec(target, MediaType.HTML, HTMLEncoder.class, null));
         codecCompletionDependencies.add(installCodec(target, MediaType.FORM_URLENCODED, null, new FormURLDecoder()));
 
@@ -69,9 +73,14 @@ public class CodecBootstrappingService implements Service<Void> {
     }
 
     private ServiceName installCodec(ServiceTarget target, MediaType mediaType, Class<? extends StateEncoder> encoderClass, ResourceDecoder decoder) {
+        return installCodec(target, mediaType, encoderClass, decoder, null);
+    }
+
+    private ServiceName installCodec(ServiceTarget target, MediaType mediaType, Class<? extends StateEncoder> encoderClass, ResourceDecoder decoder,
+                                     Function<ReturnFields, ResourceEncoder> streamingEncoderFactory) {
         ServiceName name = codec(mediaType.toString());
 
-        CodecService codec = new CodecService(encoderClass, decoder);
+        CodecService codec = new CodecService(encoderClass, decoder, streamingEncoderFactory);
         target.addService(name, codec)
                 .install();
 
@@ -60,20 +60,21 @@ public class ServersBootstrappingService implements Service<Void> {
                 .install();
 
 
+        WorkerPoolService workerPool = new WorkerPoolService();
+        target.addService(WORKER_POOL, workerPool)
+                .install();
+
         SubscriptionManagerService subscriptionManager = new SubscriptionManagerService();
 
         target.addService(SUBSCRIPTION_MANAGER, subscriptionManager)
                 .addDependency(CLIENT, Client.class, subscriptionManager.clientInjector())
+                .addDependency(WORKER_POOL, Executor.class, subscriptionManager.workerPoolInjector())
                 .install();
 
         ValueService<InterceptorManagerImpl> interceptorManager = new ValueService<>(new ImmediateValue<InterceptorManagerImpl>(new InterceptorManagerImpl()));
         target.addService(INTERCEPTOR_MANAGER, interceptorManager)
                 .install();
 
-        WorkerPoolService workerPool = new WorkerPoolService();
-        target.addService(WORKER_POOL, workerPool)
-                .install();
-
         PipelineConfiguratorService pipelineConfigurator = new PipelineConfiguratorService();
         ServiceBuilder<PipelineConfigurator> pipelineBuilder = target.addService(PIPELINE_CONFIGURATOR, pipelineConfigurator)
                 .addDependency(SUBSCRIPTION_MANAGER, SubscriptionManager.class, pipelineConfigurator.subscriptionManagerInjector())
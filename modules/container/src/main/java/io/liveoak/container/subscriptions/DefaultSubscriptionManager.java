@@ -3,8 +3,9 @@ package io.liveoak.container.subscriptions;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
-import io.liveoak.common.util.ObjectsTree;
+import io.liveoak.common.util.ConcurrentObjectsTree;
 import io.liveoak.spi.ResourcePath;
 import io.liveoak.spi.ResourceResponse;
 import io.liveoak.spi.container.Subscription;
@@ -18,11 +19,23 @@ import org.jboss.logging.Logger;
  */
 public class DefaultSubscriptionManager implements SubscriptionManager {
 
+    /**
+     * Subscription manager delivering notifications on the thread reporting the change.
+     */
     public DefaultSubscriptionManager() {
+        this.dispatcher = new SubscriptionDispatcher();
+    }
+
+    /**
+     * Subscription manager delivering notifications through the executor, queueing up to queueCapacity notifications per connection.
+     */
+    public DefaultSubscriptionManager(Executor executor, int queueCapacity, SubscriptionDispatcher.OverflowPolicy overflowPolicy) {
+        this.dispatcher = new SubscriptionDispatcher(executor, queueCapacity, overflowPolicy, this::disconnect);
     }
 
     @Override
     public void addSubscription(Subscription subscription) {
+        this.dispatcher.register(subscription);
         this.subscriptionsTree.addObject(subscription, subscription.resourcePath());
         this.subscriptionsMap.put(subscription.id(), subscription);
     }
@@ -30,13 +43,18 @@ public class DefaultSubscriptionManager implements SubscriptionManager {
     @Override
     public void removeSubscriptionById(String subscriptionId) {
         Subscription subscription = this.subscriptionsMap.remove(subscriptionId);
-        this.subscriptionsTree.removeObject(subscription, subscription.resourcePath());
+        if (subscription != null) {
+            this.subscriptionsTree.removeObject(subscription, subscription.resourcePath());
+            this.dispatcher.unregister(subscription);
+        }
     }
 
     @Override
     public void removeSubscription(Subscription subscription) {
         this.subscriptionsTree.removeObject(subscription, subscription.resourcePath());
-        this.subscriptionsMap.remove(subscription.id());
+        if (this.subscriptionsMap.remove(subscription.id()) != null) {
+            this.dispatcher.unregister(subscription);
+        }
     }
 
     @Override
@@ -44,16 +62,60 @@ public class DefaultSubscriptionManager implements SubscriptionManager {
         return this.subscriptionsMap.get(subscriptionId);
     }
 
+    /**
+     * Remove all subscriptions of the connection the subscription belongs to, and disconnect it.
+     */
+    protected void disconnect(Subscription subscription) {
+        String connectionId = this.dispatcher.connectionOf(subscription);
+        this.subscriptionsMap.values().stream()
+                .filter((each) -> connectionId.equals(this.dispatcher.connectionOf(each)))
+                .forEach(this::removeSubscription);
+        if (subscription instanceof EncodingSubscription) {
+            ((EncodingSubscription) subscription).disconnect();
+        }
+    }
+
+    /**
+     * Hold back the completion of a delivery until what it sent has been written out, so that the queue of
+     * a connection which doesn't keep up fills, rather than the buffers of its channel.
+     */
+    protected Runnable afterSent(Subscription subscription, Runnable done) {
+        if (subscription instanceof EncodingSubscription) {
+            return () -> ((EncodingSubscription) subscription).whenSent(done);
+        }
+        return done;
+    }
+
     @Override
     public void resourceCreated(ResourceResponse resourceResponse) {
         ResourcePath path = resourcePathOf(resourceResponse.resource());
-        this.subscriptionsTree.objects(path).forEach((subscription) -> subscribeResourceCreated(path, subscription, resourceResponse));
-        this.subscriptionsTree.objects(path.parent()).forEach((subscription) -> subscribeResourceCreated(path.parent(), subscription, resourceResponse));
+        ResourcePath parentPath = path.parent();
+        SubscriptionNotification notification = new SubscriptionNotification(resourceResponse);
+        try {
+            this.subscriptionsTree.objects(path).forEach((subscription) -> this.dispatcher.dispatch(subscription, notification,
+                    (done) -> subscribeResourceCreated(path, subscription, notification, afterSent(subscription, done))));
+            this.subscriptionsTree.objects(parentPath).forEach((subscription) -> this.dispatcher.dispatch(subscription, notification,
+                    (done) -> subscribeResourceCreated(parentPath, subscription, notification, afterSent(subscription, done))));
+        } finally {
+            notification.release();
+        }
+    }
+
+    protected void subscribeResourceCreated(ResourcePath path, Subscription subscription, SubscriptionNotification notification, Runnable done) {
+        try {
+            deliverResourceCreated(subscription, notification);
+        } finally {
+            done.run();
+        }
     }
 
-    protected void subscribeResourceCreated(ResourcePath path, Subscription subscription, ResourceResponse resourceResponse) {
+    protected void deliverResourceCreated(Subscription subscription, SubscriptionNotification notification) {
         try {
-            subscription.resourceCreated(resourceResponse);
+            if (subscription instanceof EncodingSubscription) {
+                ((EncodingSubscription) subscription).resourceCreated(notification);
+            } else {
+                subscription.resourceCreated(notification.response());
+            }
         } catch (Exception e) {
             log.error("", e);
         }
@@ -62,12 +124,30 @@ public class DefaultSubscriptionManager implements SubscriptionManager {
     @Override
     public void resourceUpdated(ResourceResponse resourceResponse) {
         ResourcePath path = resourcePathOf(resourceResponse.resource());
-        this.subscriptionsTree.objects(path).forEach((subscription) -> subscribeResourceUpdated(path, subscription, resourceResponse));
+        SubscriptionNotification notification = new SubscriptionNotification(resourceResponse);
+        try {
+            this.subscriptionsTree.objects(path).forEach((subscription) -> this.dispatcher.dispatch(subscription, notification,
+                    (done) -> subscribeResourceUpdated(path, subscription, notification, afterSent(subscription, done))));
+        } finally {
+            notification.release();
+        }
     }
 
-    protected void subscribeResourceUpdated(ResourcePath path, Subscription subscription, ResourceResponse resourceResponse) {
+    protected void subscribeResourceUpdated(ResourcePath path, Subscription subscription, SubscriptionNotification notification, Runnable done) {
         try {
-            subscription.resourceUpdated(resourceResponse);
+            deliverResourceUpdated(subscription, notification);
+        } finally {
+            done.run();
+        }
+    }
+
+    protected void deliverResourceUpdated(Subscription subscription, SubscriptionNotification notification) {
+        try {
+            if (subscription instanceof EncodingSubscription) {
+                ((EncodingSubscription) subscription).resourceUpdated(notification);
+            } else {
+                subscription.resourceUpdated(notification.response());
+            }
         } catch (Exception e) {
             log.error("", e);
         }
@@ -76,13 +156,33 @@ public class DefaultSubscriptionManager implements SubscriptionManager {
     @Override
     public void resourceDeleted(ResourceResponse resourceResponse) {
         ResourcePath path = resourcePathOf(resourceResponse.resource());
-        this.subscriptionsTree.objects(path).forEach((subscription) -> subscribeResourceDeleted(path, subscription, resourceResponse));
-        this.subscriptionsTree.objects(path.parent()).forEach((subscription) -> subscribeResourceDeleted(path.parent(), subscription, resourceResponse));
+        ResourcePath parentPath = path.parent();
+        SubscriptionNotification notification = new SubscriptionNotification(resourceResponse);
+        try {
+            this.subscriptionsTree.objects(path).forEach((subscription) -> this.dispatcher.dispatch(subscription, notification,
+                    (done) -> subscribeResourceDeleted(path, subscription, notification, afterSent(subscription, done))));
+            this.subscriptionsTree.objects(parentPath).forEach((subscription) -> this.dispatcher.dispatch(subscription, notification,
+                    (done) -> subscribeResourceDeleted(parentPath, subscription, notification, afterSent(subscription, done))));
+        } finally {
+            notification.release();
+        }
+    }
+
+    protected void subscribeResourceDeleted(ResourcePath path, Subscription subscription, SubscriptionNotification notification, Runnable done) {
+        try {
+            deliverResourceDeleted(subscription, notification);
+        } finally {
+            done.run();
+        }
     }
 
-    protected void subscribeResourceDeleted(ResourcePath path, Subscription subscription, ResourceResponse resourceResponse) {
+    protected void deliverResourceDeleted(Subscription subscription, SubscriptionNotification notification) {
         try {
-            subscription.resourceDeleted(resourceResponse);
+            if (subscription instanceof EncodingSubscription) {
+                ((EncodingSubscription) subscription).resourceDeleted(notification);
+            } else {
+                subscription.resourceDeleted(notification.response());
+            }
         } catch (Exception e) {
             log.error("", e);
         }
@@ -103,7 +203,11 @@ public class DefaultSubscriptionManager implements SubscriptionManager {
         return path;
     }
 
-    public ObjectsTree<Subscription> treeFor(ResourcePath path) {
+    public SubscriptionDispatcher dispatcher() {
+        return this.dispatcher;
+    }
+
+    public ConcurrentObjectsTree<Subscription> treeFor(ResourcePath path) {
         return this.subscriptionsTree.findLeaf(path);
     }
 
@@ -111,7 +215,8 @@ public class DefaultSubscriptionManager implements SubscriptionManager {
         return subscriptionsMap.keySet();
     }
 
-    private ObjectsTree<Subscription> subscriptionsTree = new ObjectsTree<>();
+    private final SubscriptionDispatcher dispatcher;
+    private ConcurrentObjectsTree<Subscription> subscriptionsTree = new ConcurrentObjectsTree<>();
     private Map<String, Subscription> subscriptionsMap = new ConcurrentHashMap<>();
     private static final Logger log = Logger.getLogger(DefaultSubscriptionManager.class);
 }
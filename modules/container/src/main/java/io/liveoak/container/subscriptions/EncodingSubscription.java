@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.subscriptions;
+
+import io.liveoak.spi.container.Subscription;
+
+/**
+ * Subscription delivering encoded resource states, which it takes from the notification so that the encoding
+ * is shared with the other subscriptions of the same media type.
+ */
+public interface EncodingSubscription extends Subscription {
+
+    /**
+     * @return Identifier of the connection the notifications go through. Notifications for subscriptions sharing
+     * a connection are delivered in order.
+     */
+    default String connectionId() {
+        return id();
+    }
+
+    /**
+     * Disconnect the subscriber, which doesn't keep up with the notifications.
+     */
+    default void disconnect() {
+    }
+
+    /**
+     * Run the task once everything sent to the subscriber so far has been written out, or has failed to.
+     * Subscriptions which don't write asynchronously run it right away.
+     */
+    default void whenSent(Runnable task) {
+        task.run();
+    }
+
+    void resourceCreated(SubscriptionNotification notification) throws Exception;
+
+    void resourceUpdated(SubscriptionNotification notification) throws Exception;
+
+    void resourceDeleted(SubscriptionNotification notification) throws Exception;
+}
@@ -1,11 +1,11 @@
 package io.liveoak.container.subscriptions;
 
 import io.liveoak.common.codec.ResourceCodec;
+import io.liveoak.spi.MediaType;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.ResourcePath;
 import io.liveoak.spi.ResourceResponse;
 import io.liveoak.spi.security.SecurityContext;
-import io.liveoak.spi.container.Subscription;
 import io.liveoak.spi.resource.async.Resource;
 import io.liveoak.spi.state.ResourceState;
 import io.netty.buffer.ByteBuf;
@@ -19,13 +19,14 @@ import java.util.UUID;
 /**
  * @author Bob McWhirter
  */
-public class HttpSubscription implements Subscription {
+public class HttpSubscription implements EncodingSubscription {
 
-    public HttpSubscription(HttpClient httpClient, String path, URI destination, ResourceCodec codec, SecurityContext securityContext) {
+    public HttpSubscription(HttpClient httpClient, String path, URI destination, MediaType mediaType, ResourceCodec codec, SecurityContext securityContext) {
         this.id = UUID.randomUUID().toString();
         this.httpClient = httpClient;
         this.resourcePath = new ResourcePath(path);
         this.destination = destination;
+        this.mediaType = mediaType;
         this.codec = codec;
         this.securityContext = securityContext;
     }
@@ -78,28 +79,47 @@ public class HttpSubscription implements Subscription {
 
     @Override
     public void resourceUpdated(ResourceResponse resourceResponse) throws Exception {
+        RequestContext requestContext = new RequestContext.Builder().build();
+        put(resourceResponse, codec.encode(requestContext, resourceResponse.state()));
+    }
+
+    @Override
+    public void resourceDeleted(ResourceResponse resourceResponse) throws Exception {
+        RequestContext requestContext = new RequestContext.Builder().build();
+        delete(resourceResponse, codec.encode(requestContext, resourceResponse.state()));
+    }
+
+    @Override
+    public void resourceCreated(SubscriptionNotification notification) throws Exception {
+        resourceUpdated(notification);
+    }
+
+    @Override
+    public void resourceUpdated(SubscriptionNotification notification) throws Exception {
+        put(notification.response(), notification.content(this.mediaType, this.codec));
+    }
+
+    @Override
+    public void resourceDeleted(SubscriptionNotification notification) throws Exception {
+        delete(notification.response(), notification.content(this.mediaType, this.codec));
+    }
+
+    protected void put(ResourceResponse resourceResponse, ByteBuf encoded) {
         URI uri = destinationUri(resourceResponse.resource());
         HttpClientRequest request = this.httpClient.put(uri.getPath(), (response) -> {
         });
 
         request.setChunked(true);
-
-        RequestContext requestContext = new RequestContext.Builder().build();
-        ByteBuf encoded = codec.encode(requestContext, resourceResponse.state());
         request.write(new Buffer(encoded));
         request.end();
     }
 
-    @Override
-    public void resourceDeleted(ResourceResponse resourceResponse) throws Exception {
+    protected void delete(ResourceResponse resourceResponse, ByteBuf encoded) {
         URI uri = destinationUri(resourceResponse.resource());
         HttpClientRequest request = this.httpClient.delete(uri.getPath(), (response) -> {
         });
 
         request.setChunked(true);
-
-        RequestContext requestContext = new RequestContext.Builder().build();
-        ByteBuf encoded = codec.encode(requestContext, resourceResponse.state());
         request.write(new Buffer(encoded));
         request.end();
     }
@@ -113,6 +133,7 @@ public class HttpSubscription implements Subscription {
     private HttpClient httpClient;
     private ResourcePath resourcePath;
     private final URI destination;
+    private final MediaType mediaType;
     private ResourceCodec codec;
     private final SecurityContext securityContext;
 
@@ -6,9 +6,14 @@
 
 package io.liveoak.container.subscriptions;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
 import io.liveoak.common.DefaultRequestAttributes;
 import io.liveoak.common.codec.DefaultResourceState;
 import io.liveoak.common.security.AuthzConstants;
+import io.liveoak.common.security.AuthzDecisionInvalidator;
 import io.liveoak.spi.RequestAttributes;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.RequestType;
@@ -29,43 +34,107 @@ public class SecuredSubscriptionManager extends DefaultSubscriptionManager {
     private static final Logger log = Logger.getLogger(SecuredSubscriptionManager.class);
 
     public SecuredSubscriptionManager(Client client) {
+        this(client, new SubscriptionAuthzCache());
+    }
+
+    public SecuredSubscriptionManager(Client client, SubscriptionAuthzCache authzCache) {
+        this.client = client;
+        this.authzCache = authzCache;
+        AuthzDecisionInvalidator.addListener(this.invalidationListener);
+    }
+
+    public SecuredSubscriptionManager(Client client, SubscriptionAuthzCache authzCache, Executor executor, int queueCapacity, SubscriptionDispatcher.OverflowPolicy overflowPolicy) {
+        super(executor, queueCapacity, overflowPolicy);
         this.client = client;
+        this.authzCache = authzCache;
+        AuthzDecisionInvalidator.addListener(this.invalidationListener);
     }
 
     @Override
-    protected void subscribeResourceCreated(ResourcePath path, Subscription subscription, ResourceResponse resourceResponse) {
-        checkSecurity(path, subscription, resourceResponse, () -> {
-            super.subscribeResourceCreated(path, subscription, resourceResponse);
-        });
+    protected void subscribeResourceCreated(ResourcePath path, Subscription subscription, SubscriptionNotification notification, Runnable done) {
+        checkSecurity(path, subscription, notification, () -> {
+            deliverResourceCreated(subscription, notification);
+        }, done);
     }
 
     @Override
-    protected void subscribeResourceUpdated(ResourcePath path, Subscription subscription, ResourceResponse resourceResponse) {
-        checkSecurity(path, subscription, resourceResponse, () -> {
-            super.subscribeResourceUpdated(path, subscription, resourceResponse);
-        });
+    protected void subscribeResourceUpdated(ResourcePath path, Subscription subscription, SubscriptionNotification notification, Runnable done) {
+        checkSecurity(path, subscription, notification, () -> {
+            deliverResourceUpdated(subscription, notification);
+        }, done);
     }
 
     @Override
-    protected void subscribeResourceDeleted(ResourcePath path, Subscription subscription, ResourceResponse resourceResponse) {
-        checkSecurity(path, subscription, resourceResponse, () -> {
-            super.subscribeResourceDeleted(path, subscription, resourceResponse);
-        });
+    protected void subscribeResourceDeleted(ResourcePath path, Subscription subscription, SubscriptionNotification notification, Runnable done) {
+        checkSecurity(path, subscription, notification, () -> {
+            deliverResourceDeleted(subscription, notification);
+        }, done);
     }
 
+    /**
+     * @param callback Invoked if the subscription is authorized to receive the notification.
+     * @param done Invoked once the check completes, whatever its outcome.
+     */
     // TODO: Create common authorization helper to avoid have similar code for invoking authorization in 3 places
-    protected void checkSecurity(ResourcePath path, Subscription subscription, ResourceResponse origResourceResponse, Runnable callback) {
+    protected void checkSecurity(ResourcePath path, Subscription subscription, SubscriptionNotification notification, Runnable callback, Runnable done) {
         // Don't authorize subscriptions like UPSSubscription
         if (!subscription.isSecure()) {
-            callback.run();
+            try {
+                callback.run();
+            } finally {
+                done.run();
+            }
             return;
         }
 
+        ResourceResponse origResourceResponse = notification.response();
         try {
             if (path.segments().size() < 0) {
                 sendError(subscription, HttpResponseStatus.INTERNAL_SERVER_ERROR, origResourceResponse);
+                done.run();
                 return;
             }
+
+            // Subscribers with the same identity share a single decision about the notified resource, which is
+            // reused for the notifications about it following shortly after
+            SubscriptionAuthzKey key = SubscriptionAuthzKey.of(path, resourcePathOf(origResourceResponse.resource()), subscription.securityContext());
+            CompletableFuture<Boolean> decision = notification.attachment(key, (k) -> authorize(key, path, subscription, origResourceResponse));
+
+            decision.whenComplete((authorized, failure) -> {
+                try {
+                    if (failure != null) {
+                        log.error("Error occurred during authorization of subscription", failure);
+                    } else if (authorized) {
+                        callback.run();
+                    } else {
+                        boolean authenticated = subscription.securityContext().isAuthenticated();
+                        HttpResponseStatus errorStatus = authenticated ? HttpResponseStatus.FORBIDDEN : HttpResponseStatus.UNAUTHORIZED;
+                        sendError(subscription, errorStatus, origResourceResponse);
+                    }
+                } catch (Throwable t) {
+                    log.error("Error occurred during authorization of subscription", t);
+                } finally {
+                    done.run();
+                }
+            });
+        } catch (Throwable t) {
+            log.error("Error occurred during authorization of subscription", t);
+            done.run();
+        }
+    }
+
+    private CompletableFuture<Boolean> authorize(SubscriptionAuthzKey key, ResourcePath path, Subscription subscription, ResourceResponse origResourceResponse) {
+        CompletableFuture<Boolean> decision = new CompletableFuture<>();
+
+        Boolean cached = this.authzCache.get(key);
+        if (cached != null) {
+            decision.complete(cached);
+            return decision;
+        }
+        // taken before asking, so that a decision made before an invalidation isn't remembered after it
+        long generation = this.authzCache.generation();
+
+        try {
             String applicationPrefix = path.segments().get(0).name();
 
             RequestAttributes attribs = new DefaultRequestAttributes();
@@ -78,31 +147,31 @@ public class SecuredSubscriptionManager extends DefaultSubscriptionManager {
             RequestContext authzRequest = new RequestContext.Builder().requestAttributes(attribs).build();
 
             client.read(authzRequest, applicationPrefix + "/authz/authzCheck", (ClientResourceResponse resourceResponse) -> {
-
-                // Authorize automatically if Authz service is not available
-                if (resourceResponse.responseType() == ClientResourceResponse.ResponseType.NO_SUCH_RESOURCE) {
-                    callback.run();
-                    return;
-                }
-
                 try {
-                    ResourceState state = resourceResponse.state();
-                    boolean authorized = (Boolean) state.getProperty(AuthzConstants.ATTR_AUTHZ_RESULT);
-
-                    if (authorized) {
-                        callback.run();
-                    } else {
-                        boolean authenticated = subscription.securityContext().isAuthenticated();
-                        HttpResponseStatus errorStatus = authenticated ? HttpResponseStatus.FORBIDDEN : HttpResponseStatus.UNAUTHORIZED;
-                        sendError(subscription, errorStatus, origResourceResponse);
-                    }
+                    // Authorize automatically if Authz service is not available
+                    boolean authorized = resourceResponse.responseType() == ClientResourceResponse.ResponseType.NO_SUCH_RESOURCE
+                            || (Boolean) resourceResponse.state().getProperty(AuthzConstants.ATTR_AUTHZ_RESULT);
+                    this.authzCache.put(key, authorized, generation);
+                    decision.complete(authorized);
                 } catch (Throwable t) {
-                    log.error("Error occurred during authorization of subscription", t);
+                    decision.completeExceptionally(t);
                 }
             });
         } catch (Throwable t) {
-            log.error("Error occurred during authorization of subscription", t);
+            decision.completeExceptionally(t);
         }
+        return decision;
+    }
+
+    public SubscriptionAuthzCache authzCache() {
+        return this.authzCache;
+    }
+
+    /**
+     * Stop following the changes of authorization policies.
+     */
+    public void close() {
+        AuthzDecisionInvalidator.removeListener(this.invalidationListener);
     }
 
     private RequestContext createRequestContext(ResourcePath resourcePath, Subscription subscription) {
@@ -119,4 +188,6 @@ public class SecuredSubscriptionManager extends DefaultSubscriptionManager {
     }
 
     private final Client client;
+    private final SubscriptionAuthzCache authzCache;
+    private final Consumer<String> invalidationListener = (applicationPrefix) -> this.authzCache.invalidate(applicationPrefix);
 }
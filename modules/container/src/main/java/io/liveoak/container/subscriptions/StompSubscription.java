@@ -11,18 +11,19 @@ import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.ResourcePath;
 import io.liveoak.spi.ResourceResponse;
 import io.liveoak.spi.security.SecurityContext;
-import io.liveoak.spi.container.Subscription;
 import io.liveoak.spi.resource.async.Resource;
 import io.liveoak.spi.state.ResourceState;
 import io.liveoak.stomp.Headers;
 import io.liveoak.stomp.StompMessage;
 import io.liveoak.stomp.common.DefaultStompMessage;
 import io.liveoak.stomp.server.StompConnection;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
 
 /**
  * @author Bob McWhirter
  */
-public class StompSubscription implements Subscription {
+public class StompSubscription implements EncodingSubscription {
 
     public StompSubscription(StompConnection connection, String destination, String subscriptionId, MediaType mediaType, ResourceCodec codec) {
         this.connection = connection;
@@ -42,6 +43,27 @@ public class StompSubscription implements Subscription {
         return generateId(this.connection, this.subscriptionId);
     }
 
+    @Override
+    public String connectionId() {
+        return this.connection.getConnectionId();
+    }
+
+    @Override
+    public void disconnect() {
+        this.connection.close();
+    }
+
+    @Override
+    public void whenSent(Runnable task) {
+        ChannelFuture sent = this.lastSent;
+        if (sent == null) {
+            task.run();
+        } else {
+            // writes on a channel complete in order, so the last one being done means all of them are
+            sent.addListener((future) -> task.run());
+        }
+    }
+
     // ----------------------------------------------------------------------
     // ----------------------------------------------------------------------
 
@@ -70,25 +92,53 @@ public class StompSubscription implements Subscription {
         RequestContext requestContext = new RequestContext.Builder().build();
         message.content(this.codec.encode(requestContext, errorState));
 
-        this.connection.send(message);
+        send(message);
     }
 
     @Override
     public void resourceCreated(ResourceResponse resourceResponse) throws Exception {
-        this.connection.send(createMessage("create", 200, resourceResponse));
+        send(createMessage("create", 200, resourceResponse));
     }
 
     @Override
     public void resourceUpdated(ResourceResponse resourceResponse) throws Exception {
-        this.connection.send(createMessage("update", 200, resourceResponse));
+        send(createMessage("update", 200, resourceResponse));
     }
 
     @Override
     public void resourceDeleted(ResourceResponse resourceResponse) throws Exception {
-        this.connection.send(createMessage("delete", 200, resourceResponse));
+        send(createMessage("delete", 200, resourceResponse));
+    }
+
+    @Override
+    public void resourceCreated(SubscriptionNotification notification) throws Exception {
+        send(createMessage("create", 200, notification));
+    }
+
+    @Override
+    public void resourceUpdated(SubscriptionNotification notification) throws Exception {
+        send(createMessage("update", 200, notification));
+    }
+
+    @Override
+    public void resourceDeleted(SubscriptionNotification notification) throws Exception {
+        send(createMessage("delete", 200, notification));
+    }
+
+    private void send(StompMessage message) {
+        this.lastSent = this.connection.send(message);
     }
 
     protected StompMessage createMessage(String action, int status, ResourceResponse resourceResponse) throws Exception {
+        RequestContext requestContext = new RequestContext.Builder().build();
+        return createMessage(action, status, resourceResponse, this.codec.encode(requestContext, resourceResponse.state()));
+    }
+
+    protected StompMessage createMessage(String action, int status, SubscriptionNotification notification) throws Exception {
+        return createMessage(action, status, notification.response(), notification.content(this.mediaType, this.codec));
+    }
+
+    protected StompMessage createMessage(String action, int status, ResourceResponse resourceResponse, ByteBuf content) throws Exception {
         Resource resource = resourceResponse.resource();
         StompMessage message = new DefaultStompMessage();
         message.headers().put(Headers.SUBSCRIPTION, this.subscriptionId);
@@ -96,10 +146,7 @@ public class StompSubscription implements Subscription {
         message.headers().put("action", action);
         message.headers().put("status", "" + status);
         message.headers().put("location", resource.uri().toString());
-        RequestContext requestContext = new RequestContext.Builder().build();
-
-
-        message.content(this.codec.encode(requestContext, resourceResponse.state()));
+        message.content(content);
         return message;
     }
 
@@ -110,5 +157,6 @@ public class StompSubscription implements Subscription {
     private ResourceCodec codec;
 
     private final ResourcePath resourcePath;
+    private volatile ChannelFuture lastSent;
 
 }
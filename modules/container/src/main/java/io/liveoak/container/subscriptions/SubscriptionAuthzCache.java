@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.subscriptions;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived cache of authorization decisions about subscription notifications, shared by all subscribers
+ * with the same identity.
+ *
+ * <p>Notifications about the same resource tend to come in bursts, so the decision made for the first of them is
+ * reused for those following within a short time. Decisions are keyed by the notified resource, never shared between
+ * different members of a subscribed collection, and are dropped when a policy announces a change.</p>
+ */
+public class SubscriptionAuthzCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<SubscriptionAuthzKey, Entry> entries;
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SubscriptionAuthzCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * @param ttlMillis How long a decision is remembered, 0 to only share decisions within a single notification.
+     */
+    public SubscriptionAuthzCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<SubscriptionAuthzKey, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SubscriptionAuthzKey, Entry> eldest) {
+                return size() > SubscriptionAuthzCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return The decision, or null if none is cached or it has expired.
+     */
+    public Boolean get(SubscriptionAuthzKey key) {
+        if (this.ttlMillis <= 0) {
+            return null;
+        }
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expires < System.currentTimeMillis()) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.authorized;
+    }
+
+    /**
+     * Remember a decision, unless decisions have been invalidated since it started being made.
+     *
+     * @param generation The {@link #generation()} taken before asking for the decision
+     */
+    public void put(SubscriptionAuthzKey key, boolean authorized, long generation) {
+        if (this.ttlMillis <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            if (generation == this.generation) {
+                entries.put(key, new Entry(authorized, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+    }
+
+    /**
+     * @return A number which changes with every invalidation
+     */
+    public long generation() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /**
+     * @param applicationPrefix Prefix of the application, for example "/myapp", or null to drop all decisions.
+     */
+    public void invalidate(String applicationPrefix) {
+        synchronized (entries) {
+            generation++;
+            if (applicationPrefix == null) {
+                entries.clear();
+                return;
+            }
+            Iterator<SubscriptionAuthzKey> keys = entries.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().isOf(applicationPrefix)) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "[SubscriptionAuthzCache: size=" + size() + ", hits=" + hits() + ", misses=" + misses() + "]";
+    }
+
+    private static class Entry {
+        final boolean authorized;
+        final long expires;
+
+        Entry(boolean authorized, long expires) {
+            this.authorized = authorized;
+            this.expires = expires;
+        }
+    }
+}
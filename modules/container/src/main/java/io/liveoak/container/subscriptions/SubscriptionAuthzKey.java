@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.subscriptions;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import io.liveoak.spi.ResourcePath;
+import io.liveoak.spi.security.SecurityContext;
+
+/**
+ * Checked path, notified resource and identity of a subscriber, which is all the authorization of a notification
+ * depends on besides the state of the notified resource. Subscribers with equal keys share the decision about a
+ * notification, and about those following shortly after it about the same resource.
+ */
+public class SubscriptionAuthzKey {
+
+    public static SubscriptionAuthzKey of(ResourcePath path, ResourcePath resourcePath, SecurityContext securityContext) {
+        if (securityContext == null) {
+            return new SubscriptionAuthzKey(path.toString(), resourcePath.toString(), null, null, null);
+        }
+        return new SubscriptionAuthzKey(path.toString(), resourcePath.toString(), securityContext.getRealm(), securityContext.getSubject(), securityContext.getRoles());
+    }
+
+    private final String path;
+    private final String resourcePath;
+    private final String realm;
+    private final String subject;
+    private final Set<String> roles;
+
+    SubscriptionAuthzKey(String path, String resourcePath, String realm, String subject, Set<String> roles) {
+        this.path = path;
+        this.resourcePath = resourcePath;
+        this.realm = realm;
+        this.subject = subject;
+        this.roles = roles != null ? Collections.unmodifiableSet(new HashSet<>(roles)) : Collections.emptySet();
+    }
+
+    /**
+     * @return Whether the notified resource belongs to the application with the given prefix, such as "/myapp"
+     */
+    boolean isOf(String applicationPrefix) {
+        return resourcePath.equals(applicationPrefix) || resourcePath.startsWith(applicationPrefix + "/");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SubscriptionAuthzKey)) {
+            return false;
+        }
+        SubscriptionAuthzKey that = (SubscriptionAuthzKey) o;
+        return path.equals(that.path)
+                && resourcePath.equals(that.resourcePath)
+                && Objects.equals(realm, that.realm)
+                && Objects.equals(subject, that.subject)
+                && roles.equals(that.roles);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, resourcePath, realm, subject, roles);
+    }
+
+    @Override
+    public String toString() {
+        return "[SubscriptionAuthzKey: path=" + path + ", resourcePath=" + resourcePath + ", realm=" + realm + ", subject=" + subject + ", roles=" + roles + "]";
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.subscriptions;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import io.liveoak.spi.container.Subscription;
+import org.jboss.logging.Logger;
+
+/**
+ * Delivers notifications to subscribers away from the thread which produced them.
+ *
+ * <p>Every connection gets its own bounded queue, drained by the executor one delivery at a time, so notifications
+ * reach a connection in the order they were dispatched, while a slow connection holds up nobody else. A delivery
+ * may complete asynchronously, the next one for the same connection only starts once it's done.</p>
+ *
+ * <p>When the queue of a connection is full, the {@link OverflowPolicy} decides whether the notification is dropped,
+ * or the connection is disconnected altogether.</p>
+ */
+public class SubscriptionDispatcher {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    public enum OverflowPolicy {
+        /**
+         * Drop the notification, keep the subscriptions.
+         */
+        DROP,
+        /**
+         * Drop all pending notifications and disconnect the connection.
+         */
+        DISCONNECT
+    }
+
+    /**
+     * A delivery, which invokes the given callback once it's done.
+     */
+    public interface Delivery {
+        void deliver(Runnable done);
+    }
+
+    /**
+     * Dispatcher delivering on the calling thread, without any queueing.
+     */
+    public SubscriptionDispatcher() {
+        this(Runnable::run, Integer.MAX_VALUE, OverflowPolicy.DROP, (subscription) -> {
+        });
+    }
+
+    /**
+     * @param disconnectHandler Invoked for a subscription of a connection, which is being disconnected due to overflow.
+     */
+    public SubscriptionDispatcher(Executor executor, int queueCapacity, OverflowPolicy overflowPolicy, Consumer<Subscription> disconnectHandler) {
+        this.executor = executor;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.disconnectHandler = disconnectHandler;
+    }
+
+    public void register(Subscription subscription) {
+        this.queues.compute(connectionOf(subscription), (key, queue) -> {
+            if (queue == null) {
+                queue = new ConnectionQueue(key);
+            }
+            queue.subscriptions++;
+            return queue;
+        });
+    }
+
+    public void unregister(Subscription subscription) {
+        // a queue going away still drains what it holds, it only stops receiving new deliveries
+        this.queues.computeIfPresent(connectionOf(subscription), (key, queue) -> --queue.subscriptions > 0 ? queue : null);
+    }
+
+    /**
+     * Queue the delivery of the notification to the subscription. The notification is retained until delivered or dropped.
+     */
+    public void dispatch(Subscription subscription, SubscriptionNotification notification, Delivery delivery) {
+        this.dispatched.incrementAndGet();
+
+        String connectionId = connectionOf(subscription);
+        ConnectionQueue queue = this.queues.get(connectionId);
+        if (queue == null) {
+            // removed while the notification was on its way, nothing to keep in order with
+            queue = new ConnectionQueue(connectionId);
+        }
+
+        notification.retain();
+        if (!queue.offer(new Pending(notification, delivery))) {
+            notification.release();
+            overflow(subscription, queue);
+        }
+    }
+
+    public String connectionOf(Subscription subscription) {
+        if (subscription instanceof EncodingSubscription) {
+            return ((EncodingSubscription) subscription).connectionId();
+        }
+        return subscription.id();
+    }
+
+    public OverflowPolicy overflowPolicy() {
+        return this.overflowPolicy;
+    }
+
+    public int queueCapacity() {
+        return this.queueCapacity;
+    }
+
+    /**
+     * @return Number of notifications waiting for delivery across all connections.
+     */
+    public int pending() {
+        return this.queues.values().stream().mapToInt((queue) -> queue.size.get()).sum();
+    }
+
+    public long dispatched() {
+        return this.dispatched.get();
+    }
+
+    public long delivered() {
+        return this.delivered.get();
+    }
+
+    /**
+     * @return Number of notifications dropped because the queue of their connection was full.
+     */
+    public long overflows() {
+        return this.overflows.get();
+    }
+
+    public long disconnects() {
+        return this.disconnects.get();
+    }
+
+    @Override
+    public String toString() {
+        return "[SubscriptionDispatcher: policy=" + this.overflowPolicy + ", capacity=" + this.queueCapacity + ", pending=" + pending()
+                + ", dispatched=" + dispatched() + ", delivered=" + delivered() + ", overflows=" + overflows() + ", disconnects=" + disconnects() + "]";
+    }
+
+    private void overflow(Subscription subscription, ConnectionQueue queue) {
+        this.overflows.incrementAndGet();
+        if (this.overflowPolicy == OverflowPolicy.DROP) {
+            log.debugf("Queue of connection %s is full, notification for subscription %s dropped", queue.connectionId, subscription.id());
+            return;
+        }
+
+        if (queue.disconnected.compareAndSet(false, true)) {
+            log.warnf("Queue of connection %s is full, disconnecting", queue.connectionId);
+            this.disconnects.incrementAndGet();
+            this.queues.remove(queue.connectionId, queue);
+            queue.clear();
+            try {
+                this.disconnectHandler.accept(subscription);
+            } catch (Throwable t) {
+                log.error("Failed to disconnect " + queue.connectionId, t);
+            }
+        }
+    }
+
+    private static class Pending {
+        Pending(SubscriptionNotification notification, Delivery delivery) {
+            this.notification = notification;
+            this.delivery = delivery;
+        }
+
+        final SubscriptionNotification notification;
+        final Delivery delivery;
+    }
+
+    private class ConnectionQueue {
+
+        ConnectionQueue(String connectionId) {
+            this.connectionId = connectionId;
+        }
+
+        boolean offer(Pending pending) {
+            if (this.disconnected.get()) {
+                return false;
+            }
+            if (this.size.incrementAndGet() > queueCapacity) {
+                this.size.decrementAndGet();
+                return false;
+            }
+            this.pending.add(pending);
+            schedule();
+            return true;
+        }
+
+        void clear() {
+            Pending each;
+            while ((each = this.pending.poll()) != null) {
+                this.size.decrementAndGet();
+                each.notification.release();
+            }
+        }
+
+        private void schedule() {
+            if (this.draining.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::next);
+                } catch (Throwable t) {
+                    this.draining.set(false);
+                    log.error("Unable to schedule notification delivery for " + this.connectionId, t);
+                }
+            }
+        }
+
+        private void next() {
+            Pending next = this.pending.poll();
+            if (next == null) {
+                this.draining.set(false);
+                // something may have arrived after the poll, but before the flag was cleared
+                if (!this.pending.isEmpty()) {
+                    schedule();
+                }
+                return;
+            }
+            this.size.decrementAndGet();
+
+            AtomicBoolean completed = new AtomicBoolean();
+            Runnable done = () -> {
+                if (completed.compareAndSet(false, true)) {
+                    next.notification.release();
+                    delivered.incrementAndGet();
+                    executor.execute(this::next);
+                }
+            };
+
+            try {
+                next.delivery.deliver(done);
+            } catch (Throwable t) {
+                log.error("Notification delivery failed for " + this.connectionId, t);
+                done.run();
+            }
+        }
+
+        final String connectionId;
+        final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean disconnected = new AtomicBoolean();
+        // guarded by the compute methods of the queues map
+        int subscriptions;
+    }
+
+    private static final Logger log = Logger.getLogger(SubscriptionDispatcher.class);
+
+    private final Executor executor;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Consumer<Subscription> disconnectHandler;
+    private final Map<String, ConnectionQueue> queues = new ConcurrentHashMap<>();
+
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong disconnects = new AtomicLong();
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.subscriptions;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import io.liveoak.common.codec.ResourceCodec;
+import io.liveoak.spi.MediaType;
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.ResourceResponse;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A single change of a resource, as it is handed out to all the subscriptions interested in it.
+ *
+ * <p>The state of the resource is encoded at most once per media type, no matter how many subscriptions
+ * receive it. Each subscription gets its own duplicate of the encoded buffer, sharing the content.</p>
+ *
+ * <p>The notification is reference counted. Whoever delivers it asynchronously retains it first and releases it once
+ * done. The encoded buffers are released together with the last reference.</p>
+ */
+public class SubscriptionNotification {
+
+    public SubscriptionNotification(ResourceResponse response) {
+        this.response = response;
+    }
+
+    public ResourceResponse response() {
+        return this.response;
+    }
+
+    /**
+     * @return The encoded state of the resource. The caller owns the returned buffer and is responsible for releasing it,
+     * usually by writing it out.
+     */
+    public synchronized ByteBuf content(MediaType mediaType, ResourceCodec codec) throws Exception {
+        if (this.refCnt.get() <= 0) {
+            throw new IllegalStateException("Notification already released");
+        }
+
+        ByteBuf encoded = this.encoded.get(mediaType);
+        if (encoded == null) {
+            encoded = codec.encode(new RequestContext.Builder().build(), this.response.state());
+            this.encoded.put(mediaType, encoded);
+        }
+        return encoded.duplicate().retain();
+    }
+
+    /**
+     * @return What is attached to the notification under the key, attaching it first if there isn't anything yet.
+     * Lets subscriptions with something in common share the work on this notification, such as authorization.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T attachment(Object key, Function<Object, T> factory) {
+        return (T) this.attachments.computeIfAbsent(key, factory);
+    }
+
+    /**
+     * @return Number of media types the state has been encoded to.
+     */
+    public synchronized int encodings() {
+        return this.encoded.size();
+    }
+
+    public SubscriptionNotification retain() {
+        this.refCnt.incrementAndGet();
+        return this;
+    }
+
+    public void release() {
+        if (this.refCnt.decrementAndGet() == 0) {
+            synchronized (this) {
+                this.encoded.values().forEach(ByteBuf::release);
+                this.encoded.clear();
+            }
+        }
+    }
+
+    public int refCnt() {
+        return this.refCnt.get();
+    }
+
+    private final ResourceResponse response;
+    private final Map<MediaType, ByteBuf> encoded = new HashMap<>();
+    private final AtomicInteger refCnt = new AtomicInteger(1);
+    private final Map<Object, Object> attachments = new ConcurrentHashMap<>();
+}
@@ -62,7 +62,8 @@ public class ApplicationSubscriptionsResource implements SynchronousResource, Ro
             contentType = "application/json";
         }
 
-        ResourceCodec codec = this.codecManager.getResourceCodec(new MediaType(contentType));
+        MediaType mediaType = new MediaType(contentType);
+        ResourceCodec codec = this.codecManager.getResourceCodec(mediaType);
 
         if (codec == null) {
             responder.internalError("content-type not supported: " + contentType);
@@ -77,7 +78,7 @@ public class ApplicationSubscriptionsResource implements SynchronousResource, Ro
             httpClient.setPort(destinationUri.getPort());
 
             SecurityContext requestSecurityContext = ctx.securityContext();
-            HttpSubscription sub = new HttpSubscription(httpClient, path, destinationUri, codec, requestSecurityContext);
+            HttpSubscription sub = new HttpSubscription(httpClient, path, destinationUri, mediaType, codec, requestSecurityContext);
             this.subscriptionManager.addSubscription(sub);
             responder.resourceCreated(new HttpSubscriptionResource(this, sub));
         } catch (URISyntaxException e) {
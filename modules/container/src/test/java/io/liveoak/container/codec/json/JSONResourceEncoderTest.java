@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.codec.json;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.liveoak.common.DefaultPagination;
+import io.liveoak.common.DefaultReturnFields;
+import io.liveoak.common.codec.DefaultResourceState;
+import io.liveoak.common.codec.ResourceCodec;
+import io.liveoak.common.codec.driver.RootEncodingDriver;
+import io.liveoak.common.codec.json.JSONEncoder;
+import io.liveoak.common.codec.json.JSONResourceEncoder;
+import io.liveoak.common.codec.state.ResourceStateEncoder;
+import io.liveoak.container.InMemoryCollectionResource;
+import io.liveoak.container.InMemoryObjectResource;
+import io.liveoak.spi.LiveOak;
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.resource.async.Resource;
+import io.liveoak.spi.state.ResourceState;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JSONResourceEncoderTest {
+
+    protected Map<String, Object> encodeStreaming(RequestContext ctx, Resource resource) throws Exception {
+        ResourceCodec codec = new ResourceCodec(JSONEncoder.class, null, JSONResourceEncoder::new);
+        ByteBuf buffer = Unpooled.buffer();
+        CompletableFuture<ByteBuf> future = new CompletableFuture<>();
+        codec.encode(ctx, resource, buffer, () -> future.complete(buffer), future::completeExceptionally);
+        return new ObjectMapper().readValue(future.get().toString(Charset.defaultCharset()), Map.class);
+    }
+
+    protected Map<String, Object> encodeTwoPass(RequestContext ctx, Resource resource) throws Exception {
+        ResourceStateEncoder encoder = new ResourceStateEncoder();
+        CompletableFuture<ResourceState> future = new CompletableFuture<>();
+        RootEncodingDriver driver = new RootEncodingDriver(ctx, encoder, resource, () -> future.complete(encoder.root()), future::completeExceptionally);
+        driver.encode();
+
+        ResourceCodec codec = new ResourceCodec(JSONEncoder.class, null);
+        ByteBuf buffer = codec.encode(ctx, future.get());
+        return new ObjectMapper().readValue(buffer.toString(Charset.defaultCharset()), Map.class);
+    }
+
+    protected InMemoryCollectionResource people() {
+        InMemoryCollectionResource people = new InMemoryCollectionResource(null, "people");
+
+        List<Object> tags = new ArrayList<>();
+        tags.add("redhat");
+        tags.add(42);
+
+        DefaultResourceState bobState = new DefaultResourceState();
+        bobState.putProperty("name", "Bob McWhirter");
+        bobState.putProperty("tags", tags);
+        people.addMember(new InMemoryObjectResource(people, "bob", bobState));
+
+        DefaultResourceState kenState = new DefaultResourceState();
+        kenState.putProperty("name", "Ken Finnigan");
+        people.addMember(new InMemoryObjectResource(people, "ken", kenState));
+
+        return people;
+    }
+
+    @Test
+    public void testMembersAsLinks() throws Exception {
+        RequestContext ctx = new RequestContext.Builder().build();
+        Map<String, Object> encoded = encodeStreaming(ctx, people());
+
+        assertThat(encoded).isEqualTo(encodeTwoPass(ctx, people()));
+        assertThat(encoded.get(LiveOak.ID)).isEqualTo("people");
+        assertThat((List) encoded.get(LiveOak.MEMBERS)).hasSize(2);
+
+        Map<String, Object> bob = (Map<String, Object>) ((List) encoded.get(LiveOak.MEMBERS)).get(0);
+        assertThat(bob.get(LiveOak.ID)).isEqualTo("bob");
+        assertThat(((Map) bob.get(LiveOak.SELF)).get(LiveOak.HREF)).isEqualTo("/people/bob");
+        assertThat(bob.get("name")).isNull();
+    }
+
+    @Test
+    public void testExpandedMembers() throws Exception {
+        RequestContext ctx = new RequestContext.Builder().returnFields(new DefaultReturnFields("*(*)")).build();
+        Map<String, Object> encoded = encodeStreaming(ctx, people());
+
+        assertThat(encoded).isEqualTo(encodeTwoPass(ctx, people()));
+
+        Map<String, Object> bob = (Map<String, Object>) ((List) encoded.get(LiveOak.MEMBERS)).get(0);
+        assertThat(bob.get("name")).isEqualTo("Bob McWhirter");
+        assertThat((List) bob.get("tags")).containsExactly("redhat", 42);
+    }
+
+    @Test
+    public void testExcludedIdAndSelf() throws Exception {
+        RequestContext ctx = new RequestContext.Builder().returnFields(new DefaultReturnFields("*,-id,-self")).build();
+        Map<String, Object> encoded = encodeStreaming(ctx, people());
+
+        assertThat(encoded).isEqualTo(encodeTwoPass(ctx, people()));
+        assertThat(encoded.get(LiveOak.ID)).isNull();
+        assertThat(encoded.get(LiveOak.SELF)).isNull();
+    }
+
+    @Test
+    public void testChunkedMembers() throws Exception {
+        InMemoryCollectionResource people = new InMemoryCollectionResource(null, "people");
+        for (int i = 0; i < 500; ++i) {
+            DefaultResourceState state = new DefaultResourceState();
+            state.putProperty("name", "Person " + i);
+            people.addMember(new InMemoryObjectResource(people, "person-" + i, state));
+        }
+
+        RequestContext ctx = new RequestContext.Builder().returnFields(new DefaultReturnFields("*(*)")).pagination(new DefaultPagination(0, 500)).build();
+        ResourceCodec codec = new ResourceCodec(JSONEncoder.class, null, JSONResourceEncoder::new);
+        List<ByteBuf> chunks = new ArrayList<>();
+        CompletableFuture<ByteBuf> future = new CompletableFuture<>();
+        codec.encode(ctx, people, UnpooledByteBufAllocator.DEFAULT, chunks::add, future::complete, future::completeExceptionally);
+
+        ByteBuf remaining = future.get();
+        // the head goes out on its own, followed by the members in several chunks
+        assertThat(chunks.size()).isGreaterThan(2);
+        assertThat(chunks.get(0).toString(Charset.defaultCharset())).contains(LiveOak.MEMBERS);
+        assertThat(chunks.get(0).toString(Charset.defaultCharset())).doesNotContain("person-0");
+
+        CompositeByteBuf whole = Unpooled.compositeBuffer(chunks.size() + 1);
+        chunks.forEach(whole::addComponent);
+        whole.addComponent(remaining);
+        whole.writerIndex(whole.capacity());
+
+        Map<String, Object> encoded = new ObjectMapper().readValue(whole.toString(Charset.defaultCharset()), Map.class);
+        assertThat(encoded).isEqualTo(encodeTwoPass(ctx, people));
+        assertThat((List) encoded.get(LiveOak.MEMBERS)).hasSize(500);
+    }
+
+    private static class BlockingWatchedPeople extends WatchedPeople implements BlockingResource {
+    }
+}
@@ -0,0 +1,111 @@
+package io.liveoak.container.interceptor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.liveoak.common.DefaultResourceRequest;
+import io.liveoak.container.interceptor.extension.InterceptorConfigEntry;
+import io.liveoak.container.interceptor.extension.InterceptorsConfig;
+import io.liveoak.spi.RequestType;
+import io.liveoak.spi.ResourcePath;
+import io.liveoak.spi.ResourceRequest;
+import io.liveoak.spi.container.interceptor.Interceptor;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CompiledInterceptorChainTest {
+
+    private MockInterceptor everywhere;
+    private MockInterceptor app;
+    private MockInterceptor appWrites;
+    private MockInterceptor storage;
+    private Map<String, Interceptor> interceptors;
+
+    @Before
+    public void setUp() {
+        everywhere = new MockInterceptor();
+        app = new MockInterceptor();
+        appWrites = new MockInterceptor();
+        storage = new MockInterceptor();
+
+        interceptors = new HashMap<>();
+        interceptors.put("everywhere", everywhere);
+        interceptors.put("app", app);
+        interceptors.put("app-writes", appWrites);
+        interceptors.put("storage", storage);
+    }
+
+    @Test
+    public void testResolveByPathAndRequestType() throws Exception {
+        List<InterceptorConfigEntry> config = new ArrayList<>();
+        config.add(entry("storage", "/app/storage", null));
+        config.add(entry("everywhere", null, null));
+        config.add(entry("app-writes", "/app", "UPDATE"));
+        config.add(entry("app", "/app;ignored=true", "*"));
+
+        CompiledInterceptorChain chain = CompiledInterceptorChain.compile("http", config, interceptors);
+
+        assertThat(chain.interceptors(request(RequestType.READ, "/"))).containsExactly(everywhere);
+        assertThat(chain.interceptors(request(RequestType.READ, "/other/app"))).containsExactly(everywhere);
+        assertThat(chain.interceptors(request(RequestType.READ, "/app"))).containsExactly(everywhere, app);
+        assertThat(chain.interceptors(request(RequestType.UPDATE, "/app/foo"))).containsExactly(everywhere, appWrites, app);
+        // config order is kept, no matter how deep the prefix is
+        assertThat(chain.interceptors(request(RequestType.READ, "/app/storage/items"))).containsExactly(storage, everywhere, app);
+        assertThat(chain.interceptors(request(RequestType.DELETE, "/app/storage;x=1/items"))).containsExactly(storage, everywhere, app);
+        assertThat(chain.interceptors(null)).containsExactly(storage, everywhere, appWrites, app);
+
+        // resolving the same request twice hands out the same list
+        assertThat(chain.interceptors(request(RequestType.READ, "/app/a"))).isSameAs(chain.interceptors(request(RequestType.READ, "/app/b")));
+    }
+
+    @Test
+    public void testUnregisteredInterceptorSkipped() throws Exception {
+        List<InterceptorConfigEntry> config = new ArrayList<>();
+        config.add(entry("missing", null, null));
+        config.add(entry("app", "/app", null));
+
+        CompiledInterceptorChain chain = CompiledInterceptorChain.compile("http", config, interceptors);
+
+        assertThat(chain.interceptors(request(RequestType.CREATE, "/app"))).containsExactly(app);
+        assertThat(chain.all()).containsExactly(app);
+    }
+
+    @Test
+    public void testManagerRecompilesOnRegister() throws Exception {
+        InterceptorManagerImpl manager = new InterceptorManagerImpl();
+        ResourceRequest request = request(RequestType.READ, "/app/foo");
+
+        assertThat(manager.getInterceptors("http", request)).isEmpty();
+
+        InterceptorsConfig config = new InterceptorsConfig();
+        List<InterceptorConfigEntry> chainConfig = new ArrayList<>();
+        chainConfig.add(entry("app", "/app", "*"));
+        config.addChainConfig("http", chainConfig);
+        manager.setInterceptorsConfig(config.getConfigAsResourceState());
+
+        assertThat(manager.getInterceptors("http", request)).isEmpty();
+
+        manager.register("app", app);
+        assertThat(manager.getInterceptors("http", request)).containsExactly(app);
+        assertThat(manager.getInterceptors("local", request)).isEmpty();
+
+        manager.unregister(app);
+        assertThat(manager.getInterceptors("http", request)).isEmpty();
+    }
+
+    private static InterceptorConfigEntry entry(String interceptorName, String resourcePathPrefix, String requestType) {
+        InterceptorConfigEntry entry = new InterceptorConfigEntry();
+        entry.setInterceptorName(interceptorName);
+        entry.setResourcePathMapping(resourcePathPrefix);
+        entry.setRequestType(requestType);
+        return entry;
+    }
+
+    private static ResourceRequest request(RequestType type, String path) {
+        return new DefaultResourceRequest.Builder(type, new ResourcePath(path)).build();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.protocols.http;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ByteRangeTest {
+
+    @Test
+    public void testParse() throws Exception {
+        ByteRange range = ByteRange.parse("bytes=0-3", 10);
+        assertThat(range.first()).isEqualTo(0);
+        assertThat(range.last()).isEqualTo(3);
+        assertThat(range.length()).isEqualTo(4);
+        assertThat(range.contentRange(10)).isEqualTo("bytes 0-3/10");
+
+        // open ended, and clamped to the end
+        assertThat(ByteRange.parse("bytes=4-", 10).contentRange(10)).isEqualTo("bytes 4-9/10");
+        assertThat(ByteRange.parse("bytes=4-100", 10).contentRange(10)).isEqualTo("bytes 4-9/10");
+
+        // the last bytes
+        assertThat(ByteRange.parse("bytes=-3", 10).contentRange(10)).isEqualTo("bytes 7-9/10");
+        assertThat(ByteRange.parse("bytes=-30", 10).contentRange(10)).isEqualTo("bytes 0-9/10");
+    }
+
+    @Test
+    public void testUnsatisfiableOrIgnored() throws Exception {
+        assertThat(ByteRange.parse("bytes=10-", 10)).isSameAs(ByteRange.UNSATISFIABLE);
+        assertThat(ByteRange.parse("bytes=-0", 10)).isSameAs(ByteRange.UNSATISFIABLE);
+        assertThat(ByteRange.UNSATISFIABLE.contentRange(10)).isEqualTo("bytes */10");
+
+        assertThat(ByteRange.parse("bytes=5-2", 10)).isNull();
+        assertThat(ByteRange.parse("bytes=0-1,4-5", 10)).isNull();
+        assertThat(ByteRange.parse("bytes=a-b", 10)).isNull();
+        assertThat(ByteRange.parse("lines=0-1", 10)).isNull();
+        assertThat(ByteRange.parse(null, 10)).isNull();
+    }
+}
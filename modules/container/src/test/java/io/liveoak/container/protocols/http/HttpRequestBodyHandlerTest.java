@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.protocols.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.liveoak.common.DefaultResourceRequest;
+import io.liveoak.common.codec.ResourceCodecManager;
+import io.liveoak.spi.resource.async.BinaryContentSink;
+import io.liveoak.spi.state.LazyResourceState;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class HttpRequestBodyHandlerTest {
+
+    private Queue<Runnable> workerPool;
+    private AtomicInteger reads;
+    private EmbeddedChannel channel;
+    private RecordingSink sink;
+    private AtomicBoolean invoked;
+
+    @Before
+    public void setUp() {
+        this.workerPool = new ArrayDeque<>();
+        this.reads = new AtomicInteger();
+        this.channel = new EmbeddedChannel(new HttpResourceRequestDecoder(new ResourceCodecManager()), new HttpRequestBodyHandler(this.workerPool::add)) {
+            @Override
+            protected void doBeginRead() throws Exception {
+                reads.incrementAndGet();
+            }
+        };
+        this.channel.config().setAutoRead(false);
+        this.sink = new RecordingSink();
+        this.invoked = new AtomicBoolean();
+
+        DefaultHttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.PUT, "/storage/blob");
+        request.headers().add(HttpHeaders.Names.CONTENT_TYPE, "application/octet-stream");
+        request.headers().add(HttpHeaders.Names.CONTENT_LENGTH, "9");
+        this.channel.writeInbound(request);
+        DefaultResourceRequest decoded = (DefaultResourceRequest) this.channel.readInbound();
+        ((LazyResourceState) decoded.state()).contentSink(this.sink);
+        this.channel.writeInbound(new HttpRequestBodyHandler.Invocation(() -> this.invoked.set(true)));
+        runWorkerPool();
+    }
+
+    @Test
+    public void testReadsWaitForSink() throws Exception {
+        int before = this.reads.get();
+        this.channel.writeInbound(new DefaultHttpContent(content("abc")));
+        this.channel.runPendingTasks();
+
+        // the sink hasn't taken the content yet, so nothing more is read
+        assertThat(this.reads.get()).isEqualTo(before);
+        assertThat(this.sink.received()).isEmpty();
+
+        runWorkerPool();
+        assertThat(this.reads.get()).isEqualTo(before + 1);
+        assertThat(this.sink.received()).isEqualTo("abc");
+
+        this.channel.writeInbound(new DefaultLastHttpContent(content("defghi")));
+        assertThat(this.invoked.get()).isFalse();
+        runWorkerPool();
+        assertThat(this.sink.received()).isEqualTo("abcdefghi");
+        assertThat(this.sink.closed).isTrue();
+        assertThat(this.invoked.get()).isTrue();
+    }
+
+    @Test
+    public void testDroppedConnectionAbortsSink() throws Exception {
+        this.channel.writeInbound(new DefaultHttpContent(content("abc")));
+        runWorkerPool();
+        assertThat(this.sink.received()).isEqualTo("abc");
+
+        this.channel.close();
+        runWorkerPool();
+        assertThat(this.sink.aborted).isTrue();
+        assertThat(this.sink.closed).isFalse();
+        assertThat(this.sink.chunks).isEmpty();
+        assertThat(this.invoked.get()).isFalse();
+    }
+
+    private void runWorkerPool() {
+        this.channel.runPendingTasks();
+        Runnable task;
+        while ((task = this.workerPool.poll()) != null) {
+            task.run();
+            this.channel.runPendingTasks();
+        }
+    }
+
+    private static ByteBuf content(String text) {
+        return Unpooled.copiedBuffer(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Keeps the content it is given, like a sink writing chunks to storage, and removes it again when aborted.
+     */
+    private static class RecordingSink implements BinaryContentSink {
+
+        private final List<String> chunks = new ArrayList<>();
+        private boolean closed;
+        private boolean aborted;
+
+        @Override
+        public void accept(ByteBuf content) {
+            try {
+                this.chunks.add(content.toString(StandardCharsets.UTF_8));
+            } finally {
+                content.release();
+            }
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+
+        @Override
+        public void abort() {
+            this.aborted = true;
+            this.chunks.clear();
+        }
+
+        String received() {
+            return String.join("", this.chunks);
+        }
+    }
+}
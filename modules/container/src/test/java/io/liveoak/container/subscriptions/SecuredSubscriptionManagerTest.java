@@ -0,0 +1,229 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.subscriptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import io.liveoak.common.DefaultResourceRequest;
+import io.liveoak.common.DefaultResourceResponse;
+import io.liveoak.common.codec.DefaultResourceState;
+import io.liveoak.common.security.AuthzConstants;
+import io.liveoak.common.security.AuthzDecisionInvalidator;
+import io.liveoak.common.security.DefaultSecurityContext;
+import io.liveoak.container.InMemoryCollectionResource;
+import io.liveoak.container.InMemoryObjectResource;
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.RequestType;
+import io.liveoak.spi.ResourcePath;
+import io.liveoak.spi.ResourceResponse;
+import io.liveoak.spi.client.Client;
+import io.liveoak.spi.client.ClientResourceResponse;
+import io.liveoak.spi.resource.async.Resource;
+import io.liveoak.spi.security.SecurityContext;
+import io.liveoak.spi.state.ResourceState;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SecuredSubscriptionManagerTest {
+
+    private static final ResourcePath PATH = new ResourcePath("/testApp/todos");
+
+    @Test
+    public void testDecisionPerMember() throws Exception {
+        AuthzClient client = new AuthzClient();
+        // bob may see todo 1 only, john todo 2 only
+        client.allow("bob", "1");
+        client.allow("john", "2");
+        SecuredSubscriptionManager manager = new SecuredSubscriptionManager(client);
+
+        RecordingSubscription bob = new RecordingSubscription("bob-1", securityContext("bob", "user"));
+        RecordingSubscription bobAgain = new RecordingSubscription("bob-2", securityContext("bob", "user"));
+        RecordingSubscription john = new RecordingSubscription("john-1", securityContext("john", "user"));
+        manager.addSubscription(bob);
+        manager.addSubscription(bobAgain);
+        manager.addSubscription(john);
+
+        InMemoryCollectionResource todos = new InMemoryCollectionResource(new InMemoryCollectionResource(null, "testApp"), "todos");
+        manager.resourceCreated(created(new InMemoryObjectResource(todos, "1", new DefaultResourceState("1"))));
+        manager.resourceCreated(created(new InMemoryObjectResource(todos, "2", new DefaultResourceState("2"))));
+
+        // the decision about todo 1 isn't reused for todo 2, though both are members of the subscribed collection
+        Assert.assertEquals(Arrays.asList("1"), bob.received);
+        Assert.assertEquals(Arrays.asList("2"), bob.errors);
+        Assert.assertEquals(Arrays.asList("1"), bobAgain.received);
+        Assert.assertEquals(Arrays.asList("2"), bobAgain.errors);
+        Assert.assertEquals(Arrays.asList("2"), john.received);
+        Assert.assertEquals(Arrays.asList("1"), john.errors);
+
+        // subscribers with the same identity share the check of a single notification
+        Assert.assertEquals(4, client.checks.get());
+        manager.close();
+    }
+
+    @Test
+    public void testDecisionReusedForSameResource() throws Exception {
+        AuthzClient client = new AuthzClient();
+        client.allow("bob", "1");
+        SecuredSubscriptionManager manager = new SecuredSubscriptionManager(client);
+        RecordingSubscription bob = new RecordingSubscription("bob-1", securityContext("bob", "user"));
+        manager.addSubscription(bob);
+
+        InMemoryCollectionResource todos = new InMemoryCollectionResource(new InMemoryCollectionResource(null, "testApp"), "todos");
+        Resource todo = new InMemoryObjectResource(todos, "1", new DefaultResourceState("1"));
+        manager.resourceCreated(created(todo));
+        manager.resourceCreated(created(todo));
+
+        // consecutive notifications about the same resource are checked once
+        Assert.assertEquals(Arrays.asList("1", "1"), bob.received);
+        Assert.assertEquals(1, client.checks.get());
+        Assert.assertEquals(1, manager.authzCache().hits());
+
+        // until a policy announces a change
+        AuthzDecisionInvalidator.invalidate("/testApp");
+        manager.resourceCreated(created(todo));
+        Assert.assertEquals(Arrays.asList("1", "1", "1"), bob.received);
+        Assert.assertEquals(2, client.checks.get());
+        manager.close();
+    }
+
+    private static ResourceResponse created(Resource resource) {
+        DefaultResourceResponse response = new DefaultResourceResponse(
+                new DefaultResourceRequest.Builder(RequestType.CREATE, PATH).build(),
+                ResourceResponse.ResponseType.CREATED, resource);
+        response.setState(new DefaultResourceState(resource.id()));
+        return response;
+    }
+
+    private static DefaultSecurityContext securityContext(String subject, String... roles) {
+        DefaultSecurityContext securityContext = new DefaultSecurityContext();
+        securityContext.setRealm("liveoak-apps");
+        securityContext.setSubject(subject);
+        securityContext.setRoles(new HashSet<>(Arrays.asList(roles)));
+        return securityContext;
+    }
+
+    /**
+     * Answers authorization checks from the subject and the id of the notified resource.
+     */
+    private static class AuthzClient implements Client {
+
+        void allow(String subject, String id) {
+            this.allowed.add(subject + "/" + id);
+        }
+
+        @Override
+        public void create(RequestContext context, String path, ResourceState state, Consumer<ClientResourceResponse> handler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void read(RequestContext context, String path, Consumer<ClientResourceResponse> handler) {
+            this.checks.incrementAndGet();
+            RequestContext request = (RequestContext) context.requestAttributes().getAttribute(AuthzConstants.ATTR_REQUEST_CONTEXT);
+            ResourceState state = (ResourceState) context.requestAttributes().getAttribute(AuthzConstants.ATTR_RESPONSE_RESOURCE_STATE);
+            DefaultResourceState result = new DefaultResourceState();
+            result.putProperty(AuthzConstants.ATTR_AUTHZ_RESULT, this.allowed.contains(request.securityContext().getSubject() + "/" + state.id()));
+            handler.accept(new ClientResourceResponse() {
+                @Override
+                public String path() {
+                    return path;
+                }
+
+                @Override
+                public ResponseType responseType() {
+                    return ResponseType.OK;
+                }
+
+                @Override
+                public ResourceState state() {
+                    return result;
+                }
+            });
+        }
+
+        @Override
+        public void update(RequestContext context, String path, ResourceState state, Consumer<ClientResourceResponse> handler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(RequestContext context, String path, Consumer<ClientResourceResponse> handler) {
+            throw new UnsupportedOperationException();
+        }
+
+        final List<String> allowed = new ArrayList<>();
+        final AtomicInteger checks = new AtomicInteger();
+    }
+
+    private static class RecordingSubscription implements EncodingSubscription {
+
+        RecordingSubscription(String id, SecurityContext securityContext) {
+            this.id = id;
+            this.securityContext = securityContext;
+        }
+
+        @Override
+        public String id() {
+            return this.id;
+        }
+
+        @Override
+        public ResourcePath resourcePath() {
+            return PATH;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return true;
+        }
+
+        @Override
+        public SecurityContext securityContext() {
+            return this.securityContext;
+        }
+
+        @Override
+        public void sendAuthzError(ResourceState errorState, Resource resource, int status) throws Exception {
+            this.errors.add(resource.id());
+        }
+
+        @Override
+        public void resourceCreated(ResourceResponse resourceResponse) throws Exception {
+            this.received.add(resourceResponse.resource().id());
+        }
+
+        @Override
+        public void resourceUpdated(ResourceResponse resourceResponse) throws Exception {
+        }
+
+        @Override
+        public void resourceDeleted(ResourceResponse resourceResponse) throws Exception {
+        }
+
+        @Override
+        public void resourceCreated(SubscriptionNotification notification) throws Exception {
+            resourceCreated(notification.response());
+        }
+
+        @Override
+        public void resourceUpdated(SubscriptionNotification notification) throws Exception {
+        }
+
+        @Override
+        public void resourceDeleted(SubscriptionNotification notification) throws Exception {
+        }
+
+        private final String id;
+        private final SecurityContext securityContext;
+        final List<String> received = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.subscriptions;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import io.liveoak.common.security.DefaultSecurityContext;
+import io.liveoak.spi.ResourcePath;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SubscriptionAuthzCacheTest {
+
+    private static final ResourcePath PATH = new ResourcePath("/testApp/storage/todos");
+
+    @Test
+    public void testSameIdentityAndResourceShareDecision() throws Exception {
+        SubscriptionAuthzCache cache = new SubscriptionAuthzCache();
+
+        cache.put(key(PATH, "1", securityContext("bob", "user", "admin")), true, cache.generation());
+
+        Assert.assertTrue(cache.get(key(PATH, "1", securityContext("bob", "admin", "user"))));
+        Assert.assertNull(cache.get(key(PATH, "2", securityContext("bob", "user", "admin"))));
+        Assert.assertNull(cache.get(key(PATH, "1", securityContext("bob", "user"))));
+        Assert.assertNull(cache.get(key(PATH, "1", securityContext("john", "user", "admin"))));
+        Assert.assertEquals(1, cache.hits());
+        Assert.assertEquals(3, cache.misses());
+    }
+
+    @Test
+    public void testExpiryAndInvalidation() throws Exception {
+        SubscriptionAuthzCache cache = new SubscriptionAuthzCache(100, 50);
+        SubscriptionAuthzKey key = key(PATH, "1", securityContext("bob", "user"));
+        SubscriptionAuthzKey otherApp = key(new ResourcePath("/otherApp/storage/todos"), "1", securityContext("bob", "user"));
+
+        cache.put(key, false, cache.generation());
+        cache.put(otherApp, true, cache.generation());
+        Assert.assertFalse(cache.get(key));
+
+        cache.invalidate("/testApp");
+        Assert.assertNull(cache.get(key));
+        Assert.assertTrue(cache.get(otherApp));
+
+        Thread.sleep(100);
+        Assert.assertNull(cache.get(otherApp));
+    }
+
+    @Test
+    public void testDecisionMadeBeforeInvalidation() throws Exception {
+        SubscriptionAuthzCache cache = new SubscriptionAuthzCache();
+        SubscriptionAuthzKey key = key(PATH, "1", securityContext("bob", "user"));
+
+        long generation = cache.generation();
+        cache.invalidate("/testApp");
+        cache.put(key, true, generation);
+        Assert.assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testNoCachingWithoutTtl() throws Exception {
+        SubscriptionAuthzCache cache = new SubscriptionAuthzCache(100, 0);
+        SubscriptionAuthzKey key = key(PATH, "1", securityContext("bob", "user"));
+
+        cache.put(key, true, cache.generation());
+        Assert.assertNull(cache.get(key));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    private static SubscriptionAuthzKey key(ResourcePath path, String id, DefaultSecurityContext securityContext) {
+        return SubscriptionAuthzKey.of(path, new ResourcePath(path.toString() + "/" + id), securityContext);
+    }
+
+    private static DefaultSecurityContext securityContext(String subject, String... roles) {
+        DefaultSecurityContext securityContext = new DefaultSecurityContext();
+        securityContext.setRealm("liveoak-apps");
+        securityContext.setSubject(subject);
+        securityContext.setRoles(new HashSet<>(Arrays.asList(roles)));
+        return securityContext;
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.subscriptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.liveoak.common.DefaultResourceRequest;
+import io.liveoak.common.DefaultResourceResponse;
+import io.liveoak.common.codec.DefaultResourceState;
+import io.liveoak.common.codec.ResourceCodec;
+import io.liveoak.common.codec.json.JSONEncoder;
+import io.liveoak.container.InMemoryCollectionResource;
+import io.liveoak.container.InMemoryObjectResource;
+import io.liveoak.spi.MediaType;
+import io.liveoak.spi.RequestType;
+import io.liveoak.spi.ResourcePath;
+import io.liveoak.spi.ResourceResponse;
+import io.liveoak.spi.container.Subscription;
+import io.liveoak.spi.resource.async.Resource;
+import io.liveoak.spi.security.SecurityContext;
+import io.liveoak.spi.state.ResourceState;
+import io.liveoak.stomp.server.StompConnection;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SubscriptionDispatcherTest {
+
+    @Test
+    public void testOrderedPerConnection() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            SubscriptionDispatcher dispatcher = new SubscriptionDispatcher(executor, 1000, SubscriptionDispatcher.OverflowPolicy.DROP, (s) -> {
+            });
+            MockSubscription first = new MockSubscription("first", "connection-1");
+            MockSubscription second = new MockSubscription("second", "connection-1");
+            MockSubscription other = new MockSubscription("other", "connection-2");
+            dispatcher.register(first);
+            dispatcher.register(second);
+            dispatcher.register(other);
+
+            List<String> received = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch latch = new CountDownLatch(300);
+            for (int i = 0; i < 100; ++i) {
+                SubscriptionNotification notification = notification();
+                int n = i;
+                dispatcher.dispatch(first, notification, (done) -> {
+                    received.add("first-" + n);
+                    latch.countDown();
+                    // complete asynchronously, as a delivery waiting for authorization would
+                    executor.execute(done);
+                });
+                dispatcher.dispatch(second, notification, (done) -> {
+                    received.add("second-" + n);
+                    latch.countDown();
+                    done.run();
+                });
+                dispatcher.dispatch(other, notification, (done) -> {
+                    latch.countDown();
+                    done.run();
+                });
+                notification.release();
+            }
+
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 100; ++i) {
+                expected.add("first-" + i);
+                expected.add("second-" + i);
+            }
+            assertThat(received).isEqualTo(expected);
+            assertThat(dispatcher.dispatched()).isEqualTo(300);
+            assertThat(dispatcher.overflows()).isEqualTo(0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testOverflowDrops() throws Exception {
+        Queue<Runnable> tasks = new LinkedList<>();
+        SubscriptionDispatcher dispatcher = new SubscriptionDispatcher(tasks::add, 2, SubscriptionDispatcher.OverflowPolicy.DROP, (s) -> {
+        });
+        MockSubscription subscription = new MockSubscription("slow", "connection-1");
+        dispatcher.register(subscription);
+
+        List<SubscriptionNotification> notifications = new ArrayList<>();
+        List<SubscriptionNotification> delivered = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            SubscriptionNotification notification = notification();
+            notifications.add(notification);
+            dispatcher.dispatch(subscription, notification, (done) -> {
+                delivered.add(notification);
+                done.run();
+            });
+            notification.release();
+        }
+
+        assertThat(dispatcher.pending()).isEqualTo(2);
+        assertThat(dispatcher.overflows()).isEqualTo(2);
+        // dropped notifications aren't held on to
+        assertThat(notifications.get(2).refCnt()).isEqualTo(0);
+        assertThat(notifications.get(3).refCnt()).isEqualTo(0);
+
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+
+        assertThat(delivered).containsExactly(notifications.get(0), notifications.get(1));
+        assertThat(dispatcher.delivered()).isEqualTo(2);
+        assertThat(dispatcher.pending()).isEqualTo(0);
+        assertThat(notifications.get(0).refCnt()).isEqualTo(0);
+    }
+
+    @Test
+    public void testOverflowDisconnects() throws Exception {
+        Queue<Runnable> tasks = new LinkedList<>();
+        List<Subscription> disconnected = new ArrayList<>();
+        SubscriptionDispatcher dispatcher = new SubscriptionDispatcher(tasks::add, 1, SubscriptionDispatcher.OverflowPolicy.DISCONNECT, disconnected::add);
+        MockSubscription subscription = new MockSubscription("slow", "connection-1");
+        dispatcher.register(subscription);
+
+        SubscriptionNotification queued = notification();
+        dispatcher.dispatch(subscription, queued, (done) -> done.run());
+        SubscriptionNotification overflowing = notification();
+        dispatcher.dispatch(subscription, overflowing, (done) -> done.run());
+        queued.release();
+        overflowing.release();
+
+        assertThat(disconnected).containsExactly(subscription);
+        assertThat(dispatcher.disconnects()).isEqualTo(1);
+        // pending notifications of the disconnected connection are dropped
+        assertThat(queued.refCnt()).isEqualTo(0);
+        assertThat(dispatcher.pending()).isEqualTo(0);
+    }
+
+    @Test
+    public void testUnwrittenNotificationsOverflow() throws Exception {
+        HoldingHandler writes = new HoldingHandler();
+        EmbeddedChannel channel = new EmbeddedChannel(writes);
+        DefaultSubscriptionManager manager = new DefaultSubscriptionManager(Runnable::run, 1, SubscriptionDispatcher.OverflowPolicy.DISCONNECT);
+        StompSubscription subscription = new StompSubscription(new StompConnection(channel, null, null), "/testApp/people/bob", "sub-1",
+                MediaType.JSON, new ResourceCodec(JSONEncoder.class, null));
+        manager.addSubscription(subscription);
+
+        InMemoryCollectionResource people = new InMemoryCollectionResource(new InMemoryCollectionResource(null, "testApp"), "people");
+        InMemoryObjectResource bob = new InMemoryObjectResource(people, "bob", new DefaultResourceState("bob"));
+
+        // the first one is handed to the channel, which doesn't get it written out
+        manager.resourceUpdated(updated(bob));
+        assertThat(writes.held).hasSize(1);
+        assertThat(manager.dispatcher().delivered()).isEqualTo(0);
+
+        // the next one waits in the queue, rather than piling up in the channel
+        manager.resourceUpdated(updated(bob));
+        assertThat(writes.held).hasSize(1);
+        assertThat(manager.dispatcher().pending()).isEqualTo(1);
+
+        manager.resourceUpdated(updated(bob));
+        assertThat(manager.dispatcher().overflows()).isEqualTo(1);
+        assertThat(manager.dispatcher().disconnects()).isEqualTo(1);
+        assertThat(manager.subscriptionIds()).isEmpty();
+        assertThat(channel.isOpen()).isFalse();
+
+        writes.held.get(0).setSuccess();
+        assertThat(manager.dispatcher().delivered()).isEqualTo(1);
+        assertThat(manager.dispatcher().pending()).isEqualTo(0);
+    }
+
+    private static ResourceResponse updated(Resource resource) {
+        DefaultResourceResponse response = new DefaultResourceResponse(
+                new DefaultResourceRequest.Builder(RequestType.UPDATE, new ResourcePath("/testApp/people/bob")).build(),
+                ResourceResponse.ResponseType.UPDATED, resource);
+        response.setState(new DefaultResourceState("bob"));
+        return response;
+    }
+
+    private static SubscriptionNotification notification() {
+        ResourceResponse response = new DefaultResourceResponse(
+                new DefaultResourceRequest.Builder(RequestType.UPDATE, new ResourcePath("/testApp/people/bob")).build(),
+                ResourceResponse.ResponseType.UPDATED);
+        return new SubscriptionNotification(response);
+    }
+
+    /**
+     * Channel handler never getting anything written out, as a client which stopped reading.
+     */
+    private static class HoldingHandler extends ChannelOutboundHandlerAdapter {
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            ReferenceCountUtil.release(msg);
+            this.held.add(promise);
+        }
+
+        final List<ChannelPromise> held = new ArrayList<>();
+    }
+
+    private static class MockSubscription implements EncodingSubscription {
+
+        MockSubscription(String id, String connectionId) {
+            this.id = id;
+            this.connectionId = connectionId;
+        }
+
+        @Override
+        public String id() {
+            return this.id;
+        }
+
+        @Override
+        public String connectionId() {
+            return this.connectionId;
+        }
+
+        @Override
+        public ResourcePath resourcePath() {
+            return new ResourcePath("/testApp/people");
+        }
+
+        @Override
+        public boolean isSecure() {
+            return false;
+        }
+
+        @Override
+        public SecurityContext securityContext() {
+            return null;
+        }
+
+        @Override
+        public void sendAuthzError(ResourceState errorState, Resource resource, int status) throws Exception {
+        }
+
+        @Override
+        public void resourceCreated(ResourceResponse resourceResponse) throws Exception {
+        }
+
+        @Override
+        public void resourceUpdated(ResourceResponse resourceResponse) throws Exception {
+        }
+
+        @Override
+        public void resourceDeleted(ResourceResponse resourceResponse) throws Exception {
+        }
+
+        @Override
+        public void resourceCreated(SubscriptionNotification notification) throws Exception {
+        }
+
+        @Override
+        public void resourceUpdated(SubscriptionNotification notification) throws Exception {
+        }
+
+        @Override
+        public void resourceDeleted(SubscriptionNotification notification) throws Exception {
+        }
+
+        private final String id;
+        private final String connectionId;
+    }
+}
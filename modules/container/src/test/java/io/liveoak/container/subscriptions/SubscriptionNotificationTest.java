@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.container.subscriptions;
+
+import java.nio.charset.Charset;
+
+import io.liveoak.common.DefaultResourceRequest;
+import io.liveoak.common.DefaultResourceResponse;
+import io.liveoak.common.codec.DefaultResourceState;
+import io.liveoak.common.codec.ResourceCodec;
+import io.liveoak.common.codec.json.JSONEncoder;
+import io.liveoak.spi.MediaType;
+import io.liveoak.spi.RequestType;
+import io.liveoak.spi.ResourcePath;
+import io.liveoak.spi.ResourceResponse;
+import io.netty.buffer.ByteBuf;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SubscriptionNotificationTest {
+
+    @Test
+    public void testEncodedOncePerMediaType() throws Exception {
+        SubscriptionNotification notification = new SubscriptionNotification(response());
+        ResourceCodec codec = new ResourceCodec(JSONEncoder.class, null);
+
+        ByteBuf first = notification.content(MediaType.JSON, codec);
+        ByteBuf second = notification.content(MediaType.JSON, codec);
+        ByteBuf other = notification.content(MediaType.LOCAL_APP_JSON, codec);
+
+        assertThat(notification.encodings()).isEqualTo(2);
+        assertThat(first).isNotSameAs(second);
+        assertThat(first.toString(Charset.forName("UTF-8"))).contains("Bob McWhirter");
+        assertThat(second.toString(Charset.forName("UTF-8"))).isEqualTo(first.toString(Charset.forName("UTF-8")));
+
+        // reading one duplicate doesn't affect the others
+        first.skipBytes(first.readableBytes());
+        assertThat(second.readableBytes()).isGreaterThan(0);
+
+        first.release();
+        second.release();
+        other.release();
+        assertThat(second.refCnt()).isEqualTo(1);
+
+        notification.release();
+        assertThat(second.refCnt()).isEqualTo(0);
+        assertThat(other.refCnt()).isEqualTo(0);
+    }
+
+    @Test
+    public void testReleasedWithLastReference() throws Exception {
+        SubscriptionNotification notification = new SubscriptionNotification(response());
+        ResourceCodec codec = new ResourceCodec(JSONEncoder.class, null);
+
+        notification.retain();
+        notification.release();
+
+        ByteBuf content = notification.content(MediaType.JSON, codec);
+        notification.release();
+
+        // the subscriber still holds its own reference
+        assertThat(content.refCnt()).isEqualTo(1);
+        assertThat(content.toString(Charset.forName("UTF-8"))).contains("Bob McWhirter");
+        content.release();
+        assertThat(notification.refCnt()).isEqualTo(0);
+    }
+
+    private static ResourceResponse response() {
+        DefaultResourceState state = new DefaultResourceState("bob");
+        state.putProperty("name", "Bob McWhirter");
+        DefaultResourceResponse response = new DefaultResourceResponse(
+                new DefaultResourceRequest.Builder(RequestType.UPDATE, new ResourcePath("/testApp/people/bob")).build(),
+                ResourceResponse.ResponseType.UPDATED);
+        response.setState(state);
+        return response;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.filesystem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.jboss.logging.Logger;
+
+/**
+ * Content of small files, held in direct buffers outside of the heap and evicted least recently used first
+ * once the total size goes over the limit.
+ *
+ * <p>Every lookup checks the modification time and length of the file, and reads it again if either has
+ * changed. So edited files are picked up on the next request, without having to watch for changes.</p>
+ *
+ * <p>Files are read by the executor given, and a lookup made before the file has been read finds nothing.</p>
+ */
+public class ContentCache {
+
+    public static final String MAX_SIZE_PROPERTY = "liveoak.filesystem.cache.size";
+    public static final String MAX_FILE_SIZE_PROPERTY = "liveoak.filesystem.cache.max-file-size";
+
+    public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+    public static final long DEFAULT_MAX_FILE_SIZE = 256 * 1024;
+
+    private final long maxSize;
+    private final long maxFileSize;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    // paths of the files being read
+    private final Set<String> loading = ConcurrentHashMap.newKeySet();
+    private final Executor executor;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param executor Executor files are read by
+     */
+    public ContentCache(Executor executor) {
+        this(Long.getLong(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE), Long.getLong(MAX_FILE_SIZE_PROPERTY, DEFAULT_MAX_FILE_SIZE), executor);
+    }
+
+    /**
+     * Read files on the thread looking them up.
+     */
+    public ContentCache(long maxSize, long maxFileSize) {
+        this(maxSize, maxFileSize, Runnable::run);
+    }
+
+    /**
+     * @param executor Executor files are read by
+     */
+    public ContentCache(long maxSize, long maxFileSize, Executor executor) {
+        this.maxSize = maxSize;
+        this.maxFileSize = Math.min(maxFileSize, maxSize);
+        this.executor = executor;
+    }
+
+    /**
+     * Get the content of the file, having it read into the cache if it is not there yet or has changed since.
+     *
+     * @return The content, retained for the caller to release, or null if the file doesn't exist, is too large to cache
+     * or has not been read yet
+     */
+    public ByteBuf content(File file) {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        if (maxSize <= 0 || lastModified == 0 || length > maxFileSize || !file.isFile()) {
+            return null;
+        }
+
+        String key = file.getPath();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.lastModified == lastModified && entry.content.readableBytes() == length) {
+                    hits.incrementAndGet();
+                    return entry.content.duplicate().retain();
+                }
+                remove(key);
+            }
+        }
+
+        misses.incrementAndGet();
+        load(file, key, lastModified, length);
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.lastModified == lastModified && entry.content.readableBytes() == length) {
+                return entry.content.duplicate().retain();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Have the file read into the cache, unless it is being read already.
+     */
+    private void load(File file, String key, long lastModified, long length) {
+        if (!loading.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    ByteBuf content = read(file, length);
+                    if (content != null) {
+                        synchronized (entries) {
+                            Entry previous = entries.put(key, new Entry(content, lastModified));
+                            if (previous != null) {
+                                size -= previous.content.readableBytes();
+                                previous.content.release();
+                            }
+                            size += content.readableBytes();
+                            evict();
+                        }
+                    }
+                } finally {
+                    loading.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loading.remove(key);
+        }
+    }
+
+    private ByteBuf read(File file, long length) {
+        ByteBuf content = Unpooled.directBuffer((int) length);
+        try (FileInputStream in = new FileInputStream(file)) {
+            while (content.writableBytes() > 0) {
+                if (content.writeBytes(in.getChannel(), content.writableBytes()) == -1) {
+                    // truncated while being read
+                    content.release();
+                    return null;
+                }
+            }
+            return content;
+        } catch (IOException e) {
+            log.debug("Failed to read file into cache: " + file, e);
+            content.release();
+            return null;
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (size > maxSize && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            size -= eldest.content.readableBytes();
+            eldest.content.release();
+        }
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            size -= entry.content.readableBytes();
+            entry.content.release();
+        }
+    }
+
+    /**
+     * Release all the cached content.
+     */
+    public void clear() {
+        synchronized (entries) {
+            for (Entry entry : entries.values()) {
+                entry.content.release();
+            }
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    public int count() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long size() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public String toString() {
+        return "[ContentCache: count=" + count() + ", size=" + size() + ", maxSize=" + maxSize + ", hits=" + hits() + ", misses=" + misses() + "]";
+    }
+
+    private static class Entry {
+        private final ByteBuf content;
+        private final long lastModified;
+
+        Entry(ByteBuf content, long lastModified) {
+            this.content = content;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static final Logger log = Logger.getLogger(ContentCache.class);
+}
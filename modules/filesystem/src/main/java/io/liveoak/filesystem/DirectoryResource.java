@@ -33,6 +33,14 @@ public class DirectoryResource implements FSResource {
         return this.file;
     }
 
+    public ContentCache contentCache() {
+        return this.parent.contentCache();
+    }
+
+    public GzipVariants gzipVariants() {
+        return this.parent.gzipVariants();
+    }
+
     public void file(File file) {
         this.file = file;
     }
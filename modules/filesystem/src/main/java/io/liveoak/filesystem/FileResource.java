@@ -10,6 +10,7 @@ import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.resource.async.BinaryContentSink;
 import io.liveoak.spi.resource.async.BinaryResource;
 import io.liveoak.spi.resource.async.Resource;
+import io.netty.buffer.ByteBuf;
 import org.vertx.java.core.Vertx;
 import org.vertx.java.core.file.AsyncFile;
 
@@ -35,6 +36,7 @@ public class FileResource implements FSResource, BinaryResource {
         return this.parent;
     }
 
+    @Override
     public File file() {
         return this.file;
     }
@@ -59,11 +61,33 @@ public class FileResource implements FSResource, BinaryResource {
         return this.file.length();
     }
 
+    @Override
+    public long lastModified() {
+        long lastModified = this.file.lastModified();
+        return lastModified == 0 ? -1 : lastModified;
+    }
+
     @Override
     public String id() {
         return this.file.getName();
     }
 
+    @Override
+    public BinaryResource encodedVariant(String contentCoding) {
+        GzipVariants variants = this.parent.gzipVariants();
+        if (variants == null || !GZIP.equals(contentCoding)) {
+            return null;
+        }
+        File gzipped = variants.variant(this.file);
+        return gzipped != null ? new GzipFileResource(this.parent, this, gzipped) : null;
+    }
+
+    @Override
+    public ByteBuf cachedContent() {
+        ContentCache cache = this.parent.contentCache();
+        return cache != null ? cache.content(this.file) : null;
+    }
+
     @Override
     public void readContent(RequestContext ctx, BinaryContentSink sink) {
         vertx().fileSystem().open(file.getPath(), (result) -> {
@@ -88,4 +112,6 @@ public class FileResource implements FSResource, BinaryResource {
 
     private DirectoryResource parent;
     private File file;
+
+    private static final String GZIP = "gzip";
 }
@@ -6,6 +6,7 @@
 package io.liveoak.filesystem;
 
 import java.io.File;
+import java.util.concurrent.Executor;
 
 import io.liveoak.spi.resource.RootResource;
 import io.liveoak.spi.resource.async.Resource;
@@ -16,11 +17,14 @@ import org.vertx.java.core.Vertx;
  */
 public class FilesystemResource extends DirectoryResource implements RootResource, FSResource {
 
-    public FilesystemResource(FileSystemAdminResource adminResource, String id, Vertx vertx) {
+    public FilesystemResource(FileSystemAdminResource adminResource, String id, Vertx vertx, Executor workerPool) {
         super(null, null);
         this.id = id;
         this.vertx = vertx;
         this.adminResource = adminResource;
+        // files are read and compressed on the worker pool, rather than by the I/O thread serving them
+        this.contentCache = new ContentCache(workerPool);
+        this.gzipVariants = new GzipVariants(workerPool);
     }
 
 
@@ -44,6 +48,16 @@ public class FilesystemResource extends DirectoryResource implements RootResourc
         return this.vertx;
     }
 
+    @Override
+    public ContentCache contentCache() {
+        return this.contentCache;
+    }
+
+    @Override
+    public GzipVariants gzipVariants() {
+        return this.gzipVariants;
+    }
+
     @Override
     public String id() {
         return this.id;
@@ -57,5 +71,7 @@ public class FilesystemResource extends DirectoryResource implements RootResourc
     private Resource parent;
     private String id;
     private Vertx vertx;
+    private final ContentCache contentCache;
+    private final GzipVariants gzipVariants;
 
 }
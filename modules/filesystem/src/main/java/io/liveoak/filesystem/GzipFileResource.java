@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.filesystem;
+
+import java.io.File;
+
+import io.liveoak.spi.MediaType;
+import io.liveoak.spi.resource.async.BinaryResource;
+
+/**
+ * Gzipped copy of a file, served in place of the file to clients that accept gzip.
+ */
+public class GzipFileResource extends FileResource {
+
+    public GzipFileResource(DirectoryResource parent, FileResource original, File gzipped) {
+        super(parent, gzipped);
+        this.original = original;
+    }
+
+    @Override
+    public String id() {
+        return this.original.id();
+    }
+
+    @Override
+    public MediaType mediaType() {
+        return this.original.mediaType();
+    }
+
+    @Override
+    public String contentEncoding() {
+        return "gzip";
+    }
+
+    @Override
+    public long lastModified() {
+        return this.original.lastModified();
+    }
+
+    @Override
+    public String entityTag() {
+        // a tag of its own, as the content differs from the original byte for byte
+        String entityTag = this.original.entityTag();
+        if (entityTag == null) {
+            return null;
+        }
+        return entityTag.substring(0, entityTag.length() - 1) + "-gzip\"";
+    }
+
+    @Override
+    public BinaryResource encodedVariant(String contentCoding) {
+        return null;
+    }
+
+    public String toString() {
+        return "[GzipFileResource: file=" + file() + "]";
+    }
+
+    private final FileResource original;
+}
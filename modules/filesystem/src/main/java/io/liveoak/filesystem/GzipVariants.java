@@ -0,0 +1,263 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Gzipped copies of files, so that they don't have to be compressed again for every request.
+ *
+ * <p>A <code>.gz</code> sibling of a file is used if there is one that is not older than the file itself.
+ * Otherwise a copy is compressed in the background on first request, the file being served as it is until the copy
+ * is ready. Copies are kept in a directory of their own, under a name made of the path, modification time and
+ * length of the file - so a changed file gets a new copy.</p>
+ *
+ * <p>The directory is only used if it is owned by the current user and accessible to nobody else. Only copies
+ * written by this instance are served from it; whatever an earlier run left behind is removed.</p>
+ */
+public class GzipVariants {
+
+    public static final String DIRECTORY_PROPERTY = "liveoak.filesystem.gzip.dir";
+    public static final String MIN_FILE_SIZE_PROPERTY = "liveoak.filesystem.gzip.min-file-size";
+    public static final String MAX_FILE_SIZE_PROPERTY = "liveoak.filesystem.gzip.max-file-size";
+
+    public static final long DEFAULT_MIN_FILE_SIZE = 256;
+    public static final long DEFAULT_MAX_FILE_SIZE = 8 * 1024 * 1024;
+
+    public static final String EXTENSION = ".gz";
+
+    private static final String TMP_EXTENSION = ".tmp";
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    private final File directory;
+    private final long minFileSize;
+    private final long maxFileSize;
+
+    // the copy generated for each file, keyed by the prefix made from its path
+    private final Map<String, File> generated = new ConcurrentHashMap<>();
+    // prefixes of the files a copy is being generated for
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Executor executor;
+    private Boolean usable;
+
+    /**
+     * @param executor Executor copies are generated by
+     */
+    public GzipVariants(Executor executor) {
+        this(new File(System.getProperty(DIRECTORY_PROPERTY, defaultDirectory().getPath())),
+                Long.getLong(MIN_FILE_SIZE_PROPERTY, DEFAULT_MIN_FILE_SIZE),
+                Long.getLong(MAX_FILE_SIZE_PROPERTY, DEFAULT_MAX_FILE_SIZE),
+                executor);
+    }
+
+    /**
+     * Generate copies on the thread asking for them.
+     */
+    public GzipVariants(File directory, long minFileSize, long maxFileSize) {
+        this(directory, minFileSize, maxFileSize, Runnable::run);
+    }
+
+    /**
+     * @param directory Directory to keep generated copies in
+     * @param minFileSize Size of the smallest file to generate a copy for
+     * @param maxFileSize Size of the largest file to generate a copy for, or 0 to only use existing siblings
+     * @param executor Executor copies are generated by
+     */
+    public GzipVariants(File directory, long minFileSize, long maxFileSize, Executor executor) {
+        this.directory = directory;
+        this.minFileSize = minFileSize;
+        this.maxFileSize = maxFileSize;
+        this.executor = executor;
+    }
+
+    private static File defaultDirectory() {
+        String home = System.getProperty("io.liveoak.home.dir");
+        if (home != null) {
+            return new File(new File(home, "data"), "gzip");
+        }
+        return new File(System.getProperty("java.io.tmpdir"), "liveoak-gzip-" + System.getProperty("user.name"));
+    }
+
+    /**
+     * @return Gzipped copy of the file, or null if there is none ready - a copy is then generated, if the file is
+     * of a size to make one for
+     */
+    public File variant(File file) {
+        long lastModified = file.lastModified();
+        if (lastModified == 0) {
+            return null;
+        }
+
+        File sibling = new File(file.getPath() + EXTENSION);
+        if (sibling.isFile() && sibling.lastModified() >= lastModified) {
+            return sibling;
+        }
+
+        long length = file.length();
+        if (length < minFileSize || length > maxFileSize) {
+            return null;
+        }
+
+        String prefix = hash(file.getAbsolutePath()) + "-";
+        File target = new File(directory, prefix + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + EXTENSION);
+        if (target.equals(generated.get(prefix)) && target.isFile()) {
+            return target;
+        }
+
+        // one copy of a file at a time
+        if (pending.add(prefix)) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        generate(file, target, prefix);
+                    } finally {
+                        pending.remove(prefix);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pending.remove(prefix);
+            }
+        }
+        return target.equals(generated.get(prefix)) && target.isFile() ? target : null;
+    }
+
+    private void generate(File file, File target, String prefix) {
+        File previous = generated.get(prefix);
+        if ((target.equals(previous) && target.isFile()) || !isUsable()) {
+            return;
+        }
+
+        Path tmp = null;
+        try {
+            // write to a temporary file first, so that a partly written copy is never served
+            tmp = Files.createTempFile(directory.toPath(), prefix, TMP_EXTENSION);
+            try (GZIPOutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp)) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                Files.copy(file.toPath(), out);
+            }
+            try {
+                Files.move(tmp, target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            tmp = null;
+            generated.put(prefix, target);
+
+            // the copy of an earlier version of the file is not going to be used any more
+            if (previous != null && !previous.equals(target)) {
+                previous.delete();
+            }
+        } catch (IOException e) {
+            log.debug("Failed to generate gzipped copy of: " + file, e);
+        } finally {
+            if (tmp != null) {
+                tmp.toFile().delete();
+            }
+        }
+    }
+
+    /**
+     * Create the directory, or check the one that is there, once.
+     */
+    private synchronized boolean isUsable() {
+        if (usable == null) {
+            try {
+                usable = prepare(directory.toPath());
+            } catch (IOException e) {
+                log.debug("Failed to prepare directory: " + directory, e);
+                usable = false;
+            }
+            if (!usable) {
+                log.warn("Not generating gzipped copies, " + directory + " is not a directory owned by and private to the current user");
+            }
+        }
+        return usable;
+    }
+
+    static boolean prepare(Path dir) throws IOException {
+        boolean posix = dir.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (Files.notExists(dir, LinkOption.NOFOLLOW_LINKS)) {
+            if (dir.getParent() != null) {
+                Files.createDirectories(dir.getParent());
+            }
+            try {
+                if (posix) {
+                    Files.createDirectory(dir, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+                } else {
+                    Files.createDirectory(dir);
+                }
+            } catch (FileAlreadyExistsException e) {
+                // someone else got there first, and is checked below like any existing directory
+            }
+        }
+
+        if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+            return false;
+        }
+        UserPrincipal owner = Files.getOwner(dir, LinkOption.NOFOLLOW_LINKS);
+        UserPrincipal self = dir.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+        if (!owner.equals(self)) {
+            return false;
+        }
+        if (posix && !Files.getPosixFilePermissions(dir, LinkOption.NOFOLLOW_LINKS).equals(OWNER_ONLY)) {
+            return false;
+        }
+
+        // copies left by an earlier run are not trusted, only what this instance writes is served
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*-*{" + EXTENSION + "," + TMP_EXTENSION + "}")) {
+            for (Path each : stream) {
+                if (Files.isRegularFile(each, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.deleteIfExists(each);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static String hash(String path) {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(path.getBytes(StandardCharsets.UTF_8))) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String toString() {
+        return "[GzipVariants: dir=" + this.directory + "]";
+    }
+
+    private static final Logger log = Logger.getLogger(GzipVariants.class);
+}
@@ -1,6 +1,7 @@
 package io.liveoak.filesystem.extension;
 
 import java.io.File;
+import java.util.concurrent.Executor;
 
 import io.liveoak.filesystem.FileSystemAdminResource;
 import io.liveoak.filesystem.service.FileSystemAdminResourceService;
@@ -38,6 +39,7 @@ public class FilesystemExtension implements Extension {
         context.target().addService(Services.resource(context.application().id(), context.resourceId()), publicResource)
                 .addDependency(Services.VERTX, Vertx.class, publicResource.vertxInjector())
                 .addDependency(privateResourceServiceName, FileSystemAdminResource.class, publicResource.adminResourceInjector())
+                .addDependency(Services.WORKER_POOL, Executor.class, publicResource.workerPoolInjector())
                 .install();
 
         context.mountPublic(Services.resource(context.application().id(), context.resourceId()));
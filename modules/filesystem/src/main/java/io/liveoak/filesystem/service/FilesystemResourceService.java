@@ -1,7 +1,10 @@
 package io.liveoak.filesystem.service;
 
+import java.util.concurrent.Executor;
+
 import io.liveoak.filesystem.FileSystemAdminResource;
 import io.liveoak.filesystem.FilesystemResource;
+import org.jboss.logging.Logger;
 import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.StartContext;
@@ -24,11 +27,17 @@ public class FilesystemResourceService implements Service<FilesystemResource> {
         this.resource = new FilesystemResource(
                 this.adminResourceInjector.getValue(),
                 this.id,
-                this.vertxInjector.getValue());
+                this.vertxInjector.getValue(),
+                this.workerPoolInjector.getValue());
     }
 
     @Override
     public void stop(StopContext context) {
+        // cached content is held outside of the heap, and has to be released explicitly
+        if (log.isDebugEnabled()) {
+            log.debug("Stopping " + this.resource + " with " + this.resource.contentCache());
+        }
+        this.resource.contentCache().clear();
         this.resource = null;
     }
 
@@ -46,9 +55,16 @@ public class FilesystemResourceService implements Service<FilesystemResource> {
 
     }
 
+    public Injector<Executor> workerPoolInjector() {
+        return this.workerPoolInjector;
+    }
+
     protected String id;
 
     protected InjectedValue<Vertx> vertxInjector = new InjectedValue<>();
     protected InjectedValue<FileSystemAdminResource> adminResourceInjector = new InjectedValue<>();
+    protected InjectedValue<Executor> workerPoolInjector = new InjectedValue<>();
     protected FilesystemResource resource;
+
+    private static final Logger log = Logger.getLogger(FilesystemResourceService.class);
 }
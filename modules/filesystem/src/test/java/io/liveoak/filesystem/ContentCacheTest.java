@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.filesystem;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ContentCacheTest {
+
+    private File dir;
+    private ContentCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        this.dir = Files.createTempDirectory("content-cache").toFile();
+        this.cache = new ContentCache(16, 8);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.cache.clear();
+        for (File each : this.dir.listFiles()) {
+            each.delete();
+        }
+        this.dir.delete();
+    }
+
+    @Test
+    public void testHitAndChange() throws Exception {
+        File file = write("a.txt", "hello");
+
+        assertThat(read(file)).isEqualTo("hello");
+        assertThat(read(file)).isEqualTo("hello");
+        assertThat(this.cache.misses()).isEqualTo(1);
+        assertThat(this.cache.hits()).isEqualTo(1);
+
+        write("a.txt", "howdy!");
+        file.setLastModified(file.lastModified() + 2000);
+        assertThat(read(file)).isEqualTo("howdy!");
+        assertThat(this.cache.misses()).isEqualTo(2);
+        assertThat(this.cache.count()).isEqualTo(1);
+        assertThat(this.cache.size()).isEqualTo(6);
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        assertThat(this.cache.content(write("big.txt", "too large to cache"))).isNull();
+
+        File a = write("a.txt", "1234567");
+        File b = write("b.txt", "abcdefg");
+        File c = write("c.txt", "ABCDEFG");
+        read(a);
+        read(b);
+        read(a);
+        read(c);
+
+        // b was the least recently used when c went over the limit
+        assertThat(this.cache.count()).isEqualTo(2);
+        assertThat(this.cache.size()).isEqualTo(14);
+        long misses = this.cache.misses();
+        read(a);
+        assertThat(this.cache.misses()).isEqualTo(misses);
+        read(b);
+        assertThat(this.cache.misses()).isEqualTo(misses + 1);
+    }
+
+    @Test
+    public void testReadInBackground() throws Exception {
+        Queue<Runnable> tasks = new LinkedList<>();
+        ContentCache cache = new ContentCache(16, 8, tasks::add);
+        try {
+            File file = write("a.txt", "hello");
+
+            // nothing until the file has been read, which happens once however often it is looked up
+            assertThat(cache.content(file)).isNull();
+            assertThat(cache.content(file)).isNull();
+            assertThat(tasks).hasSize(1);
+
+            tasks.poll().run();
+            ByteBuf content = cache.content(file);
+            try {
+                assertThat(content.toString(StandardCharsets.UTF_8)).isEqualTo("hello");
+            } finally {
+                content.release();
+            }
+            assertThat(tasks).isEmpty();
+        } finally {
+            cache.clear();
+        }
+    }
+
+    private File write(String name, String content) throws Exception {
+        File file = new File(this.dir, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private String read(File file) {
+        ByteBuf content = this.cache.content(file);
+        try {
+            return content.toString(StandardCharsets.UTF_8);
+        } finally {
+            content.release();
+        }
+    }
+}
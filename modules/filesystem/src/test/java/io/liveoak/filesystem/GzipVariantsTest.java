@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.filesystem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class GzipVariantsTest {
+
+    private File dir;
+    private File gzipDir;
+
+    @Before
+    public void setUp() throws Exception {
+        this.dir = Files.createTempDirectory("gzip-variants").toFile();
+        this.gzipDir = new File(this.dir, "gzip");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        delete(this.dir);
+    }
+
+    @Test
+    public void testGeneratedCopy() throws Exception {
+        File file = write("a.txt", content());
+        GzipVariants variants = new GzipVariants(this.gzipDir, 16, 1024 * 1024);
+
+        File variant = variants.variant(file);
+        assertThat(variant).isNotNull();
+        assertThat(variant.getParentFile()).isEqualTo(this.gzipDir);
+        assertThat(gunzip(variant)).isEqualTo(content());
+        assertThat(variants.variant(file)).isEqualTo(variant);
+        if (posix()) {
+            assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(this.gzipDir.toPath()))).isEqualTo("rwx------");
+        }
+
+        // nothing but the current copy is kept once the file changes
+        write("a.txt", content() + "more");
+        file.setLastModified(file.lastModified() + 2000);
+        File changed = variants.variant(file);
+        assertThat(changed).isNotEqualTo(variant);
+        assertThat(variant.exists()).isFalse();
+        assertThat(this.gzipDir.list()).containsOnly(changed.getName());
+    }
+
+    @Test
+    public void testGeneratedInBackground() throws Exception {
+        File file = write("a.txt", content());
+        Queue<Runnable> tasks = new LinkedList<>();
+        GzipVariants variants = new GzipVariants(this.gzipDir, 16, 1024 * 1024, tasks::add);
+
+        // served as it is until the copy is ready, with one copy generated however often it is asked for
+        assertThat(variants.variant(file)).isNull();
+        assertThat(variants.variant(file)).isNull();
+        assertThat(tasks).hasSize(1);
+
+        tasks.poll().run();
+        File variant = variants.variant(file);
+        assertThat(gunzip(variant)).isEqualTo(content());
+        assertThat(tasks).isEmpty();
+    }
+
+    @Test
+    public void testExistingCopyNotTrusted() throws Exception {
+        File file = write("a.txt", content());
+        File variant = new GzipVariants(this.gzipDir, 16, 1024 * 1024).variant(file);
+
+        // a copy planted under the expected name before this instance started is not served
+        Files.write(variant.toPath(), "planted".getBytes(StandardCharsets.UTF_8));
+        GzipVariants variants = new GzipVariants(this.gzipDir, 16, 1024 * 1024);
+        assertThat(gunzip(variants.variant(file))).isEqualTo(content());
+    }
+
+    @Test
+    public void testSharedDirectoryRefused() throws Exception {
+        Assume.assumeTrue(posix());
+        Files.createDirectory(this.gzipDir.toPath(), PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwxrwx---")));
+        Files.setPosixFilePermissions(this.gzipDir.toPath(), PosixFilePermissions.fromString("rwxrwx---"));
+
+        File file = write("a.txt", content());
+        assertThat(new GzipVariants(this.gzipDir, 16, 1024 * 1024).variant(file)).isNull();
+        assertThat(this.gzipDir.list()).isEmpty();
+    }
+
+    private boolean posix() {
+        return this.dir.toPath().getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    private String content() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 64; ++i) {
+            sb.append("line ").append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private File write(String name, String content) throws Exception {
+        File file = new File(this.dir, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private String gunzip(File file) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+            byte[] buf = new byte[1024];
+            int len;
+            while ((len = in.read(buf)) != -1) {
+                out.write(buf, 0, len);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File each : children) {
+                delete(each);
+            }
+        }
+        file.delete();
+    }
+}
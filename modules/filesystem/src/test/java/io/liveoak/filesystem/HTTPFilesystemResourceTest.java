@@ -11,6 +11,7 @@ import io.liveoak.testtools.AbstractHTTPResourceTestCase;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -85,4 +86,60 @@ public class HTTPFilesystemResourceTest extends AbstractHTTPResourceTestCase {
         }
     }
 
+    @Test
+    public void testConditionalAndRangeRead() throws Exception {
+        String uri = "http://localhost:8080/testApp/files/test-file1.txt";
+
+        try {
+            HttpGet get = new HttpGet(uri);
+            get.addHeader("Accept", "text/*");
+
+            String entityTag;
+            String lastModified;
+            try (CloseableHttpResponse result = httpClient.execute(get)) {
+                assertThat(result.getStatusLine().getStatusCode()).isEqualTo(200);
+                assertThat(result.getFirstHeader("Accept-Ranges").getValue()).isEqualTo("bytes");
+                entityTag = result.getFirstHeader("ETag").getValue();
+                lastModified = result.getFirstHeader("Last-Modified").getValue();
+                EntityUtils.consume(result.getEntity());
+            }
+
+            // unchanged since
+            get = new HttpGet(uri);
+            get.addHeader("Accept", "text/*");
+            get.addHeader("If-None-Match", entityTag);
+            try (CloseableHttpResponse result = httpClient.execute(get)) {
+                assertThat(result.getStatusLine().getStatusCode()).isEqualTo(304);
+            }
+
+            get = new HttpGet(uri);
+            get.addHeader("Accept", "text/*");
+            get.addHeader("If-Modified-Since", lastModified);
+            try (CloseableHttpResponse result = httpClient.execute(get)) {
+                assertThat(result.getStatusLine().getStatusCode()).isEqualTo(304);
+            }
+
+            // part of the file
+            get = new HttpGet(uri);
+            get.addHeader("Accept", "text/*");
+            get.addHeader("Range", "bytes=0-3");
+            try (CloseableHttpResponse result = httpClient.execute(get)) {
+                assertThat(result.getStatusLine().getStatusCode()).isEqualTo(206);
+                assertThat(result.getFirstHeader("Content-Range").getValue()).startsWith("bytes 0-3/");
+                assertThat(EntityUtils.toString(result.getEntity())).isEqualTo("This");
+            }
+
+            // past the end of the file
+            get = new HttpGet(uri);
+            get.addHeader("Accept", "text/*");
+            get.addHeader("Range", "bytes=1000-");
+            try (CloseableHttpResponse result = httpClient.execute(get)) {
+                assertThat(result.getStatusLine().getStatusCode()).isEqualTo(416);
+            }
+
+        } finally {
+            httpClient.close();
+        }
+    }
+
 }
@@ -8,6 +8,7 @@ package io.liveoak.keycloak.interceptor;
 import io.liveoak.common.DefaultResourceErrorResponse;
 import io.liveoak.common.security.DefaultSecurityContext;
 import io.liveoak.common.security.SecurityHelper;
+import io.liveoak.common.security.VerifiedTokenCache;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.ResourceErrorResponse;
 import io.liveoak.spi.ResourcePath;
@@ -28,9 +29,19 @@ public class AuthInterceptor extends DefaultInterceptor {
     private static final Logger log = Logger.getLogger(AuthInterceptor.class);
 
     private Client client;
+    private final VerifiedTokenCache tokenCache;
 
     public AuthInterceptor(Client client) {
+        this(client, new VerifiedTokenCache());
+    }
+
+    public AuthInterceptor(Client client, VerifiedTokenCache tokenCache) {
         this.client = client;
+        this.tokenCache = tokenCache;
+    }
+
+    public VerifiedTokenCache tokenCache() {
+        return tokenCache;
     }
 
     @Override
@@ -54,7 +65,7 @@ public class AuthInterceptor extends DefaultInterceptor {
     private void initSecurityContext(final InboundInterceptorContext context, final ResourceRequest req, final DefaultSecurityContext securityContext, String token) {
         String prefix = getPrefix(req.resourcePath());
 
-        SecurityHelper.auth(client, securityContext, prefix, token,
+        SecurityHelper.auth(client, tokenCache, securityContext, prefix, token,
                 // Success function
                 () -> context.forward(),
                 // No Such Resource function
@@ -1,6 +1,7 @@
 package io.liveoak.keycloak.interceptor;
 
 import io.liveoak.spi.client.Client;
+import org.jboss.logging.Logger;
 import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.StartContext;
@@ -13,6 +14,8 @@ import org.jboss.msc.value.InjectedValue;
  */
 public class AuthInterceptorService implements Service<AuthInterceptor> {
 
+    private static final Logger log = Logger.getLogger(AuthInterceptorService.class);
+
     private InjectedValue<Client> clientInjector = new InjectedValue<>();
     private AuthInterceptor authInterceptor;
 
@@ -23,6 +26,9 @@ public class AuthInterceptorService implements Service<AuthInterceptor> {
 
     @Override
     public void stop(StopContext context) {
+        if (log.isDebugEnabled()) {
+            log.debug("Verified token cache: " + authInterceptor.tokenCache());
+        }
         authInterceptor = null;
     }
 
@@ -10,8 +10,10 @@ import java.util.concurrent.TimeUnit;
 
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.liveoak.common.security.VerifiedTokenCache;
 import io.liveoak.interceptor.extension.InterceptorExtension;
 import io.liveoak.keycloak.extension.KeycloakExtension;
+import io.liveoak.keycloak.interceptor.AuthInterceptor;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.Services;
 import io.liveoak.spi.security.SecurityContext;
@@ -95,6 +97,19 @@ public class AuthInterceptorTest extends AbstractKeycloakTest {
         assertThat(securityContext.getRoles().size()).isEqualTo(3);
         assertThat(securityContext.lastVerified()).isEqualTo(token.getIssuedAt());
 
+        // Same token again is taken from the cache of verified tokens
+        VerifiedTokenCache tokenCache = ((AuthInterceptor) system.service(Services.interceptor("auth"))).tokenCache();
+        long hits = tokenCache.hits();
+        httpMethod = createHttpMethod("GET", "http://localhost:8080/testApp/auth-test");
+        httpMethod.addHeader(new BasicHeader("Authorization", "bearer " + tokenUtil.toString(token)));
+        sendRequestAndCheckStatus(httpMethod, HttpStatus.SC_OK);
+
+        securityContext = mock.pollRequest(10, TimeUnit.SECONDS).securityContext();
+        assertThat(tokenCache.hits()).isEqualTo(hits + 1);
+        assertThat(securityContext.getSubject()).isEqualTo("user-id");
+        assertThat(securityContext.getUser().email()).isEqualTo("email");
+        assertThat(securityContext.getRoles().size()).isEqualTo(3);
+
 
         // Test #3 - Auth expired
         token = tokenUtil.createToken();
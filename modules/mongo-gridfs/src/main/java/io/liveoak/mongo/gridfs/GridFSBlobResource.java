@@ -8,12 +8,14 @@ package io.liveoak.mongo.gridfs;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.UUID;
+import java.util.Date;
 import java.util.function.Supplier;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
 import com.mongodb.gridfs.GridFS;
-import com.mongodb.gridfs.GridFSDBFile;
 import com.mongodb.gridfs.GridFSInputFile;
 import io.liveoak.spi.MediaType;
 import io.liveoak.spi.RequestContext;
@@ -24,8 +26,9 @@ import io.liveoak.spi.resource.async.Responder;
 import io.liveoak.spi.state.LazyResourceState;
 import io.liveoak.spi.state.ResourceState;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.bson.types.ObjectId;
-import org.vertx.java.core.file.AsyncFile;
+import org.jboss.logging.Logger;
 
 /**
  * @author <a href="mailto:marko.strukelj@gmail.com">Marko Strukelj</a>
@@ -47,47 +50,74 @@ public class GridFSBlobResource extends GridFSResource implements BlockingResour
     }
 
     @Override
-    public void readContent(RequestContext ctx, BinaryContentSink sink) throws Exception {
+    public long lastModified() {
+        Long uploadDate = fileInfo().getDateAsMillis("uploadDate");
+        return uploadDate != null ? uploadDate : -1;
+    }
 
-        GridFS gridfs = getUserspace().getGridFS();
+    @Override
+    public void readContent(RequestContext ctx, BinaryContentSink sink) throws Exception {
+        readContent(ctx, 0, contentLength(), sink);
+    }
 
-        // TODO - maybe use netty directly here?
-        // TODO - BinaryContentSink should flush to socket (pipeline channel), not queue to memory
-
-        // get tmp file
-        File tmpFile = getTempFile();
-
-        // sync copy from db to tmp file first - no async API
-        GridFSDBFile file = gridfs.findOne(new BasicDBObject("_id", fileInfo().getId()));
-        file.writeTo(tmpFile);
-
-        // async copy from local tmp file to sink
-        getRoot().vertx().fileSystem().open(tmpFile.getPath(), (result) -> {
-            if (result.succeeded()) {
-                AsyncFile asyncFile = result.result();
-                asyncFile.dataHandler((buffer) -> {
-                    sink.accept(buffer.getByteBuf());
-                });
-                asyncFile.endHandler((end) -> {
-                    sink.close();
-                    asyncFile.close();
-                    tmpFile.delete();
-                });
-            } else {
-                sink.close();
-                tmpFile.delete();
-            }
-        });
+    @Override
+    public boolean supportsRanges() {
+        return true;
     }
 
-    private File getTempFile() {
-        // use configured temp.dir for temp file location
-        return new File(getRoot().tempDir(), UUID.randomUUID().toString());
+    /**
+     * Write the chunks holding the range straight from the chunks collection as they are fetched,
+     * starting with the chunk the range begins in.
+     *
+     * <p>This blocks while the sink is not writable, so a slow client holds up fetching further chunks.</p>
+     */
+    @Override
+    public void readContent(RequestContext ctx, long offset, long length, BinaryContentSink sink) throws Exception {
+        if (length > 0) {
+            Long size = fileInfo().getLong("chunkSize");
+            long chunkSize = size != null ? size : GridFS.DEFAULT_CHUNKSIZE;
+            long end = offset + length;
+            int first = (int) (offset / chunkSize);
+            int last = (int) ((end - 1) / chunkSize);
+
+            DBCollection chunks = getUserspace().getChunksCollection();
+            DBObject query = new BasicDBObject("files_id", fileInfo().getId())
+                    .append("n", new BasicDBObject("$gte", first).append("$lte", last));
+
+            DBCursor cursor = chunks.find(query).sort(new BasicDBObject("n", 1)).batchSize(CHUNK_BATCH_SIZE);
+            try {
+                int n = first;
+                long position = first * chunkSize;
+                while (cursor.hasNext()) {
+                    DBObject chunk = cursor.next();
+                    if (((Number) chunk.get("n")).intValue() != n) {
+                        break;
+                    }
+                    byte[] data = (byte[]) chunk.get("data");
+                    int from = (int) Math.max(0, offset - position);
+                    int to = (int) Math.min(data.length, end - position);
+                    if (to > from) {
+                        sink.accept(Unpooled.wrappedBuffer(data, from, to - from));
+                    }
+                    position += data.length;
+                    n++;
+                }
+                if (n <= last) {
+                    throw new IOException("Missing chunk " + n + " of blob: " + fileInfo().getId());
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        sink.close();
     }
 
     @Override
     public boolean willProcessUpdate(RequestContext ctx, ResourceState state, Responder responder) throws Exception {
-        // no reason to reject reading the body
+        // no reason to reject reading the body - have it streamed straight into chunks as it arrives
+        if (state instanceof LazyResourceState) {
+            ((LazyResourceState) state).contentSink(new GridFSUpload(getUserspace().getChunksCollection(), GridFS.DEFAULT_CHUNKSIZE));
+        }
         return true;
     }
 
@@ -100,7 +130,23 @@ public class GridFSBlobResource extends GridFSResource implements BlockingResour
         boolean isNew = blob.getId() == null;
 
         LazyResourceState request = (LazyResourceState) state;
-        if (request.hasBigContent()) {
+        if (request.contentSink() instanceof GridFSUpload) {
+            GridFSUpload upload = (GridFSUpload) request.contentSink();
+            if (upload.isComplete()) {
+                try {
+                    GridFSFilesPathItemResource response = pushUploadToDB(ctx, request.getContentType(), blob, upload);
+                    if (isNew) {
+                        responder.resourceCreated(response);
+                    } else {
+                        responder.resourceUpdated(response);
+                    }
+                } catch (Exception e) {
+                    responder.internalError(e);
+                }
+            } else {
+                responder.internalError("Upload failed: " + upload);
+            }
+        } else if (request.hasBigContent()) {
             File tmpFile = request.contentAsFile();
             if (tmpFile != null) {
                 try {
@@ -191,8 +237,78 @@ public class GridFSBlobResource extends GridFSResource implements BlockingResour
                 getFilesRoot(), oid, new GridFSDBObject(blob), GridFSResourcePath.fromContext(ctx));
     }
 
+    /**
+     * Save the file info for content already written to the chunks collection by an upload.
+     *
+     * <p>The chunks of a blob being replaced are only moved aside while the uploaded ones take their place, and
+     * are removed once the file info has been replaced - if that fails, they are moved back.</p>
+     */
+    private GridFSFilesPathItemResource pushUploadToDB(RequestContext ctx, MediaType contentType, GridFSDBObject fileInfo, GridFSUpload upload) {
+        ObjectId currentId = fileInfo.getId();
+        boolean fileExists = currentId != null;
+
+        DBCollection chunks = getUserspace().getChunksCollection();
+        ObjectId id = upload.id();
+        ObjectId aside = null;
+        try {
+            if (fileExists) {
+                // a shorter time gap than in pushToDB() - the content is already in, and the file info stays
+                aside = new ObjectId();
+                moveChunks(chunks, currentId, aside);
+                upload.moveTo(currentId);
+                id = currentId;
+            }
+
+            BasicDBObject blob = new BasicDBObject("_id", id)
+                    .append("filename", fileInfo().getString("filename"))
+                    .append("contentType", contentType != null ? contentType.toString() : "application/octet-stream")
+                    .append("length", upload.length())
+                    .append("chunkSize", upload.chunkSize())
+                    .append("uploadDate", new Date())
+                    .append("md5", upload.md5())
+                    .append("parent", fileInfo().getParentId());
+            // replaces the file info of an existing blob in one go
+            getUserspace().getFilesCollection().save(blob);
+
+            if (aside != null) {
+                try {
+                    chunks.remove(new BasicDBObject("files_id", aside));
+                } catch (RuntimeException e) {
+                    log.debug("Failed to remove replaced content of blob: " + currentId, e);
+                }
+            }
+
+            return new GridFSFilesPathItemResource(ctx,
+                    getFilesRoot(), id.toString(), new GridFSDBObject(blob), GridFSResourcePath.fromContext(ctx));
+        } catch (RuntimeException e) {
+            // don't leave chunks behind that no files entry refers to, and put back those of the blob being replaced
+            try {
+                upload.abort();
+            } catch (RuntimeException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            if (aside != null) {
+                try {
+                    moveChunks(chunks, aside, currentId);
+                } catch (RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static void moveChunks(DBCollection chunks, ObjectId from, ObjectId to) {
+        chunks.update(new BasicDBObject("files_id", from),
+                new BasicDBObject("$set", new BasicDBObject("files_id", to)), false, true);
+    }
+
     @Override
     public String toString() {
         return "[GridFSBlobResource: id=" + this.id() + ", path=" + path() + "]";
     }
+
+    private static final int CHUNK_BATCH_SIZE = 4;
+
+    private static final Logger log = Logger.getLogger(GridFSBlobResource.class);
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.mongo.gridfs;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import io.liveoak.spi.resource.async.BinaryContentSink;
+import io.netty.buffer.ByteBuf;
+import org.bson.types.ObjectId;
+
+/**
+ * Content of a blob being uploaded, written to the chunks collection a chunk at a time as it arrives.
+ *
+ * <p>Chunks are written under an id of their own, so that the blob being replaced stays intact until the upload
+ * is complete. Only a single chunk is ever held in memory, whatever the size of the upload.</p>
+ */
+public class GridFSUpload implements BinaryContentSink {
+
+    private final DBCollection chunks;
+    private final ObjectId id = new ObjectId();
+    private final byte[] chunk;
+    private final MessageDigest md5;
+
+    private int position;
+    private int n;
+    private long length;
+    private String digest;
+    private boolean closed;
+    private volatile boolean aborted;
+    private volatile ObjectId target;
+
+    public GridFSUpload(DBCollection chunks, int chunkSize) {
+        this.chunks = chunks;
+        this.chunk = new byte[chunkSize];
+        try {
+            this.md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void accept(ByteBuf content) {
+        try {
+            if (aborted) {
+                return;
+            }
+            while (content.isReadable()) {
+                int len = Math.min(content.readableBytes(), chunk.length - position);
+                content.readBytes(chunk, position, len);
+                md5.update(chunk, position, len);
+                position += len;
+                length += len;
+                if (position == chunk.length) {
+                    writeChunk();
+                }
+            }
+        } finally {
+            content.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!aborted && !closed) {
+            if (position > 0) {
+                writeChunk();
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md5.digest()) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            digest = sb.toString();
+            closed = true;
+        }
+    }
+
+    /**
+     * Remove whatever has been written so far, including chunks already moved over to the target blob.
+     */
+    @Override
+    public void abort() {
+        aborted = true;
+        chunks.remove(new BasicDBObject("files_id", id));
+        if (target != null) {
+            chunks.remove(new BasicDBObject("files_id", target));
+        }
+    }
+
+    private void writeChunk() {
+        // the chunk is encoded before insert() returns, so a full one can be passed as is
+        byte[] data = position == chunk.length ? chunk : Arrays.copyOf(chunk, position);
+        chunks.insert(new BasicDBObject("files_id", id)
+                .append("n", n++)
+                .append("data", data));
+        position = 0;
+    }
+
+    /**
+     * Move the uploaded chunks over to the blob with the given id, once the upload is complete.
+     */
+    void moveTo(ObjectId target) {
+        this.target = target;
+        chunks.update(new BasicDBObject("files_id", id),
+                new BasicDBObject("$set", new BasicDBObject("files_id", target)), false, true);
+    }
+
+    public ObjectId id() {
+        return id;
+    }
+
+    public boolean isComplete() {
+        return closed && !aborted;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public int chunkSize() {
+        return chunk.length;
+    }
+
+    /**
+     * @return Hex encoded MD5 hash of the content, once the upload is complete
+     */
+    public String md5() {
+        return digest;
+    }
+
+    @Override
+    public String toString() {
+        return "[GridFSUpload: id=" + id + ", length=" + length + ", chunks=" + n + "]";
+    }
+}
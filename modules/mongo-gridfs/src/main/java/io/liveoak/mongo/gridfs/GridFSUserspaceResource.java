@@ -76,6 +76,10 @@ public class GridFSUserspaceResource extends GridFSDirectoryResource {
         return getRoot().getDB().getCollection(id() + ".files");
     }
 
+    public DBCollection getChunksCollection() {
+        return getRoot().getDB().getCollection(id() + ".chunks");
+    }
+
 
     public GridFS getGridFS() {
         return new GridFS(getRoot().getDB(), id());
@@ -361,4 +361,58 @@ public class HttpGridFSHugeBlobTest extends AbstractGridFSTestCase {
             httpClient.close();
         }
     }
+
+    /**
+     * Test reading byte ranges of a blob spanning several chunks
+     */
+    @Test
+    public void testReadHugeBlobRange() throws Exception {
+
+        try {
+            int size = 1024 * 1024;
+            String pathUrl = USER_ROOT_URL + "/vacation/venus_2040/sunset.jpg";
+            putBlob(pathUrl, new SampleInputStream(size), size, true);
+
+            // across the boundary between the first two chunks
+            long first = 256 * 1024 - 6;
+            long last = first + 11;
+            HttpGet get = new HttpGet(pathUrl);
+            try {
+                get.setHeader(HttpHeaders.Names.ACCEPT, ALL);
+                get.setHeader(HttpHeaders.Names.RANGE, "bytes=" + first + "-" + last);
+                CloseableHttpResponse result = httpClient.execute(get);
+
+                assertThat(result.getStatusLine().getStatusCode()).isEqualTo(206);
+                assertThat(result.getFirstHeader(HttpHeaders.Names.CONTENT_RANGE).getValue()).isEqualTo("bytes " + first + "-" + last + "/" + size);
+
+                StringBuilder expected = new StringBuilder();
+                for (long i = first; i <= last; i++) {
+                    expected.append((char) ('0' + i % 10));
+                }
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                result.getEntity().writeTo(baos);
+                assertThat(new String(baos.toByteArray())).isEqualTo(expected.toString());
+            } finally {
+                get.releaseConnection();
+            }
+
+            // the tail of the last chunk
+            get = new HttpGet(pathUrl);
+            try {
+                get.setHeader(HttpHeaders.Names.ACCEPT, ALL);
+                get.setHeader(HttpHeaders.Names.RANGE, "bytes=-5");
+                CloseableHttpResponse result = httpClient.execute(get);
+
+                assertThat(result.getStatusLine().getStatusCode()).isEqualTo(206);
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                result.getEntity().writeTo(baos);
+                assertThat(new String(baos.toByteArray())).isEqualTo("12345");
+            } finally {
+                get.releaseConnection();
+            }
+
+        } finally {
+            httpClient.close();
+        }
+    }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.mongo;
+
+/**
+ * How the total number of documents matching a collection query is determined.
+ *
+ * <p>Chosen per request with the 'count' parameter, defaulting to the 'count' property of the resource configuration.</p>
+ */
+public enum CountMode {
+
+    /**
+     * Don't count, only find out whether there are more documents after the requested page.
+     */
+    NONE,
+
+    /**
+     * Number of documents in the whole collection, which is known without running the query.
+     */
+    ESTIMATED,
+
+    /**
+     * Run the count query, concurrently with fetching the first documents of the page.
+     */
+    EXACT,
+
+    /**
+     * Run the count query, remembering the result for repeated identical queries for a while.
+     */
+    CACHED;
+
+    public static final String PARAMETER = "count";
+
+    /**
+     * @return The mode, or null if the name is null.
+     * @throws IllegalArgumentException If there is no such mode.
+     */
+    public static CountMode forName(String name) {
+        if (name == null) {
+            return null;
+        }
+        return valueOf(name.trim().toUpperCase());
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase();
+    }
+}
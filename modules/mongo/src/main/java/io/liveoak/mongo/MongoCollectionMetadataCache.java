@@ -0,0 +1,274 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.mongo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * Names and options of the collections of a database, so that looking up a collection doesn't cost a round trip
+ * listing all of them.
+ *
+ * <p>Changes made through LiveOak are applied to the cache as they happen. Changes made to the database by anyone else
+ * are picked up when the cache is re-validated, which happens once the revalidation interval since the last load has passed,
+ * or right away if the database the cache is for has been reconfigured.</p>
+ *
+ * <p>Lookups are answered from an immutable snapshot, which is replaced as a whole whenever it changes, so they never
+ * wait for another thread talking to the database.</p>
+ */
+public class MongoCollectionMetadataCache {
+
+    public static final String REVALIDATE_INTERVAL_PROPERTY = "liveoak.mongo.metadata.revalidate-interval";
+    public static final long DEFAULT_REVALIDATE_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+    public MongoCollectionMetadataCache(Supplier<DB> db) {
+        this(db, Long.getLong(REVALIDATE_INTERVAL_PROPERTY, DEFAULT_REVALIDATE_INTERVAL));
+    }
+
+    /**
+     * @param revalidateInterval Milliseconds after which the metadata is loaded again, 0 to load it on every access.
+     */
+    public MongoCollectionMetadataCache(Supplier<DB> db, long revalidateInterval) {
+        this.db = db;
+        this.revalidateInterval = revalidateInterval;
+    }
+
+    public boolean exists(String name) {
+        return snapshot().names.contains(name);
+    }
+
+    /**
+     * @return Names of all the collections, sorted.
+     */
+    public List<String> names() {
+        return Collections.unmodifiableList(new ArrayList<>(snapshot().names));
+    }
+
+    /**
+     * @return The metadata of the collection, or null if it doesn't exist.
+     */
+    public Metadata metadata(String name) {
+        Snapshot snapshot = snapshot();
+        if (!snapshot.names.contains(name)) {
+            return null;
+        }
+
+        Metadata metadata = snapshot.metadata.get(name);
+        if (metadata != null) {
+            avoided.addAndGet(2);
+            return metadata;
+        }
+
+        DBCollection collection = snapshot.db.getCollection(name);
+        boolean capped = collection.isCapped();
+        DBObject namespace = snapshot.db.getCollection("system").getCollection("namespaces").findOne(new BasicDBObject("name", collection.getFullName()));
+        roundTrips.addAndGet(2);
+
+        DBObject options = namespace != null ? (DBObject) namespace.get("options") : null;
+        metadata = new Metadata(capped, options);
+        Metadata existing = snapshot.metadata.putIfAbsent(name, metadata);
+        return existing != null ? existing : metadata;
+    }
+
+    public synchronized void created(String name) {
+        this.changes++;
+        Snapshot snapshot = this.snapshot;
+        if (snapshot != null) {
+            TreeSet<String> names = new TreeSet<>(snapshot.names);
+            names.add(name);
+            Map<String, Metadata> metadata = new ConcurrentHashMap<>(snapshot.metadata);
+            metadata.remove(name);
+            this.snapshot = new Snapshot(snapshot.db, snapshot.loaded, names, metadata);
+        }
+    }
+
+    public synchronized void dropped(String name) {
+        this.changes++;
+        Snapshot snapshot = this.snapshot;
+        if (snapshot != null) {
+            TreeSet<String> names = new TreeSet<>(snapshot.names);
+            names.remove(name);
+            Map<String, Metadata> metadata = new ConcurrentHashMap<>(snapshot.metadata);
+            metadata.remove(name);
+            this.snapshot = new Snapshot(snapshot.db, snapshot.loaded, names, metadata);
+        }
+    }
+
+    public synchronized void renamed(String from, String to) {
+        this.changes++;
+        Snapshot snapshot = this.snapshot;
+        if (snapshot != null) {
+            TreeSet<String> names = new TreeSet<>(snapshot.names);
+            names.remove(from);
+            names.add(to);
+            Map<String, Metadata> metadata = new ConcurrentHashMap<>(snapshot.metadata);
+            Metadata moved = metadata.remove(from);
+            metadata.remove(to);
+            if (moved != null) {
+                metadata.put(to, moved);
+            }
+            this.snapshot = new Snapshot(snapshot.db, snapshot.loaded, names, metadata);
+        }
+    }
+
+    /**
+     * Drop everything, so that the next access loads the metadata from the database.
+     */
+    public synchronized void invalidate() {
+        this.changes++;
+        this.snapshot = null;
+    }
+
+    /**
+     * @return Number of metadata round trips to the database.
+     */
+    public long roundTrips() {
+        return roundTrips.get();
+    }
+
+    /**
+     * @return Number of metadata round trips to the database which were avoided by answering from the cache.
+     */
+    public long avoided() {
+        return avoided.get();
+    }
+
+    @Override
+    public String toString() {
+        return "[MongoCollectionMetadataCache: roundTrips=" + roundTrips() + ", avoided=" + avoided() + "]";
+    }
+
+    /**
+     * @return Names of the collections in the database, as loaded by each revalidation.
+     */
+    Collection<String> loadNames(DB db) {
+        // getCollectionNames() already returns the names sorted
+        return db.getCollectionNames();
+    }
+
+    /**
+     * The current snapshot, loaded first if there is none or it is for a database that has since been reconfigured.
+     *
+     * <p>An expired snapshot is revalidated by one caller, the others keep being answered from it in the meantime.
+     * No lock is held while talking to the database.</p>
+     */
+    private Snapshot snapshot() {
+        DB db = this.db.get();
+        Snapshot snapshot = this.snapshot;
+        if (snapshot != null && snapshot.db == db) {
+            if (System.currentTimeMillis() - snapshot.loaded < this.revalidateInterval || !this.loading.compareAndSet(false, true)) {
+                avoided.incrementAndGet();
+                return snapshot;
+            }
+            try {
+                return load(db);
+            } finally {
+                this.loading.set(false);
+            }
+        }
+        return load(db);
+    }
+
+    private Snapshot load(DB db) {
+        long changes;
+        synchronized (this) {
+            changes = this.changes;
+        }
+
+        long now = System.currentTimeMillis();
+        Snapshot loaded = new Snapshot(db, now, new TreeSet<>(loadNames(db)), new ConcurrentHashMap<>());
+        roundTrips.incrementAndGet();
+
+        synchronized (this) {
+            // a change applied while loading may not be in what was loaded, so leave it to the next access
+            if (changes == this.changes) {
+                this.snapshot = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    private static class Snapshot {
+
+        Snapshot(DB db, long loaded, TreeSet<String> names, Map<String, Metadata> metadata) {
+            this.db = db;
+            this.loaded = loaded;
+            this.names = Collections.unmodifiableSortedSet(names);
+            this.metadata = metadata;
+        }
+
+        final DB db;
+        final long loaded;
+        final SortedSet<String> names;
+        final Map<String, Metadata> metadata;
+    }
+
+    public static class Metadata {
+
+        Metadata(boolean capped, DBObject options) {
+            this.capped = capped;
+            this.options = options != null;
+            this.size = options != null ? options.get("size") : null;
+            this.max = options != null ? options.get("max") : null;
+        }
+
+        public boolean capped() {
+            return this.capped;
+        }
+
+        /**
+         * @return true if the collection was created with options.
+         */
+        public boolean hasOptions() {
+            return this.options;
+        }
+
+        /**
+         * @return Size limit of a capped collection, as stored in the collection options, or null if none.
+         */
+        public Object size() {
+            return this.size;
+        }
+
+        /**
+         * @return Document limit of a capped collection, as stored in the collection options, or null if none.
+         */
+        public Object max() {
+            return this.max;
+        }
+
+        private final boolean capped;
+        private final boolean options;
+        private final Object size;
+        private final Object max;
+    }
+
+    private final Supplier<DB> db;
+    private final long revalidateInterval;
+
+    private volatile Snapshot snapshot;
+    // number of changes applied, guarded by this
+    private long changes;
+    private final AtomicBoolean loading = new AtomicBoolean();
+
+    private final AtomicLong roundTrips = new AtomicLong();
+    private final AtomicLong avoided = new AtomicLong();
+}
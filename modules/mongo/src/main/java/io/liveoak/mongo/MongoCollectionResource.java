@@ -5,18 +5,24 @@
  */
 package io.liveoak.mongo;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
 
+import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
 import com.mongodb.util.JSON;
+import io.liveoak.common.util.ContinuationToken;
 import io.liveoak.common.util.PagingLinksBuilder;
 import io.liveoak.spi.LiveOak;
 import io.liveoak.spi.Pagination;
@@ -27,6 +33,7 @@ import io.liveoak.spi.Sorting;
 import io.liveoak.spi.exceptions.NotAcceptableException;
 import io.liveoak.spi.exceptions.ResourceProcessingException;
 import io.liveoak.spi.resource.async.Resource;
+import io.liveoak.spi.resource.async.ResourceSink;
 import io.liveoak.spi.resource.async.Responder;
 import io.liveoak.spi.state.ResourceState;
 
@@ -40,6 +47,11 @@ public class MongoCollectionResource extends MongoResource {
 
     private boolean explainQuery;
     private DBObject queryObject;
+    private DBObject pageQuery;
+    private List<DBObject> prefetched;
+
+    // largest page fetched while counting
+    private static final int PREFETCH_LIMIT = Pagination.DEFAULT_LIMIT;
 
     MongoCollectionResource(RootMongoResource parent, DBCollection collection) {
         super(parent);
@@ -74,12 +86,15 @@ public class MongoCollectionResource extends MongoResource {
     @Override
     public void delete(RequestContext ctx, Responder responder) {
         getDBCollection().drop();
+        root().metadataCache().dropped(id());
+        root().countCache().invalidate(id());
         responder.resourceDeleted(this);
     }
 
     protected WriteResult deleteChild(RequestContext ctx, String childId) {
         WriteResult wResult = null;
         wResult = getDBCollection().remove(getMongoIDDBOBject(childId));
+        root().countCache().invalidate(id());
         return wResult;
     }
 
@@ -87,6 +102,8 @@ public class MongoCollectionResource extends MongoResource {
         if (child instanceof DBObject) {
             DBObject childObject = (DBObject) child;
             WriteResult wResult = dbCollection.update(getMongoIDDBOBject(childId), childObject);
+            // an update can change which documents a query matches
+            root().countCache().invalidate(id());
             return wResult;
         } else {
             throw new RuntimeException("ERROR"); // TODO: fix this
@@ -113,6 +130,13 @@ public class MongoCollectionResource extends MongoResource {
                 && resourceParams.contains("explain")
                 && resourceParams.value("explain").equalsIgnoreCase("true");
 
+        // with a continuation token the page starts right after the position it stands for
+        pageQuery = queryObject;
+        String cursor = ctx.pagination().cursor();
+        if (cursor != null && !explainQuery) {
+            pageQuery = keysetQuery(ctx, cursor);
+        }
+
         DBObject returnFields = new BasicDBObject();
         if (ctx.returnFields() != null && !ctx.returnFields().isAll()) {
             ctx.returnFields().forEach((fieldName) -> {
@@ -120,43 +144,177 @@ public class MongoCollectionResource extends MongoResource {
             });
         }
 
-        int totalCount = explainQuery ? 1 : (int) dbCollection.getCount(queryObject, returnFields);
-        int count = ctx.pagination().offset() >= totalCount ? 0 : totalCount - ctx.pagination().offset();
-        count = count < ctx.pagination().limit() ? count : ctx.pagination().limit();
+        Count counted;
+        if (explainQuery) {
+            counted = new Count();
+            counted.total = 1;
+        } else {
+            CountMode countMode = countMode(ctx);
+            FutureTask<Count> counting = new FutureTask<>(() -> count(countMode, ctx.pagination(), returnFields));
+            root().executor().execute(counting);
+
+            // meanwhile fetch a page of usual size, which the members are read from later -
+            // into memory, so that no cursor is left open should the members not be read after all
+            if (ctx.returnFields() != null && ctx.returnFields().included(LiveOak.MEMBERS)
+                    && ctx.pagination().limit() > 0 && ctx.pagination().limit() <= PREFETCH_LIMIT) {
+                try {
+                    this.prefetched = prefetch(ctx);
+                } catch (Exception e) {
+                    counting.cancel(false);
+                    throw e;
+                }
+            }
 
-        List<Resource> links = new LinkedList<>();
+            // count right here, unless the worker pool has got to it already
+            counting.run();
+            try {
+                counted = counting.get();
+            } catch (ExecutionException e) {
+                this.prefetched = null;
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        }
 
         PagingLinksBuilder linksBuilder = new PagingLinksBuilder(ctx)
-                .uri(uri())
-                .count(count)
-                .totalCount(totalCount);
+                .uri(uri());
+        if (cursor != null && !explainQuery) {
+            linksBuilder.nextCursor(nextCursor(ctx));
+        }
 
+        Map<String, Object> result = new HashMap<>();
+        if (counted.total >= 0) {
+            int totalCount = (int) counted.total;
+            int count = ctx.pagination().offset() >= totalCount ? 0 : totalCount - ctx.pagination().offset();
+            count = count < ctx.pagination().limit() ? count : ctx.pagination().limit();
+            linksBuilder.count(count)
+                    .totalCount(totalCount);
+            result.put("count", (long) totalCount);
+        } else {
+            linksBuilder.count(counted.page)
+                    .hasNext(counted.hasNext);
+            if (counted.estimated >= 0) {
+                result.put("estimatedCount", counted.estimated);
+            }
+        }
+
+        List<Resource> links = new LinkedList<>();
         links.addAll(linksBuilder.build());
 
-        Map<String, Object> result = new HashMap<>();
         if (links.size() > 0) {
             result.put("links", links);
         }
         result.put("type", "collection");
-        result.put("count", (long) totalCount);
-        result.put("capped", dbCollection.isCapped());
-
-        DBObject collectionDBObject = getDBCollection().getDB().getCollection( "system" ).getCollection( "namespaces" ).findOne( new BasicDBObject ( "name", this.getDBCollection().getFullName()));
 
-        if (collectionDBObject != null && collectionDBObject.get("options") != null) {
-            DBObject collectionOptions = (DBObject) collectionDBObject.get( "options" );
-            result.put("max", collectionOptions.get( "max" ));
-            result.put("size", collectionOptions.get("size"));
+        MongoCollectionMetadataCache.Metadata metadata = root().metadataCache().metadata(id());
+        if (metadata != null) {
+            result.put("capped", metadata.capped());
+            if (metadata.hasOptions()) {
+                result.put("max", metadata.max());
+                result.put("size", metadata.size());
+            }
+        } else {
+            result.put("capped", false);
         }
 
         return result;
     }
 
+    protected CountMode countMode(RequestContext ctx) throws Exception {
+        ResourceParams resourceParams = ctx.resourceParams();
+        if (resourceParams != null && resourceParams.contains(CountMode.PARAMETER)) {
+            try {
+                return CountMode.forName(resourceParams.value(CountMode.PARAMETER));
+            } catch (IllegalArgumentException e) {
+                throw new NotAcceptableException(uri().toString(), "Invalid value for the 'count' parameter. Supported are none, estimated, exact and cached.", e);
+            }
+        }
+        return root().countMode();
+    }
+
+    protected Count count(CountMode countMode, Pagination pagination, DBObject returnFields) {
+        Count count = new Count();
+        switch (countMode) {
+            case EXACT:
+                count.total = dbCollection.getCount(queryObject, returnFields);
+                break;
+            case CACHED:
+                String query = JSON.serialize(queryObject);
+                count.total = root().countCache().get(id(), query);
+                if (count.total < 0) {
+                    count.total = dbCollection.getCount(queryObject, returnFields);
+                    root().countCache().put(id(), query, count.total);
+                }
+                break;
+            case ESTIMATED:
+                // the server keeps track of the number of documents in a collection, counting them all doesn't run a query
+                count.estimated = dbCollection.getCount();
+                if (queryObject.keySet().isEmpty()) {
+                    count.total = count.estimated;
+                    break;
+                }
+                // fall through to find out about the page
+            case NONE:
+                // count no further than one document past the page, to know if there is a next one
+                DBCursor probe = dbCollection.find(pageQuery).skip(pagination.offset());
+                if (pagination.limit() > 0) {
+                    probe.limit(pagination.limit() + 1);
+                }
+                int probed = probe.size();
+                count.page = pagination.limit() > 0 && probed > pagination.limit() ? pagination.limit() : probed;
+                count.hasNext = pagination.limit() > 0 && probed > pagination.limit();
+                break;
+        }
+        return count;
+    }
+
     @Override
     public Collection<Resource> members(RequestContext ctx) throws Exception {
-
         LinkedList<Resource> members = new LinkedList<>();
+        forEachMember(ctx, members::add);
+        return members;
+    }
+
+    @Override
+    public void readMembers(RequestContext ctx, ResourceSink sink) throws Exception {
+        // hand each document to the sink as it comes off the cursor, so encoding can start before the page is fetched
+        try {
+            forEachMember(ctx, sink);
+        } catch (Throwable e) {
+            sink.error(e);
+        } finally {
+            sink.complete();
+        }
+    }
+
+    protected void forEachMember(RequestContext ctx, Consumer<Resource> consumer) throws Exception {
+        if (explainQuery) {
+            consumer.accept(new MongoEmbeddedObjectResource(this, createCursor(ctx).explain()));
+            return;
+        }
+
+        List<DBObject> prefetched = this.prefetched;
+        if (prefetched != null) {
+            this.prefetched = null;
+            for (DBObject each : prefetched) {
+                consumer.accept(new MongoBaseObjectResource(this, each));
+            }
+            return;
+        }
+
+        DBCursor dbCursor = openCursor(ctx);
+        try {
+            while (dbCursor.hasNext()) {
+                consumer.accept(new MongoBaseObjectResource(this, dbCursor.next()));
+            }
+        } finally {
+            dbCursor.close();
+        }
+    }
 
+    protected DBCursor createCursor(RequestContext ctx) throws Exception {
         DBObject returnFields = new BasicDBObject();
         if (ctx.returnFields() != null && !ctx.returnFields().child(LiveOak.MEMBERS).isEmpty()) {
             ReturnFields membersReturnFields = ctx.returnFields().child(LiveOak.MEMBERS);
@@ -167,7 +325,7 @@ public class MongoCollectionResource extends MongoResource {
             }
         }
 
-        DBCursor dbCursor = dbCollection.find(queryObject, returnFields);
+        DBCursor dbCursor = dbCollection.find(pageQuery, returnFields);
 
         ResourceParams resourceParams = ctx.resourceParams();
         if (resourceParams != null && resourceParams.contains("hint")) {
@@ -183,37 +341,49 @@ public class MongoCollectionResource extends MongoResource {
                 dbCursor.hint(hint);
             }
         }
+        return dbCursor;
+    }
 
-        if (explainQuery) {
-            members.add(new MongoEmbeddedObjectResource(this, dbCursor.explain()));
-        } else {
-            Sorting sorting = ctx.sorting();
-            if (sorting != null) {
-                BasicDBObject sortingObject = new BasicDBObject();
-                for (Sorting.Spec spec : sorting) {
-                    sortingObject.append(spec.name(), spec.ascending() ? 1 : -1);
-                }
-                dbCursor = dbCursor.sort(sortingObject);
+    /**
+     * @return The members of the requested page, fetched with the cursor closed afterwards.
+     */
+    protected List<DBObject> prefetch(RequestContext ctx) throws Exception {
+        DBCursor dbCursor = openCursor(ctx);
+        try {
+            List<DBObject> documents = new ArrayList<>();
+            while (dbCursor.hasNext()) {
+                documents.add(dbCursor.next());
             }
+            return documents;
+        } finally {
+            dbCursor.close();
+        }
+    }
 
-            Pagination pagination = ctx.pagination();
-            if (pagination != null) {
-                dbCursor.limit(pagination.limit());
-                dbCursor.skip(pagination.offset());
-            }
+    /**
+     * @return The cursor over the members of the requested page, with the first batch of them fetched.
+     */
+    protected DBCursor openCursor(RequestContext ctx) throws Exception {
+        DBCursor dbCursor = createCursor(ctx);
 
-            try {
-                dbCursor.hasNext();
-            } catch (Exception e) {
-                throw new ResourceProcessingException("Exception encountered trying to fetch data from the Mongo Database", e);
-            }
+        DBObject sortingObject = sortingObject(ctx);
+        if (!sortingObject.keySet().isEmpty()) {
+            dbCursor = dbCursor.sort(sortingObject);
+        }
 
-            dbCursor.forEach((dbObject) -> {
-                members.add(new MongoBaseObjectResource(this, dbObject));
-            });
+        Pagination pagination = ctx.pagination();
+        if (pagination != null) {
+            dbCursor.limit(pagination.limit());
+            dbCursor.skip(pagination.offset());
         }
 
-        return members;
+        try {
+            dbCursor.hasNext();
+        } catch (Exception e) {
+            dbCursor.close();
+            throw new ResourceProcessingException("Exception encountered trying to fetch data from the Mongo Database", e);
+        }
+        return dbCursor;
     }
 
     @Override
@@ -229,6 +399,7 @@ public class MongoCollectionResource extends MongoResource {
                 }
             }
             WriteResult wResult = getDBCollection().insert(basicDBObject);
+            root().countCache().invalidate(id());
         } catch (Exception e) {
             logger().error("", e);
         }
@@ -249,12 +420,15 @@ public class MongoCollectionResource extends MongoResource {
             // if the current state id does not match the current id, then rename the collection.
             if ( state.id()!= null && !state.id().equals( this.id() ) ) {
                 // if there already exists a collection by this name, then throw an error
-                if ( getDBCollection().getDB().collectionExists( state.id() ) ) {
+                if ( root().metadataCache().exists( state.id() ) ) {
                     responder.resourceAlreadyExists( state.id() );
                     return;
                 }
 
+                String previousId = this.id();
                 this.dbCollection = getDBCollection().rename( state.id() );
+                root().metadataCache().renamed( previousId, state.id() );
+                root().countCache().invalidate( previousId );
             }
 
             responder.resourceUpdated( this );
@@ -272,10 +446,126 @@ public class MongoCollectionResource extends MongoResource {
 
     protected DBCollection getDBCollection() {
         if (dbCollection == null) {
-            this.dbCollection = ((RootMongoResource) parent()).db().getCollection(collectionName);
+            this.dbCollection = root().db().getCollection(collectionName);
         }
 
         return this.dbCollection;
    }
 
+    protected RootMongoResource root() {
+        return (RootMongoResource) parent();
+    }
+
+
+    /**
+     * @return The sort fields, followed by the id to tell apart documents equal in all of them when paging
+     * with continuation tokens.
+     */
+    protected List<Sorting.Spec> sortingSpecs(RequestContext ctx) {
+        List<Sorting.Spec> specs = new ArrayList<>();
+        if (ctx.sorting() != null) {
+            ctx.sorting().forEach(specs::add);
+        }
+        if (ctx.pagination().cursor() != null && specs.stream().noneMatch((spec) -> spec.name().equals(MONGO_ID_FIELD))) {
+            specs.add(new Sorting.Spec(MONGO_ID_FIELD, true));
+        }
+        return specs;
+    }
+
+    protected DBObject sortingObject(RequestContext ctx) {
+        BasicDBObject sortingObject = new BasicDBObject();
+        for (Sorting.Spec spec : sortingSpecs(ctx)) {
+            sortingObject.append(spec.name(), spec.ascending() ? 1 : -1);
+        }
+        return sortingObject;
+    }
+
+    /**
+     * @return The query restricted to the documents following the position the continuation token stands for.
+     * Documents missing any of the sort fields can't be compared to the position, so they are left out of the following pages.
+     */
+    protected DBObject keysetQuery(RequestContext ctx, String cursor) throws Exception {
+        List<Sorting.Spec> specs = sortingSpecs(ctx);
+        BasicDBList position;
+        try {
+            String serialized = ContinuationToken.decode(cursor, ctx.sorting());
+            if (serialized == null) {
+                return queryObject;
+            }
+            position = (BasicDBList) JSON.parse(serialized);
+        } catch (Exception e) {
+            throw new NotAcceptableException(uri().toString(), "Invalid value for the 'cursor' parameter", e);
+        }
+        if (position.size() != specs.size()) {
+            throw new NotAcceptableException(uri().toString(), "Invalid value for the 'cursor' parameter");
+        }
+
+        // after the position means past it in the first sort field, or equal in it and past it in the second one, and so on
+        BasicDBList following = new BasicDBList();
+        for (int i = 0; i < specs.size(); ++i) {
+            BasicDBObject clause = new BasicDBObject();
+            for (int j = 0; j < i; ++j) {
+                clause.append(specs.get(j).name(), position.get(j));
+            }
+            clause.append(specs.get(i).name(), new BasicDBObject(specs.get(i).ascending() ? "$gt" : "$lt", position.get(i)));
+            following.add(clause);
+        }
+
+        BasicDBObject range = new BasicDBObject("$or", following);
+        if (queryObject.keySet().isEmpty()) {
+            return range;
+        }
+        BasicDBList both = new BasicDBList();
+        both.add(queryObject);
+        both.add(range);
+        return new BasicDBObject("$and", both);
+    }
+
+    /**
+     * @return The continuation token for the page following the requested one, or null if there are no more documents.
+     */
+    protected String nextCursor(RequestContext ctx) {
+        int limit = ctx.pagination().limit();
+        if (limit <= 0) {
+            return null;
+        }
+
+        List<Sorting.Spec> specs = sortingSpecs(ctx);
+        DBObject fields = new BasicDBObject();
+        specs.forEach((spec) -> fields.put(spec.name(), 1));
+
+        // the last document of the page, and the first one of the next page if there is one
+        List<DBObject> last = dbCollection.find(pageQuery, fields).sort(sortingObject(ctx)).skip(limit - 1).limit(2).toArray();
+        if (last.size() < 2) {
+            return null;
+        }
+
+        BasicDBList position = new BasicDBList();
+        for (Sorting.Spec spec : specs) {
+            position.add(fieldValue(last.get(0), spec.name()));
+        }
+        return ContinuationToken.encode(ctx.sorting(), JSON.serialize(position));
+    }
+
+    private static Object fieldValue(DBObject object, String path) {
+        Object value = object;
+        for (String name : path.split("\\.")) {
+            if (!(value instanceof DBObject)) {
+                return null;
+            }
+            value = ((DBObject) value).get(name);
+        }
+        return value;
+    }
+
+    /**
+     * What is known about the number of documents matching the query, -1 meaning not known.
+     */
+    protected static class Count {
+        long total = -1;
+        long estimated = -1;
+        int page;
+        boolean hasNext;
+    }
+
 }
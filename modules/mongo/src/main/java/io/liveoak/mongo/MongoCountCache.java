@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.mongo;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Results of count queries, for {@link CountMode#CACHED}.
+ *
+ * <p>Counts of a collection are dropped whenever its documents are changed through LiveOak, and expire after a while
+ * to pick up changes made by anyone else.</p>
+ */
+public class MongoCountCache {
+
+    public static final String TTL_PROPERTY = "liveoak.mongo.count-cache.ttl";
+    public static final long DEFAULT_TTL = TimeUnit.SECONDS.toMillis(10);
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    public MongoCountCache() {
+        this(DEFAULT_MAX_SIZE, Long.getLong(TTL_PROPERTY, DEFAULT_TTL));
+    }
+
+    public MongoCountCache(int maxSize, long ttl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.counts = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > MongoCountCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return The count, or -1 if none is cached or it has expired.
+     */
+    public long get(String collection, String query) {
+        Key key = new Key(collection, query);
+        Entry entry;
+        synchronized (counts) {
+            entry = counts.get(key);
+            if (entry != null && entry.expires < System.currentTimeMillis()) {
+                counts.remove(key);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return -1;
+        }
+        hits.incrementAndGet();
+        return entry.count;
+    }
+
+    public void put(String collection, String query, long count) {
+        if (this.ttl <= 0) {
+            return;
+        }
+        synchronized (counts) {
+            counts.put(new Key(collection, query), new Entry(count, System.currentTimeMillis() + ttl));
+        }
+    }
+
+    /**
+     * Drop all the counts of the collection, as its documents have changed.
+     */
+    public void invalidate(String collection) {
+        synchronized (counts) {
+            Iterator<Key> keys = counts.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().collection.equals(collection)) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (counts) {
+            return counts.size();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "[MongoCountCache: size=" + size() + ", hits=" + hits() + ", misses=" + misses() + "]";
+    }
+
+    private static class Key {
+        Key(String collection, String query) {
+            this.collection = collection;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return collection.equals(that.collection) && Objects.equals(query, that.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(collection, query);
+        }
+
+        final String collection;
+        final String query;
+    }
+
+    private static class Entry {
+        Entry(long count, long expires) {
+            this.count = count;
+            this.expires = expires;
+        }
+
+        final long count;
+        final long expires;
+    }
+
+    private final int maxSize;
+    private final long ttl;
+    private final Map<Key, Entry> counts;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+}
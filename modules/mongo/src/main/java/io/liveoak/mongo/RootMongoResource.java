@@ -9,6 +9,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -35,11 +36,24 @@ public class RootMongoResource extends MongoResource implements RootResource {
     private Resource parent;
     private String id;
     private RootMongoConfigResource mongoConfigResource;
+    private MongoCollectionMetadataCache metadataCache;
+    private MongoCountCache countCache;
+    private Executor executor;
 
     public RootMongoResource(String id, RootMongoConfigResource mongoConfigResource) {
+        this(id, mongoConfigResource, Runnable::run);
+    }
+
+    /**
+     * @param executor Runs queries concurrently with the ones of the request itself, such as counts.
+     */
+    public RootMongoResource(String id, RootMongoConfigResource mongoConfigResource, Executor executor) {
         super(null);
         this.id = id;
         this.mongoConfigResource = mongoConfigResource;
+        this.metadataCache = new MongoCollectionMetadataCache(this::db);
+        this.countCache = new MongoCountCache();
+        this.executor = executor;
     }
 
     public RootMongoConfigResource configuration() {
@@ -50,6 +64,26 @@ public class RootMongoResource extends MongoResource implements RootResource {
         return mongoConfigResource.getDB();
     }
 
+    MongoCollectionMetadataCache metadataCache() {
+        return metadataCache;
+    }
+
+    MongoCountCache countCache() {
+        return countCache;
+    }
+
+    Executor executor() {
+        return executor;
+    }
+
+    /**
+     * @return The count mode for collection reads not asking for any.
+     */
+    CountMode countMode() {
+        CountMode countMode = mongoConfigResource.getCountMode();
+        return countMode != null ? countMode : CountMode.EXACT;
+    }
+
     @Override
     public Resource parent() {
         return parent;
@@ -71,7 +105,7 @@ public class RootMongoResource extends MongoResource implements RootResource {
 
     @Override
     public Resource member(RequestContext ctx, String id) {
-        if (db().collectionExists(id)) {
+        if (metadataCache.exists(id)) {
             return new MongoCollectionResource(this, db().getCollection(id));
         }
         return null;
@@ -80,7 +114,7 @@ public class RootMongoResource extends MongoResource implements RootResource {
     @Override
     public Collection<Resource> members(RequestContext ctx) {
         Pagination pagination = ctx.pagination();
-        Stream<String> members = this.db().getCollectionNames().stream().skip(pagination.offset());
+        Stream<String> members = metadataCache.names().stream().skip(pagination.offset());
         if (pagination.limit() > 0) {
             members = members.limit(pagination.limit());
         }
@@ -96,7 +130,7 @@ public class RootMongoResource extends MongoResource implements RootResource {
 
         String id = state.id();
 
-        if (id == null || !db().collectionExists(id)) {
+        if (id == null || !metadataCache.exists(id)) {
 
             if (id == null) {
                 id = UUID.randomUUID().toString();
@@ -125,6 +159,7 @@ public class RootMongoResource extends MongoResource implements RootResource {
             }
 
             DBCollection collection = db().createCollection(id, options); // send an empty DBOBject instead of null, since setting null will not actually create the collection until a write
+            metadataCache.created(id);
 
             responder.resourceCreated(new MongoCollectionResource(this, collection));
         } else {
@@ -136,7 +171,7 @@ public class RootMongoResource extends MongoResource implements RootResource {
     public Map<String, ?> properties(RequestContext ctx) {
         Map<String, Object> result = new HashMap<>();
         result.put("type", "database");
-        int count = this.db().getCollectionNames().size();
+        int count = metadataCache.names().size();
         if (count >= 1) {
             count = count - 1; // -1 due to not showing internal 'system.index' collection, which exists if another collection exists
         }
@@ -155,7 +190,7 @@ public class RootMongoResource extends MongoResource implements RootResource {
             }
 
             String collectionName = dbRef.getRef();
-            if (!db().collectionExists(collectionName)) {
+            if (!metadataCache.exists(collectionName)) {
                 throw new ResourceProcessingException("Cannot find collection specified in a reference. No collection named '" + collectionName + "' found");
             }
 
@@ -1,6 +1,9 @@
 package io.liveoak.mongo;
 
+import java.util.concurrent.Executor;
+
 import io.liveoak.mongo.config.RootMongoConfigResource;
+import org.jboss.logging.Logger;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
@@ -21,11 +24,12 @@ public class RootMongoResourceService implements Service<RootMongoResource> {
 
     @Override
     public void start(StartContext context) throws StartException {
-        this.rootMongoResource = new RootMongoResource(id, mongoConfigInjector.getValue());
+        this.rootMongoResource = new RootMongoResource(id, mongoConfigInjector.getValue(), workerPoolInjector.getValue());
     }
 
     @Override
     public void stop(StopContext context) {
+        log.debug("Stopping " + id + ": " + rootMongoResource.metadataCache() + ", " + rootMongoResource.countCache());
         rootMongoResource = null;
     }
 
@@ -35,4 +39,7 @@ public class RootMongoResourceService implements Service<RootMongoResource> {
     }
 
     public InjectedValue<RootMongoConfigResource> mongoConfigInjector = new InjectedValue<>();
+    public InjectedValue<Executor> workerPoolInjector = new InjectedValue<>();
+
+    private static final Logger log = Logger.getLogger(RootMongoResourceService.class);
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.mongodb.DB;
+import io.liveoak.mongo.CountMode;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.exceptions.PropertyException;
 import io.liveoak.spi.resource.async.Resource;
@@ -16,10 +17,12 @@ public class MongoConfig extends EmbeddedConfigResource {
 
     public static final String DATABASE = "db";
     public static final String DATASTORE = "datastore";
+    public static final String COUNT = CountMode.PARAMETER;
 
     private String databaseName;
     private String datastoreName;
     private MongoDatastoreResource dataStore;
+    private CountMode countMode;
 
     private MongoDatastoresRegistry mongoDatastoresRegistry;
 
@@ -27,11 +30,22 @@ public class MongoConfig extends EmbeddedConfigResource {
         super(parent);
         this.mongoDatastoresRegistry = mongoSystemConfigResource;
         generateDataStore(resourceState, init);
+        generateCountMode(resourceState);
     }
 
     @Override
     public void properties(RequestContext ctx, ResourceState configState) throws Exception {
         generateDataStore(configState, false);
+        generateCountMode(configState);
+    }
+
+    public void generateCountMode(ResourceState resourceState) throws Exception {
+        String count = resourceState.getProperty(COUNT, false, String.class);
+        try {
+            this.countMode = CountMode.forName(count);
+        } catch (IllegalArgumentException e) {
+            throw new PropertyException("Unknown count mode '" + count + "'. Supported are none, estimated, exact and cached.");
+        }
     }
 
     public void generateDataStore(ResourceState resourceState, Boolean init) throws Exception {
@@ -74,6 +88,10 @@ public class MongoConfig extends EmbeddedConfigResource {
 
         properties.put(DATABASE, decodeDatabaseName(this.databaseName));
 
+        if (countMode != null) {
+            properties.put(COUNT, countMode.toString());
+        }
+
         return properties;
     }
 
@@ -87,6 +105,13 @@ public class MongoConfig extends EmbeddedConfigResource {
         }
     }
 
+    /**
+     * @return The count mode for collection reads not asking for any, or null if not configured.
+     */
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
     public void close() {
         if (datastoreName == null && dataStore != null) {
             dataStore.mongoClient.close();
@@ -1,6 +1,7 @@
 package io.liveoak.mongo.config;
 
 import com.mongodb.DB;
+import io.liveoak.mongo.CountMode;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.exceptions.InitializationException;
 import io.liveoak.spi.resource.RootResource;
@@ -76,6 +77,10 @@ public class RootMongoConfigResource implements RootResource {
         return mongoConfig.getDB();
     }
 
+    public CountMode getCountMode() {
+        return mongoConfig.getCountMode();
+    }
+
     public void close() {
         mongoConfig.close();
     }
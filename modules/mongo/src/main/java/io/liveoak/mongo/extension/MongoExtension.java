@@ -1,5 +1,7 @@
 package io.liveoak.mongo.extension;
 
+import java.util.concurrent.Executor;
+
 import io.liveoak.mongo.MongoConfigResourceService;
 import io.liveoak.mongo.RootMongoResourceService;
 import io.liveoak.mongo.config.MongoDatastoreService;
@@ -50,6 +52,7 @@ public class MongoExtension implements Extension {
         RootMongoResourceService rootMongoResourceService = new RootMongoResourceService(context.resourceId());
         context.target().addService(Services.resource(context.application().id(), context.resourceId()), rootMongoResourceService)
                 .addDependency(Services.adminResource(context.application().id(), context.resourceId()), RootMongoConfigResource.class, rootMongoResourceService.mongoConfigInjector)
+                .addDependency(Services.WORKER_POOL, Executor.class, rootMongoResourceService.workerPoolInjector)
                 .install();
 
         context.mountPrivate();
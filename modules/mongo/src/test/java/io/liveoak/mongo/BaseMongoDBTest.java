@@ -39,12 +39,29 @@ public class BaseMongoDBTest extends AbstractTestCaseWithTestApp {
 
     @BeforeClass
     public static void loadExtensions() throws Exception {
+        // the tests change collections directly in the database, behind LiveOak's back
+        loadExtensions(0);
+    }
+
+    /**
+     * @param revalidateInterval Revalidation interval of the collection metadata cache of the installed resource
+     */
+    protected static void loadExtensions(long revalidateInterval) throws Exception {
         ObjectNode config = JsonNodeFactory.instance.objectNode();
         config.put("db", "MongoInteralTest_" + UUID.randomUUID());
         config.put("name", "Default Datastore");
 
-        loadExtension("mongo", new MongoExtension(), config);
-        installTestAppResource("mongo", BASEPATH, createConfig());
+        String previous = System.setProperty(MongoCollectionMetadataCache.REVALIDATE_INTERVAL_PROPERTY, String.valueOf(revalidateInterval));
+        try {
+            loadExtension("mongo", new MongoExtension(), config);
+            installTestAppResource("mongo", BASEPATH, createConfig());
+        } finally {
+            if (previous != null) {
+                System.setProperty(MongoCollectionMetadataCache.REVALIDATE_INTERVAL_PROPERTY, previous);
+            } else {
+                System.clearProperty(MongoCollectionMetadataCache.REVALIDATE_INTERVAL_PROPERTY);
+            }
+        }
     }
 
     public static ResourceState createConfig() {
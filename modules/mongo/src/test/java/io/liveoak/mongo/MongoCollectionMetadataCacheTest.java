@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.mongo;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MongoCollectionMetadataCacheTest extends BaseMongoDBTest {
+
+    @Test
+    public void testLookupsServedFromCache() throws Exception {
+        db.dropDatabase();
+        db.createCollection("cachedCollection", new BasicDBObject());
+        db.createCollection("cappedCollection", new BasicDBObject("capped", true).append("size", 1024).append("max", 5));
+
+        MongoCollectionMetadataCache cache = new MongoCollectionMetadataCache(() -> db, 60000);
+
+        assertThat(cache.exists("cachedCollection")).isTrue();
+        assertThat(cache.exists("missingCollection")).isFalse();
+        assertThat(cache.names()).contains("cachedCollection", "cappedCollection");
+        assertThat(cache.roundTrips()).isEqualTo(1);
+        assertThat(cache.avoided()).isEqualTo(2);
+
+        MongoCollectionMetadataCache.Metadata metadata = cache.metadata("cappedCollection");
+        assertThat(metadata.capped()).isTrue();
+        assertThat(metadata.max()).isEqualTo(5);
+        assertThat(cache.metadata("cappedCollection")).isSameAs(metadata);
+        assertThat(cache.metadata("cachedCollection").capped()).isFalse();
+        assertThat(cache.metadata("missingCollection")).isNull();
+
+        // changes made directly in the database aren't seen until the cache is re-validated
+        db.createCollection("externalCollection", new BasicDBObject());
+        assertThat(cache.exists("externalCollection")).isFalse();
+        cache.invalidate();
+        assertThat(cache.exists("externalCollection")).isTrue();
+    }
+
+    @Test
+    public void testChangesThroughLiveOak() throws Exception {
+        db.dropDatabase();
+        db.createCollection("renamedCollection", new BasicDBObject());
+
+        MongoCollectionMetadataCache cache = new MongoCollectionMetadataCache(() -> db, 60000);
+        assertThat(cache.exists("renamedCollection")).isTrue();
+
+        cache.renamed("renamedCollection", "newName");
+        assertThat(cache.exists("renamedCollection")).isFalse();
+        assertThat(cache.exists("newName")).isTrue();
+
+        cache.created("createdCollection");
+        assertThat(cache.exists("createdCollection")).isTrue();
+
+        cache.dropped("createdCollection");
+        assertThat(cache.exists("createdCollection")).isFalse();
+        assertThat(cache.roundTrips()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRevalidation() throws Exception {
+        db.dropDatabase();
+        MongoCollectionMetadataCache cache = new MongoCollectionMetadataCache(() -> db, 0);
+
+        assertThat(cache.exists("laterCollection")).isFalse();
+        db.createCollection("laterCollection", new BasicDBObject());
+        assertThat(cache.exists("laterCollection")).isTrue();
+        assertThat(cache.roundTrips()).isEqualTo(2);
+        assertThat(cache.avoided()).isEqualTo(0);
+    }
+
+    @Test
+    public void testLookupsDontWaitForRevalidation() throws Exception {
+        db.dropDatabase();
+        db.createCollection("staleCollection", new BasicDBObject());
+
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MongoCollectionMetadataCache cache = new MongoCollectionMetadataCache(() -> db, 50) {
+            @Override
+            Collection<String> loadNames(DB db) {
+                if (roundTrips() > 0) {
+                    loading.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.loadNames(db);
+            }
+        };
+        assertThat(cache.exists("staleCollection")).isTrue();
+        Thread.sleep(100);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> revalidating = executor.submit(() -> cache.exists("staleCollection"));
+            assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // answered from the expired snapshot while the revalidation is stuck in the database
+            assertThat(cache.exists("staleCollection")).isTrue();
+            db.createCollection("createdCollection", new BasicDBObject());
+            cache.created("createdCollection");
+            assertThat(cache.exists("createdCollection")).isTrue();
+
+            release.countDown();
+            assertThat(revalidating.get(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        // what was loaded while the cache was being changed is not kept, so the next lookup loads again
+        assertThat(cache.exists("createdCollection")).isTrue();
+        assertThat(cache.roundTrips()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.mongo;
+
+import com.mongodb.BasicDBObject;
+import io.liveoak.common.codec.DefaultResourceState;
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.exceptions.ResourceNotFoundException;
+import io.liveoak.spi.state.ResourceState;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Collection changes made through LiveOak, with the collection metadata cache in use as it is by default.
+ */
+public class MongoDBCollectionCachedMetadataTest extends BaseMongoDBTest {
+
+    @BeforeClass
+    public static void loadExtensions() throws Exception {
+        loadExtensions(MongoCollectionMetadataCache.DEFAULT_REVALIDATE_INTERVAL);
+    }
+
+    @Test
+    public void testChangesVisibleRightAway() throws Exception {
+        RequestContext ctx = new RequestContext.Builder().build();
+
+        client.create(ctx, "/testApp/" + BASEPATH, new DefaultResourceState("cachedCreate"));
+        assertThat(client.read(ctx, "/testApp/" + BASEPATH + "/cachedCreate").id()).isEqualTo("cachedCreate");
+
+        ResourceState renamed = client.update(ctx, "/testApp/" + BASEPATH + "/cachedCreate", new DefaultResourceState("cachedRename"));
+        assertThat(renamed.id()).isEqualTo("cachedRename");
+        assertThat(client.read(ctx, "/testApp/" + BASEPATH + "/cachedRename").id()).isEqualTo("cachedRename");
+        assertNotFound(ctx, "cachedCreate");
+
+        client.delete(ctx, "/testApp/" + BASEPATH + "/cachedRename");
+        assertNotFound(ctx, "cachedRename");
+    }
+
+    @Test
+    public void testExternalChangesNotSeen() throws Exception {
+        RequestContext ctx = new RequestContext.Builder().build();
+
+        // load the metadata before the collection is created behind LiveOak's back
+        client.read(ctx, "/testApp/" + BASEPATH);
+        db.createCollection("cachedExternal", new BasicDBObject());
+
+        assertNotFound(ctx, "cachedExternal");
+    }
+
+    private void assertNotFound(RequestContext ctx, String collection) throws Exception {
+        try {
+            client.read(ctx, "/testApp/" + BASEPATH + "/" + collection);
+            fail("Collection should not be found: " + collection);
+        } catch (ResourceNotFoundException e) {
+            // expected
+        }
+    }
+}
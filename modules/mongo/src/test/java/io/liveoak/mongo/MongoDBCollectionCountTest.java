@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.mongo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import io.liveoak.common.DefaultPagination;
+import io.liveoak.common.DefaultReturnFields;
+import io.liveoak.common.codec.DefaultResourceState;
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.exceptions.NotAcceptableException;
+import io.liveoak.spi.state.ResourceState;
+import org.fest.assertions.Fail;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MongoDBCollectionCountTest extends BaseMongoDBTest {
+
+    @Test
+    public void countModes() throws Exception {
+        DBCollection collection = db.getCollection("testCountCollection");
+        if (collection != null) {
+            collection.drop();
+        }
+        collection = db.createCollection("testCountCollection", new BasicDBObject());
+        setupPeopleData(collection);
+
+        // exact, the default
+        ResourceState result = read("{country:'DE'}", null, 0, 2);
+        assertThat(result.getProperty("count")).isEqualTo(2L);
+        assertThat(result.members().size()).isEqualTo(2);
+        assertThat(rels(result)).isEmpty();
+
+        // none: a full page which is the last one doesn't link to an empty next page
+        result = read("{country:'DE'}", "none", 0, 2);
+        assertThat(result.getProperty("count")).isNull();
+        assertThat(result.members().size()).isEqualTo(2);
+        assertThat(rels(result)).isEmpty();
+
+        result = read("{country:'US'}", "none", 0, 1);
+        assertThat(result.members().size()).isEqualTo(1);
+        assertThat(rels(result)).containsExactly("next");
+
+        // estimated: the size of the whole collection
+        result = read("{country:'FR'}", "estimated", 0, 10);
+        assertThat(result.getProperty("count")).isNull();
+        assertThat(result.getProperty("estimatedCount")).isEqualTo(6L);
+        assertThat(result.members().size()).isEqualTo(2);
+
+        // cached: a change through LiveOak is seen right away
+        result = read("{country:'FR'}", "cached", 0, 10);
+        assertThat(result.getProperty("count")).isEqualTo(2L);
+        ResourceState person = new DefaultResourceState();
+        person.putProperty("name", "Pierre");
+        person.putProperty("country", "FR");
+        client.create(new RequestContext.Builder().build(), "/testApp/" + BASEPATH + "/testCountCollection", person);
+        result = read("{country:'FR'}", "cached", 0, 10);
+        assertThat(result.getProperty("count")).isEqualTo(3L);
+
+        try {
+            read("{country:'FR'}", "roughly", 0, 10);
+            Fail.fail();
+        } catch (NotAcceptableException e) {
+            // expected
+        }
+
+        client.delete(new RequestContext.Builder().build(), "/testApp/" + BASEPATH + "/testCountCollection");
+    }
+
+    private ResourceState read(String query, String count, int offset, int limit) throws Exception {
+        SimpleResourceParams resourceParams = new SimpleResourceParams();
+        resourceParams.put("q", query);
+        if (count != null) {
+            resourceParams.put("count", count);
+        }
+        RequestContext requestContext = new RequestContext.Builder()
+                .returnFields(new DefaultReturnFields("*(*)"))
+                .resourceParams(resourceParams)
+                .pagination(new DefaultPagination(offset, limit))
+                .build();
+        return client.read(requestContext, "/testApp/" + BASEPATH + "/testCountCollection");
+    }
+
+    private List<Object> rels(ResourceState result) {
+        List<Object> rels = new ArrayList<>();
+        List<ResourceState> links = (List<ResourceState>) result.getProperty("links");
+        if (links != null) {
+            links.forEach((link) -> rels.add(link.getProperty("rel")));
+        }
+        return rels;
+    }
+}
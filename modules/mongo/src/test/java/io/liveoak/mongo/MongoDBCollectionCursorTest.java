@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.mongo;
+
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import io.liveoak.common.DefaultPagination;
+import io.liveoak.common.DefaultReturnFields;
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.Sorting;
+import io.liveoak.spi.exceptions.NotAcceptableException;
+import io.liveoak.spi.state.ResourceState;
+import org.fest.assertions.Fail;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MongoDBCollectionCursorTest extends BaseMongoDBTest {
+
+    @Test
+    public void pageWithContinuationTokens() throws Exception {
+        DBCollection collection = db.getCollection("testCursorCollection");
+        if (collection != null) {
+            collection.drop();
+        }
+        collection = db.createCollection("testCursorCollection", new BasicDBObject());
+        setupPeopleData(collection);
+
+        // sort on a field with duplicates, so that the id has to tell documents apart
+        Sorting sorting = new Sorting("-country");
+        List<Object> names = new ArrayList<>();
+
+        String cursor = "";
+        int pages = 0;
+        while (cursor != null) {
+            ResourceState result = read(sorting, cursor, 4);
+            result.members().forEach((member) -> names.add(member.getProperty("name")));
+            cursor = nextCursor(result);
+            ++pages;
+        }
+
+        assertThat(pages).isEqualTo(2);
+        assertThat(names).hasSize(6);
+        assertThat(names.subList(0, 2)).containsOnly("John", "Jane");
+        assertThat(names.subList(4, 6)).containsOnly("Hans", "Helga");
+
+        // a token is only good for the sorting it was issued for
+        String token = nextCursor(read(sorting, "", 4));
+        try {
+            read(new Sorting("country"), token, 4);
+            Fail.fail();
+        } catch (NotAcceptableException e) {
+            // expected
+        }
+
+        client.delete(new RequestContext.Builder().build(), "/testApp/" + BASEPATH + "/testCursorCollection");
+    }
+
+    private ResourceState read(Sorting sorting, String cursor, int limit) throws Exception {
+        SimpleResourceParams resourceParams = new SimpleResourceParams();
+        resourceParams.put("cursor", cursor);
+        RequestContext requestContext = new RequestContext.Builder()
+                .returnFields(new DefaultReturnFields("*(*)"))
+                .resourceParams(resourceParams)
+                .sorting(sorting)
+                .pagination(new DefaultPagination(limit, cursor))
+                .build();
+        return client.read(requestContext, "/testApp/" + BASEPATH + "/testCursorCollection");
+    }
+
+    private String nextCursor(ResourceState result) throws Exception {
+        List<ResourceState> links = (List<ResourceState>) result.getProperty("links");
+        if (links != null) {
+            for (ResourceState link : links) {
+                if ("next".equals(link.getProperty("rel"))) {
+                    String href = link.getProperty("href").toString();
+                    String cursor = href.substring(href.indexOf("cursor=") + "cursor=".length());
+                    cursor = cursor.contains("&") ? cursor.substring(0, cursor.indexOf("&")) : cursor;
+                    return URLDecoder.decode(cursor, "utf-8");
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.pgsql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.liveoak.pgsql.meta.StatementCache;
+import io.liveoak.pgsql.pool.ConnectionPool;
+import io.liveoak.pgsql.pool.LatencyHistogram;
+import io.liveoak.pgsql.pool.PoolConfig;
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.resource.MapResource;
+import io.liveoak.spi.resource.SynchronousResource;
+import io.liveoak.spi.resource.async.Resource;
+
+/**
+ * Read-only view of the connection pool and statement cache of a PostgreSQL resource, at the time of the read.
+ */
+public class PgSqlMetricsResource implements SynchronousResource {
+
+    public static final String ID = "metrics";
+
+    private PgSqlRootConfigResource parent;
+
+    public PgSqlMetricsResource(PgSqlRootConfigResource parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public Resource parent() {
+        return parent;
+    }
+
+    @Override
+    public String id() {
+        return ID;
+    }
+
+    @Override
+    public Map<String, ?> properties(RequestContext ctx) throws Exception {
+        Map<String, Object> result = new LinkedHashMap<>();
+
+        ConnectionPool pool = parent.pool();
+        if (pool != null) {
+            PoolConfig config = pool.config();
+            LatencyHistogram latency = pool.acquireLatency();
+
+            MapResource buckets = new MapResource();
+            latency.buckets().forEach(buckets::put);
+
+            MapResource acquire = new MapResource()
+                    .put("count", latency.count())
+                    .put("mean", latency.meanMillis())
+                    .put("max", latency.maxMillis())
+                    .put("timeouts", pool.timeouts())
+                    .put("histogram", buckets);
+
+            result.put("pool", new MapResource()
+                    .put("max-connections", config.maxConnections())
+                    .put("size", pool.size())
+                    .put("active", pool.active())
+                    .put("idle", pool.idle())
+                    .put("waiting", pool.waiting())
+                    .put("opened", pool.opened())
+                    .put("discarded", pool.discarded())
+                    .put("acquire", acquire));
+        }
+
+        StatementCache statements = parent.statementCache();
+        result.put("statement-cache", new MapResource()
+                .put("size", statements.size())
+                .put("hits", statements.hits())
+                .put("misses", statements.misses())
+                .put("hit-rate", statements.hitRate()));
+
+        return result;
+    }
+}
@@ -22,16 +22,20 @@ import io.liveoak.pgsql.meta.Column;
 import io.liveoak.pgsql.meta.ForeignKey;
 import io.liveoak.pgsql.meta.PrimaryKey;
 import io.liveoak.pgsql.meta.QueryBuilder;
+import io.liveoak.pgsql.meta.StatementCache;
 import io.liveoak.pgsql.meta.Table;
 import io.liveoak.pgsql.meta.TableRef;
+import io.liveoak.pgsql.pool.ConnectionPool;
+import io.liveoak.pgsql.pool.PoolConfig;
 import io.liveoak.spi.exceptions.InitializationException;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.resource.SynchronousResource;
 import io.liveoak.spi.resource.async.DefaultRootResource;
+import io.liveoak.spi.resource.async.Resource;
 import io.liveoak.spi.resource.async.Responder;
 import io.liveoak.spi.state.ResourceState;
 import org.jboss.logging.Logger;
-import org.postgresql.ds.PGPoolingDataSource;
+import org.postgresql.ds.PGSimpleDataSource;
 
 /**
  * @author <a href="mailto:marko.strukelj@gmail.com">Marko Strukelj</a>
@@ -39,11 +43,13 @@ import org.postgresql.ds.PGPoolingDataSource;
 public class PgSqlRootConfigResource extends DefaultRootResource implements SynchronousResource {
 
     private static Logger log = Logger.getLogger(PgSqlRootConfigResource.class);
-    private PGPoolingDataSource ds;
+    private PGSimpleDataSource ds;
+    private ConnectionPool pool;
     private Catalog catalog;
     private ConfigurationImpl configuration = new ConfigurationImpl();
     private PgSqlCRUDController controller;
     private QueryBuilder queryBuilder;
+    private StatementCache statementCache = new StatementCache();
 
     public PgSqlRootConfigResource(String id) {
         super(id);
@@ -51,11 +57,18 @@ public class PgSqlRootConfigResource extends DefaultRootResource implements Sync
 
     @Override
     public void stop() {
-        PGPoolingDataSource ds = this.ds;
-        this.ds = null;
+        ConnectionPool pool = this.pool;
+        this.pool = null;
 
-        if ( ds != null ) {
-            ds.close();
+        if ( pool != null ) {
+            if (log.isDebugEnabled()) {
+                log.debug("Connection pool of " + id() + ": " + pool);
+            }
+            pool.close();
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Statement cache of " + id() + ": " + statementCache);
         }
     }
 
@@ -71,6 +84,10 @@ public class PgSqlRootConfigResource extends DefaultRootResource implements Sync
         return queryBuilder;
     }
 
+    public StatementCache statementCache() {
+        return statementCache;
+    }
+
     /**
      * Users of the connection must make sure to call {@link java.sql.Connection#close()} when done using it,
      * so that it is returned to the pool.
@@ -79,10 +96,23 @@ public class PgSqlRootConfigResource extends DefaultRootResource implements Sync
      * @throws SQLException
      */
     public Connection connection() throws SQLException {
-        if (ds == null) {
+        ConnectionPool pool = this.pool;
+        if (pool == null) {
             throw new IllegalStateException("DataSource not available");
         }
-        return ds.getConnection();
+        return pool.getConnection();
+    }
+
+    public ConnectionPool pool() {
+        return pool;
+    }
+
+    @Override
+    public Resource member(RequestContext ctx, String id) throws Exception {
+        if (PgSqlMetricsResource.ID.equals(id)) {
+            return new PgSqlMetricsResource(this);
+        }
+        return null;
     }
 
     public Catalog catalog() {
@@ -92,14 +122,20 @@ public class PgSqlRootConfigResource extends DefaultRootResource implements Sync
     @Override
     public Map<String, ?> properties(RequestContext ctx) throws Exception {
         Map<String, Object> result = new HashMap<>();
-        PGPoolingDataSource ds = this.ds;
+        PGSimpleDataSource ds = this.ds;
         result.put("server", ds.getServerName() );
         result.put("port", ds.getPortNumber());
         result.put("db", ds.getDatabaseName());
         result.put("user", ds.getUser());
         result.put("password", ds.getPassword());
-        result.put("max-connections", ds.getMaxConnections());
-        result.put("initial-connections", ds.getInitialConnections());
+
+        PoolConfig poolConfig = pool.config();
+        result.put("max-connections", poolConfig.maxConnections());
+        result.put("initial-connections", poolConfig.initialConnections());
+        result.put("acquire-timeout", poolConfig.acquireTimeout());
+        result.put("idle-timeout", poolConfig.idleTimeout());
+        result.put("max-lifetime", poolConfig.maxLifetime());
+        result.put("leak-detection-threshold", poolConfig.leakDetectionThreshold());
 
         List<String> schemas = configuration.exposedSchemas();
         if (schemas != null && schemas.size() > 0) {
@@ -146,12 +182,40 @@ public class PgSqlRootConfigResource extends DefaultRootResource implements Sync
 
         Integer maxConnections = state.getPropertyAsInteger("max-connections");
         if (maxConnections == null) {
-            maxConnections = 10;
+            maxConnections = PoolConfig.DEFAULT_MAX_CONNECTIONS;
         }
 
         Integer initialConnections = state.getPropertyAsInteger("initial-connections");
         if (initialConnections == null) {
-            initialConnections = 1;
+            initialConnections = PoolConfig.DEFAULT_INITIAL_CONNECTIONS;
+        }
+
+        Long acquireTimeout = state.getPropertyAsLong("acquire-timeout");
+        if (acquireTimeout == null) {
+            acquireTimeout = PoolConfig.DEFAULT_ACQUIRE_TIMEOUT;
+        }
+
+        Long idleTimeout = state.getPropertyAsLong("idle-timeout");
+        if (idleTimeout == null) {
+            idleTimeout = PoolConfig.DEFAULT_IDLE_TIMEOUT;
+        }
+
+        Long maxLifetime = state.getPropertyAsLong("max-lifetime");
+        if (maxLifetime == null) {
+            maxLifetime = PoolConfig.DEFAULT_MAX_LIFETIME;
+        }
+
+        Long leakDetectionThreshold = state.getPropertyAsLong("leak-detection-threshold");
+        if (leakDetectionThreshold == null) {
+            leakDetectionThreshold = PoolConfig.DEFAULT_LEAK_DETECTION_THRESHOLD;
+        }
+
+        PoolConfig poolConfig;
+        try {
+            poolConfig = new PoolConfig(maxConnections, initialConnections, acquireTimeout, idleTimeout, maxLifetime, leakDetectionThreshold);
+        } catch (IllegalArgumentException e) {
+            responder.invalidRequest(e.getMessage());
+            return;
         }
 
         List<String> exposedSchemas = (List<String>) state.getPropertyAsList("schemas");
@@ -176,39 +240,39 @@ public class PgSqlRootConfigResource extends DefaultRootResource implements Sync
             configuration.includeTotalCount(bval);
         }
 
-        PGPoolingDataSource old = this.ds;
+        PGSimpleDataSource old = this.ds;
         boolean recreate = old == null
                 || !dbName.equals(old.getDatabaseName())
                 || !server.equals(old.getServerName())
                 || !port.equals(old.getPortNumber())
                 || !user.equals(old.getUser())
-                || !pass.equals(old.getPassword())
-                || !maxConnections.equals(old.getMaxConnections())
-                || !initialConnections.equals(old.getInitialConnections());
+                || !pass.equals(old.getPassword());
 
         if (recreate) {
             // reinit ds with new settings
-            PGPoolingDataSource nu = new PGPoolingDataSource();
+            PGSimpleDataSource nu = new PGSimpleDataSource();
             nu.setServerName(server);
             nu.setPortNumber(port);
             nu.setDatabaseName(dbName);
             nu.setUser(user);
             nu.setPassword(pass);
-            nu.setMaxConnections(maxConnections);
-            nu.setInitialConnections(initialConnections);
-            nu.initialize();
 
+            ConnectionPool oldPool = this.pool;
+            this.pool = new ConnectionPool(id(), nu, poolConfig);
             this.ds = nu;
 
-            if (old != null) {
+            if (oldPool != null) {
                 try {
-                    old.close();
+                    oldPool.close();
                 } catch (Exception e) {
-                    log.debug("[IGNORED] Exception while closing the datasource: ", e);
+                    log.debug("[IGNORED] Exception while closing the connection pool: ", e);
                 }
             }
 
             reloadSchema();
+        } else {
+            // same database, only sizing and timeouts may have changed - keep the open connections
+            pool.configure(poolConfig);
         }
 
         responder.resourceUpdated(this);
@@ -266,7 +330,14 @@ public class PgSqlRootConfigResource extends DefaultRootResource implements Sync
 
             this.catalog = new Catalog(schemas, configuration.defaultSchema(), tables);
             this.controller = new PgSqlCRUDController(catalog, configuration);
-            this.queryBuilder = new QueryBuilder(catalog);
+
+            // statement shapes refer to tables of the old catalog, and prepared statements to the old tables
+            statementCache.invalidate();
+            ConnectionPool pool = this.pool;
+            if (pool != null) {
+                pool.invalidateStatements();
+            }
+            this.queryBuilder = new QueryBuilder(catalog, statementCache);
         }
     }
 
@@ -5,6 +5,8 @@
  */
 package io.liveoak.pgsql;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
@@ -39,6 +41,9 @@ public class PgSqlRootResource extends DefaultRootResource implements Synchronou
 
     private final PgSqlRootConfigResource configResource;
 
+    // connection shared by the reads on a thread, see sharedConnection()
+    private final ThreadLocal<Connection> shared = new ThreadLocal<>();
+
     public PgSqlRootResource(String id) {
         super(id);
         configResource = new PgSqlRootConfigResource(id);
@@ -56,9 +61,52 @@ public class PgSqlRootResource extends DefaultRootResource implements Synchronou
      * @throws SQLException
      */
     public Connection connection() throws SQLException {
+        Connection held = shared.get();
+        if (held != null) {
+            return handle(held, false);
+        }
         return configResource.connection();
     }
 
+    /**
+     * Retrieve a connection from the pool which {@link #connection()} also returns on this thread until it is closed,
+     * so that reads made while it is held - by members encoded while their collection is being streamed, for example -
+     * don't each take another connection from the pool.
+     *
+     * @return a connection retrieved from the pool, or the one already shared on this thread
+     * @throws SQLException
+     */
+    public Connection sharedConnection() throws SQLException {
+        if (shared.get() != null) {
+            return connection();
+        }
+        Connection con = configResource.connection();
+        shared.set(con);
+        return handle(con, true);
+    }
+
+    /**
+     * @param owner true if closing the handle returns the connection to the pool, false if it leaves the connection open
+     */
+    private Connection handle(Connection con, boolean owner) {
+        return (Connection) Proxy.newProxyInstance(PgSqlRootResource.class.getClassLoader(), new Class[]{Connection.class}, (proxy, method, args) -> {
+            if (method.getName().equals("close")) {
+                if (owner) {
+                    if (shared.get() == con) {
+                        shared.remove();
+                    }
+                    con.close();
+                }
+                return null;
+            }
+            try {
+                return method.invoke(con, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
     public Catalog catalog() {
         return configResource.catalog();
     }
@@ -7,6 +7,7 @@ package io.liveoak.pgsql;
 
 import java.net.URI;
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -42,6 +43,7 @@ public class PgSqlRowResource implements SynchronousResource {
     private String id;
     private Row row;
     private QueryBuilder queryBuilder;
+    private Map<ForeignKey, List<Row>> referringRows;
 
     public PgSqlRowResource(PgSqlTableResource parent, String id) {
         this.parent = parent;
@@ -73,6 +75,14 @@ public class PgSqlRowResource implements SynchronousResource {
         this.row = row;
     }
 
+    /**
+     * Attach the rows referring to this row, as read for the whole page by the table resource,
+     * so that encoding does not have to query for them row by row.
+     */
+    public void referringRows(Map<ForeignKey, List<Row>> referringRows) {
+        this.referringRows = referringRows;
+    }
+
     @Override
     public Resource parent() {
         return parent;
@@ -131,30 +141,24 @@ public class PgSqlRowResource implements SynchronousResource {
         // we have to make a query select from orders where address_id = row.get(pk)
         HashMap<String, Object> stacked = new HashMap<>();
         for (ForeignKey fk : table.referredKeys()) {
-            try (Connection con = parent.parent().connection()) {
-                List<Column> cols = fk.columns();
-                Table tab = cat.table(cols.get(0).tableRef());
+            List<Column> cols = fk.columns();
+            Table tab = cat.table(cols.get(0).tableRef());
 
-                LinkedList<Object> vals = new LinkedList();
-                for (Column c : table.pk().columns()) {
-                    vals.add(row.value(c.name()));
-                }
-                if (cols.size() != vals.size()) {
-                    throw new IllegalStateException("Primary key column count on " + table.id() + " doesn't match foreign key column count on " + tab.id());
-                }
+            List<Row> rows = referringRows != null ? referringRows.get(fk) : null;
+            if (rows == null) {
+                rows = queryReferringRows(table, fk, tab);
+            }
 
-                QueryResults results = queryBuilder.querySelectFromTableWhere(con, tab, cols, vals, null, Pagination.NONE);
-                LinkedList ls = new LinkedList();
-                for (Row r : results.rows()) {
-                    ls.add(new PgSqlRowResource(
-                            new PgSqlTableResource(parent.parent(), tab.id()), r));
-                }
-                if (fk.sameColumnsAs(tab.pk())) {
-                    // it's a one-to-one
-                    stacked.put(tab.id(), ls.size() > 0 ? ls.get(0) : null);
-                } else {
-                    stacked.put(tab.id(), ls);
-                }
+            PgSqlTableResource tabResource = new PgSqlTableResource(parent.parent(), tab.id());
+            LinkedList ls = new LinkedList();
+            for (Row r : rows) {
+                ls.add(new PgSqlRowResource(tabResource, r));
+            }
+            if (fk.sameColumnsAs(tab.pk())) {
+                // it's a one-to-one
+                stacked.put(tab.id(), ls.size() > 0 ? ls.get(0) : null);
+            } else {
+                stacked.put(tab.id(), ls);
             }
         }
 
@@ -175,6 +179,22 @@ public class PgSqlRowResource implements SynchronousResource {
         return result;
     }
 
+    private List<Row> queryReferringRows(Table table, ForeignKey fk, Table tab) throws SQLException {
+        List<Column> cols = fk.columns();
+        LinkedList<Object> vals = new LinkedList();
+        for (Column c : table.pk().columns()) {
+            vals.add(row.value(c.name()));
+        }
+        if (cols.size() != vals.size()) {
+            throw new IllegalStateException("Primary key column count on " + table.id() + " doesn't match foreign key column count on " + tab.id());
+        }
+
+        try (Connection con = parent.parent().connection()) {
+            QueryResults results = queryBuilder.querySelectFromTableWhere(con, tab, cols, vals, null, Pagination.NONE);
+            return results.rows();
+        }
+    }
+
     @Override
     public void updateProperties(RequestContext ctx, ResourceState state, Responder responder) throws Exception {
         Catalog cat = parent.parent().catalog();
@@ -9,38 +9,66 @@ import java.io.IOException;
 import java.net.URI;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import io.liveoak.common.DefaultPagination;
 import io.liveoak.common.util.PagingLinksBuilder;
 import io.liveoak.pgsql.data.QueryResults;
+import io.liveoak.pgsql.data.Row;
 import io.liveoak.pgsql.meta.Catalog;
 import io.liveoak.pgsql.meta.Column;
+import io.liveoak.pgsql.meta.ForeignKey;
+import io.liveoak.pgsql.meta.PrimaryKey;
 import io.liveoak.pgsql.meta.QueryBuilder;
 
 import io.liveoak.pgsql.meta.Table;
 import io.liveoak.spi.LiveOak;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.Sorting;
+import io.liveoak.spi.exceptions.NotAcceptableException;
+import io.liveoak.spi.resource.BlockingResource;
 import io.liveoak.spi.resource.MapResource;
 import io.liveoak.spi.resource.SynchronousResource;
 import io.liveoak.spi.resource.async.Resource;
+import io.liveoak.spi.resource.async.ResourceSink;
 import io.liveoak.spi.resource.async.Responder;
 import io.liveoak.spi.state.ResourceState;
 
 /**
  * @author <a href="mailto:marko.strukelj@gmail.com">Marko Strukelj</a>
  */
-public class PgSqlTableResource implements SynchronousResource {
+public class PgSqlTableResource implements SynchronousResource, BlockingResource {
     private static final String SCHEMA_ENDPOINT = ";schema";
 
+    /**
+     * Pages of at least this many rows are streamed to the response as they are read from the database,
+     * rather than read whole first.
+     */
+    private static final int STREAM_THRESHOLD = Integer.getInteger("liveoak.pgsql.stream-threshold", 1000);
+
+    /**
+     * Number of rows read from the server side cursor at a time when streaming, which is also how many rows
+     * get their referring rows read together.
+     */
+    private static final int FETCH_SIZE = Integer.getInteger("liveoak.pgsql.fetch-size", 200);
+
+    /**
+     * System property with the most rows whose referring rows are read with a single select. Read on every query.
+     */
+    public static final String IN_BATCH_SIZE_PROPERTY = "liveoak.pgsql.in-batch-size";
+
     private PgSqlRootResource parent;
     private String id;
     private QueryResults results;
+    private boolean streaming;
     private QueryBuilder queryBuilder;
 
     public PgSqlTableResource(PgSqlRootResource root, String table) {
@@ -62,11 +90,34 @@ public class PgSqlTableResource implements SynchronousResource {
     @Override
     public Map<String, ?> properties(RequestContext ctx) throws Exception {
 
-        // perform select and store it for readMembers
-        if (results != null) {
+        // perform select and store it for readMembers, unless the rows are to be streamed by readMembers
+        if (results != null || streaming) {
             return null;
         }
-        results = queryTable(id, null, ctx);
+        streaming = ctx.pagination().cursor() == null && ctx.pagination().limit() >= STREAM_THRESHOLD;
+        int count;
+        boolean hasNext = false;
+        if (streaming) {
+            // count the rows of the page, and one past it to tell if there is a next page, without reading them
+            int limit = ctx.pagination().limit();
+            int probed;
+            try (Connection con = parent.connection()) {
+                probed = queryBuilder.querySelectCountOfPage(con, parent.catalog().tableById(id),
+                        new DefaultPagination(ctx.pagination().offset(), limit + 1), ctx.resourceParams().value("q"));
+            }
+            count = Math.min(probed, limit);
+            hasNext = probed > limit;
+        } else {
+            try {
+                results = queryTable(id, null, ctx);
+            } catch (IllegalArgumentException e) {
+                if (ctx.pagination().cursor() == null) {
+                    throw e;
+                }
+                throw new NotAcceptableException(uri().toString(), "Invalid value for the 'cursor' parameter: " + e.getMessage(), e);
+            }
+            count = results.count();
+        }
 
         List<Resource> links = new LinkedList<>();
         MapResource link = new MapResource();
@@ -75,8 +126,13 @@ public class PgSqlTableResource implements SynchronousResource {
         links.add(link);
 
         PagingLinksBuilder linksBuilder = new PagingLinksBuilder(ctx)
-                .uri(uri())
-                .count(results.count());
+                .uri(uri());
+        linksBuilder.count(count);
+        if (streaming) {
+            linksBuilder.hasNext(hasNext);
+        } else {
+            linksBuilder.nextCursor(results.nextCursor());
+        }
 
         int totalCount = -1;
         if (parent.configuration().configuration().includeTotalCount()) {
@@ -89,8 +145,9 @@ public class PgSqlTableResource implements SynchronousResource {
         // keep predictable ordering by using LinkedHashMap
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("links", links);
-        if (totalCount != -1 || results.count() < ctx.pagination().limit()) {
-            result.put("count", totalCount != -1 ? totalCount : results.count());
+        // a page read by continuation token tells nothing about the members before it
+        if (totalCount != -1 || (ctx.pagination().cursor() == null && count < ctx.pagination().limit())) {
+            result.put("count", totalCount != -1 ? totalCount : count);
         }
         result.put("type", "collection");
         return result;
@@ -98,12 +155,34 @@ public class PgSqlTableResource implements SynchronousResource {
 
     @Override
     public Collection<Resource> members(RequestContext ctx) throws Exception {
-        return results.rows()
-                .stream()
-                .map(row -> new PgSqlRowResource(this, row))
+        if (results == null) {
+            results = queryTable(id, null, ctx);
+        }
+        Map<ForeignKey, Map<String, List<Row>>> referring = queryReferringRows(ctx, results.rows());
+        return results.stream()
+                .map(row -> memberResource(row, referring))
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public void readMembers(RequestContext ctx, ResourceSink sink) throws Exception {
+        // wrap rows one at a time as they are encoded, rather than building the whole member list up front
+        try {
+            if (streaming) {
+                streamMembers(ctx, sink);
+            } else {
+                Map<ForeignKey, Map<String, List<Row>>> referring = queryReferringRows(ctx, results.rows());
+                for (Row row : results.rows()) {
+                    sink.accept(memberResource(row, referring));
+                }
+            }
+        } catch (Throwable e) {
+            sink.error(e);
+        } finally {
+            sink.complete();
+        }
+    }
+
     @Override
     public Resource member(RequestContext ctx, String childId) throws Exception {
         QueryResults results = queryTable(id, childId, ctx);
@@ -184,6 +263,118 @@ public class PgSqlTableResource implements SynchronousResource {
         }
     }
 
+    /**
+     * Pass rows to the sink as they are read through a server side cursor, so that no more than a fetch size worth
+     * of them is held at a time. When members are expanded their referring rows are read for a fetch size worth
+     * of rows at a time. The connection is shared with whatever else the members read as they are encoded, and is
+     * released before the sink is completed.
+     */
+    private void streamMembers(RequestContext ctx, ResourceSink sink) throws Exception {
+        Table table = parent.catalog().tableById(id);
+        boolean expand = expandsReferringRows(ctx, table);
+        List<Row> batch = new ArrayList<>(FETCH_SIZE);
+
+        try (Connection con = parent.sharedConnection()) {
+            queryBuilder.streamSelectFromTable(con, table, replaceIdsWithColumnNames(ctx.sorting()), ctx.pagination(),
+                    ctx.resourceParams().value("q"), FETCH_SIZE, (row) -> {
+                        if (!expand) {
+                            sink.accept(memberResource(row, null));
+                            return;
+                        }
+                        batch.add(row);
+                        if (batch.size() == FETCH_SIZE) {
+                            acceptBatch(ctx, con, batch, sink);
+                        }
+                    });
+            acceptBatch(ctx, con, batch, sink);
+        }
+    }
+
+    private void acceptBatch(RequestContext ctx, Connection con, List<Row> batch, ResourceSink sink) throws SQLException {
+        Map<ForeignKey, Map<String, List<Row>>> referring = queryReferringRows(ctx, batch, con);
+        for (Row row : batch) {
+            sink.accept(memberResource(row, referring));
+        }
+        batch.clear();
+    }
+
+    private PgSqlRowResource memberResource(Row row, Map<ForeignKey, Map<String, List<Row>>> referring) {
+        PgSqlRowResource resource = new PgSqlRowResource(this, row);
+        if (referring != null) {
+            Map<ForeignKey, List<Row>> rows = new HashMap<>();
+            for (Map.Entry<ForeignKey, Map<String, List<Row>>> ent: referring.entrySet()) {
+                List<Row> referringRows = ent.getValue().get(resource.id());
+                rows.put(ent.getKey(), referringRows != null ? referringRows : Collections.emptyList());
+            }
+            resource.referringRows(rows);
+        }
+        return resource;
+    }
+
+    /**
+     * Read the rows of other tables referring to any of the given rows, with one select per referring foreign key and batch of rows
+     * rather than one per row and key, and group them by the id of the row they refer to.
+     *
+     * @return Referring rows by foreign key and id of the referred row, or null if members are not going to be expanded.
+     */
+    public Map<ForeignKey, Map<String, List<Row>>> queryReferringRows(RequestContext ctx, List<Row> rows) throws SQLException {
+        if (rows.isEmpty() || !expandsReferringRows(ctx, parent.catalog().tableById(id))) {
+            return null;
+        }
+        try (Connection con = parent.connection()) {
+            return queryReferringRows(ctx, rows, con);
+        }
+    }
+
+    private boolean expandsReferringRows(RequestContext ctx, Table table) {
+        return !table.referredKeys().isEmpty()
+                && ctx.returnFields() != null && !ctx.returnFields().child(LiveOak.MEMBERS).isEmpty();
+    }
+
+    /**
+     * Same as {@link #queryReferringRows(RequestContext, List)}, on the given connection.
+     */
+    public Map<ForeignKey, Map<String, List<Row>>> queryReferringRows(RequestContext ctx, List<Row> rows, Connection con) throws SQLException {
+        Catalog cat = parent.catalog();
+        Table table = cat.tableById(id);
+        if (rows.isEmpty() || !expandsReferringRows(ctx, table)) {
+            return null;
+        }
+
+        List<List<Object>> ids = new ArrayList<>(rows.size());
+        for (Row row: rows) {
+            List<Object> vals = new ArrayList<>();
+            for (Column c: table.pk().columns()) {
+                vals.add(row.value(c.name()));
+            }
+            ids.add(vals);
+        }
+
+        int batchSize = Math.max(1, Integer.getInteger(IN_BATCH_SIZE_PROPERTY, FETCH_SIZE));
+        Map<ForeignKey, Map<String, List<Row>>> result = new HashMap<>();
+        for (ForeignKey fk: table.referredKeys()) {
+            List<Column> cols = fk.columns();
+            Table tab = cat.table(cols.get(0).tableRef());
+            if (cols.size() != table.pk().columns().size()) {
+                throw new IllegalStateException("Primary key column count on " + table.id() + " doesn't match foreign key column count on " + tab.id());
+            }
+
+            Map<String, List<Row>> byId = new HashMap<>();
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<List<Object>> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                for (Row r: queryBuilder.querySelectFromTableWhereIn(con, tab, cols, batch).rows()) {
+                    List<Object> vals = new ArrayList<>();
+                    for (Column c: cols) {
+                        vals.add(String.valueOf(r.value(c.name())));
+                    }
+                    byId.computeIfAbsent(PrimaryKey.spliceId(vals), (k) -> new LinkedList<>()).add(r);
+                }
+            }
+            result.put(fk, byId);
+        }
+        return result;
+    }
+
     public int queryTableCount(String table, RequestContext ctx) throws SQLException, IOException {
         Catalog cat = parent.catalog();
         Table t = cat.tableById(table);
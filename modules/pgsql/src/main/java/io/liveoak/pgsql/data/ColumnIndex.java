@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.pgsql.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column names of a result set and their positions, shared by all the {@link Row}s read from it.
+ */
+public class ColumnIndex {
+
+    private final List<String> names;
+    private final Map<String, Integer> positions;
+
+    public ColumnIndex(List<String> names) {
+        this(names.toArray(new String[names.size()]));
+    }
+
+    public ColumnIndex(String[] names) {
+        this.names = Collections.unmodifiableList(Arrays.asList(names));
+        this.positions = new HashMap<>(names.length * 2);
+        for (int i = names.length - 1; i >= 0; i--) {
+            // the first of any columns with the same name wins, as with List.indexOf()
+            positions.put(names[i], i);
+        }
+    }
+
+    /**
+     * @return Position of the column, or -1 if there is no such column
+     */
+    public int position(Object name) {
+        Integer pos = positions.get(name);
+        return pos == null ? -1 : pos;
+    }
+
+    public String name(int pos) {
+        return names.get(pos);
+    }
+
+    public List<String> names() {
+        return names;
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
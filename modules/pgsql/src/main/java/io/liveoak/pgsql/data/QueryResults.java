@@ -7,33 +7,58 @@ package io.liveoak.pgsql.data;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author <a href="mailto:marko.strukelj@gmail.com">Marko Strukelj</a>
  */
 public class QueryResults {
 
-    private List<String> columnNames;
+    private ColumnIndex columns;
     private List<Row> rows;
+    private String nextCursor;
 
     public QueryResults() {
-        this.columnNames = Collections.emptyList();
+        this.columns = new ColumnIndex(new String[0]);
         this.rows = Collections.emptyList();
     }
 
     public QueryResults(List<String> columnNames, List<Row> rows) {
-        this.columnNames = Collections.unmodifiableList(columnNames);
+        this(new ColumnIndex(columnNames), rows, null);
+    }
+
+    /**
+     * @param rows Rows, all sharing the given column index - the list is not copied
+     */
+    public QueryResults(ColumnIndex columns, List<Row> rows, String nextCursor) {
+        this.columns = columns;
         this.rows = Collections.unmodifiableList(rows);
+        this.nextCursor = nextCursor;
+    }
+
+    public ColumnIndex columns() {
+        return columns;
     }
 
     public List<String> columnNames() {
-        return columnNames;
+        return columns.names();
     }
 
     public List<Row> rows() {
         return rows;
     }
 
+    public Stream<Row> stream() {
+        return rows.stream();
+    }
+
+    /**
+     * @return Continuation token for the next page, or null if this is the last page or the results are not paged by token.
+     */
+    public String nextCursor() {
+        return nextCursor;
+    }
+
     public int count() {
         if (rows != null) {
             return rows.size();
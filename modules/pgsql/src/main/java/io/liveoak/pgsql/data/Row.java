@@ -5,31 +5,49 @@
  */
 package io.liveoak.pgsql.data;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.IllegalFormatException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
+ * Values of one row of a result set, with columns looked up by name through the {@link ColumnIndex}
+ * shared by all the rows of the result set.
+ *
  * @author <a href="mailto:marko.strukelj@gmail.com">Marko Strukelj</a>
  */
 public class Row {
-    private List<String> columnNames;
-    private List<Object> values;
+    private ColumnIndex columns;
+    private Object[] values;
 
     public Row(List<String> columnNames, List<Object> cols) {
-        this.columnNames = columnNames;
-        this.values = Collections.unmodifiableList(cols);
+        this(new ColumnIndex(columnNames), cols.toArray());
+    }
+
+    /**
+     * @param values Values by column position - the array is not copied, and must not be changed afterwards
+     */
+    public Row(ColumnIndex columns, Object[] values) {
+        if (columns.size() != values.length) {
+            throw new IllegalArgumentException("Values size doesn't match columns size: (columns: " + columns.names() + ", values: " + values.length + ")");
+        }
+        this.columns = columns;
+        this.values = values;
+    }
+
+    public ColumnIndex columns() {
+        return columns;
     }
 
     public Map<String, Object> asMap() {
         return new Map<String, Object>() {
             @Override
             public int size() {
-                return columnNames.size();
+                return values.length;
             }
 
             @Override
@@ -39,21 +57,21 @@ public class Row {
 
             @Override
             public boolean containsKey(Object key) {
-                return columnNames.contains(key);
+                return columns.position(key) != -1;
             }
 
             @Override
             public boolean containsValue(Object value) {
-                return values.contains(value);
+                return Arrays.asList(values).contains(value);
             }
 
             @Override
             public Object get(Object key) {
-                int pos = columnNames.indexOf(key);
+                int pos = columns.position(key);
                 if (pos == -1) {
                     return null;
                 } else {
-                    return values.get(pos);
+                    return values[pos];
                 }
             }
 
@@ -84,7 +102,7 @@ public class Row {
 
             @Override
             public Collection values() {
-                return values;
+                return Collections.unmodifiableList(Arrays.asList(values));
             }
 
             @Override
@@ -95,19 +113,19 @@ public class Row {
     }
 
     public Object value(String columnName) {
-        int pos = columnNames.indexOf(columnName);
+        int pos = columns.position(columnName);
         if (pos == -1) {
             throw new IllegalArgumentException("No such column: " + columnName);
         }
-        return values.get(pos);
+        return values[pos];
     }
 
     public Object value(int pos) {
-        return values.get(pos);
+        return values[pos];
     }
 
     public int valueAsInt(int pos) {
-        Object val = values.get(pos);
+        Object val = values[pos];
         if (val instanceof Integer || val instanceof Long || val instanceof Short) {
             return ((Number) val).intValue();
         }
@@ -121,7 +139,7 @@ public class Row {
 
         @Override
         public int size() {
-            return columnNames.size();
+            return columns.size();
         }
 
         @Override
@@ -131,22 +149,22 @@ public class Row {
 
         @Override
         public boolean contains(Object o) {
-            return columnNames.contains(o);
+            return columns.position(o) != -1;
         }
 
         @Override
         public Iterator<String> iterator() {
-            return columnNames.iterator();
+            return columns.names().iterator();
         }
 
         @Override
         public Object[] toArray() {
-            return columnNames.toArray();
+            return columns.names().toArray();
         }
 
         @Override
         public <T> T[] toArray(T[] a) {
-            return columnNames.toArray(a);
+            return columns.names().toArray(a);
         }
 
         @Override
@@ -161,7 +179,7 @@ public class Row {
 
         @Override
         public boolean containsAll(Collection<?> c) {
-            return columnNames.containsAll(c);
+            return columns.names().containsAll(c);
         }
 
         @Override
@@ -189,7 +207,7 @@ public class Row {
 
         @Override
         public int size() {
-            return columnNames.size();
+            return values.length;
         }
 
         @Override
@@ -206,22 +224,21 @@ public class Row {
         public Iterator<Map.Entry<String, Object>> iterator() {
             return new Iterator<Map.Entry<String, Object>>() {
 
-                Iterator<String> keyIt;
-                Iterator<Object> valIt;
-                {
-                    keyIt = columnNames.iterator();
-                    valIt = values.iterator();
-                }
+                int pos;
 
                 @Override
                 public boolean hasNext() {
-                    return keyIt.hasNext();
+                    return pos < values.length;
                 }
 
                 @Override
                 public Map.Entry<String, Object> next() {
-                    final String key = keyIt.next();
-                    final Object val = valIt.next();
+                    if (pos >= values.length) {
+                        throw new NoSuchElementException();
+                    }
+                    final String key = columns.name(pos);
+                    final Object val = values[pos];
+                    pos++;
 
                     return new Map.Entry<String, Object>() {
 
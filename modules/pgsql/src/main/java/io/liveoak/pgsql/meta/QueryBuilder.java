@@ -12,7 +12,15 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -22,10 +30,14 @@ import java.util.Set;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.liveoak.common.DefaultPagination;
 import io.liveoak.common.codec.DefaultResourceRef;
+import io.liveoak.common.util.ContinuationToken;
 import io.liveoak.pgsql.PgSqlBatchItem;
+import io.liveoak.pgsql.data.ColumnIndex;
 import io.liveoak.pgsql.data.Pair;
 import io.liveoak.pgsql.data.Id;
 import io.liveoak.pgsql.data.QueryResults;
@@ -66,9 +78,19 @@ public class QueryBuilder {
     private static final Logger log = Logger.getLogger(QueryBuilder.class);
 
     private Catalog catalog;
+    private StatementCache statements;
 
     public QueryBuilder(Catalog catalog) {
+        this(catalog, new StatementCache());
+    }
+
+    public QueryBuilder(Catalog catalog, StatementCache statements) {
         this.catalog = catalog;
+        this.statements = statements;
+    }
+
+    public StatementCache statementCache() {
+        return statements;
     }
 
     public String selectAllFromTable(Table table) {
@@ -107,36 +129,78 @@ public class QueryBuilder {
     }
 
     public PreparedStatement prepareSelectAllCountFromTable(Connection con, Table table) throws SQLException {
-        String select = selectAllCountFromTable(table);
+        String select = statements.sql("count " + table.id(), () -> selectAllCountFromTable(table));
         return con.prepareStatement(select);
     }
 
     public PreparedStatement prepareSelectAllFromTable(Connection con, Table table, Sorting sorting, Pagination pagination) throws SQLException {
-        StringBuilder sb = new StringBuilder(selectAllFromTable(table));
+        if (pagination != null && pagination.cursor() != null) {
+            return prepareSelectPageFromTable(con, table, sorting, pagination);
+        }
 
-        if (sorting != null) {
-            StringBuilder orderBy = new StringBuilder();
-            int i = 0;
-            for (Sorting.Spec spec: sorting) {
-                if (i > 0) {
-                    orderBy.append(",");
+        String sql = statements.sql("select " + table.id() + " " + sortingKey(sorting), () -> {
+            StringBuilder sb = new StringBuilder(selectAllFromTable(table));
+
+            if (sorting != null) {
+                StringBuilder orderBy = new StringBuilder();
+                int i = 0;
+                for (Sorting.Spec spec: sorting) {
+                    if (i > 0) {
+                        orderBy.append(",");
+                    }
+                    orderBy.append(spec.name());
+                    if (!spec.ascending()) {
+                        orderBy.append(" DESC");
+                    }
+                    i++;
                 }
-                orderBy.append(spec.name());
-                if (!spec.ascending()) {
-                    orderBy.append(" DESC");
+                if (orderBy.length() > 0) {
+                    sb.append(" ORDER BY ").append(orderBy);
                 }
-                i++;
             }
-            if (orderBy.length() > 0) {
-                sb.append(" ORDER BY ").append(orderBy);
+            // limit and offset are bound, so that paging through a table doesn't produce a new statement for every page
+            sb.append(" LIMIT ? OFFSET ?");
+            return sb.toString();
+        });
+
+        PreparedStatement ps = con.prepareStatement(sql);
+        ps.setInt(1, pagination.limit());
+        ps.setInt(2, pagination.offset());
+        return ps;
+    }
+
+    /**
+     * Select the page following the position encoded in the continuation token of the pagination.
+     *
+     * <p>The page is read with a range condition on the sort columns, followed by the primary key columns to
+     * break ties, so the select does not get slower the further into the table it goes. One row past the page
+     * is read as well, to tell if there is a next page. Rows with null values in the sort columns are not reachable
+     * this way.</p>
+     */
+    public PreparedStatement prepareSelectPageFromTable(Connection con, Table table, Sorting sorting, Pagination pagination) throws SQLException {
+        List<Pair<Column, Boolean>> keys = keysetColumns(table, sorting);
+        List<Object> position = keysetPosition(sorting, pagination);
+        List<Pair<Column, Object>> values = position != null ? keysetValues(keys, position) : Collections.emptyList();
+
+        String shape = "page " + table.id() + " " + sortingKey(sorting) + (position != null ? " after" : "");
+        String sql = statements.sql(shape, () -> {
+            StringBuilder sb = new StringBuilder(selectAllFromTable(table));
+            if (position != null) {
+                sb.append(" WHERE ").append(keysetCondition("", keys));
             }
-        }
-        sb.append(" LIMIT " + pagination.limit());
+            sb.append(keysetOrderBy("", keys));
+            sb.append(" LIMIT ?");
+            return sb.toString();
+        });
 
-        if (pagination.offset() > 0) {
-            sb.append(" OFFSET " + pagination.offset());
+        PreparedStatement ps = con.prepareStatement(sql);
+        int i = 1;
+        for (Pair<Column, Object> pair: values) {
+            bindKeysetValue(ps, i, pair.key(), pair.value());
+            i++;
         }
-        return con.prepareStatement(sb.toString());
+        ps.setInt(i, pagination.limit() + 1);
+        return ps;
     }
 
     public PreparedStatement prepareSelectFromTableWhereId(Connection con, String table, String id, Pagination pagination) throws SQLException {
@@ -165,74 +229,86 @@ public class QueryBuilder {
             throw new IllegalStateException("Values size doesn't match columns size: (columns: " + whereColumns + ", values: " + whereValues + ")");
         }
 
-        StringBuilder sb = new StringBuilder();
-        if (resultColumns == null) {
-            sb.append(selectAllFromTable(table));
-        } else {
-            sb.append(selectFromTable(table, resultColumns));
-        }
-        sb.append(" WHERE ");
-
-        int i = 0;
-        for (Column col: whereColumns) {
-            if (i > 0) {
-                sb.append(" AND ");
+        String shape = "where " + table.id() + " " + (resultColumns == null ? "*" : columnsKey(resultColumns))
+                + " " + columnsKey(whereColumns) + " " + sortingKey(sorting) + (pagination != null ? " paged" : "");
+        String sql = statements.sql(shape, () -> {
+            StringBuilder sb = new StringBuilder();
+            if (resultColumns == null) {
+                sb.append(selectAllFromTable(table));
+            } else {
+                sb.append(selectFromTable(table, resultColumns));
             }
+            sb.append(" WHERE ");
 
-            sb.append(col.quotedName()).append("=?");
-        }
-
-        if (sorting != null) {
-            sb.append(" ORDER BY ");
-            int j = 0;
-            for (Sorting.Spec spec: sorting) {
-                if (j > 0) {
-                    sb.append(",");
+            int i = 0;
+            for (Column col: whereColumns) {
+                if (i > 0) {
+                    sb.append(" AND ");
                 }
-                sb.append(spec.name());
-                if (!spec.ascending()) {
-                    sb.append(" DESC");
+
+                sb.append(col.quotedName()).append("=?");
+                i++;
+            }
+
+            if (sorting != null) {
+                sb.append(" ORDER BY ");
+                int j = 0;
+                for (Sorting.Spec spec: sorting) {
+                    if (j > 0) {
+                        sb.append(",");
+                    }
+                    sb.append(spec.name());
+                    if (!spec.ascending()) {
+                        sb.append(" DESC");
+                    }
+                    j++;
                 }
-                j++;
             }
-        }
 
-        if (pagination != null) {
-            String offset = pagination.offset() > 0 ? " OFFSET " + pagination.offset() : "";
-            sb.append(" LIMIT " + pagination.limit() + offset);
-        }
+            if (pagination != null) {
+                sb.append(" LIMIT ? OFFSET ?");
+            }
+            return sb.toString();
+        });
 
-        PreparedStatement ps = con.prepareStatement(sb.toString());
+        PreparedStatement ps = con.prepareStatement(sql);
 
-        i = 0;
+        int i = 0;
         for (Object val: whereValues) {
             whereColumns.get(i).bindValue(ps, i + 1, val);
             i++;
         }
+        if (pagination != null) {
+            ps.setInt(i + 1, pagination.limit());
+            ps.setInt(i + 2, pagination.offset());
+        }
 
         return ps;
     }
 
     public PreparedStatement prepareInsert(Connection con, Table table, ResourceState state) throws SQLException {
-        StringBuilder sb = new StringBuilder();
-        sb.append("INSERT INTO " + table.quotedSchemaName() + " (");
-        int i = 0;
-        for (Column c: table.columns()) {
-            if (i > 0) {
-                sb.append(",");
+        String sql = statements.sql("insert " + table.id(), () -> {
+            StringBuilder sb = new StringBuilder();
+            sb.append("INSERT INTO " + table.quotedSchemaName() + " (");
+            int i = 0;
+            for (Column c: table.columns()) {
+                if (i > 0) {
+                    sb.append(",");
+                }
+                sb.append(c.quotedName());
+                i++;
             }
-            sb.append(c.quotedName());
-            i++;
-        }
-        sb.append(") VALUES (");
+            sb.append(") VALUES (");
 
-        for (i = 0; i < table.columns().size(); i++) {
-            if (i > 0) {
-                sb.append(",");
+            for (i = 0; i < table.columns().size(); i++) {
+                if (i > 0) {
+                    sb.append(",");
+                }
+                sb.append("?");
             }
-            sb.append("?");
-        }
-        sb.append(")");
+            sb.append(")");
+            return sb.toString();
+        });
 
         // For PK columns we have to use state.id(), parse it into column values and then set
         // If PK column values are specified via properties as well, then they need to be equal to id
@@ -252,8 +328,8 @@ public class QueryBuilder {
             }
         }
 
-        PreparedStatement ps = con.prepareStatement(sb.toString());
-        i = 1;
+        PreparedStatement ps = con.prepareStatement(sql);
+        int i = 1;
         PrimaryKey pk = table.pk();
         for (Column c: table.columns()) {
             Object val = null;
@@ -289,9 +365,33 @@ public class QueryBuilder {
     }
 
     public PreparedStatement prepareUpdate(Connection con, Table table, ResourceState state) throws SQLException {
-        StringBuilder sb = new StringBuilder("UPDATE " + table.quotedSchemaName() + " SET ");
+        String sql = statements.sql("update " + table.id(), () -> {
+            StringBuilder sb = new StringBuilder("UPDATE " + table.quotedSchemaName() + " SET ");
+            int i = 0;
+            for (Column c: table.columns()) {
+                if (table.pkForColumnName(c.name()) != null) {
+                    // skip if it's a PK
+                    continue;
+                }
+                if (i > 0) {
+                    sb.append(",");
+                }
+                sb.append(c.quotedName()).append("=?");
+                i++;
+            }
+            sb.append(" WHERE ");
+
+            i = 0;
+            for (Column c: table.pk().columns()) {
+                if (i > 0) {
+                    sb.append(" AND ");
+                }
+                sb.append(c.quotedName()).append("=?");
+                i++;
+            }
+            return sb.toString();
+        });
 
-        int i = 0;
         List<Object> values = new LinkedList<>();
         List<Column> columns = new LinkedList<>();
 
@@ -300,10 +400,6 @@ public class QueryBuilder {
                 // skip if it's a PK
                 continue;
             }
-            if (i > 0) {
-                sb.append(",");
-            }
-            sb.append(c.quotedName()).append("=?");
 
             ForeignKey fk = table.foreignKeyForColumnName(c.name());
             if (fk != null) {
@@ -335,23 +431,17 @@ public class QueryBuilder {
                 values.add(state.getProperty(c.name()));
             }
             columns.add(c);
-            i++;
         }
-        sb.append(" WHERE ");
 
-        i = 0;
+        int i = 0;
         Id tableId = new Id(table.pk(), state.id());
         for (Column c: table.pk().columns()) {
-            if (i > 0) {
-                sb.append(" AND ");
-            }
-            sb.append(c.quotedName()).append("=?");
             values.add(tableId.valueForIndex(i));
             columns.add(c);
             i++;
         }
 
-        PreparedStatement ps = con.prepareStatement(sb.toString());
+        PreparedStatement ps = con.prepareStatement(sql);
 
         Iterator valIt = values.iterator();
         Iterator<Column> colIt = columns.iterator();
@@ -376,21 +466,25 @@ public class QueryBuilder {
             throw new IllegalStateException("Values size doesn't match columns size: (columns: " + columns + ", values: " + values + ")");
         }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("DELETE FROM " + table.quotedSchemaName() + " WHERE ");
+        String sql = statements.sql("delete " + table.id() + " " + columnsKey(columns), () -> {
+            StringBuilder sb = new StringBuilder();
+            sb.append("DELETE FROM " + table.quotedSchemaName() + " WHERE ");
 
-        int i = 0;
-        for (Column col: columns) {
-            if (i > 0) {
-                sb.append(" AND ");
-            }
+            int i = 0;
+            for (Column col: columns) {
+                if (i > 0) {
+                    sb.append(" AND ");
+                }
 
-            sb.append(col.quotedName()).append("=?");
-        }
+                sb.append(col.quotedName()).append("=?");
+                i++;
+            }
+            return sb.toString();
+        });
 
-        PreparedStatement ps = con.prepareStatement(sb.toString());
+        PreparedStatement ps = con.prepareStatement(sql);
 
-        i = 0;
+        int i = 0;
         for (Object val: values) {
             columns.get(i).bindValue(ps, i + 1, val);
             i++;
@@ -446,11 +540,15 @@ public class QueryBuilder {
     }
 
     public QueryResults querySelectFromTable(Connection con, Table table, Sorting sorting, Pagination pagination) throws SQLException {
-        return query(prepareSelectAllFromTable(con, table, sorting, pagination), pagination);
+        return queryPage(prepareSelectAllFromTable(con, table, sorting, pagination), table, sorting, pagination);
     }
 
     public QueryResults querySelectFromTable(Connection con, String table, Sorting sorting, Pagination pagination) throws SQLException {
-        return query(prepareSelectAllFromTable(con, table, sorting, pagination), pagination);
+        Table tableDef = catalog.table(new TableRef(table));
+        if (tableDef == null) {
+            throw new IllegalStateException("No such table: " + table);
+        }
+        return querySelectFromTable(con, tableDef, sorting, pagination);
     }
 
     public int querySelectCountFromTable(Connection con, Table table) throws SQLException {
@@ -465,6 +563,262 @@ public class QueryBuilder {
         return query(prepareSelectFromTableWhere(con, table, resultColumns, whereColumns, whereValues, sorting, pagination), pagination);
     }
 
+    /**
+     * Run the select for a page. When paging by continuation token the row read past the page is dropped,
+     * and the token for the next page is made of the sort and primary key values of the last row.
+     */
+    private QueryResults queryPage(PreparedStatement ps, Table table, Sorting sorting, Pagination pagination) throws SQLException {
+        if (pagination == null || pagination.cursor() == null) {
+            return query(ps, pagination);
+        }
+
+        QueryResults results = query(ps, new DefaultPagination(0, pagination.limit() + 1));
+        if (pagination.limit() == 0 || results.count() <= pagination.limit()) {
+            return results;
+        }
+
+        List<Row> rows = results.rows().subList(0, pagination.limit());
+        Row last = rows.get(rows.size() - 1);
+        List<Object> position = new ArrayList<>();
+        for (Pair<Column, Boolean> key: keysetColumns(table, sorting)) {
+            Object value = last.value(key.key().name());
+            position.add(keysetToken(value));
+        }
+
+        try {
+            String token = ContinuationToken.encode(sorting, new ObjectMapper(JSON_FACTORY).writeValueAsString(position));
+            return new QueryResults(results.columns(), rows, token);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode a continuation token for: " + position, e);
+        }
+    }
+
+    private List<Pair<Column, Boolean>> keysetColumns(Table table, Sorting sorting) {
+        List<Pair<Column, Boolean>> keys = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        if (sorting != null) {
+            for (Sorting.Spec spec: sorting) {
+                Column c = table.column(spec.name());
+                if (c == null) {
+                    throw new IllegalArgumentException("Sorting refers to non-existent column: " + spec.name());
+                }
+                if (names.add(c.name())) {
+                    keys.add(new Pair<>(c, spec.ascending()));
+                }
+            }
+        }
+        for (Column c: table.pk().columns()) {
+            if (names.add(c.name())) {
+                keys.add(new Pair<>(c, true));
+            }
+        }
+        return keys;
+    }
+
+    private List<Object> keysetPosition(Sorting sorting, Pagination pagination) {
+        String position = ContinuationToken.decode(pagination.cursor(), sorting);
+        if (position == null) {
+            return null;
+        }
+        try {
+            return new ObjectMapper(JSON_FACTORY)
+                    .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                    .readValue(position, List.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + pagination.cursor(), e);
+        }
+    }
+
+    /**
+     * Build (k1 > ?) OR (k1 = ? AND k2 > ?) OR ..., with &lt; in place of &gt; for the columns sorted in descending order.
+     */
+    private String keysetCondition(String qualifier, List<Pair<Column, Boolean>> keys) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                sb.append(" OR ");
+            }
+            sb.append("(");
+            for (int j = 0; j < i; j++) {
+                sb.append(qualifier).append(keys.get(j).key().quotedName()).append(" = ? AND ");
+            }
+            sb.append(qualifier).append(keys.get(i).key().quotedName()).append(keys.get(i).value() ? " > ?" : " < ?").append(")");
+        }
+        return sb.append(")").toString();
+    }
+
+    /**
+     * Values to bind to the parameters of {@link #keysetCondition(String, List)}, in order.
+     */
+    private List<Pair<Column, Object>> keysetValues(List<Pair<Column, Boolean>> keys, List<Object> position) {
+        if (position.size() != keys.size()) {
+            throw new IllegalArgumentException("Continuation token does not match the sort and key columns of the table");
+        }
+        List<Pair<Column, Object>> values = new LinkedList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            for (int j = 0; j <= i; j++) {
+                values.add(new Pair<>(keys.get(j).key(), position.get(j)));
+            }
+        }
+        return values;
+    }
+
+    private String keysetOrderBy(String qualifier, List<Pair<Column, Boolean>> keys) {
+        StringBuilder sb = new StringBuilder(" ORDER BY ");
+        int i = 0;
+        for (Pair<Column, Boolean> key: keys) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append(qualifier).append(key.key().quotedName());
+            if (!key.value()) {
+                sb.append(" DESC");
+            }
+            i++;
+        }
+        return sb.toString();
+    }
+
+    private static String sortingKey(Sorting sorting) {
+        StringBuilder sb = new StringBuilder("[");
+        if (sorting != null) {
+            for (Sorting.Spec spec: sorting) {
+                if (sb.length() > 1) {
+                    sb.append(",");
+                }
+                sb.append(spec.ascending() ? "" : "-").append(spec.name());
+            }
+        }
+        return sb.append("]").toString();
+    }
+
+    private static String columnsKey(List<Column> columns) {
+        StringBuilder sb = new StringBuilder("[");
+        for (Column c: columns) {
+            if (sb.length() > 1) {
+                sb.append(",");
+            }
+            sb.append(c.tableRef().schemaName()).append('.').append(c.name());
+        }
+        return sb.append("]").toString();
+    }
+
+    private static String joinsKey(List<Pair<Key, Key>> joins) {
+        StringBuilder sb = new StringBuilder("[");
+        for (Pair<Key, Key> join: joins) {
+            if (sb.length() > 1) {
+                sb.append(",");
+            }
+            sb.append(columnsKey(join.key().columns())).append("=").append(columnsKey(join.value().columns()));
+        }
+        return sb.append("]").toString();
+    }
+
+    /**
+     * Dates and times go into a continuation token in ISO-8601, in full precision and independent of the time zone
+     * of whoever reads the token back.
+     */
+    private static Object keysetToken(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toInstant().toString();
+        } else if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate().toString();
+        } else if (value instanceof Time) {
+            return Instant.ofEpochMilli(((Time) value).getTime()).atZone(ZoneId.systemDefault()).toLocalTime().toString();
+        } else if (value instanceof java.util.Date) {
+            return ((java.util.Date) value).toInstant().toString();
+        }
+        return value;
+    }
+
+    /**
+     * Bind a value read from a continuation token, turning dates and times back into what the column holds.
+     */
+    private void bindKeysetValue(PreparedStatement ps, int i, Column column, Object value) throws SQLException {
+        if (value instanceof String) {
+            try {
+                switch (column.type()) {
+                    case "timestamp":
+                    case "timestamptz":
+                        ps.setTimestamp(i, Timestamp.from(Instant.parse((String) value)));
+                        return;
+                    case "date":
+                        ps.setDate(i, java.sql.Date.valueOf(LocalDate.parse((String) value)));
+                        return;
+                    case "time":
+                    case "timetz":
+                        LocalTime time = LocalTime.parse((String) value);
+                        ps.setTime(i, new Time(time.atDate(LocalDate.of(1970, 1, 1)).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+                        return;
+                }
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid continuation token value for column " + column.name() + ": " + value, e);
+            }
+        }
+        column.bindValue(ps, i, value);
+    }
+
+    /**
+     * Select rows whose whereColumns match any of the given tuples of values, all in one
+     * WHERE (c1, c2, ...) IN ((?, ?, ...), ...) select.
+     */
+    public PreparedStatement prepareSelectFromTableWhereIn(Connection con, Table table, List<Column> whereColumns, List<? extends List<?>> whereValues) throws SQLException {
+        if (whereValues == null || whereValues.size() == 0) {
+            throw new IllegalArgumentException("values is null or empty");
+        }
+
+        for (List<?> vals: whereValues) {
+            if (vals.size() != whereColumns.size()) {
+                throw new IllegalStateException("Values size doesn't match columns size: (columns: " + whereColumns + ", values: " + vals + ")");
+            }
+        }
+
+        String sql = statements.sql("in " + table.id() + " " + columnsKey(whereColumns) + " " + whereValues.size(), () -> {
+            StringBuilder sb = new StringBuilder(selectAllFromTable(table));
+            sb.append(" WHERE (");
+            int i = 0;
+            for (Column col: whereColumns) {
+                if (i > 0) {
+                    sb.append(",");
+                }
+                sb.append(col.quotedName());
+                i++;
+            }
+            sb.append(") IN (");
+
+            StringBuilder tuple = new StringBuilder("(");
+            for (i = 0; i < whereColumns.size(); i++) {
+                tuple.append(i > 0 ? ",?" : "?");
+            }
+            tuple.append(")");
+
+            for (i = 0; i < whereValues.size(); i++) {
+                if (i > 0) {
+                    sb.append(",");
+                }
+                sb.append(tuple);
+            }
+            sb.append(")");
+            return sb.toString();
+        });
+
+        PreparedStatement ps = con.prepareStatement(sql);
+        int i = 1;
+        for (List<?> vals: whereValues) {
+            int j = 0;
+            for (Object val: vals) {
+                whereColumns.get(j).bindValue(ps, i, val);
+                i++;
+                j++;
+            }
+        }
+        return ps;
+    }
+
+    public QueryResults querySelectFromTableWhereIn(Connection con, Table table, List<Column> whereColumns, List<? extends List<?>> whereValues) throws SQLException {
+        return query(prepareSelectFromTableWhereIn(con, table, whereColumns, whereValues), null);
+    }
+
     public QueryResults query(PreparedStatement ps, Pagination pagination) throws SQLException {
         try (PreparedStatement s = ps) {
             if (log.isTraceEnabled()) {
@@ -475,24 +829,15 @@ public class QueryBuilder {
                 s.setMaxRows(pagination.limit());
             }
             try (ResultSet rs = s.executeQuery()) {
-                ResultSetMetaData meta = rs.getMetaData();
-                int count = meta.getColumnCount();
-
-                ArrayList<String> columnNames = new ArrayList<>(count);
-                for (int i = 0; i < count; i++) {
-                    columnNames.add(meta.getColumnName(i + 1));
-                }
+                // one index of column names for all the rows
+                ColumnIndex columns = columnIndex(rs.getMetaData());
 
-                LinkedList<Row> rows = new LinkedList<>();
+                ArrayList<Row> rows = new ArrayList<>(pagination != null ? Math.min(pagination.limit(), 1024) : 16);
                 while (rs.next()) {
-                    ArrayList<Object> row = new ArrayList<>(count);
-                    for (int i = 0; i < count; i++) {
-                        row.add(rs.getObject(i + 1));
-                    }
-                    rows.add(new Row(columnNames, row));
+                    rows.add(readRow(rs, columns));
                 }
 
-                return new QueryResults(columnNames, rows);
+                return new QueryResults(columns, rows, null);
             } catch (Exception e) {
                 log.error("Exception while executing a query: " + ps, e);
             }
@@ -500,6 +845,82 @@ public class QueryBuilder {
         return new QueryResults();
     }
 
+    /**
+     * Receives the rows of a streamed select one at a time, as they are read.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        void row(Row row) throws Exception;
+    }
+
+    /**
+     * Stream the rows of a select from table to the handler, rather than reading them all into {@link QueryResults} first.
+     *
+     * @param query Query as passed with the 'q' parameter, or null
+     * @return Number of rows streamed
+     */
+    public int streamSelectFromTable(Connection con, Table table, Sorting sorting, Pagination pagination, String query, int fetchSize, RowHandler handler) throws Exception {
+        if (pagination != null && pagination.cursor() != null) {
+            throw new IllegalArgumentException("Paging by continuation token can't be streamed");
+        }
+        PreparedStatement ps = query != null
+                ? prepareSelectFromTableWhere(con, table, parseQuery(query), sorting, pagination)
+                : prepareSelectAllFromTable(con, table, sorting, pagination);
+        return stream(con, ps, fetchSize, handler);
+    }
+
+    /**
+     * Run the select, and pass the rows to the handler as they are read.
+     *
+     * <p>The driver only reads rows through a server side cursor, fetchSize rows at a time, when not in auto-commit mode.
+     * The select is run in a transaction of its own, which is rolled back once done, and the connection is left with
+     * the auto-commit setting it had. Other statements may be run on the connection by the handler in the meantime.</p>
+     *
+     * <p>Unlike {@link #query(PreparedStatement, Pagination)} any exception is passed on to the caller.</p>
+     *
+     * @return Number of rows streamed
+     */
+    public int stream(Connection con, PreparedStatement ps, int fetchSize, RowHandler handler) throws Exception {
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try (PreparedStatement s = ps) {
+            if (log.isTraceEnabled()) {
+                log.trace("sql: " + rawSQL(ps));
+            }
+
+            s.setFetchSize(fetchSize);
+            int count = 0;
+            try (ResultSet rs = s.executeQuery()) {
+                ColumnIndex columns = columnIndex(rs.getMetaData());
+                while (rs.next()) {
+                    handler.row(readRow(rs, columns));
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            // nothing to commit - ending the transaction closes the cursor
+            con.rollback();
+            con.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static ColumnIndex columnIndex(ResultSetMetaData meta) throws SQLException {
+        String[] columnNames = new String[meta.getColumnCount()];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnNames[i] = meta.getColumnName(i + 1);
+        }
+        return new ColumnIndex(columnNames);
+    }
+
+    private static Row readRow(ResultSet rs, ColumnIndex columns) throws SQLException {
+        Object[] row = new Object[columns.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = rs.getObject(i + 1);
+        }
+        return new Row(columns, row);
+    }
+
     /*
     public String executeInsert(RequestContext ctx, Connection con, Table table, ResourceState state) throws SQLException {
         String id = extractId(table, state);
@@ -878,21 +1299,35 @@ public class QueryBuilder {
     }
 
     public QueryResults querySelectFromTable(Connection con, Table table, Sorting sorting, Pagination pagination, String query) throws IOException, SQLException {
-        // if query can't be parsed to JSON throw exception
-        JsonNode q = parseJson(query);
-
-        if (!q.isObject()) {
-            throw new IllegalArgumentException("Invalid query: not an object (" + query + ")");
-        }
+        PreparedStatement ps = prepareSelectFromTableWhere(con, table, parseQuery(query), sorting, pagination);
+        return queryPage(ps, table, sorting, pagination);
+    }
 
-        // convert Mongo query to SQL WHERE expression
-        Expression expression = parseRelational(q);
+    public int querySelectCountFromTable(Connection con, Table table, String query) throws IOException, SQLException {
+        PreparedStatement ps = prepareSelectCountFromTableWhere(con, table, parseQuery(query));
+        return query(ps, null).rows().get(0).valueAsInt(0);
+    }
 
-        PreparedStatement ps = prepareSelectFromTableWhere(con, table, expression, sorting, pagination);
-        return query(ps, pagination);
+    /**
+     * Count the rows of a page of a select from table, without reading any further into the table than the page reaches.
+     *
+     * @param query Query as passed with the 'q' parameter, or null
+     */
+    public int querySelectCountOfPage(Connection con, Table table, Pagination pagination, String query) throws IOException, SQLException {
+        PreparedStatement ps;
+        if (query != null) {
+            ps = prepareSelectFromTableWhere(con, table, parseQuery(query), null, pagination, true);
+        } else {
+            String sql = statements.sql("count page " + table.id(), () ->
+                    "SELECT count(*) FROM (SELECT 1 FROM " + table.quotedSchemaName() + " LIMIT ? OFFSET ?) AS page");
+            ps = con.prepareStatement(sql);
+            ps.setInt(1, pagination.limit());
+            ps.setInt(2, pagination.offset());
+        }
+        return query(ps, null).rows().get(0).valueAsInt(0);
     }
 
-    public int querySelectCountFromTable(Connection con, Table table, String query) throws IOException, SQLException {
+    private Expression parseQuery(String query) throws IOException {
         // if query can't be parsed to JSON throw exception
         JsonNode q = parseJson(query);
 
@@ -901,10 +1336,7 @@ public class QueryBuilder {
         }
 
         // convert Mongo query to SQL WHERE expression
-        Expression expression = parseRelational(q);
-
-        PreparedStatement ps = prepareSelectCountFromTableWhere(con, table, expression);
-        return query(ps, null).rows().get(0).valueAsInt(0);
+        return parseRelational(q);
     }
 
     private PreparedStatement prepareSelectCountFromTableWhere(Connection con, Table table, Expression expression) throws SQLException {
@@ -969,25 +1401,47 @@ public class QueryBuilder {
             }
         });
 
-        // prepare join part of the query
-        StringBuilder select = new StringBuilder()
-                .append(selectJoinTables(table, joins, countOnly))
-                .append(" WHERE ")
-                .append(expression.toString());
-
-        // TODO: finish implementing sorting
-        if (sorting != null) {
-            // need to convert sorting field specs to fully qualified column names
-        }
+        boolean keyset = !countOnly && pagination != null && pagination.cursor() != null;
+
+        List<Pair<Column, Boolean>> keys = keyset ? keysetColumns(table, sorting) : null;
+        List<Object> position = keyset ? keysetPosition(sorting, pagination) : null;
+        List<Pair<Column, Object>> keysetValues = position != null ? keysetValues(keys, position) : Collections.emptyList();
+
+        // values are all bound, so the normalized expression, with its identifiers resolved, stands for the whole query
+        String shape = "query " + table.id() + (countOnly ? " count " : " ") + joinsKey(joins) + " " + sortingKey(sorting)
+                + (keyset ? (position != null ? " page after" : " page") : pagination != null ? " paged" : "")
+                + " " + expression;
+        String sql = statements.sql(shape, () -> {
+            // prepare join part of the query
+            StringBuilder select = new StringBuilder()
+                    .append(selectJoinTables(table, joins, countOnly && pagination == null))
+                    .append(" WHERE ")
+                    .append(keyset ? "(" + expression + ")" : expression.toString());
+
+            // TODO: finish implementing sorting
+            if (sorting != null) {
+                // need to convert sorting field specs to fully qualified column names
+            }
 
-        if (pagination != null) {
-            if (pagination.offset() > 0) {
-                select.append(" OFFSET " + pagination.offset());
+            if (keyset) {
+                // page by continuation token, sorting on the columns of the queried table
+                String qualifier = table.quotedSchemaName() + ".";
+                if (position != null) {
+                    select.append(" AND ").append(keysetCondition(qualifier, keys));
+                }
+                select.append(keysetOrderBy(qualifier, keys));
+                select.append(" LIMIT ?");
+            } else if (pagination != null) {
+                select.append(" OFFSET ? LIMIT ?");
             }
-            select.append(" LIMIT " + pagination.limit());
-        }
+            if (countOnly && pagination != null) {
+                // count the rows of the page only
+                return "SELECT count(*) FROM (" + select + ") AS page";
+            }
+            return select.toString();
+        });
 
-        PreparedStatement ps = con.prepareStatement(select.toString());
+        PreparedStatement ps = con.prepareStatement(sql);
 
         // bind values
         int i = 1;
@@ -995,6 +1449,16 @@ public class QueryBuilder {
             pair.key().bindValue(ps, i, pair.value().value());
             i++;
         }
+        for (Pair<Column, Object> pair: keysetValues) {
+            bindKeysetValue(ps, i, pair.key(), pair.value());
+            i++;
+        }
+        if (keyset) {
+            ps.setInt(i, pagination.limit() + 1);
+        } else if (pagination != null) {
+            ps.setInt(i, pagination.offset());
+            ps.setInt(i + 1, pagination.limit());
+        }
 
         return ps;
     }
@@ -1160,9 +1624,9 @@ public class QueryBuilder {
 
     private static String rawSQL(PreparedStatement ps) {
         String raw = ps.toString();
-        int len = "Pooled statement wrapping physical statement ".length();
-        if (raw.length() > len) {
-            raw = raw.substring(len);
+        String prefix = "Pooled statement wrapping physical statement ";
+        if (raw.startsWith(prefix)) {
+            raw = raw.substring(prefix.length());
         }
         return raw;
     }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.pgsql.meta;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * SQL text of the statements built by {@link QueryBuilder}, by statement shape.
+ *
+ * <p>The shape is made of everything the SQL text depends on - the kind of statement, the table, the columns,
+ * the sorting, whether it is paged, and for queries the normalized expression - but none of the values,
+ * which are always bound as parameters. The same shape therefore always maps to the same SQL text,
+ * which the server can keep a plan for.</p>
+ *
+ * <p>Shapes refer to tables by id, so the cache has to be invalidated whenever the schema is reloaded.</p>
+ */
+public class StatementCache {
+
+    public static final String MAX_SIZE_PROPERTY = "liveoak.pgsql.statement-cache.size";
+    public static final int DEFAULT_MAX_SIZE = 500;
+
+    private final int maxSize;
+    private final Map<String, String> statements;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public StatementCache() {
+        this(Integer.getInteger(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
+    }
+
+    public StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > StatementCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param shape Key identifying the shape of the statement
+     * @param builder Builds the SQL text if there is none cached for the shape
+     * @return SQL text for the shape
+     */
+    public String sql(String shape, Supplier<String> builder) {
+        String sql;
+        synchronized (statements) {
+            sql = statements.get(shape);
+        }
+        if (sql != null) {
+            hits.incrementAndGet();
+            return sql;
+        }
+
+        misses.incrementAndGet();
+        sql = builder.get();
+        if (maxSize > 0) {
+            synchronized (statements) {
+                statements.put(shape, sql);
+            }
+        }
+        return sql;
+    }
+
+    public void invalidate() {
+        synchronized (statements) {
+            statements.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (statements) {
+            return statements.size();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public double hitRate() {
+        long hits = hits();
+        long total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "[StatementCache: size=" + size() + ", hits=" + hits() + ", misses=" + misses() + ", hitRate=" + hitRate() + "]";
+    }
+}
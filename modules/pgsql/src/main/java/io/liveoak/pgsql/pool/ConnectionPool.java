@@ -0,0 +1,644 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.pgsql.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Pool of connections opened through a {@link DataSource}.
+ *
+ * <p>Idle connections are kept in a lock-free deque, and the number of connections in use is bounded by a semaphore,
+ * so that checking a connection out and back in takes no locks unless all the connections are in use.
+ * Connections are handed out last-in first-out, keeping the most recently used ones busy and letting the rest
+ * go idle and get evicted.</p>
+ *
+ * <p>Each connection keeps the prepared statements created on it open for reuse, up to the statement cache size,
+ * so that a statement prepared again on the same connection is the same statement object. The driver switches
+ * a statement over to a server side prepared statement after it has been executed a few times, which is where
+ * the server stops planning the same SQL over and over.</p>
+ *
+ * <p>A housekeeping task closes connections that have been idle or open for too long, keeps the configured number of
+ * initial connections open, and warns about connections held for longer than the leak detection threshold.
+ * The configuration can be changed while the pool is in use.</p>
+ */
+public class ConnectionPool {
+
+    private static final Logger log = Logger.getLogger(ConnectionPool.class);
+
+    private static final long HOUSEKEEPING_INTERVAL = TimeUnit.SECONDS.toMillis(Long.getLong("liveoak.pgsql.pool.housekeeping-interval", 30));
+
+    /**
+     * System property with the most prepared statements kept open per connection, 0 to not keep any.
+     */
+    public static final String STATEMENT_CACHE_SIZE_PROPERTY = "liveoak.pgsql.pool.statement-cache.size";
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 100;
+
+    private static final Method PREPARE_STATEMENT;
+
+    static {
+        try {
+            PREPARE_STATEMENT = Connection.class.getMethod("prepareStatement", String.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final String name;
+    private final DataSource source;
+    private volatile PoolConfig config;
+    private volatile boolean closed;
+
+    private final Permits permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger openCount = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final int statementCacheSize = Integer.getInteger(STATEMENT_CACHE_SIZE_PROPERTY, DEFAULT_STATEMENT_CACHE_SIZE);
+    private volatile int statementGeneration;
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+
+    /**
+     * @param name Name of the pool, used in log messages and for the housekeeping thread
+     * @param source Opens the physical connections
+     * @throws SQLException If the initial connections could not be opened
+     */
+    public ConnectionPool(String name, DataSource source, PoolConfig config) throws SQLException {
+        this.name = name;
+        this.source = source;
+        this.config = config;
+        this.permits = new Permits(config.maxConnections());
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread thread = new Thread(r, "pgsql-pool-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            fill(config);
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+        housekeeper.scheduleWithFixedDelay(this::housekeep, HOUSEKEEPING_INTERVAL, HOUSEKEEPING_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    public PoolConfig config() {
+        return config;
+    }
+
+    /**
+     * Apply new sizing and timeouts. Connections in use are not affected, surplus idle connections are closed
+     * with the next housekeeping.
+     */
+    public synchronized void configure(PoolConfig config) {
+        // the permits are resized by the difference to the previous config, which must not change in between
+        PoolConfig old = this.config;
+        this.config = config;
+        permits.resize(config.maxConnections() - old.maxConnections());
+        housekeeper.execute(this::housekeep);
+    }
+
+    /**
+     * Users of the connection must make sure to call {@link java.sql.Connection#close()} when done using it,
+     * so that it is returned to the pool.
+     *
+     * @throws SQLTimeoutException If no connection became available within the acquire timeout
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " is closed");
+        }
+
+        long start = System.nanoTime();
+        if (!permits.tryAcquire()) {
+            PoolConfig config = this.config;
+            waiting.incrementAndGet();
+            try {
+                long timeout = config.acquireTimeout() > 0 ? config.acquireTimeout() : Long.MAX_VALUE;
+                if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                    timeouts.incrementAndGet();
+                    throw new SQLTimeoutException("Timed out after " + config.acquireTimeout() + "ms waiting for a connection from pool "
+                            + name + " (max-connections: " + config.maxConnections() + ", waiting: " + waiting.get() + ")");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection from pool " + name, e);
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = connect();
+            }
+            pooled.checkOut(config.leakDetectionThreshold() > 0);
+            active.add(pooled);
+            acquireLatency.record(System.nanoTime() - start);
+            return pooled.handle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Have the connections let go of the statements they keep, once the schema changed under them.
+     * Connections in use keep theirs until they are checked out again.
+     */
+    public void invalidateStatements() {
+        statementGeneration++;
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            discard(pooled);
+        }
+    }
+
+    public int active() {
+        return active.size();
+    }
+
+    public int idle() {
+        return idleCount.get();
+    }
+
+    public int waiting() {
+        return waiting.get();
+    }
+
+    /**
+     * @return Number of physical connections open, in use or idle
+     */
+    public int size() {
+        return openCount.get();
+    }
+
+    public long opened() {
+        return opened.get();
+    }
+
+    public long discarded() {
+        return discarded.get();
+    }
+
+    public long timeouts() {
+        return timeouts.get();
+    }
+
+    public LatencyHistogram acquireLatency() {
+        return acquireLatency;
+    }
+
+    /**
+     * @return Number of statements prepared on a connection which already had them open
+     */
+    public long statementHits() {
+        return statementHits.get();
+    }
+
+    public long statementMisses() {
+        return statementMisses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "[ConnectionPool: name=" + name + ", size=" + size() + ", active=" + active() + ", idle=" + idle() + ", waiting=" + waiting()
+                + ", opened=" + opened() + ", discarded=" + discarded() + ", timeouts=" + timeouts()
+                + ", statement-hits=" + statementHits() + ", statement-misses=" + statementMisses() + ", acquire=" + acquireLatency + "]";
+    }
+
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (pooled.expired(config, System.currentTimeMillis()) || pooled.physicallyClosed()) {
+                discard(pooled);
+                continue;
+            }
+            return pooled;
+        }
+        return null;
+    }
+
+    private PooledConnection connect() throws SQLException {
+        PooledConnection pooled = new PooledConnection(source.getConnection());
+        openCount.incrementAndGet();
+        opened.incrementAndGet();
+        return pooled;
+    }
+
+    private void discard(PooledConnection pooled) {
+        openCount.decrementAndGet();
+        discarded.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            log.debug("[IGNORED] Exception while closing a connection: ", e);
+        }
+    }
+
+    private void checkIn(PooledConnection pooled) {
+        active.remove(pooled);
+        try {
+            if (closed || pooled.broken || pooled.expired(config, System.currentTimeMillis()) || pooled.physicallyClosed()) {
+                discard(pooled);
+                return;
+            }
+            try {
+                pooled.closeStatements();
+                // leave no transaction behind for the next user
+                if (!pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();
+                    pooled.physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                log.debug("Discarding a connection that could not be reset: ", e);
+                discard(pooled);
+                return;
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+            idleCount.incrementAndGet();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void fill(PoolConfig config) throws SQLException {
+        while (!closed && idleCount.get() < config.initialConnections() && openCount.get() < config.maxConnections()) {
+            PooledConnection pooled = connect();
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerLast(pooled);
+            idleCount.incrementAndGet();
+        }
+    }
+
+    private void housekeep() {
+        try {
+            PoolConfig config = this.config;
+            long now = System.currentTimeMillis();
+
+            // the least recently used connections are at the end of the deque
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                boolean surplus = openCount.get() > config.maxConnections()
+                        || (config.idleTimeout() > 0 && now - pooled.lastUsed > config.idleTimeout() && idleCount.get() > config.initialConnections());
+                if ((surplus || pooled.expired(config, now)) && idle.removeFirstOccurrence(pooled)) {
+                    idleCount.decrementAndGet();
+                    discard(pooled);
+                }
+            }
+
+            if (config.leakDetectionThreshold() > 0) {
+                for (PooledConnection pooled: active) {
+                    Throwable checkedOutAt = pooled.checkedOutAt;
+                    if (now - pooled.checkedOut > config.leakDetectionThreshold() && checkedOutAt != null && pooled.leakReported.compareAndSet(false, true)) {
+                        log.warn("Connection from pool " + name + " held for " + (now - pooled.checkedOut) + "ms, possible leak. Checked out at:", checkedOutAt);
+                    }
+                }
+            }
+
+            fill(config);
+        } catch (Throwable e) {
+            log.warn("Housekeeping of connection pool " + name + " failed: ", e);
+        }
+    }
+
+    /**
+     * Semaphore which can also give up permits, for shrinking the pool.
+     */
+    private static class Permits extends Semaphore {
+        Permits(int permits) {
+            super(permits, true);
+        }
+
+        void resize(int delta) {
+            if (delta > 0) {
+                release(delta);
+            } else if (delta < 0) {
+                reducePermits(-delta);
+            }
+        }
+    }
+
+    private class PooledConnection {
+        final Connection physical;
+        final long created = System.currentTimeMillis();
+        volatile long lastUsed;
+        volatile long checkedOut;
+        volatile Throwable checkedOutAt;
+        volatile boolean broken;
+        final AtomicBoolean leakReported = new AtomicBoolean();
+
+        // only used by whoever has the connection checked out
+        final Map<String, CachedStatement> statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() > statementCacheSize) {
+                    eldest.getValue().evict();
+                    return true;
+                }
+                return false;
+            }
+        };
+        final Set<Statement> open = Collections.newSetFromMap(new IdentityHashMap<>());
+        int generation = statementGeneration;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        boolean expired(PoolConfig config, long now) {
+            return config.maxLifetime() > 0 && now - created > config.maxLifetime();
+        }
+
+        boolean physicallyClosed() {
+            try {
+                return physical.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        }
+
+        void checkOut(boolean trace) {
+            if (generation != statementGeneration) {
+                generation = statementGeneration;
+                for (CachedStatement cached: statements.values()) {
+                    cached.evict();
+                }
+                statements.clear();
+            }
+            checkedOut = System.currentTimeMillis();
+            checkedOutAt = trace ? new Throwable("Connection checked out") : null;
+            leakReported.set(false);
+        }
+
+        /**
+         * Close the statements the user of the connection left open, along with their result sets.
+         */
+        void closeStatements() throws SQLException {
+            if (open.isEmpty()) {
+                return;
+            }
+            log.debug("Closing " + open.size() + " statements left open on a connection from pool " + name);
+            for (Statement statement: new ArrayList<>(open)) {
+                statement.close();
+            }
+        }
+
+        /**
+         * @return A new handle on the physical connection, returning it to the pool when closed
+         */
+        Connection handle() {
+            AtomicBoolean released = new AtomicBoolean();
+            InvocationHandler handler = (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "close":
+                        if (released.compareAndSet(false, true)) {
+                            checkIn(this);
+                        }
+                        return null;
+                    case "isClosed":
+                        return released.get() || physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled " + physical;
+                    default:
+                        if (released.get()) {
+                            throw new SQLException("Connection has been returned to the pool");
+                        }
+                        if (method.getName().equals("prepareStatement") && args.length == 1 && statementCacheSize > 0) {
+                            return prepare((String) args[0], (Connection) proxy);
+                        }
+                        return invoke(physical, method, args, (Connection) proxy, null);
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class[]{Connection.class}, handler);
+        }
+
+        /**
+         * @return The statement kept open for the SQL, or a newly prepared one if there is none or it is in use
+         */
+        private PreparedStatement prepare(String sql, Connection handle) throws Throwable {
+            CachedStatement cached = statements.get(sql);
+            if (cached != null && !cached.inUse) {
+                statementHits.incrementAndGet();
+            } else {
+                statementMisses.incrementAndGet();
+                PreparedStatement statement = (PreparedStatement) invoke(physical, PREPARE_STATEMENT, new Object[]{sql});
+                if (cached != null) {
+                    // the same SQL is still open further up the stack, this one is not kept
+                    return (PreparedStatement) statement(statement, PreparedStatement.class, handle, null);
+                }
+                try {
+                    cached = new CachedStatement(statement);
+                } catch (SQLException e) {
+                    statement.close();
+                    throw e;
+                }
+                statements.put(sql, cached);
+            }
+            cached.inUse = true;
+            return (PreparedStatement) statement(cached.physical, PreparedStatement.class, handle, cached);
+        }
+
+        /**
+         * Invoke the method, wrapping statements, result sets and metadata it returns, so that they don't hand out
+         * the physical connection and their failures are noticed too.
+         *
+         * @param owner What the result sets returned are to give as their statement, or null
+         */
+        private Object invoke(Object target, Method method, Object[] args, Connection handle, Statement owner) throws Throwable {
+            Object result = invoke(target, method, args);
+            Class<?> type = method.getReturnType();
+            if (result == null) {
+                return null;
+            } else if (type == Statement.class || type == PreparedStatement.class || type == CallableStatement.class) {
+                return statement((Statement) result, type, handle, null);
+            } else if (type == ResultSet.class || type == DatabaseMetaData.class) {
+                return delegate(result, type, handle, owner);
+            }
+            return result;
+        }
+
+        private Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // SQL state class 08 is a connection exception, the connection is not to be reused
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    if (state != null && state.startsWith("08")) {
+                        broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+
+        /**
+         * @param cached The cache entry the statement is kept open by, or null to close the statement along with the handle
+         */
+        private Statement statement(Statement statement, Class<?> type, Connection handle, CachedStatement cached) {
+            AtomicBoolean released = new AtomicBoolean();
+            InvocationHandler handler = (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "close":
+                        if (released.compareAndSet(false, true)) {
+                            open.remove(proxy);
+                            if (cached != null) {
+                                cached.release();
+                            } else {
+                                statement.close();
+                            }
+                        }
+                        return null;
+                    case "isClosed":
+                        return released.get() || statement.isClosed();
+                    case "getConnection":
+                        return handle;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return statement.toString();
+                    default:
+                        if (released.get()) {
+                            throw new SQLException("Statement has been closed");
+                        }
+                        return invoke(statement, method, args, handle, (Statement) proxy);
+                }
+            };
+            Statement proxy = (Statement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class[]{type}, handler);
+            open.add(proxy);
+            return proxy;
+        }
+
+        private Object delegate(Object target, Class<?> type, Connection handle, Statement owner) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getStatement":
+                        return owner != null ? owner : invoke(target, method, args);
+                    case "getConnection":
+                        return handle;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return target.toString();
+                    default:
+                        return invoke(target, method, args, handle, owner);
+                }
+            };
+            return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class[]{type}, handler);
+        }
+
+        /**
+         * Prepared statement kept open on the connection, handed out again when closed.
+         */
+        private class CachedStatement {
+            final PreparedStatement physical;
+            boolean inUse;
+            boolean evicted;
+
+            // settings of the statement as prepared, which each user of it gets to start with
+            final int fetchSize;
+            final int maxRows;
+            final int queryTimeout;
+
+            CachedStatement(PreparedStatement physical) throws SQLException {
+                this.physical = physical;
+                this.fetchSize = physical.getFetchSize();
+                this.maxRows = physical.getMaxRows();
+                this.queryTimeout = physical.getQueryTimeout();
+            }
+
+            void release() throws SQLException {
+                inUse = false;
+                if (evicted) {
+                    physical.close();
+                    return;
+                }
+                try {
+                    physical.clearParameters();
+                    physical.clearWarnings();
+                    physical.setFetchSize(fetchSize);
+                    physical.setMaxRows(maxRows);
+                    physical.setQueryTimeout(queryTimeout);
+                } catch (SQLException e) {
+                    statements.values().remove(this);
+                    physical.close();
+                    throw e;
+                }
+            }
+
+            void evict() {
+                evicted = true;
+                if (!inUse) {
+                    try {
+                        physical.close();
+                    } catch (SQLException e) {
+                        log.debug("[IGNORED] Exception while closing a statement: ", e);
+                    }
+                }
+            }
+        }
+    }
+}
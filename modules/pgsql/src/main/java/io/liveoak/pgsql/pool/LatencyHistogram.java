@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.pgsql.pool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts of recorded latencies in fixed buckets, with no locking on the recording side.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Upper bounds of the buckets in milliseconds. Latencies above the last bound go to an extra bucket.
+     */
+    private static final long[] BOUNDS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int i = 0;
+        while (i < BOUNDS.length && millis >= BOUNDS[i]) {
+            i++;
+        }
+        counts.incrementAndGet(i);
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public double meanMillis() {
+        long count = count();
+        return count == 0 ? 0 : (double) total.get() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double maxMillis() {
+        return (double) max.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return Counts by bucket, as "&lt;1ms", "&lt;2ms", ..., "&gt;=10000ms"
+     */
+    public Map<String, Long> buckets() {
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < BOUNDS.length; i++) {
+            buckets.put("<" + BOUNDS[i] + "ms", counts.get(i));
+        }
+        buckets.put(">=" + BOUNDS[BOUNDS.length - 1] + "ms", counts.get(BOUNDS.length));
+        return buckets;
+    }
+
+    @Override
+    public String toString() {
+        return "[LatencyHistogram: count=" + count() + ", mean=" + meanMillis() + "ms, max=" + maxMillis() + "ms]";
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.pgsql.pool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizing and timeouts of a {@link ConnectionPool}. All times are in milliseconds, and 0 turns the limit off.
+ */
+public class PoolConfig {
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 10;
+    public static final int DEFAULT_INITIAL_CONNECTIONS = 1;
+    public static final long DEFAULT_ACQUIRE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+    public static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+    public static final long DEFAULT_MAX_LIFETIME = TimeUnit.MINUTES.toMillis(30);
+    public static final long DEFAULT_LEAK_DETECTION_THRESHOLD = 0;
+
+    private final int maxConnections;
+    private final int initialConnections;
+    private final long acquireTimeout;
+    private final long idleTimeout;
+    private final long maxLifetime;
+    private final long leakDetectionThreshold;
+
+    public PoolConfig() {
+        this(DEFAULT_MAX_CONNECTIONS, DEFAULT_INITIAL_CONNECTIONS, DEFAULT_ACQUIRE_TIMEOUT,
+                DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_LIFETIME, DEFAULT_LEAK_DETECTION_THRESHOLD);
+    }
+
+    /**
+     * @param maxConnections Most connections open at the same time
+     * @param initialConnections Connections opened up front, and kept open when idle
+     * @param acquireTimeout How long to wait for a connection when all of them are in use, before failing
+     * @param idleTimeout How long a connection may stay unused before it is closed
+     * @param maxLifetime How long a connection may stay open before it is replaced
+     * @param leakDetectionThreshold How long a connection may be held before a warning about a possible leak is logged
+     */
+    public PoolConfig(int maxConnections, int initialConnections, long acquireTimeout, long idleTimeout, long maxLifetime, long leakDetectionThreshold) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("max-connections must be at least 1: " + maxConnections);
+        }
+        if (initialConnections < 0 || initialConnections > maxConnections) {
+            throw new IllegalArgumentException("initial-connections must be between 0 and max-connections: " + initialConnections);
+        }
+        if (acquireTimeout < 0 || idleTimeout < 0 || maxLifetime < 0 || leakDetectionThreshold < 0) {
+            throw new IllegalArgumentException("Timeouts can not be negative");
+        }
+        this.maxConnections = maxConnections;
+        this.initialConnections = initialConnections;
+        this.acquireTimeout = acquireTimeout;
+        this.idleTimeout = idleTimeout;
+        this.maxLifetime = maxLifetime;
+        this.leakDetectionThreshold = leakDetectionThreshold;
+    }
+
+    public int maxConnections() {
+        return maxConnections;
+    }
+
+    public int initialConnections() {
+        return initialConnections;
+    }
+
+    public long acquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public long idleTimeout() {
+        return idleTimeout;
+    }
+
+    public long maxLifetime() {
+        return maxLifetime;
+    }
+
+    public long leakDetectionThreshold() {
+        return leakDetectionThreshold;
+    }
+
+    @Override
+    public String toString() {
+        return "[PoolConfig: max-connections=" + maxConnections + ", initial-connections=" + initialConnections
+                + ", acquire-timeout=" + acquireTimeout + ", idle-timeout=" + idleTimeout
+                + ", max-lifetime=" + maxLifetime + ", leak-detection-threshold=" + leakDetectionThreshold + "]";
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.pgsql;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import io.liveoak.pgsql.pool.ConnectionPool;
+import io.liveoak.pgsql.pool.PoolConfig;
+import org.fest.assertions.Fail;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Runs against stand-in connections, so it needs no PostgreSQL.
+ */
+public class ConnectionPoolTest {
+
+    private AtomicInteger physicallyClosed = new AtomicInteger();
+    private AtomicInteger prepared = new AtomicInteger();
+    private AtomicInteger statementsClosed = new AtomicInteger();
+
+    @Test
+    public void testReuseAndTimeout() throws Exception {
+        ConnectionPool pool = new ConnectionPool("test", dataSource(), new PoolConfig(1, 1, 100, 0, 0, 0));
+        assertThat(pool.size()).isEqualTo(1);
+        assertThat(pool.idle()).isEqualTo(1);
+
+        // the initial connection is reused
+        try (Connection c = pool.getConnection()) {
+            assertThat(pool.active()).isEqualTo(1);
+            assertThat(pool.idle()).isEqualTo(0);
+        }
+        Connection c = pool.getConnection();
+        assertThat(pool.opened()).isEqualTo(1);
+
+        // all connections in use
+        try {
+            pool.getConnection();
+            Fail.fail();
+        } catch (SQLTimeoutException e) {
+            // expected
+        }
+        assertThat(pool.timeouts()).isEqualTo(1);
+
+        // a closed handle can't be used, and closing it again doesn't return the connection twice
+        c.close();
+        assertThat(c.isClosed()).isTrue();
+        c.close();
+        assertThat(pool.idle()).isEqualTo(1);
+        assertThat(pool.acquireLatency().count()).isEqualTo(2);
+
+        pool.close();
+        assertThat(physicallyClosed.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReconfigure() throws Exception {
+        ConnectionPool pool = new ConnectionPool("test", dataSource(), new PoolConfig(1, 0, 100, 0, 0, 0));
+        Connection c1 = pool.getConnection();
+
+        // more connections become available without reopening the pool
+        pool.configure(new PoolConfig(2, 0, 100, 0, 0, 0));
+        Connection c2 = pool.getConnection();
+        assertThat(pool.active()).isEqualTo(2);
+
+        // an open transaction is rolled back when the connection is returned
+        c2.setAutoCommit(false);
+        c2.close();
+        try (Connection c = pool.getConnection()) {
+            assertThat(c.getAutoCommit()).isTrue();
+        }
+
+        // expired connections are replaced rather than reused
+        pool.configure(new PoolConfig(2, 0, 100, 0, 1, 0));
+        Thread.sleep(10);
+        c1.close();
+        assertThat(physicallyClosed.get()).isEqualTo(1);
+
+        pool.close();
+    }
+
+    @Test
+    public void testStatementReuse() throws Exception {
+        ConnectionPool pool = new ConnectionPool("test", dataSource(), new PoolConfig(1, 1, 100, 0, 0, 0));
+        try (Connection c = pool.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement("SELECT 1")) {
+                assertThat(ps.getConnection()).isSameAs(c);
+
+                // the same SQL while the first one is still open gets a statement of its own
+                c.prepareStatement("SELECT 1").close();
+                assertThat(statementsClosed.get()).isEqualTo(1);
+            }
+        }
+
+        // the statement is kept open across checkouts
+        try (Connection c = pool.getConnection()) {
+            PreparedStatement ps = c.prepareStatement("SELECT 1");
+            ps.close();
+            try {
+                ps.setInt(1, 1);
+                Fail.fail();
+            } catch (SQLException e) {
+                // expected
+            }
+        }
+        assertThat(prepared.get()).isEqualTo(2);
+        assertThat(pool.statementHits()).isEqualTo(1);
+        assertThat(pool.statementMisses()).isEqualTo(2);
+
+        // a schema change has the statements prepared again
+        pool.invalidateStatements();
+        try (Connection c = pool.getConnection()) {
+            c.prepareStatement("SELECT 1").close();
+        }
+        assertThat(prepared.get()).isEqualTo(3);
+        assertThat(statementsClosed.get()).isEqualTo(2);
+
+        pool.close();
+    }
+
+    @Test
+    public void testStatementSettingsReset() throws Exception {
+        ConnectionPool pool = new ConnectionPool("test", dataSource(), new PoolConfig(1, 1, 100, 0, 0, 0));
+        try (Connection c = pool.getConnection()) {
+            PreparedStatement ps = c.prepareStatement("SELECT 1");
+            ps.setFetchSize(50);
+            ps.setMaxRows(10);
+            ps.setQueryTimeout(5);
+            ps.close();
+        }
+
+        // the next user of the statement gets it as it was prepared
+        try (Connection c = pool.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement("SELECT 1")) {
+                assertThat(ps.getFetchSize()).isEqualTo(0);
+                assertThat(ps.getMaxRows()).isEqualTo(0);
+                assertThat(ps.getQueryTimeout()).isEqualTo(0);
+            }
+        }
+        assertThat(pool.statementHits()).isEqualTo(1);
+
+        pool.close();
+    }
+
+    @Test
+    public void testStatementsOfConnection() throws Exception {
+        ConnectionPool pool = new ConnectionPool("test", dataSource(), new PoolConfig(1, 1, 100, 0, 0, 0));
+        try (Connection c = pool.getConnection()) {
+            Statement s = c.createStatement();
+            try (ResultSet rs = s.executeQuery("SELECT 1")) {
+                // nothing leads back to the physical connection
+                assertThat(rs.getStatement()).isSameAs(s);
+                assertThat(rs.getStatement().getConnection()).isSameAs(c);
+            }
+            // s left open
+        }
+        // closed when the connection was returned
+        assertThat(statementsClosed.get()).isEqualTo(1);
+        assertThat(physicallyClosed.get()).isEqualTo(0);
+
+        // a connection error raised by a statement has the connection discarded
+        try (Connection c = pool.getConnection()) {
+            try (Statement s = c.createStatement()) {
+                s.executeQuery("BROKEN");
+                Fail.fail();
+            } catch (SQLException e) {
+                assertThat(e.getSQLState()).isEqualTo("08006");
+            }
+        }
+        assertThat(physicallyClosed.get()).isEqualTo(1);
+        assertThat(pool.discarded()).isEqualTo(1);
+
+        pool.close();
+    }
+
+    private DataSource dataSource() {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DataSource.class}, (proxy, method, args) -> {
+            if (!method.getName().equals("getConnection")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            return connection();
+        });
+    }
+
+    private PreparedStatement statement() {
+        boolean[] closed = {false};
+        Map<String, Object> settings = new HashMap<>();
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{PreparedStatement.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed[0]) {
+                        statementsClosed.incrementAndGet();
+                    }
+                    closed[0] = true;
+                    return null;
+                case "isClosed":
+                    return closed[0];
+                case "clearParameters":
+                case "clearWarnings":
+                case "setInt":
+                    return null;
+                case "setFetchSize":
+                case "setMaxRows":
+                case "setQueryTimeout":
+                    settings.put(method.getName().substring(3), args[0]);
+                    return null;
+                case "getFetchSize":
+                case "getMaxRows":
+                case "getQueryTimeout":
+                    return settings.getOrDefault(method.getName().substring(3), 0);
+                case "executeQuery":
+                    if (args[0].equals("BROKEN")) {
+                        throw new SQLException("Connection reset", "08006");
+                    }
+                    return resultSet((Statement) proxy);
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private ResultSet resultSet(Statement statement) {
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getStatement":
+                    return statement;
+                case "close":
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private Connection connection() {
+        boolean[] state = {false, true}; // closed, autoCommit
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    if (!state[0]) {
+                        physicallyClosed.incrementAndGet();
+                    }
+                    state[0] = true;
+                    return null;
+                case "isClosed":
+                    return state[0];
+                case "getAutoCommit":
+                    return state[1];
+                case "setAutoCommit":
+                    state[1] = (Boolean) args[0];
+                    return null;
+                case "rollback":
+                    return null;
+                case "prepareStatement":
+                    prepared.incrementAndGet();
+                    return statement();
+                case "createStatement":
+                    return statement();
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
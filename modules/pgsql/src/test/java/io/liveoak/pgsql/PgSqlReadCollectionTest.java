@@ -6,12 +6,24 @@
 package io.liveoak.pgsql;
 
 import java.net.URISyntaxException;
+import java.net.URLDecoder;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
 
+import io.liveoak.common.DefaultPagination;
+import io.liveoak.common.DefaultRequestAttributes;
+import io.liveoak.common.DefaultResourceParams;
+import io.liveoak.common.DefaultReturnFields;
 import io.liveoak.spi.LiveOak;
+import io.liveoak.spi.Pagination;
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.Sorting;
 import io.liveoak.spi.state.ResourceState;
 import org.junit.Test;
 
+import static org.fest.assertions.Assertions.assertThat;
+
 /**
  * See superclass JavaDoc for how to set up PostgreSQL for this test.
  *
@@ -67,6 +79,104 @@ public class PgSqlReadCollectionTest extends BasePgSqlTest {
         checkOrders(endpoint, result, 3);
     }
 
+    @Test
+    public void testReadCollectionByContinuationToken() throws Exception {
+        if (skipTests()) {
+            return;
+        }
+
+        String endpoint = "/testApp/" + BASEPATH + "/" + schema_two + ".orders";
+
+        // sort on a timestamp column, which has to survive the trip through the token
+        Sorting sorting = new Sorting("create_date");
+        List<String> ids = new ArrayList<>();
+
+        String cursor = "";
+        int pages = 0;
+        while (cursor != null) {
+            ResourceState result = client.read(ctx("*(*)", sorting, cursor, 2), endpoint);
+            System.out.println(result);
+            result.members().forEach((member) -> ids.add(member.id()));
+            assertThat(result.getProperty("count")).isNull();
+            cursor = nextCursor(result);
+            ++pages;
+        }
+
+        assertThat(pages).isEqualTo(2);
+        assertThat(ids).containsExactly("014-2004096", "014-2004345", "014-1003095");
+    }
+
+    @Test
+    public void testReadCollectionStreamed() throws Exception {
+        if (skipTests()) {
+            return;
+        }
+
+        String endpoint = "/testApp/" + BASEPATH + "/addresses";
+        Sorting sorting = new Sorting("address_id");
+
+        // a page this large is streamed from a server side cursor, rather than read whole first
+        ResourceState streamed = client.read(ctx("*(*)", sorting, Pagination.MAX_LIMIT), endpoint);
+        System.out.println(streamed);
+        ResourceState read = client.read(ctx("*(*)", sorting, 10), endpoint);
+
+        assertThat(ids(streamed)).containsExactly("1", "2");
+        assertThat(ids(streamed)).isEqualTo(ids(read));
+
+        // referring rows are expanded as well
+        assertThat((List) streamed.members().get(0).getProperty(schema_two + ".orders")).hasSize(1);
+        assertThat((List) streamed.members().get(1).getProperty(schema_two + ".orders")).hasSize(2);
+
+        // the rows of the page are counted up front, without being read
+        assertThat(streamed.getProperty("count")).isEqualTo(2);
+        assertThat(streamed.getProperty("count")).isEqualTo(read.getProperty("count"));
+        assertThat(hasLink(streamed, "next")).isFalse();
+    }
+
+    private List<String> ids(ResourceState result) {
+        List<String> ids = new ArrayList<>();
+        result.members().forEach((member) -> ids.add(member.id()));
+        return ids;
+    }
+
+    private RequestContext ctx(String pat, Sorting sorting, int limit) {
+        return new RequestContext.Builder()
+                .requestAttributes(new DefaultRequestAttributes())
+                .returnFields(new DefaultReturnFields(pat))
+                .resourceParams(new DefaultResourceParams.Builder().build())
+                .sorting(sorting)
+                .pagination(new DefaultPagination(0, limit))
+                .build();
+    }
+
+    private RequestContext ctx(String pat, Sorting sorting, String cursor, int limit) {
+        return new RequestContext.Builder()
+                .requestAttributes(new DefaultRequestAttributes())
+                .returnFields(new DefaultReturnFields(pat))
+                .resourceParams(new DefaultResourceParams.Builder().add("cursor", cursor).build())
+                .sorting(sorting)
+                .pagination(new DefaultPagination(limit, cursor))
+                .build();
+    }
+
+    private boolean hasLink(ResourceState result, String rel) {
+        List<ResourceState> links = (List<ResourceState>) result.getProperty("links");
+        return links.stream().anyMatch((link) -> rel.equals(link.getProperty("rel")));
+    }
+
+    private String nextCursor(ResourceState result) throws Exception {
+        List<ResourceState> links = (List<ResourceState>) result.getProperty("links");
+        for (ResourceState link : links) {
+            if ("next".equals(link.getProperty("rel"))) {
+                String href = link.getProperty(LiveOak.HREF).toString();
+                String cursor = href.substring(href.indexOf("cursor=") + "cursor=".length());
+                cursor = cursor.contains("&") ? cursor.substring(0, cursor.indexOf("&")) : cursor;
+                return URLDecoder.decode(cursor, "utf-8");
+            }
+        }
+        return null;
+    }
+
     private void checkOrders(String endpoint, ResourceState result, int expandDepth) throws URISyntaxException, ParseException {
 
         if (expandDepth < 1 || expandDepth > 3) {
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.pgsql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.liveoak.common.DefaultPagination;
+import io.liveoak.common.DefaultRequestAttributes;
+import io.liveoak.common.DefaultResourceParams;
+import io.liveoak.common.DefaultReturnFields;
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.Sorting;
+import io.liveoak.spi.state.ResourceState;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Referring rows of a page of rows are read up front, a batch of rows at a time.
+ *
+ * See superclass JavaDoc for how to set up PostgreSQL for this test.
+ */
+public class PgSqlReferringRowsTest extends BasePgSqlTest {
+
+    @Test
+    public void testReferringRowsBatched() throws Exception {
+        if (skipTests()) {
+            return;
+        }
+
+        String endpoint = "/testApp/" + BASEPATH;
+
+        // a table whose foreign key may be null
+        ResourceState body = resource("tags", endpoint, new Object[]{
+                "columns", list(
+                        obj("name", "tag_id",
+                                "type", "varchar",
+                                "size", 40),
+                        obj("name", "address_id",
+                                "type", "int4")
+                ),
+                "primary-key", list("tag_id"),
+                "foreign-keys", list(
+                        obj("table", "addresses",
+                                "columns", list("address_id"))
+                )
+        });
+        client.create(ctx("*"), endpoint, body);
+
+        try (Connection c = datasource.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement("insert into " + schema + ".addresses VALUES (?,?,?,?,?,?,?)")) {
+                insertAddress(ps, 3, "Jane Doe", "Liveoak street 9", null, "London", "UK", false);
+                insertAddress(ps, 4, "Joe Doe", "Liveoak street 11", null, "London", "UK", false);
+                insertAddress(ps, 5, "Oak Storage Ltd.", "Liveoak road 3", null, "Leeds", "UK", true);
+            }
+            try (PreparedStatement ps = c.prepareStatement("insert into " + schema + ".tags VALUES (?,?)")) {
+                insertTag(ps, "home", 1);
+                insertTag(ps, "office", 2);
+                insertTag(ps, "shop", 2);
+                insertTag(ps, "unused", null);
+                insertTag(ps, "warehouse", 5);
+            }
+        }
+
+        // five rows take three selects per referring table, the last row being in a batch of its own
+        System.setProperty(PgSqlTableResource.IN_BATCH_SIZE_PROPERTY, "2");
+        ResourceState result;
+        try {
+            result = client.read(ctx("*(*)", new Sorting("address_id"), 10), endpoint + "/addresses");
+        } finally {
+            System.clearProperty(PgSqlTableResource.IN_BATCH_SIZE_PROPERTY);
+        }
+        System.out.println(result);
+
+        List<ResourceState> members = result.members();
+        assertThat(ids(members)).containsExactly("1", "2", "3", "4", "5");
+
+        assertThat(tags(members.get(0))).containsExactly("home");
+        assertThat(tags(members.get(1))).containsExactly("office", "shop");
+        // rows nothing refers to get an empty list, rather than falling back to a select of their own
+        assertThat(tags(members.get(2))).isEmpty();
+        assertThat(tags(members.get(3))).isEmpty();
+        assertThat(tags(members.get(4))).containsExactly("warehouse");
+
+        assertThat((List) members.get(1).getProperty(schema_two + ".orders")).hasSize(2);
+        assertThat((List) members.get(4).getProperty(schema_two + ".orders")).isEmpty();
+
+        // the same as read for a single row
+        ResourceState single = client.read(ctx("*(*)"), endpoint + "/addresses/2");
+        assertThat(tags(single)).isEqualTo(tags(members.get(1)));
+    }
+
+    private static void insertTag(PreparedStatement ps, String id, Integer fk) throws SQLException {
+        ps.setString(1, id);
+        if (fk == null) {
+            ps.setNull(2, Types.INTEGER);
+        } else {
+            ps.setInt(2, fk);
+        }
+        ps.execute();
+    }
+
+    private List<String> ids(List<ResourceState> members) {
+        List<String> ids = new ArrayList<>();
+        members.forEach((member) -> ids.add(member.id()));
+        return ids;
+    }
+
+    private List<String> tags(ResourceState address) {
+        List<String> tags = new ArrayList<>();
+        for (Object tag : (List) address.getProperty("tags")) {
+            String path = ((ResourceState) tag).uri().getPath();
+            tags.add(path.substring(path.lastIndexOf('/') + 1));
+        }
+        Collections.sort(tags);
+        return tags;
+    }
+
+    private RequestContext ctx(String pat, Sorting sorting, int limit) {
+        return new RequestContext.Builder()
+                .requestAttributes(new DefaultRequestAttributes())
+                .returnFields(new DefaultReturnFields(pat))
+                .resourceParams(new DefaultResourceParams.Builder().build())
+                .sorting(sorting)
+                .pagination(new DefaultPagination(0, limit))
+                .build();
+    }
+}
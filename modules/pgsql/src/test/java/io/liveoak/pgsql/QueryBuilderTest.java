@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.pgsql;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import io.liveoak.pgsql.meta.Catalog;
+import io.liveoak.pgsql.meta.Column;
+import io.liveoak.pgsql.meta.PrimaryKey;
+import io.liveoak.pgsql.meta.QueryBuilder;
+import io.liveoak.pgsql.meta.Table;
+import io.liveoak.pgsql.meta.TableRef;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Runs against stand-in connections, so it needs no PostgreSQL.
+ */
+public class QueryBuilderTest {
+
+    private List<String> prepared = new ArrayList<>();
+
+    @Test
+    public void testWhereColumnsJoinedWithAnd() throws Exception {
+        Catalog catalog = catalog();
+        Table items = catalog.tableById("order_items");
+        QueryBuilder queryBuilder = new QueryBuilder(catalog);
+
+        queryBuilder.prepareSelectFromTableWhere(connection(), items, null, items.pk().columns(), Arrays.asList("014-1003095", "2"), null, null);
+        queryBuilder.executeDelete(null, connection(), items, PrimaryKey.spliceId(new String[]{"014-1003095", "2"}), false);
+
+        assertThat(prepared).hasSize(2);
+        assertThat(prepared.get(0)).endsWith(" WHERE \"order_id\"=? AND \"item_no\"=?");
+        assertThat(prepared.get(1)).endsWith(" WHERE \"order_id\"=? AND \"item_no\"=?");
+    }
+
+    private Catalog catalog() {
+        Column orderId = new Column(null, "order_id", "varchar", 40, true, false);
+        Column itemNo = new Column(null, "item_no", "varchar", 10, true, false);
+        Column quantity = new Column(null, "quantity", "int4", 10, true, false);
+        Table items = new Table("shop", "order_items", new ArrayList<>(Arrays.asList(orderId, itemNo, quantity)),
+                new PrimaryKey(Arrays.asList(orderId, itemNo)), null);
+
+        Map<TableRef, Table> tables = new HashMap<>();
+        tables.put(items.tableRef(), items);
+        return new Catalog(new HashSet<>(Collections.singletonList("shop")), "shop", tables);
+    }
+
+    private Connection connection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class}, (proxy, method, args) -> {
+            if (!method.getName().equals("prepareStatement")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            prepared.add((String) args[0]);
+            return statement();
+        });
+    }
+
+    private PreparedStatement statement() {
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{PreparedStatement.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "executeUpdate":
+                    return 1;
+                case "setObject":
+                case "setInt":
+                case "setNull":
+                case "close":
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.pgsql;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.liveoak.pgsql.meta.StatementCache;
+import org.fest.assertions.Assertions;
+import org.junit.Test;
+
+public class StatementCacheTest {
+
+    @Test
+    public void test() {
+        StatementCache cache = new StatementCache(2);
+        AtomicInteger builds = new AtomicInteger();
+
+        // same shape is only built once
+        String sql = cache.sql("select orders", () -> "SELECT * FROM \"orders\" LIMIT ? OFFSET ?" + builds.incrementAndGet());
+        Assertions.assertThat(cache.sql("select orders", () -> "other" + builds.incrementAndGet())).isEqualTo(sql);
+        Assertions.assertThat(builds.get()).isEqualTo(1);
+        Assertions.assertThat(cache.hits()).isEqualTo(1);
+        Assertions.assertThat(cache.misses()).isEqualTo(1);
+        Assertions.assertThat(cache.hitRate()).isEqualTo(0.5);
+
+        // least recently used shape is evicted
+        cache.sql("count orders", () -> "SELECT count(*) FROM \"orders\"");
+        cache.sql("select orders", () -> "not used");
+        cache.sql("count addresses", () -> "SELECT count(*) FROM \"addresses\"");
+        Assertions.assertThat(cache.size()).isEqualTo(2);
+        Assertions.assertThat(cache.sql("select orders", () -> "not used")).isEqualTo(sql);
+        Assertions.assertThat(cache.sql("count orders", () -> "rebuilt")).isEqualTo("rebuilt");
+
+        // schema reload
+        cache.invalidate();
+        Assertions.assertThat(cache.size()).isEqualTo(0);
+        Assertions.assertThat(cache.sql("select orders", () -> "rebuilt")).isEqualTo("rebuilt");
+    }
+}
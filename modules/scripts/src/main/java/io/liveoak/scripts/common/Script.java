@@ -22,6 +22,7 @@ public abstract class Script {
     ByteBuf scriptBuffer;
     private List<Function> provides = new ArrayList<>();
     Integer timeout;
+    private volatile int version;
 
     protected abstract Function[] getFunctions();
 
@@ -97,11 +98,19 @@ public abstract class Script {
 
     public void setScriptBuffer(ByteBuf scriptBuffer) {
         this.scriptBuffer = scriptBuffer;
+        this.version++;
         if (scriptBuffer != null) {
             analyseProvides();
         }
     }
 
+    /**
+     * @return A number which changes whenever the script source is replaced.
+     */
+    public int getVersion() {
+        return version;
+    }
+
     public List<Function> getProvides() {
         return provides;
     }
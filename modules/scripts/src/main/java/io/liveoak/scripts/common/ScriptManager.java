@@ -1,12 +1,19 @@
 package io.liveoak.scripts.common;
 
 import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 
 import io.liveoak.common.DefaultResourceErrorResponse;
 import io.liveoak.scripts.libraries.manager.LibraryManager;
@@ -28,6 +35,7 @@ import org.dynjs.exception.ThrowException;
 import org.dynjs.runtime.DynJS;
 import org.dynjs.runtime.GlobalObject;
 import org.dynjs.runtime.Runner;
+import org.dynjs.runtime.Types;
 import org.jboss.logging.Logger;
 
 /**
@@ -40,9 +48,35 @@ public class ScriptManager {
 
     protected static final Logger log = Logger.getLogger("io.liveoak.scripts");
 
+    public static final String MAX_THREADS_PROPERTY = "liveoak.scripts.max-threads";
+
+    // Scripts commonly block on client calls, so allow for more threads than cores.
+    private static final int THREADS = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+
+    // A script blocked on a client call may be waiting for a script triggered by that call, so invocations are
+    // handed straight to a thread rather than queued behind the ones waiting for them.
+    private static final int MAX_THREADS = Math.max(THREADS, Integer.getInteger(MAX_THREADS_PROPERTY, 256));
+
+    private static final ThreadLocal<Boolean> SCRIPT_THREAD = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor executor;
+    private final ScriptRuntimePool runtimePool = new ScriptRuntimePool(THREADS);
+    private final ScriptMetrics metrics = new ScriptMetrics();
+
     public ScriptManager(ScriptConfig scriptConfig, LibraryManager libraryManager) {
         this.libraryManager = libraryManager;
         this.scriptConfig = scriptConfig;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(THREADS, MAX_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), (runnable) -> {
+            Thread thread = new Thread(() -> {
+                SCRIPT_THREAD.set(Boolean.TRUE);
+                runnable.run();
+            }, "liveoak-script-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
     }
 
     protected Object getLibrary(Script script) {
@@ -56,33 +90,81 @@ public class ScriptManager {
     }
 
     protected Object runScript(String functionName, Script script, Object... functionArguments) throws Exception {
-        CompletableFuture<Object> future = new CompletableFuture<>();
+        return runScripts(functionName, script, Collections.singletonList(functionArguments), (index, result) -> result);
+    }
 
-        Thread myThread = new Thread(new Runnable() {
-            @Override
-            public void run() {
-               try {
-                   future.complete(executeScript(functionName, script, functionArguments));
-                } catch (Exception e) {
-                   e.printStackTrace();
-                   future.complete(e);
-                }
+    /**
+     * Invoke a function of a script once for each list of arguments, all within a single runtime
+     * and a single trip through the executor.
+     *
+     * <p>Each raw result, or the exception raised by the invocation, is passed to the result handler. The
+     * invocations stop at the first non-null value returned by the handler, which is then returned.
+     * The script's timeout applies to each invocation from the moment it starts. An invocation which goes over it is
+     * interrupted and the handler is given a {@link TimeoutException} for it; unless the handler then stops the batch,
+     * the invocations after it carry on.</p>
+     *
+     * <p>An invocation made from a script thread, by a script calling back into LiveOak on that same thread, runs
+     * inline under the timeout of the invocation it is nested in.</p>
+     *
+     * @return The first non-null handled result, null if there was none, or the exception which stopped the batch.
+     */
+    protected Object runScripts(String functionName, Script script, List<Object[]> invocations, BiFunction<Integer, Object, Object> resultHandler) throws Exception {
+        if (invocations.isEmpty()) {
+            return null;
+        }
+
+        Integer timeout = script.timeout;
+        if (timeout == null) {
+            //TODO: remove this once the script config is a separate service and not part of the main root resource
+            if (scriptConfig != null) {
+                timeout = scriptConfig.getTimeout();
+            } else {
+                timeout = ScriptConfig.DEFAULT_TIMEOUT;
             }
-        });
+        }
 
-        myThread.start();
+        long start = System.nanoTime();
+        if (SCRIPT_THREAD.get() != null) {
+            try {
+                return invoke(functionName, script, invocations, 0, resultHandler, new Progress(0));
+            } finally {
+                metrics.invoked(System.nanoTime() - start);
+            }
+        }
 
         try {
-            Integer timeout = script.timeout;
-            if (timeout == null) {
-                //TODO: remove this once the script config is a separate service and not part of the main root resource
-                if (scriptConfig != null) {
-                    timeout = scriptConfig.getTimeout();
-                } else {
-                    timeout = ScriptConfig.DEFAULT_TIMEOUT;
+            int from = 0;
+            while (from < invocations.size()) {
+                Progress progress = new Progress(from);
+                int first = from;
+                Future<Object> future;
+                try {
+                    future = executor.submit(() -> invoke(functionName, script, invocations, first, resultHandler, progress));
+                } catch (RejectedExecutionException e) {
+                    metrics.rejected();
+                    log.error("Too many scripts running, rejecting invocation of " + functionName + " in script " + script.getId());
+                    return e;
+                }
+
+                int index = await(future, progress, timeout);
+                if (index < 0) {
+                    return future.get();
+                }
+
+                // The invocation ran too long. Interrupt it, which any blocking call it makes back into
+                // LiveOak will notice, and leave its runtime to be discarded. Only that invocation is given
+                // up on, the rest of the batch carries on in a fresh runtime.
+                future.cancel(true);
+                metrics.timeout();
+                log.error("A script went over the timeout. Interrupting the thread.");
+                Object reply = resultHandler.apply(index, new TimeoutException("Invocation of " + functionName + " in script "
+                        + script.getId() + " went over the timeout of " + timeout + "ms"));
+                if (reply != null) {
+                    return reply;
                 }
+                from = index + 1;
             }
-            return future.get(timeout, TimeUnit.MILLISECONDS);
+            return null;
         } catch (InterruptedException e) {
             return e;
         } catch (ExecutionException e) {
@@ -96,44 +178,134 @@ public class ScriptManager {
                     throw e;
                 }
             }
-        } catch (TimeoutException e) {
-            // The script ran too long and we need to stop it.
-            // First try to interrupt the thread, then, if that doesn't
-            // work after another timeout, go nuclear and stop the thread itself.
-            future.cancel(true);
-            myThread.interrupt();
-            log.error("A script went over the timeout. Interrupting the thread.");
-            Long startTime = System.currentTimeMillis();
-            while (myThread.isAlive()) {
-                if (System.currentTimeMillis() - startTime >= 5000 ) {
-                    log.error("A resource based script did not terminate after the timeout. Killing the thread.");
-                    myThread.stop();
-                    break;
-                } else {
-                    Thread.sleep(10);
+        } finally {
+            metrics.invoked(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Wait for a batch, allowing each of its invocations the timeout from the moment it started.
+     *
+     * @return -1 once the batch is done, or the index of the invocation which went over the timeout and was given up on.
+     */
+    private int await(Future<Object> future, Progress progress, int timeout) throws InterruptedException, ExecutionException {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (true) {
+            try {
+                future.get(Math.max(0, progress.remaining(timeoutNanos)), TimeUnit.NANOSECONDS);
+                return -1;
+            } catch (TimeoutException e) {
+                // the batch may have moved on to the next invocation while we were waiting
+                int index = progress.abandonIfOverdue(timeoutNanos);
+                if (index >= 0) {
+                    return index;
                 }
+            } catch (InterruptedException e) {
+                progress.abandon();
+                future.cancel(true);
+                throw e;
             }
+        }
+    }
 
-            return e;
+    private Object invoke(String functionName, Script script, List<Object[]> invocations, int from, BiFunction<Integer, Object, Object> resultHandler, Progress progress) {
+        ScriptRuntime runtime = null;
+        try {
+            runtime = acquireRuntime(script);
+            for (int i = from; i < invocations.size(); i++) {
+                if (!progress.start(i)) {
+                    return null;
+                }
+                Object result;
+                try {
+                    result = executeScript(runtime, functionName, invocations.get(i));
+                } catch (Exception e) {
+                    result = e;
+                }
+                // once given up on, the result is handled by the waiting side instead
+                if (!progress.finish()) {
+                    return null;
+                }
+                Object reply = resultHandler.apply(i, result);
+                if (reply != null) {
+                    return reply;
+                }
+            }
+            return null;
+        } catch (Exception e) {
+            return resultHandler.apply(from, e);
+        } finally {
+            // a runtime whose invocation was abandoned may be left in any state, never reuse it
+            if (runtime != null && !progress.isAbandoned()) {
+                runtimePool.offer(script, runtime);
+            }
         }
     }
 
-    protected Object executeScript(String functionName, Script script, Object... functionArguments) {
+    protected ScriptRuntime acquireRuntime(Script script) {
+        ScriptRuntime runtime = runtimePool.poll(script);
+        if (runtime != null) {
+            metrics.poolHit();
+            return runtime;
+        }
+        metrics.poolMiss();
+        return createRuntime(script);
+    }
+
+    protected ScriptRuntime createRuntime(Script script) {
         Config config = new Config();
         config.setCompileMode(Config.CompileMode.OFF); //TODO: probably shouldn't be needed, check with a newer version of DynJS
 
+        // read the version before the source, so a concurrent update can only make the runtime look stale
+        int version = script.getVersion();
         DynJS dynJS = new DynJS(config);
-
-        GlobalObject globalObject = dynJS.getDefaultExecutionContext().getGlobalObject();
-        configureGlobalObject(globalObject);
+        ScriptRuntime runtime = new ScriptRuntime(script, version, dynJS);
+        configureGlobalObject(runtime.getGlobalObject());
 
         dynJS.evaluate(script.getScriptBuffer().toString(Charset.forName("UTF-8")));
+        runtime.snapshot();
+        return runtime;
+    }
 
+    protected Object executeScript(ScriptRuntime runtime, String functionName, Object... functionArguments) {
+        GlobalObject globalObject = runtime.getGlobalObject();
         String source = configureFunction(globalObject, functionName, functionArguments);
-        Runner runner = dynJS.newRunner();
-        runner.withSource(source);
+        try {
+            Runner runner = runtime.getDynJS().newRunner();
+            runner.withSource(source);
+            return runner.evaluate();
+        } finally {
+            // don't hold on to the request and response objects while the runtime sits idle,
+            // nor let anything the script left in the global scope through to the next invocation
+            clearArguments(globalObject, functionName, functionArguments.length);
+            runtime.reset();
+        }
+    }
+
+    /**
+     * Drop the idle runtimes of a script, so the next invocation picks up its current source.
+     */
+    public void invalidate(String scriptId) {
+        runtimePool.invalidate(scriptId);
+    }
 
-        return runner.evaluate();
+    public ScriptMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        runtimePool.clear();
+        if (log.isDebugEnabled()) {
+            log.debug("Script manager shut down: " + metrics);
+        }
+    }
+
+    protected void clearArguments(GlobalObject globalObject, String functionName, int count) {
+        String prefix = "__liveoak_" + functionName;
+        for (int i = 0; i < count; i++) {
+            globalObject.put(prefix + "_" + i, Types.UNDEFINED);
+        }
     }
 
     protected String configureFunction(GlobalObject globalObject, String functionName, Object... args) {
@@ -213,4 +385,64 @@ public class ScriptManager {
         }
         return null;
     }
+
+    /**
+     * Which invocation of a batch is running and since when, shared between the script thread and the waiting side.
+     */
+    private static class Progress {
+        private int next;
+        // setting up the runtime counts against the first invocation
+        private boolean running = true;
+        private long started = System.nanoTime();
+        private boolean abandoned;
+
+        Progress(int from) {
+            this.next = from;
+        }
+
+        synchronized boolean start(int index) {
+            if (this.abandoned) {
+                return false;
+            }
+            this.next = index;
+            this.running = true;
+            this.started = System.nanoTime();
+            return true;
+        }
+
+        /**
+         * @return false if the invocation was given up on, and its result is no longer wanted
+         */
+        synchronized boolean finish() {
+            if (this.abandoned) {
+                return false;
+            }
+            this.next++;
+            this.running = false;
+            return true;
+        }
+
+        synchronized long remaining(long timeoutNanos) {
+            return this.running ? this.started + timeoutNanos - System.nanoTime() : timeoutNanos;
+        }
+
+        /**
+         * @return The invocation given up on, or -1 if the one running is still within the timeout
+         */
+        synchronized int abandonIfOverdue(long timeoutNanos) {
+            if (remaining(timeoutNanos) > 0) {
+                return -1;
+            }
+            this.abandoned = true;
+            return this.next;
+        }
+
+        synchronized void abandon() {
+            this.abandoned = true;
+        }
+
+        synchronized boolean isAbandoned() {
+            return this.abandoned;
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package io.liveoak.scripts.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the script invocations made through a ScriptManager.
+ */
+public class ScriptMetrics {
+
+    private final AtomicLong poolHits = new AtomicLong();
+    private final AtomicLong poolMisses = new AtomicLong();
+    private final AtomicLong invocations = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    void poolHit() {
+        poolHits.incrementAndGet();
+    }
+
+    void poolMiss() {
+        poolMisses.incrementAndGet();
+    }
+
+    void timeout() {
+        timeouts.incrementAndGet();
+    }
+
+    void rejected() {
+        rejections.incrementAndGet();
+    }
+
+    void invoked(long latencyNanos) {
+        invocations.incrementAndGet();
+        totalLatency.addAndGet(latencyNanos);
+        maxLatency.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    /**
+     * @return The number of invocations which reused an idle runtime.
+     */
+    public long getPoolHits() {
+        return poolHits.get();
+    }
+
+    /**
+     * @return The number of invocations which had to create a new runtime.
+     */
+    public long getPoolMisses() {
+        return poolMisses.get();
+    }
+
+    public long getInvocations() {
+        return invocations.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return The number of invocations refused because the script executor was saturated.
+     */
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    /**
+     * @return The mean time from submitting an invocation to its result being available.
+     */
+    public long getAverageLatency(TimeUnit unit) {
+        long count = invocations.get();
+        return count == 0 ? 0 : unit.convert(totalLatency.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxLatency(TimeUnit unit) {
+        return unit.convert(maxLatency.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "[ScriptMetrics: poolHits=" + getPoolHits() + ", poolMisses=" + getPoolMisses() + ", invocations=" + getInvocations()
+                + ", timeouts=" + getTimeouts() + ", rejections=" + getRejections()
+                + ", averageLatency=" + getAverageLatency(TimeUnit.MICROSECONDS) + "us, maxLatency=" + getMaxLatency(TimeUnit.MICROSECONDS) + "us]";
+    }
+}
@@ -0,0 +1,78 @@
+package io.liveoak.scripts.common;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.dynjs.runtime.DynJS;
+import org.dynjs.runtime.ExecutionContext;
+import org.dynjs.runtime.GlobalObject;
+
+/**
+ * A DynJS runtime with a script's source already evaluated into it, ready to have
+ * the script's functions invoked repeatedly.
+ *
+ * <p>A runtime is only ever used by one invocation at a time. Whatever an invocation binds in the global scope is
+ * undone by {@link #reset()} once it returns, so nothing set by one request is seen by the next.</p>
+ */
+public class ScriptRuntime {
+
+    private final Script script;
+    private final int version;
+    private final DynJS dynJS;
+    private final GlobalObject globalObject;
+    private final Map<String, Object> globals = new HashMap<>();
+
+    public ScriptRuntime(Script script, int version, DynJS dynJS) {
+        this.script = script;
+        this.version = version;
+        this.dynJS = dynJS;
+        this.globalObject = dynJS.getDefaultExecutionContext().getGlobalObject();
+    }
+
+    public Script getScript() {
+        return script;
+    }
+
+    public DynJS getDynJS() {
+        return dynJS;
+    }
+
+    public GlobalObject getGlobalObject() {
+        return globalObject;
+    }
+
+    /**
+     * Record the global bindings as they are once the script's source has been evaluated.
+     */
+    public void snapshot() {
+        ExecutionContext context = dynJS.getDefaultExecutionContext();
+        globals.clear();
+        for (String name : globalObject.getOwnPropertyNames().toList()) {
+            globals.put(name, globalObject.get(context, name));
+        }
+    }
+
+    /**
+     * Put the global bindings back the way they were recorded by {@link #snapshot()}, dropping any added since.
+     */
+    public void reset() {
+        ExecutionContext context = dynJS.getDefaultExecutionContext();
+        for (String name : globalObject.getOwnPropertyNames().toList()) {
+            if (!globals.containsKey(name)) {
+                globalObject.delete(context, name, false);
+            }
+        }
+        for (Map.Entry<String, Object> global : globals.entrySet()) {
+            if (globalObject.get(context, global.getKey()) != global.getValue()) {
+                globalObject.put(global.getKey(), global.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return true if this runtime was built from the script's current source.
+     */
+    public boolean isCurrent(Script script) {
+        return this.script == script && this.version == script.getVersion();
+    }
+}
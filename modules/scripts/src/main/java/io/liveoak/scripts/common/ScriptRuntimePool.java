@@ -0,0 +1,81 @@
+package io.liveoak.scripts.common;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Idle runtimes, kept per script so an invocation can skip setting up DynJS and evaluating the source.
+ *
+ * <p>Runtimes built from a source which has since changed are dropped rather than handed out.</p>
+ */
+public class ScriptRuntimePool {
+
+    private final int maxIdle;
+    private final Map<String, Idle> idle = new ConcurrentHashMap<>();
+
+    public ScriptRuntimePool(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Take an idle runtime for the script, if there is a current one.
+     *
+     * @return A runtime, or null if one needs to be created.
+     */
+    public ScriptRuntime poll(Script script) {
+        Idle runtimes = idle.get(script.getId());
+        if (runtimes == null) {
+            return null;
+        }
+
+        ScriptRuntime runtime;
+        while ((runtime = runtimes.poll()) != null) {
+            if (runtime.isCurrent(script)) {
+                return runtime;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return a runtime after use. It is dropped if its script changed in the meantime, or enough are already idle.
+     */
+    public void offer(Script script, ScriptRuntime runtime) {
+        if (!runtime.isCurrent(script)) {
+            return;
+        }
+        idle.computeIfAbsent(script.getId(), (id) -> new Idle()).offer(runtime, maxIdle);
+    }
+
+    public void invalidate(String scriptId) {
+        idle.remove(scriptId);
+    }
+
+    public void clear() {
+        idle.clear();
+    }
+
+    private static class Idle {
+        private final ConcurrentLinkedDeque<ScriptRuntime> runtimes = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        ScriptRuntime poll() {
+            ScriptRuntime runtime = runtimes.pollFirst();
+            if (runtime != null) {
+                size.decrementAndGet();
+            }
+            return runtime;
+        }
+
+        void offer(ScriptRuntime runtime, int max) {
+            if (size.incrementAndGet() > max) {
+                size.decrementAndGet();
+                return;
+            }
+            // most recently used first, it is the most likely to still be warm
+            runtimes.offerFirst(runtime);
+        }
+    }
+}
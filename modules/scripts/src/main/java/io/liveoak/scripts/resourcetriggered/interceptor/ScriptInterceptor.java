@@ -75,6 +75,12 @@ public class ScriptInterceptor extends DefaultInterceptor {
         }
     }
 
+    @Override
+    public boolean requiresResponseState() {
+        // postRead scripts operate on the response state
+        return true;
+    }
+
     @Override
     public void onOutbound(OutboundInterceptorContext context) throws Exception {
 
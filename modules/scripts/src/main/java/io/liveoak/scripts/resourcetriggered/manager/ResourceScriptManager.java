@@ -1,6 +1,11 @@
 package io.liveoak.scripts.resourcetriggered.manager;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import io.liveoak.common.DefaultResourceResponse;
 import io.liveoak.scripts.common.ScriptManager;
@@ -25,10 +30,18 @@ import io.liveoak.spi.state.ResourceState;
 public class ResourceScriptManager extends ScriptManager {
 
     private ScriptRegistry scriptRegistry;
+    private final Consumer<String> invalidationListener = this::invalidate;
 
     public ResourceScriptManager(ScriptRegistry scriptRegistry, ScriptConfig scriptConfig, LibraryManager libraryManager) {
         super(scriptConfig, libraryManager);
         this.scriptRegistry = scriptRegistry;
+        this.scriptRegistry.addInvalidationListener(invalidationListener);
+    }
+
+    @Override
+    public void shutdown() {
+        this.scriptRegistry.removeInvalidationListener(invalidationListener);
+        super.shutdown();
     }
 
     public Object executeScripts(ResourceRequest request) throws Exception {
@@ -118,37 +131,72 @@ public class ResourceScriptManager extends ScriptManager {
         return null;
     }
 
-    protected Object handleMembers(ResourceResponse response, ResourceState state, ReturnFields returnFields) throws Exception{
-        if (!returnFields.child(LiveOak.MEMBERS).isEmpty()) {
-            for (ResourceState memberState: state.members()) {
-                DefaultResourceResponse memberResponse = new DefaultResourceResponse(response.inReplyTo(),
-                        ResourceResponse.ResponseType.READ, new Resource() {
-                    @Override
-                    public Resource parent() {
-                        return response.resource();
-                    }
-
-                    @Override
-                    public String id() {
-                        return memberState.id();
-                    }
-                });
-                memberResponse.setState(memberState);
-
-                Set<ResourceTriggeredScript> memberScripts = scriptRegistry.getByTarget(memberState.uri().toString(), ResourceTriggeredScript.FUNCTIONS.POSTREAD, true);
-                for (ResourceTriggeredScript memberScript: memberScripts) {
-                    Object reply = runScript(ResourceTriggeredScript.FUNCTIONS.POSTREAD.getFunctionName(),memberScript , memberResponse);
-                    if (reply != null) {
-                        return reply;
-                    }
-                }
+    protected Object handleMembers(ResourceResponse response, ResourceState state, ReturnFields returnFields) throws Exception {
+        // gather the members each postRead script applies to, so every script runs once over all of its members
+        Map<ResourceTriggeredScript, List<ResourceResponse>> batches = new LinkedHashMap<>();
+        collectMembers(response, state, returnFields, batches);
 
-                handleMembers(response, memberState, returnFields.child(LiveOak.MEMBERS));
+        List<ResourceTriggeredScript> scripts = new ArrayList<>(batches.keySet());
+        scripts.sort(new ResourceTriggeredScript.PriorityComparator());
+
+        for (ResourceTriggeredScript script : scripts) {
+            Object reply = runScript(ResourceTriggeredScript.FUNCTIONS.POSTREAD.getFunctionName(), script, batches.get(script));
+            if (reply != null) {
+                return reply;
             }
         }
         return null;
     }
 
+    protected void collectMembers(ResourceResponse response, ResourceState state, ReturnFields returnFields,
+                                  Map<ResourceTriggeredScript, List<ResourceResponse>> batches) {
+        if (returnFields.child(LiveOak.MEMBERS).isEmpty()) {
+            return;
+        }
+
+        for (ResourceState memberState: state.members()) {
+            DefaultResourceResponse memberResponse = new DefaultResourceResponse(response.inReplyTo(),
+                    ResourceResponse.ResponseType.READ, new Resource() {
+                @Override
+                public Resource parent() {
+                    return response.resource();
+                }
+
+                @Override
+                public String id() {
+                    return memberState.id();
+                }
+            });
+            memberResponse.setState(memberState);
+
+            Set<ResourceTriggeredScript> memberScripts = scriptRegistry.getByTarget(memberState.uri().toString(), ResourceTriggeredScript.FUNCTIONS.POSTREAD, true);
+            for (ResourceTriggeredScript memberScript: memberScripts) {
+                batches.computeIfAbsent(memberScript, (script) -> new ArrayList<>()).add(memberResponse);
+            }
+
+            collectMembers(response, memberState, returnFields.child(LiveOak.MEMBERS), batches);
+        }
+    }
+
+    /**
+     * Run a postRead script over a batch of member responses within a single runtime. The scripts
+     * modify the member states in place, so there is nothing to merge back unless one of them fails.
+     *
+     * <p>A member whose script goes over the timeout fails the response, like any other script failure.</p>
+     */
+    protected Object runScript(String functionName, ResourceTriggeredScript script, List<ResourceResponse> memberResponses) throws Exception {
+        Object library = getLibrary(script);
+        List<Object[]> invocations = new ArrayList<>(memberResponses.size());
+        for (ResourceResponse memberResponse : memberResponses) {
+            invocations.add(new Object[] { new LiveOakResourceResponse(memberResponse), library });
+        }
+
+        return runScripts(functionName, script, invocations, (index, result) -> {
+            ScriptingResourceRequest request = new ScriptingResourceRequest(memberResponses.get(index).inReplyTo());
+            return handleResponse(result, request);
+        });
+    }
+
     protected Object runScript(String functionName, ResourceTriggeredScript script, ResourceResponse resourceResponse) throws Exception {
 
         Object response = runScript(functionName, script, new LiveOakResourceResponse(resourceResponse), getLibrary(script));
@@ -28,6 +28,7 @@ public class ResourceScriptManagerService implements Service<ResourceScriptManag
     public void stop(StopContext stopContext) {
         // remove the manager from the script interceptor
         interceptorInjector.getValue().removeManager(applicationNameInjector.getValue());
+        this.scriptManager.shutdown();
         this.scriptManager = null;
     }
 
@@ -133,6 +133,7 @@ public class ResourceScript implements Resource {
 
     public void updateScript(ByteBuf content) throws Exception {
         script.setScriptBuffer(content);
+        parent.updateChild(this);
         parent.writeSourceFile(this.id(), script.getScriptBuffer());
     }
 
@@ -9,6 +9,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import io.liveoak.spi.exceptions.ResourceAlreadyExistsException;
 import io.liveoak.spi.ResourcePath;
@@ -25,11 +27,23 @@ import io.liveoak.spi.state.ResourceState;
 public class ScriptRegistry {
 
     private ScriptMap scripts;
+    private List<Consumer<String>> invalidationListeners = new CopyOnWriteArrayList<>();
 
     public ScriptRegistry() {
         this.scripts = new ScriptMap();
     }
 
+    /**
+     * Register a listener to be told the id of any script whose definition is replaced or removed.
+     */
+    public void addInvalidationListener(Consumer<String> listener) {
+        invalidationListeners.add(listener);
+    }
+
+    public void removeInvalidationListener(Consumer<String> listener) {
+        invalidationListeners.remove(listener);
+    }
+
 
     public synchronized void add(ResourceTriggeredScript script) {
         scripts.add(script);
@@ -68,6 +82,7 @@ public class ScriptRegistry {
         if (scripts.get(script.id()) != null) {
             scripts.remove(script.id());
             scripts.add(script.getScript());
+            invalidate(script.id());
         }
     }
 
@@ -81,6 +96,13 @@ public class ScriptRegistry {
 
     public synchronized void remove(String id) {
         scripts.remove(id);
+        invalidate(id);
+    }
+
+    private void invalidate(String id) {
+        for (Consumer<String> listener : invalidationListeners) {
+            listener.accept(id);
+        }
     }
 
     public synchronized Set<ResourceTriggeredScript> getByTarget(String target, ResourceTriggeredScript.FUNCTIONS function, Boolean enabled) {
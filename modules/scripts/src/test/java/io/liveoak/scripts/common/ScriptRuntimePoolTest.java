@@ -0,0 +1,93 @@
+package io.liveoak.scripts.common;
+
+import java.nio.charset.Charset;
+
+import io.liveoak.scripts.resourcetriggered.resource.ResourceTriggeredScript;
+import io.netty.buffer.Unpooled;
+import org.dynjs.Config;
+import org.dynjs.runtime.DynJS;
+import org.dynjs.runtime.Types;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ScriptRuntimePoolTest {
+
+    protected ResourceTriggeredScript script(String id) {
+        ResourceTriggeredScript script = new ResourceTriggeredScript.Builder(id, "/testApp").build();
+        script.setScriptBuffer(Unpooled.copiedBuffer("function preRead(request) {}", Charset.forName("UTF-8")));
+        return script;
+    }
+
+    protected ScriptRuntime runtime(Script script) {
+        return new ScriptRuntime(script, script.getVersion(), new DynJS(new Config()));
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        ScriptRuntimePool pool = new ScriptRuntimePool(2);
+        ResourceTriggeredScript script = script("reused");
+
+        assertThat(pool.poll(script)).isNull();
+
+        ScriptRuntime runtime = runtime(script);
+        pool.offer(script, runtime);
+        assertThat(pool.poll(script)).isSameAs(runtime);
+        assertThat(pool.poll(script)).isNull();
+    }
+
+    @Test
+    public void testMaxIdle() throws Exception {
+        ScriptRuntimePool pool = new ScriptRuntimePool(1);
+        ResourceTriggeredScript script = script("bounded");
+
+        pool.offer(script, runtime(script));
+        pool.offer(script, runtime(script));
+
+        assertThat(pool.poll(script)).isNotNull();
+        assertThat(pool.poll(script)).isNull();
+    }
+
+    @Test
+    public void testStaleRuntimesDropped() throws Exception {
+        ScriptRuntimePool pool = new ScriptRuntimePool(2);
+        ResourceTriggeredScript script = script("updated");
+
+        pool.offer(script, runtime(script));
+        script.setScriptBuffer(Unpooled.copiedBuffer("function preRead(request) { return null; }", Charset.forName("UTF-8")));
+        assertThat(pool.poll(script)).isNull();
+
+        // a runtime built before the update is not taken back either
+        ScriptRuntime stale = new ScriptRuntime(script, script.getVersion() - 1, new DynJS(new Config()));
+        pool.offer(script, stale);
+        assertThat(pool.poll(script)).isNull();
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        ScriptRuntimePool pool = new ScriptRuntimePool(2);
+        ResourceTriggeredScript script = script("invalidated");
+
+        pool.offer(script, runtime(script));
+        pool.invalidate(script.getId());
+        assertThat(pool.poll(script)).isNull();
+    }
+
+    @Test
+    public void testGlobalsReset() throws Exception {
+        ResourceTriggeredScript script = script("globals");
+        ScriptRuntime runtime = runtime(script);
+        runtime.getDynJS().evaluate("var counter = 1; function preRead(request) { counter++; user = request; }");
+        runtime.snapshot();
+
+        runtime.getDynJS().evaluate("preRead('alice')");
+        assertThat(runtime.getDynJS().evaluate("counter === 2")).isEqualTo(true);
+        assertThat(runtime.getDynJS().evaluate("user")).isEqualTo("alice");
+
+        // the next invocation sees the globals as the source left them, not as the last request did
+        runtime.reset();
+        assertThat(runtime.getDynJS().evaluate("counter === 1")).isEqualTo(true);
+        assertThat(runtime.getDynJS().evaluate("typeof user")).isEqualTo("undefined");
+        assertThat(runtime.getGlobalObject().get(runtime.getDynJS().getDefaultExecutionContext(), "user")).isEqualTo(Types.UNDEFINED);
+    }
+}
@@ -0,0 +1,101 @@
+package io.liveoak.scripts.resourcetriggered.manager;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+
+import io.liveoak.common.DefaultResourceRequest;
+import io.liveoak.common.DefaultResourceResponse;
+import io.liveoak.common.DefaultReturnFields;
+import io.liveoak.common.codec.DefaultResourceState;
+import io.liveoak.scripts.libraries.manager.LibraryManager;
+import io.liveoak.scripts.resourcetriggered.resource.ResourceTriggeredScript;
+import io.liveoak.scripts.resourcetriggered.resource.ScriptRegistry;
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.RequestType;
+import io.liveoak.spi.ResourceErrorResponse;
+import io.liveoak.spi.ResourcePath;
+import io.liveoak.spi.ResourceRequest;
+import io.liveoak.spi.ResourceResponse;
+import io.liveoak.spi.state.ResourceState;
+import io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ResourceScriptManagerTest {
+
+    private static final String SCRIPT = "function postRead(response, libraries) {\n" +
+            "  var id = response.resource.id;\n" +
+            "  if (id == 'slow') {\n" +
+            "    var end = new Date().getTime() + 2000;\n" +
+            "    while (new Date().getTime() < end) {}\n" +
+            "  } else if (id == 'rejected') {\n" +
+            "    throw new liveoak.NotAuthorizedError('Not for you');\n" +
+            "  }\n" +
+            "  response.resource.properties.seen = true;\n" +
+            "}";
+
+    private ResourceScriptManager manager;
+
+    @Before
+    public void setUp() throws Exception {
+        ResourceTriggeredScript.Builder builder = new ResourceTriggeredScript.Builder("members", "/testApp/mock/*");
+        builder.setTimeout(250);
+        builder.setScriptBuffer(Unpooled.copiedBuffer(SCRIPT, Charset.forName("UTF-8")));
+
+        ScriptRegistry registry = new ScriptRegistry();
+        registry.add(builder.build());
+        this.manager = new ResourceScriptManager(registry, null, new LibraryManager(null));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.manager.shutdown();
+    }
+
+    @Test
+    public void testTimedOutMemberFailsResponse() throws Exception {
+        ResourceResponse response = response("first", "slow", "last");
+
+        Object reply = this.manager.handleMembers(response, response.state(), new DefaultReturnFields("*(*)"));
+
+        // the response is failed rather than returned without the slow member
+        assertThat(reply).isInstanceOf(ResourceErrorResponse.class);
+        assertThat(((ResourceErrorResponse) reply).errorType()).isEqualTo(ResourceErrorResponse.ErrorType.INTERNAL_ERROR);
+        assertThat(response.state().members()).hasSize(3);
+        assertThat(response.state().member("first").getProperty("seen")).isEqualTo(true);
+        assertThat(this.manager.getMetrics().getTimeouts()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRejectedMemberFailsResponse() throws Exception {
+        ResourceResponse response = response("first", "rejected", "slow", "last");
+
+        Object reply = this.manager.handleMembers(response, response.state(), new DefaultReturnFields("*(*)"));
+
+        assertThat(reply).isInstanceOf(ResourceErrorResponse.class);
+        assertThat(((ResourceErrorResponse) reply).errorType()).isEqualTo(ResourceErrorResponse.ErrorType.NOT_AUTHORIZED);
+        assertThat(response.state().member("first").getProperty("seen")).isEqualTo(true);
+        assertThat(this.manager.getMetrics().getTimeouts()).isEqualTo(0);
+    }
+
+    protected ResourceResponse response(String... memberIds) throws Exception {
+        ResourceRequest request = new DefaultResourceRequest.Builder(RequestType.READ, new ResourcePath("/testApp/mock"))
+                .requestContext(new RequestContext.Builder().build())
+                .build();
+
+        ResourceState state = new DefaultResourceState("mock");
+        state.uri(new URI("/testApp/mock"));
+        for (String id : memberIds) {
+            ResourceState member = new DefaultResourceState(id);
+            member.uri(new URI("/testApp/mock/" + id));
+            state.addMember(member);
+        }
+
+        DefaultResourceResponse response = new DefaultResourceResponse(request, ResourceResponse.ResponseType.READ);
+        response.setState(state);
+        return response;
+    }
+}
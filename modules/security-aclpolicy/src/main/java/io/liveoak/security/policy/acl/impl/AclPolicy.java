@@ -6,8 +6,11 @@
 
 package io.liveoak.security.policy.acl.impl;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.mongodb.BasicDBObject;
@@ -16,6 +19,7 @@ import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 import io.liveoak.common.codec.DefaultResourceState;
 import io.liveoak.common.security.AuthzDecision;
+import io.liveoak.common.security.AuthzMemberDecisions;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.RequestType;
 import io.liveoak.spi.ResourcePath;
@@ -105,20 +109,8 @@ public class AclPolicy {
         ResourcePath resourcePath = req.resourcePath();
         SecurityContext securityContext = req.securityContext();
 
-        BasicDBObject query = new BasicDBObject();
-        query.put(ACE_REALM, securityContext.getRealm());
+        BasicDBObject query = createAceQuery(securityContext, reqType);
         query.put(ACE_RESOURCE_PATH, resourcePath.toString());
-        query.put(ACE_ACTIONS, reqType.toString());
-
-        // Pass if we find rule for either "userId" or some of his roles
-        List<DBObject> userRolesCondition = new LinkedList<>();
-        userRolesCondition.add(new BasicDBObject(ACE_USER_ID, securityContext.getSubject()));
-        if (securityContext.getRoles() != null) {
-            for (String role : securityContext.getRoles()) {
-                userRolesCondition.add(new BasicDBObject(ACE_ROLE_NAME, role));
-            }
-        }
-        query.put("$or", userRolesCondition);
 
         if (log.isTraceEnabled()) {
             log.trace("Sending ACE query: " + query);
@@ -140,4 +132,65 @@ public class AclPolicy {
         }
         return decision;
     }
+
+    /**
+     * Authorize members of the resource requested by parentReq for reading, with one query for ACEs of all of them
+     */
+    public AuthzMemberDecisions isAuthorized(RequestContext parentReq, List<ResourceState> memberStates) {
+        AuthzMemberDecisions decisions = new AuthzMemberDecisions(memberStates.size());
+        if (memberStates.isEmpty()) {
+            return decisions;
+        }
+
+        // Members with same path (shouldn't happen, but ids aren't guaranteed to be unique) share the decision
+        Map<String, List<Integer>> memberIndexes = new HashMap<>();
+        for (int i = 0; i < memberStates.size(); i++) {
+            String memberPath = AuthzMemberDecisions.memberRequest(parentReq, memberStates.get(i)).resourcePath().toString();
+            memberIndexes.computeIfAbsent(memberPath, (path) -> new ArrayList<>()).add(i);
+        }
+
+        BasicDBObject query = createAceQuery(parentReq.securityContext(), RequestType.READ);
+        query.put(ACE_RESOURCE_PATH, new BasicDBObject("$in", new ArrayList<>(memberIndexes.keySet())));
+
+        if (log.isTraceEnabled()) {
+            log.trace("Sending ACE query: " + query);
+        }
+
+        Map<String, AuthzDecision> pathDecisions = new HashMap<>();
+        for (DBObject result : this.aclCollection.find(query)) {
+            boolean currentDec = (Boolean) result.get(ACE_PERMITTED);
+
+            // For now, always merge. No rule priorities...
+            AuthzDecision currentDecision = currentDec ? AuthzDecision.ACCEPT : AuthzDecision.REJECT;
+            pathDecisions.merge((String) result.get(ACE_RESOURCE_PATH), currentDecision, AuthzDecision::mergeDecision);
+
+            if (log.isTraceEnabled()) {
+                log.trace("Found result: " + result);
+            }
+        }
+
+        pathDecisions.forEach((path, decision) -> {
+            for (Integer index : memberIndexes.get(path)) {
+                decisions.set(index, decision);
+            }
+        });
+        return decisions;
+    }
+
+    private BasicDBObject createAceQuery(SecurityContext securityContext, RequestType reqType) {
+        BasicDBObject query = new BasicDBObject();
+        query.put(ACE_REALM, securityContext.getRealm());
+        query.put(ACE_ACTIONS, reqType.toString());
+
+        // Pass if we find rule for either "userId" or some of his roles
+        List<DBObject> userRolesCondition = new LinkedList<>();
+        userRolesCondition.add(new BasicDBObject(ACE_USER_ID, securityContext.getSubject()));
+        if (securityContext.getRoles() != null) {
+            for (String role : securityContext.getRoles()) {
+                userRolesCondition.add(new BasicDBObject(ACE_ROLE_NAME, role));
+            }
+        }
+        query.put("$or", userRolesCondition);
+        return query;
+    }
 }
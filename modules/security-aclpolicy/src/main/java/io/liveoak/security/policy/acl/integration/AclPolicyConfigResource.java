@@ -14,6 +14,7 @@ import java.util.Set;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.liveoak.common.codec.DefaultResourceState;
+import io.liveoak.common.security.AuthzDecisionInvalidator;
 import io.liveoak.common.util.ConversionUtils;
 import io.liveoak.spi.util.ObjectMapperFactory;
 import io.liveoak.common.util.ResourceConversionUtils;
@@ -86,5 +87,6 @@ public class AclPolicyConfigResource implements RootResource, SynchronousResourc
         this.aclPolicyConfig = om.readValue(objectNode.toString(), AclPolicyConfig.class);
 
         new AclPolicyConfigurator().configure(this.aclPolicy, this.aclPolicyConfig);
+        AuthzDecisionInvalidator.invalidateAll();
     }
 }
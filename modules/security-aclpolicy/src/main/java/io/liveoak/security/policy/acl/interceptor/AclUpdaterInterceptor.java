@@ -8,6 +8,7 @@ package io.liveoak.security.policy.acl.interceptor;
 
 import io.liveoak.common.DefaultRequestAttributes;
 import io.liveoak.common.codec.DefaultResourceState;
+import io.liveoak.common.security.AuthzDecisionInvalidator;
 import io.liveoak.security.policy.acl.AclPolicyConstants;
 import io.liveoak.spi.RequestAttributes;
 import io.liveoak.spi.RequestContext;
@@ -58,6 +59,9 @@ public class AclUpdaterInterceptor extends DefaultInterceptor {
                     log.debug("ACL Rules updated: " + updateResponse.state());
                 }
 
+                // decisions cached before the ACEs changed may no longer hold
+                AuthzDecisionInvalidator.invalidate(prefix);
+
                 context.forward();
             });
 
@@ -5,14 +5,20 @@
  */
 package io.liveoak.security.policy.drools.impl;
 
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.liveoak.common.codec.DefaultResourceState;
 import io.liveoak.common.security.AuthzDecision;
+import io.liveoak.common.security.AuthzMemberDecisions;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.state.ResourceState;
+import org.drools.FactHandle;
 import org.drools.RuleBase;
-import org.drools.WorkingMemory;
+import org.drools.StatefulSession;
 import org.jboss.logging.Logger;
 
 /**
@@ -24,14 +30,41 @@ public class DroolsPolicy {
 
     private static final Logger log = Logger.getLogger(DroolsPolicy.class);
 
-    private AtomicReference<RuleBase> ruleBase = new AtomicReference<>();
+    public static final int MAX_IDLE_SESSIONS = 16;
+
+    private final AtomicReference<Engine> engine = new AtomicReference<>();
+    private volatile boolean reuseSessions = true;
 
     public RuleBase getRuleBase() {
-        return ruleBase.get();
+        Engine current = engine.get();
+        return current != null ? current.ruleBase : null;
     }
 
     public void setRuleBase(RuleBase ruleBase) {
-        this.ruleBase.set(ruleBase);
+        Engine previous = this.engine.getAndSet(ruleBase != null ? new Engine(ruleBase) : null);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * By default, sessions are reset and reused by subsequent checks and results of URI matching are shared among all checks
+     * with same RuleBase. When disabled, every check creates and disposes its own session and matches URIs on its own.
+     */
+    public void setReuseSessions(boolean reuseSessions) {
+        this.reuseSessions = reuseSessions;
+    }
+
+    public boolean isReuseSessions() {
+        return reuseSessions;
+    }
+
+    /**
+     * @return results of URI matching shared by checks with current RuleBase or null if there is no RuleBase yet
+     */
+    public URIMatchResults getURIMatchResults() {
+        Engine current = engine.get();
+        return current != null ? current.matchResults : null;
     }
 
     public AuthzDecision isAuthorized(RequestContext reqContext) {
@@ -43,50 +76,153 @@ public class DroolsPolicy {
             log.trace("Start checking request: " + reqContext);
         }
 
-        WorkingMemory workingMemory = null;
+        // TODO: this is temporary. Actually we have either requestResource (in case of CREATE or UPDATE requests) or responseState (in case of outbound or subscription READ requests)
+        ResourceState stateToInsert;
+        if (reqResourceState != null) {
+            stateToInsert = reqResourceState;
+        } else if (respResourceState != null) {
+            stateToInsert = respResourceState;
+        } else {
+            stateToInsert = new DefaultResourceState();
+        }
+
+        Engine engine = this.engine.get();
+        StatefulSession session = engine.acquire();
+        List<FactHandle> facts = new ArrayList<>();
+        boolean reusable = false;
 
         try {
-            workingMemory = getRuleBase().newStatefulSession();
-
-            RulesProcessingResult rulesProcessingResult = new RulesProcessingResult();
-            workingMemory.insert(rulesProcessingResult);
-
-            EndSemaphore endSemaphore = new EndSemaphore();
-            workingMemory.insert(endSemaphore);
-
-            URIMatcherCache cache = new URIMatcherCache();
-            workingMemory.insert(cache);
-
-            // TODO: Verify if it's better to first insert request or securityContext (Rules checking is triggered right after inserting, so it could affect performance)
-            RequestContextDecorator reqContextDecorator = new RequestContextDecorator(reqContext);
-            workingMemory.insert(reqContextDecorator);
-            workingMemory.insert(reqContextDecorator.securityContext());
-            workingMemory.insert(reqContextDecorator.resourceParams());
-
-            // TODO: this is temporary. Actually we have either requestResource (in case of CREATE or UPDATE requests) or responseState (in case of outbound or subscription READ requests)
-            ResourceState stateToInsert;
-            if (reqResourceState != null) {
-                stateToInsert = reqResourceState;
-            } else if (respResourceState != null) {
-                stateToInsert = respResourceState;
-            } else {
-                stateToInsert = new DefaultResourceState();
-            }
-            workingMemory.insert(stateToInsert);
+            insert(session, facts, reqContext.securityContext());
+            AuthzDecision decision = evaluate(engine, session, facts, reqContext, stateToInsert);
+            reusable = true;
+            return decision;
+        } finally {
+            engine.release(session, facts, reusable);
+        }
+    }
 
-            // Uncomment for drools debugging (TODO: should be somehow configurable...)
-            //workingMemory.addEventListener(new DebugAgendaEventListener());
-            //workingMemory.addEventListener( new DebugWorkingMemoryEventListener() );
+    /**
+     * Authorize members of the resource requested by parentReq for reading. All members are checked in one session, which
+     * keeps the security context inserted and retracts facts of each member once its rules have fired.
+     */
+    public AuthzMemberDecisions isAuthorized(RequestContext parentReq, List<ResourceState> memberStates) {
+        AuthzMemberDecisions decisions = new AuthzMemberDecisions(memberStates.size());
+        if (memberStates.isEmpty()) {
+            return decisions;
+        }
 
-            int numberOfFiredPolicies = workingMemory.fireAllRules();
+        Engine engine = this.engine.get();
+        StatefulSession session = engine.acquire();
+        List<FactHandle> sharedFacts = new ArrayList<>();
+        boolean reusable = false;
 
-            if (log.isTraceEnabled()) {
-                log.trace("Overall result for request: " + reqContext + ". Count of fired policies=" + numberOfFiredPolicies + ", Result=" + rulesProcessingResult.getDecision());
+        try {
+            insert(session, sharedFacts, parentReq.securityContext());
+
+            for (int i = 0; i < memberStates.size(); i++) {
+                RequestContext memberReq = AuthzMemberDecisions.memberRequest(parentReq, memberStates.get(i));
+                if (log.isTraceEnabled()) {
+                    log.trace("Start checking member request: " + memberReq);
+                }
+
+                List<FactHandle> memberFacts = new ArrayList<>();
+                AuthzDecision decision = evaluate(engine, session, memberFacts, memberReq, memberStates.get(i));
+                decisions.set(i, decision != null ? decision : AuthzDecision.IGNORE);
+                for (FactHandle memberFact : memberFacts) {
+                    session.retract(memberFact);
+                }
             }
-            return rulesProcessingResult.getDecision();
+            reusable = true;
+            return decisions;
         } finally {
-            if (workingMemory != null) {
-                workingMemory.dispose();
+            engine.release(session, sharedFacts, reusable);
+        }
+    }
+
+    protected AuthzDecision evaluate(Engine engine, StatefulSession session, List<FactHandle> facts, RequestContext reqContext, ResourceState state) {
+        RulesProcessingResult rulesProcessingResult = new RulesProcessingResult();
+        insert(session, facts, rulesProcessingResult);
+        insert(session, facts, new EndSemaphore());
+        insert(session, facts, new URIMatcherCache(reuseSessions ? engine.matchResults : null));
+
+        RequestContextDecorator reqContextDecorator = new RequestContextDecorator(reqContext);
+        insert(session, facts, reqContextDecorator);
+        insert(session, facts, reqContextDecorator.resourceParams());
+        insert(session, facts, state);
+
+        // Uncomment for drools debugging (TODO: should be somehow configurable...)
+        //session.addEventListener(new DebugAgendaEventListener());
+        //session.addEventListener( new DebugWorkingMemoryEventListener() );
+
+        int numberOfFiredPolicies = session.fireAllRules();
+
+        if (log.isTraceEnabled()) {
+            log.trace("Overall result for request: " + reqContext + ". Count of fired policies=" + numberOfFiredPolicies + ", Result=" + rulesProcessingResult.getDecision());
+        }
+        return rulesProcessingResult.getDecision();
+    }
+
+    private void insert(StatefulSession session, List<FactHandle> facts, Object fact) {
+        FactHandle handle = session.insert(fact);
+        if (handle != null) {
+            facts.add(handle);
+        }
+    }
+
+    /**
+     * RuleBase together with its idle sessions and shared results of URI matching
+     */
+    protected class Engine {
+
+        private final RuleBase ruleBase;
+        private final URIMatchResults matchResults = new URIMatchResults();
+        private final Deque<StatefulSession> idleSessions = new ConcurrentLinkedDeque<>();
+        private volatile boolean closed;
+
+        Engine(RuleBase ruleBase) {
+            this.ruleBase = ruleBase;
+        }
+
+        StatefulSession acquire() {
+            if (reuseSessions) {
+                StatefulSession session = idleSessions.pollFirst();
+                if (session != null) {
+                    return session;
+                }
+            }
+            return ruleBase.newStatefulSession();
+        }
+
+        /**
+         * Retract facts of the finished check and keep the session for the next one, unless the check failed
+         */
+        void release(StatefulSession session, List<FactHandle> facts, boolean reusable) {
+            if (reusable && reuseSessions && !closed && idleSessions.size() < MAX_IDLE_SESSIONS) {
+                try {
+                    for (FactHandle fact : facts) {
+                        session.retract(fact);
+                    }
+                    idleSessions.offerFirst(session);
+                    if (closed) {
+                        disposeIdle();
+                    }
+                    return;
+                } catch (Throwable t) {
+                    log.debug("Failed to reset drools session, disposing it", t);
+                }
+            }
+            session.dispose();
+        }
+
+        void close() {
+            closed = true;
+            disposeIdle();
+        }
+
+        private void disposeIdle() {
+            StatefulSession session;
+            while ((session = idleSessions.pollFirst()) != null) {
+                session.dispose();
             }
         }
     }
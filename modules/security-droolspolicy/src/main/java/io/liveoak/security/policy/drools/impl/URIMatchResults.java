@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.security.policy.drools.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Results of matching URIs against regexes of URIPolicyRule rules, shared by all evaluations with same RuleBase.
+ * Regexes may contain values of the request (like the subject), so results are keyed by both regex and URI.
+ */
+public class URIMatchResults {
+
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    // Compiled patterns are shared by everything in the process
+    private static final Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+
+    // Key is regex and URI. Value is list of matcher groups, which is empty if URI doesn't match
+    private final Map<String, List<String>> results = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public URIMatchResults() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public URIMatchResults(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return matcher groups (group 0 is whole URI) or empty list if URI doesn't match. Returned list is read-only
+     */
+    public List<String> match(String regex, String textToMatch) {
+        String key = regex + '\n' + textToMatch;
+        List<String> groups = results.get(key);
+        if (groups != null) {
+            hits.incrementAndGet();
+            return groups;
+        }
+
+        misses.incrementAndGet();
+        groups = groups(regex, textToMatch);
+        if (results.size() >= maxSize) {
+            // URIs usually contain ids, so just start over instead of tracking usage
+            results.clear();
+        }
+        results.put(key, groups);
+        return groups;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    @Override
+    public String toString() {
+        return "[URIMatchResults: size=" + size() + ", hits=" + hits() + ", misses=" + misses() + "]";
+    }
+
+    /**
+     * Match without remembering the result
+     *
+     * @return matcher groups (group 0 is whole URI) or empty list if URI doesn't match. Returned list is read-only
+     */
+    public static List<String> groups(String regex, String textToMatch) {
+        Matcher m = pattern(regex).matcher(textToMatch);
+        if (!m.find()) {
+            return Collections.emptyList();
+        }
+
+        List<String> groups = new ArrayList<>(m.groupCount() + 1);
+        for (int i = 0; i <= m.groupCount(); i++) {
+            groups.add(m.group(i));
+        }
+        return Collections.unmodifiableList(groups);
+    }
+
+    private static Pattern pattern(String regex) {
+        Pattern pattern = patterns.get(regex);
+        if (pattern == null) {
+            if (patterns.size() >= DEFAULT_MAX_SIZE) {
+                patterns.clear();
+            }
+            pattern = Pattern.compile(regex);
+            patterns.put(regex, pattern);
+        }
+        return pattern;
+    }
+}
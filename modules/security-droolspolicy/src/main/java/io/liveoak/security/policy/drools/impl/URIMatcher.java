@@ -24,6 +24,30 @@ public class URIMatcher {
     // matcher groups
     private List<String> groups = new ArrayList<String>();
 
+    // results of matching shared with other evaluations, may be null
+    private final URIMatchResults sharedResults;
+
+    public URIMatcher() {
+        this(null);
+    }
+
+    public URIMatcher(URIMatchResults sharedResults) {
+        this.sharedResults = sharedResults;
+    }
+
+    /**
+     * Match the URI against the regex, reusing the result of an earlier evaluation when available, and mark this matcher processed.
+     *
+     * @return true if URI matches
+     */
+    public boolean match(String regex, String textToMatch) {
+        List<String> matchedGroups = sharedResults != null ? sharedResults.match(regex, textToMatch) : URIMatchResults.groups(regex, textToMatch);
+        this.matched = !matchedGroups.isEmpty();
+        this.groups = matchedGroups;
+        this.processed = true;
+        return this.matched;
+    }
+
     public boolean isProcessed() {
         return processed;
     }
@@ -41,6 +65,10 @@ public class URIMatcher {
     }
 
     public void addGroup(String group) {
+        if (!(groups instanceof ArrayList)) {
+            // groups from shared results are read-only
+            groups = new ArrayList<>(groups);
+        }
         groups.add(group);
     }
 
@@ -9,7 +9,8 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Holds info about all processed URIMatcher by all URIPolicyRule rules
+ * Holds info about all processed URIMatcher by all URIPolicyRule rules during one evaluation. Results of the regex matching
+ * itself may come from {@link URIMatchResults} shared with other evaluations.
  *
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
  */
@@ -18,13 +19,24 @@ public class URIMatcherCache {
     // Key is name of drools rule. Value is URIMatcher coming from processing of this rule
     private Map<String, URIMatcher> cache = new ConcurrentHashMap<String, URIMatcher>();
 
+    // Results of regex matching shared by all evaluations with same RuleBase, may be null
+    private final URIMatchResults sharedResults;
+
+    public URIMatcherCache() {
+        this(null);
+    }
+
+    public URIMatcherCache(URIMatchResults sharedResults) {
+        this.sharedResults = sharedResults;
+    }
+
     /**
      * @return URIMatcher for given rule or create new URIMatcher if it not exists yet. Method never returns null
      */
     public URIMatcher getURIMatcher(String key) {
         URIMatcher mi = cache.get(key);
         if (mi == null) {
-            mi = new URIMatcher();
+            mi = new URIMatcher(sharedResults);
             cache.put(key, mi);
         }
         return mi;
@@ -6,8 +6,11 @@
 
 package io.liveoak.security.policy.drools.integration;
 
+import java.util.List;
+
 import io.liveoak.common.security.AuthzConstants;
 import io.liveoak.common.security.AuthzDecision;
+import io.liveoak.common.security.AuthzMemberDecisions;
 import io.liveoak.security.policy.drools.impl.DroolsPolicy;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.resource.async.PropertySink;
@@ -44,6 +47,11 @@ public class DroolsPolicyCheckResource implements Resource {
 
     @Override
     public void readProperties(RequestContext ctx, PropertySink sink) throws Exception {
+        if (ctx.requestAttributes() != null && ctx.requestAttributes().getAttribute(AuthzConstants.ATTR_MEMBER_RESOURCE_STATES) != null) {
+            readMemberDecisions(ctx, sink);
+            return;
+        }
+
         AuthzDecision decision = null;
 
         try {
@@ -72,4 +80,33 @@ public class DroolsPolicyCheckResource implements Resource {
         sink.accept(AuthzConstants.ATTR_AUTHZ_POLICY_RESULT, decision.toString());
         sink.complete();
     }
+
+    protected void readMemberDecisions(RequestContext ctx, PropertySink sink) throws Exception {
+        List<ResourceState> memberStates = AuthzMemberDecisions.memberStates(ctx);
+        AuthzMemberDecisions decisions = new AuthzMemberDecisions(memberStates.size());
+
+        try {
+            if (policy != null) {
+                RequestContext reqCtxToAuthorize = ctx.requestAttributes().getAttribute(AuthzConstants.ATTR_REQUEST_CONTEXT, RequestContext.class);
+                if (reqCtxToAuthorize == null) {
+                    if (log.isTraceEnabled()) {
+                        log.trace("Request is null. Rejecting");
+                    }
+                    for (int i = 0; i < memberStates.size(); i++) {
+                        decisions.set(i, AuthzDecision.REJECT);
+                    }
+                } else {
+                    decisions = policy.isAuthorized(reqCtxToAuthorize, memberStates);
+                }
+            }
+        } catch (Throwable t) {
+            log.error("Error during authz check", t);
+            for (int i = 0; i < memberStates.size(); i++) {
+                decisions.set(i, AuthzDecision.REJECT);
+            }
+        }
+
+        decisions.writeTo(sink);
+        sink.complete();
+    }
 }
@@ -14,6 +14,7 @@ import java.util.Set;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.liveoak.common.codec.DefaultResourceState;
+import io.liveoak.common.security.AuthzDecisionInvalidator;
 import io.liveoak.common.util.ConversionUtils;
 import io.liveoak.spi.util.ObjectMapperFactory;
 import io.liveoak.common.util.ResourceConversionUtils;
@@ -85,5 +86,6 @@ public class DroolsPolicyConfigResource implements RootResource, SynchronousReso
         this.droolsPolicyConfig = om.readValue(objectNode.toString(), DroolsPolicyConfig.class);
 
         new DroolsPolicyConfigurator().configure(this.droolsPolicy, this.droolsPolicyConfig);
+        AuthzDecisionInvalidator.invalidateAll();
     }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.security.policy.drools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.liveoak.common.security.AuthzDecision;
+import io.liveoak.common.security.DefaultSecurityContext;
+import io.liveoak.security.policy.drools.impl.DroolsPolicy;
+import io.liveoak.security.policy.drools.impl.DroolsPolicyConfigurator;
+import io.liveoak.security.policy.drools.integration.DroolsPolicyConfig;
+import io.liveoak.security.policy.drools.integration.DroolsPolicyConfigRule;
+import io.liveoak.spi.RequestContext;
+import io.liveoak.spi.RequestType;
+import io.liveoak.spi.ResourceParams;
+import io.liveoak.spi.ResourcePath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares checks with a new session per request against reused sessions with shared URI matching.
+ *
+ * <p>Not run by the build. Run its main method with the test classpath of this module.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DroolsPolicyBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int rules;
+
+    private DroolsPolicy newSessionPolicy;
+    private DroolsPolicy reusedSessionPolicy;
+    private RequestContext[] requests;
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<DroolsPolicyConfigRule> configRules = new ArrayList<>();
+        for (int i = 0; i < rules; i++) {
+            DroolsPolicyConfigRule rule = new DroolsPolicyConfigRule();
+            rule.setPriority(i % 10);
+            rule.setUriPattern("/benchmark/collection" + i + "/*");
+            rule.setRequestType("READ");
+            rule.setAllowedRoles("\"role" + (i % 5) + "\"");
+            configRules.add(rule);
+        }
+        DroolsPolicyConfig config = new DroolsPolicyConfig();
+        config.setRules(configRules);
+
+        newSessionPolicy = new DroolsPolicy();
+        new DroolsPolicyConfigurator().configure(newSessionPolicy, config);
+        newSessionPolicy.setReuseSessions(false);
+
+        reusedSessionPolicy = new DroolsPolicy();
+        new DroolsPolicyConfigurator().configure(reusedSessionPolicy, config);
+
+        DefaultSecurityContext securityContext = new DefaultSecurityContext();
+        securityContext.setRealm("liveoak-apps");
+        securityContext.setSubject("john");
+        securityContext.setRoles(new HashSet<>(Arrays.asList("role1", "role3")));
+
+        // A handful of paths, as in real traffic where same resources are requested again and again
+        requests = new RequestContext[16];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = new RequestContext.Builder()
+                    .requestType(RequestType.READ)
+                    .resourcePath(new ResourcePath("/benchmark/collection" + (i * 7 % rules) + "/item" + i))
+                    .resourceParams(ResourceParams.NONE)
+                    .securityContext(securityContext);
+        }
+    }
+
+    @Benchmark
+    public AuthzDecision newSessionPerRequest() {
+        return newSessionPolicy.isAuthorized(nextRequest());
+    }
+
+    @Benchmark
+    public AuthzDecision reusedSessions() {
+        return reusedSessionPolicy.isAuthorized(nextRequest());
+    }
+
+    private RequestContext nextRequest() {
+        next = (next + 1) % requests.length;
+        return requests[next];
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(DroolsPolicyBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -87,6 +87,12 @@ public class DroolsPolicyTest {
         return configRule;
     }
 
+    @Test
+    public void testPolicyWithoutSessionReuse() {
+        droolsPolicy.setReuseSessions(false);
+        testPolicy();
+    }
+
     @Test
     public void testPolicy() {
         Set<String> johnRoles = new HashSet<>();
@@ -19,6 +19,7 @@ import io.liveoak.common.DefaultResourceParams;
 import io.liveoak.common.codec.DefaultResourceState;
 import io.liveoak.common.security.AuthzConstants;
 import io.liveoak.common.security.AuthzDecision;
+import io.liveoak.common.security.AuthzMemberDecisions;
 import io.liveoak.common.security.DefaultSecurityContext;
 import io.liveoak.spi.util.ObjectMapperFactory;
 import io.liveoak.security.policy.drools.extension.DroolsPolicyExtension;
@@ -166,6 +167,31 @@ public class DroolsPolicyRootResourceTest extends AbstractTestCaseWithTestApp {
 
     }
 
+    @Test
+    public void testMembersAuthorizationRequest() throws Exception {
+        DefaultSecurityContext user = new DefaultSecurityContext();
+        user.setRealm("default");
+        user.setSubject("john");
+        user.setRoles(new HashSet<>(Arrays.asList("test-app/user")));
+
+        RequestContext appReq = new RequestContext.Builder().requestType(RequestType.READ)
+                .resourcePath(new ResourcePath("/testApp/app"))
+                .securityContext(user);
+        List<ResourceState> members = Arrays.asList(new DefaultResourceState("some.html"), new DefaultResourceState("some.json"),
+                new DefaultResourceState("some.js"));
+
+        RequestAttributes attribs = new DefaultRequestAttributes();
+        attribs.setAttribute(AuthzConstants.ATTR_REQUEST_CONTEXT, appReq);
+        attribs.setAttribute(AuthzConstants.ATTR_MEMBER_RESOURCE_STATES, members);
+        ResourceState state = client.read(new RequestContext.Builder().requestAttributes(attribs).build(), "/testApp/drools-policy/authzCheck");
+
+        AuthzMemberDecisions decisions = AuthzMemberDecisions.readFrom(state, members.size());
+        Assert.assertNotNull(decisions);
+        Assert.assertEquals(AuthzDecision.ACCEPT, decisions.get(0));
+        Assert.assertEquals(AuthzDecision.IGNORE, decisions.get(1));
+        Assert.assertEquals(AuthzDecision.ACCEPT, decisions.get(2));
+    }
+
     private void assertAuthzDecision(RequestContext reqCtxToCheck, AuthzDecision expectedDecision) throws Exception {
         assertAuthzDecision(reqCtxToCheck, null, expectedDecision);
     }
@@ -6,13 +6,16 @@
 package io.liveoak.security.policy.uri.impl;
 
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.liveoak.common.security.AuthzDecision;
+import io.liveoak.common.security.AuthzMemberDecisions;
 import io.liveoak.common.util.ObjectsTree;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.RequestType;
 import io.liveoak.spi.ResourcePath;
+import io.liveoak.spi.state.ResourceState;
 import org.jboss.logging.Logger;
 
 /**
@@ -51,6 +54,17 @@ public class URIPolicy {
         return decisionHolder.decision != null ? decisionHolder.decision : AuthzDecision.IGNORE;
     }
 
+    /**
+     * Authorize members of the resource requested by parentReq, as if each of them was read on its own
+     */
+    public AuthzMemberDecisions isAuthorized(RequestContext parentReq, List<ResourceState> memberStates) {
+        AuthzMemberDecisions decisions = new AuthzMemberDecisions(memberStates.size());
+        for (int i = 0; i < memberStates.size(); i++) {
+            decisions.set(i, isAuthorized(AuthzMemberDecisions.memberRequest(parentReq, memberStates.get(i))));
+        }
+        return decisions;
+    }
+
     public void setRulesTree(ObjectsTree<URIPolicyRule> rulesTree) {
         this.rulesTree.set(rulesTree);
     }
@@ -1,11 +1,15 @@
 package io.liveoak.security.policy.uri.integration;
 
+import java.util.List;
+
 import io.liveoak.common.security.AuthzConstants;
 import io.liveoak.common.security.AuthzDecision;
+import io.liveoak.common.security.AuthzMemberDecisions;
 import io.liveoak.security.policy.uri.impl.URIPolicy;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.resource.async.PropertySink;
 import io.liveoak.spi.resource.async.Resource;
+import io.liveoak.spi.state.ResourceState;
 import org.jboss.logging.Logger;
 
 /**
@@ -37,6 +41,11 @@ public class URIPolicyCheckResource implements Resource {
 
     @Override
     public void readProperties(RequestContext ctx, PropertySink sink) throws Exception {
+        if (ctx.requestAttributes() != null && ctx.requestAttributes().getAttribute(AuthzConstants.ATTR_MEMBER_RESOURCE_STATES) != null) {
+            readMemberDecisions(ctx, sink);
+            return;
+        }
+
         AuthzDecision decision = null;
 
         try {
@@ -64,4 +73,32 @@ public class URIPolicyCheckResource implements Resource {
         sink.complete();
     }
 
+    protected void readMemberDecisions(RequestContext ctx, PropertySink sink) throws Exception {
+        List<ResourceState> memberStates = AuthzMemberDecisions.memberStates(ctx);
+        AuthzMemberDecisions decisions = new AuthzMemberDecisions(memberStates.size());
+
+        try {
+            if (policy != null) {
+                RequestContext reqCtxToAuthorize = ctx.requestAttributes().getAttribute(AuthzConstants.ATTR_REQUEST_CONTEXT, RequestContext.class);
+                if (reqCtxToAuthorize == null) {
+                    if (log.isTraceEnabled()) {
+                        log.trace("Request is null. Rejecting");
+                    }
+                    for (int i = 0; i < memberStates.size(); i++) {
+                        decisions.set(i, AuthzDecision.REJECT);
+                    }
+                } else {
+                    decisions = policy.isAuthorized(reqCtxToAuthorize, memberStates);
+                }
+            }
+        } catch (Throwable t) {
+            log.error("Error during authz check", t);
+            for (int i = 0; i < memberStates.size(); i++) {
+                decisions.set(i, AuthzDecision.REJECT);
+            }
+        }
+
+        decisions.writeTo(sink);
+        sink.complete();
+    }
 }
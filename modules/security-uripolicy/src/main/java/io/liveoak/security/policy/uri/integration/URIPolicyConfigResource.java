@@ -8,6 +8,7 @@ import java.util.Set;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.liveoak.common.codec.DefaultResourceState;
+import io.liveoak.common.security.AuthzDecisionInvalidator;
 import io.liveoak.common.util.ConversionUtils;
 import io.liveoak.spi.util.ObjectMapperFactory;
 import io.liveoak.common.util.ResourceConversionUtils;
@@ -79,5 +80,6 @@ public class URIPolicyConfigResource implements RootResource, SynchronousResourc
         this.uriPolicyConfig = om.readValue(objectNode.toString(), URIPolicyConfig.class);
 
         new URIPolicyConfigurator().configure(uriPolicy, uriPolicyConfig);
+        AuthzDecisionInvalidator.invalidateAll();
     }
 }
@@ -5,8 +5,10 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 
+import io.liveoak.common.codec.DefaultResourceState;
 import io.liveoak.common.security.DefaultSecurityContext;
 import io.liveoak.common.security.AuthzDecision;
+import io.liveoak.common.security.AuthzMemberDecisions;
 import io.liveoak.security.policy.uri.impl.URIPolicy;
 import io.liveoak.security.policy.uri.impl.URIPolicyConfigurator;
 import io.liveoak.security.policy.uri.integration.URIPolicyConfig;
@@ -14,6 +16,7 @@ import io.liveoak.security.policy.uri.integration.URIPolicyConfigRule;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.RequestType;
 import io.liveoak.spi.ResourcePath;
+import io.liveoak.spi.state.ResourceState;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -99,6 +102,21 @@ public class URIPolicyTest {
         Assert.assertTrue(uriPolicy.isAuthorized(req11) == AuthzDecision.ACCEPT);
     }
 
+    @Test
+    public void testUriPolicyMembers() {
+        RequestContext parent = createRequestContext("/authTest/protected1", RequestType.READ, new String[]{"powerUser"});
+        List<ResourceState> members = Arrays.asList(new DefaultResourceState("12345"), new DefaultResourceState("6789"));
+
+        AuthzMemberDecisions decisions = uriPolicy.isAuthorized(parent, members);
+        Assert.assertEquals(AuthzDecision.ACCEPT, decisions.get(0));
+        Assert.assertEquals(AuthzDecision.IGNORE, decisions.get(1));
+
+        // Same as when each member is checked on its own
+        for (int i = 0; i < members.size(); i++) {
+            Assert.assertEquals(uriPolicy.isAuthorized(AuthzMemberDecisions.memberRequest(parent, members.get(i))), decisions.get(i));
+        }
+    }
+
     private RequestContext createRequestContext(String uri, RequestType reqType, String[] roles) {
         DefaultSecurityContext securityContext = new DefaultSecurityContext();
         securityContext.setSubject("joe");
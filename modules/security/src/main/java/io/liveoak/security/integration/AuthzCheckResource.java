@@ -6,14 +6,20 @@
 
 package io.liveoak.security.integration;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import io.liveoak.common.DefaultRequestAttributes;
 import io.liveoak.common.security.AuthzConstants;
 import io.liveoak.common.security.AuthzDecision;
+import io.liveoak.common.security.AuthzMemberDecisions;
 import io.liveoak.security.spi.AuthzPolicyEntry;
 import io.liveoak.spi.RequestAttributes;
 import io.liveoak.spi.RequestContext;
@@ -36,6 +42,9 @@ public class AuthzCheckResource implements Resource {
     private final AuthzServiceRootResource parent;
     private final Client client;
 
+    // Endpoints of policies which answered a batch with a single decision, so members are sent to them one by one
+    private final Map<String, Boolean> singleOnlyEndpoints = new ConcurrentHashMap<>();
+
     public AuthzCheckResource(AuthzServiceRootResource parent, String id, Client client) {
         this.id = id;
         this.parent = parent;
@@ -58,11 +67,12 @@ public class AuthzCheckResource implements Resource {
             RequestContext ctxToAuthorize = ctx.requestAttributes().getAttribute(AuthzConstants.ATTR_REQUEST_CONTEXT, RequestContext.class);
             ResourceState reqStateToAuthorize = ctx.requestAttributes().getAttribute(AuthzConstants.ATTR_REQUEST_RESOURCE_STATE, ResourceState.class);
             ResourceState respStateToAuthorize = ctx.requestAttributes().getAttribute(AuthzConstants.ATTR_RESPONSE_RESOURCE_STATE, ResourceState.class);
+            List<ResourceState> memberStates = AuthzMemberDecisions.memberStates(ctx);
             if (ctxToAuthorize == null) {
                 if (log.isTraceEnabled()) {
                     log.trace("Request to authorize is null. Rejecting");
                 }
-                writeAuthzResponse(sink, false);
+                writeAuthzResponse(sink, memberStates, false);
                 return;
             }
 
@@ -70,20 +80,26 @@ public class AuthzCheckResource implements Resource {
                 String realm = ctxToAuthorize.securityContext().getRealm();
                 if (realm.equals("liveoak-admin") || realm.equals("master")) { // TODO: Hardcoded realms and 'admin' role is just temporary solution
                     boolean accepted = ctxToAuthorize.securityContext().getRoles().contains("admin");
-                    writeAuthzResponse(sink, accepted);
+                    writeAuthzResponse(sink, memberStates, accepted);
                     return;
                 } else if (!realm.equals("liveoak-apps")) {
                     log.error("Invalid realm " + realm);
-                    writeAuthzResponse(sink, false);
+                    writeAuthzResponse(sink, memberStates, false);
                     return;
                 }
             }
 
+            if (ctx.requestAttributes().getAttribute(AuthzConstants.ATTR_MEMBER_RESOURCE_STATES) != null) {
+                MembersPolicyHandler handler = new MembersPolicyHandler(ctxToAuthorize, memberStates, sink);
+                handler.next();
+                return;
+            }
+
             PolicyHandler handler = new PolicyHandler(ctxToAuthorize, reqStateToAuthorize, respStateToAuthorize, sink);
             handler.next();
         } catch (Throwable t) {
             log.error("Failed to authorize request", t);
-            writeAuthzResponse(sink, false);
+            writeAuthzResponse(sink, AuthzMemberDecisions.memberStates(ctx), false);
         }
     }
 
@@ -178,6 +194,169 @@ public class AuthzCheckResource implements Resource {
 
     }
 
+    /**
+     * Authorizes a batch of members with one request per policy. Policies answering with a single decision
+     * are asked about each member on its own instead.
+     */
+    private class MembersPolicyHandler implements Consumer<ClientResourceResponse> {
+
+        private final RequestContext parentCtx;
+        private final List<ResourceState> memberStates;
+        private final List<RequestContext> memberRequests = new ArrayList<>();
+        private final AuthzDecision[] decisions;
+        private final Queue<AuthzPolicyEntry> queue = new LinkedList<>();
+        private final PropertySink sink;
+
+        // Indexes of members sent to the current policy
+        private List<Integer> current;
+        private AuthzPolicyEntry currentPolicy;
+
+        public MembersPolicyHandler(RequestContext parentCtx, List<ResourceState> memberStates, PropertySink sink) {
+            this.parentCtx = parentCtx;
+            this.memberStates = memberStates;
+            this.sink = sink;
+            this.decisions = new AuthzDecision[memberStates.size()];
+
+            for (ResourceState memberState : memberStates) {
+                memberRequests.add(AuthzMemberDecisions.memberRequest(parentCtx, memberState));
+            }
+
+            // Members no policy is mapped to get the configured decision, by default they are accepted
+            List<AuthzPolicyEntry> policies = parent.getConfig().getPolicies();
+            AuthzDecision unmapped = parent.getConfig().getUnmappedMemberDecision();
+            for (int i = 0; i < decisions.length; i++) {
+                decisions[i] = unmapped;
+                if (policies != null) {
+                    for (AuthzPolicyEntry policyEntry : policies) {
+                        if (policyEntry.isResourceMapped(memberRequests.get(i).resourcePath())) {
+                            decisions[i] = AuthzDecision.IGNORE;
+                            break;
+                        }
+                    }
+                }
+            }
+            if (policies != null) {
+                queue.addAll(policies);
+            }
+        }
+
+        public void next() {
+            while ((currentPolicy = queue.poll()) != null) {
+                current = new ArrayList<>();
+                for (int i = 0; i < decisions.length; i++) {
+                    if (decisions[i] != AuthzDecision.REJECT && currentPolicy.isResourceMapped(memberRequests.get(i).resourcePath())) {
+                        current.add(i);
+                    }
+                }
+                if (current.isEmpty()) {
+                    continue;
+                }
+
+                if (log.isTraceEnabled()) {
+                    log.trace("Invoking next policy for " + current.size() + " members of " + parentCtx.resourcePath() + ", policy = " + currentPolicy.getPolicyResourceEndpoint());
+                }
+
+                String endpoint = currentPolicy.getPolicyResourceEndpoint();
+                if (singleOnlyEndpoints.containsKey(endpoint)) {
+                    checkEachMember();
+                } else {
+                    List<ResourceState> states = new ArrayList<>(current.size());
+                    for (Integer index : current) {
+                        states.add(memberStates.get(index));
+                    }
+                    RequestAttributes attribs = new DefaultRequestAttributes();
+                    attribs.setAttribute(AuthzConstants.ATTR_REQUEST_CONTEXT, parentCtx);
+                    attribs.setAttribute(AuthzConstants.ATTR_MEMBER_RESOURCE_STATES, states);
+                    client.read(new RequestContext.Builder().requestAttributes(attribs).build(), endpoint, this);
+                }
+                return;
+            }
+
+            writeMemberResults();
+        }
+
+        @Override
+        public void accept(ClientResourceResponse response) {
+            AuthzMemberDecisions results = AuthzMemberDecisions.readFrom(response.state(), current.size());
+            if (results == null) {
+                if (response.state() == null || response.state().getProperty(AuthzConstants.ATTR_AUTHZ_POLICY_RESULT) == null) {
+                    log.warn("State or policy result not available in response: " + response + ", path: " + response.path());
+                    writeAuthzResponse(sink, memberStates, false);
+                    return;
+                }
+
+                if (log.isDebugEnabled()) {
+                    log.debug("Policy " + currentPolicy.getPolicyResourceEndpoint() + " doesn't authorize members in batch, checking them one by one");
+                }
+                singleOnlyEndpoints.put(currentPolicy.getPolicyResourceEndpoint(), Boolean.TRUE);
+                checkEachMember();
+                return;
+            }
+
+            for (int i = 0; i < current.size(); i++) {
+                merge(current.get(i), results.get(i));
+            }
+            next();
+        }
+
+        private void checkEachMember() {
+            AtomicInteger pending = new AtomicInteger(current.size());
+            List<Integer> indexes = current;
+            for (Integer index : indexes) {
+                RequestAttributes attribs = new DefaultRequestAttributes();
+                attribs.setAttribute(AuthzConstants.ATTR_REQUEST_CONTEXT, memberRequests.get(index));
+                attribs.setAttribute(AuthzConstants.ATTR_RESPONSE_RESOURCE_STATE, memberStates.get(index));
+                client.read(new RequestContext.Builder().requestAttributes(attribs).build(), currentPolicy.getPolicyResourceEndpoint(), (response) -> {
+                    AuthzDecision result = AuthzDecision.REJECT;
+                    if (response.state() != null && response.state().getProperty(AuthzConstants.ATTR_AUTHZ_POLICY_RESULT) != null) {
+                        result = AuthzDecision.valueOf((String) response.state().getProperty(AuthzConstants.ATTR_AUTHZ_POLICY_RESULT));
+                    } else {
+                        log.warn("State or policy result not available in response: " + response + ", path: " + response.path());
+                    }
+                    synchronized (decisions) {
+                        merge(index, result);
+                    }
+                    if (pending.decrementAndGet() == 0) {
+                        next();
+                    }
+                });
+            }
+        }
+
+        private void merge(int index, AuthzDecision result) {
+            decisions[index] = decisions[index].mergeDecision(result);
+        }
+
+        private void writeMemberResults() {
+            BitSet authorized = new BitSet(decisions.length);
+            synchronized (decisions) {
+                for (int i = 0; i < decisions.length; i++) {
+                    authorized.set(i, decisions[i] == AuthzDecision.ACCEPT);
+                }
+            }
+
+            if (log.isTraceEnabled()) {
+                log.trace("Completed for members of " + parentCtx.resourcePath() + ", authorized = " + authorized);
+            }
+
+            sink.accept(AuthzConstants.ATTR_AUTHZ_MEMBER_RESULTS, AuthzMemberDecisions.encode(authorized));
+            try {
+                sink.complete();
+            } catch (Exception e) {
+                log.error("", e);
+            }
+        }
+    }
+
+    private void writeAuthzResponse(PropertySink sink, List<ResourceState> memberStates, boolean accepted) {
+        if (!memberStates.isEmpty()) {
+            BitSet authorized = new BitSet(memberStates.size());
+            authorized.set(0, memberStates.size(), accepted);
+            sink.accept(AuthzConstants.ATTR_AUTHZ_MEMBER_RESULTS, AuthzMemberDecisions.encode(authorized));
+        }
+        writeAuthzResponse(sink, accepted);
+    }
+
     private void writeAuthzResponse(PropertySink sink, boolean accepted) {
         sink.accept(AuthzConstants.ATTR_AUTHZ_RESULT, accepted);
         try {
@@ -30,6 +30,7 @@ import io.liveoak.spi.state.ResourceState;
 public class AuthzServiceConfigResource implements RootResource, SynchronousResource {
 
     public static final String POLICIES_PROPERTY = "policies";
+    public static final String UNMAPPED_MEMBER_DECISION_PROPERTY = "unmappedMemberDecision";
 
     private final String id;
     private final AuthzServiceRootResource authzRootResource;
@@ -72,10 +73,10 @@ public class AuthzServiceConfigResource implements RootResource, SynchronousReso
 
     @Override
     public void properties(RequestContext ctx, ResourceState props) throws Exception {
-        // Keep just "policies" . Other props not important for us
+        // Keep just "policies" and "unmappedMemberDecision" . Other props not important for us
         Set<String> namesCopy = new HashSet<>(props.getPropertyNames());
         for (String propName : namesCopy) {
-            if (!POLICIES_PROPERTY.equals(propName)) {
+            if (!POLICIES_PROPERTY.equals(propName) && !UNMAPPED_MEMBER_DECISION_PROPERTY.equals(propName)) {
                 props.removeProperty(propName);
             }
         }
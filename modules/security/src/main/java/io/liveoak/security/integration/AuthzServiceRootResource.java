@@ -5,6 +5,7 @@ import java.util.LinkedList;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.liveoak.common.security.AuthzConstants;
+import io.liveoak.common.security.AuthzDecisionInvalidator;
 import io.liveoak.security.spi.AuthzServiceConfig;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.client.Client;
@@ -37,6 +38,7 @@ public class AuthzServiceRootResource implements RootResource, SynchronousResour
 
     public void setConfig(AuthzServiceConfig config) {
         this.config.set(config);
+        AuthzDecisionInvalidator.invalidateAll();
         log.debug("Security configuration updated: " + config);
     }
 
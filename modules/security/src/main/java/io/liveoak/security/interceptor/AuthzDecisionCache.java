@@ -0,0 +1,244 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.security.interceptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.liveoak.spi.RequestType;
+import io.liveoak.spi.ResourceParams;
+import io.liveoak.spi.ResourcePath;
+import io.liveoak.spi.security.SecurityContext;
+
+/**
+ * Bounded cache of recent authorization decisions, each remembered for a limited time.
+ *
+ * <p>Decisions are keyed by everything a policy may base its decision on, other than resource state:
+ * realm, subject, roles, resource path, request type and request parameters, such as the query or sorting of a
+ * collection read. Checks involving resource state must not be cached.</p>
+ */
+public class AuthzDecisionCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<Key, Entry> entries;
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public AuthzDecisionCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS);
+    }
+
+    public AuthzDecisionCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > AuthzDecisionCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return The decision, or null if none is cached or it has expired.
+     */
+    public Boolean get(Key key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expires < System.currentTimeMillis()) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.authorized;
+    }
+
+    public void put(Key key, boolean authorized) {
+        synchronized (entries) {
+            entries.put(key, new Entry(authorized, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    /**
+     * Remember a decision, unless decisions have been invalidated since it started being made.
+     *
+     * @param generation The {@link #generation()} taken before asking for the decision
+     * @return Whether the decision was remembered
+     */
+    public boolean put(Key key, boolean authorized, long generation) {
+        synchronized (entries) {
+            if (generation != this.generation) {
+                return false;
+            }
+            entries.put(key, new Entry(authorized, System.currentTimeMillis() + ttlMillis));
+            return true;
+        }
+    }
+
+    /**
+     * @return A number which changes with every invalidation
+     */
+    public long generation() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /**
+     * Forget the decisions about resources of an application.
+     *
+     * @param applicationPrefix The application prefix, for example "/myapp", or null to forget everything.
+     */
+    public void invalidate(String applicationPrefix) {
+        synchronized (entries) {
+            // decisions being made right now may be based on what has just changed
+            generation++;
+            if (applicationPrefix == null) {
+                entries.clear();
+                return;
+            }
+            Iterator<Key> keys = entries.keySet().iterator();
+            while (keys.hasNext()) {
+                String path = keys.next().path;
+                if (path.equals(applicationPrefix) || path.startsWith(applicationPrefix + "/")) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "[AuthzDecisionCache: size=" + size() + ", hits=" + hits() + ", misses=" + misses() + "]";
+    }
+
+    public static Key key(SecurityContext securityContext, ResourcePath resourcePath, RequestType requestType) {
+        return key(securityContext, resourcePath, requestType, ResourceParams.NONE);
+    }
+
+    public static Key key(SecurityContext securityContext, ResourcePath resourcePath, RequestType requestType, ResourceParams resourceParams) {
+        StringBuilder path = new StringBuilder();
+        for (ResourcePath.Segment segment : resourcePath.segments()) {
+            // matrix parameters don't identify the resource
+            path.append('/').append(segment.name());
+        }
+
+        // policies may decide on any of the parameters, so requests differing in any of them get a decision of their own
+        Map<String, List<String>> params = new TreeMap<>();
+        if (resourceParams != null) {
+            for (String name : resourceParams.names()) {
+                params.put(name, new ArrayList<>(resourceParams.values(name)));
+            }
+        }
+
+        if (securityContext == null) {
+            return new Key(null, null, Collections.emptySet(), path.toString(), requestType, params);
+        }
+        return new Key(securityContext.getRealm(), securityContext.getSubject(), securityContext.getRoles(), path.toString(), requestType, params);
+    }
+
+    public static class Key {
+
+        private final String realm;
+        private final String subject;
+        private final Set<String> roles;
+        private final String path;
+        private final RequestType requestType;
+        private final Map<String, List<String>> params;
+        private final int hashCode;
+
+        Key(String realm, String subject, Set<String> roles, String path, RequestType requestType, Map<String, List<String>> params) {
+            this.realm = realm;
+            this.subject = subject;
+            this.roles = roles != null ? new HashSet<>(roles) : Collections.emptySet();
+            this.path = path;
+            this.requestType = requestType;
+            this.params = params;
+
+            int result = realm != null ? realm.hashCode() : 0;
+            result = 31 * result + (subject != null ? subject.hashCode() : 0);
+            result = 31 * result + this.roles.hashCode();
+            result = 31 * result + path.hashCode();
+            result = 31 * result + (requestType != null ? requestType.hashCode() : 0);
+            result = 31 * result + params.hashCode();
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return this.hashCode == other.hashCode
+                    && (realm != null ? realm.equals(other.realm) : other.realm == null)
+                    && (subject != null ? subject.equals(other.subject) : other.subject == null)
+                    && roles.equals(other.roles)
+                    && path.equals(other.path)
+                    && requestType == other.requestType
+                    && params.equals(other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return "[Key: realm=" + realm + ", subject=" + subject + ", roles=" + roles + ", path=" + path + ", requestType=" + requestType + ", params=" + params + "]";
+        }
+    }
+
+    private static class Entry {
+        final boolean authorized;
+        final long expires;
+
+        Entry(boolean authorized, long expires) {
+            this.authorized = authorized;
+            this.expires = expires;
+        }
+    }
+}
@@ -6,6 +6,7 @@
 package io.liveoak.security.interceptor;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -13,6 +14,7 @@ import java.util.function.Consumer;
 import io.liveoak.common.DefaultRequestAttributes;
 import io.liveoak.common.DefaultResourceErrorResponse;
 import io.liveoak.common.security.AuthzConstants;
+import io.liveoak.common.security.AuthzMemberDecisions;
 import io.liveoak.spi.RequestAttributes;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.RequestType;
@@ -39,9 +41,19 @@ public class AuthzInterceptor extends DefaultInterceptor {
     private static final Logger log = Logger.getLogger(AuthzInterceptor.class);
 
     private final Client client;
+    private final AuthzDecisionCache decisionCache;
 
     public AuthzInterceptor(Client client) {
+        this(client, new AuthzDecisionCache());
+    }
+
+    public AuthzInterceptor(Client client, AuthzDecisionCache decisionCache) {
         this.client = client;
+        this.decisionCache = decisionCache;
+    }
+
+    public AuthzDecisionCache decisionCache() {
+        return decisionCache;
     }
 
     private String getPrefix(ResourcePath path) {
@@ -60,6 +72,23 @@ public class AuthzInterceptor extends DefaultInterceptor {
             ctx.forward();
             return;
         }
+
+        // Decisions which may depend on the state sent along can't be reused
+        AuthzDecisionCache.Key cacheKey = isStateless(req) ? AuthzDecisionCache.key(req.requestContext().securityContext(), req.resourcePath(), req.requestType(),
+                req.requestContext().resourceParams()) : null;
+        // taken before asking, so that a decision made before an invalidation isn't remembered after it
+        long generation = decisionCache.generation();
+        if (cacheKey != null) {
+            Boolean authorized = decisionCache.get(cacheKey);
+            if (authorized != null) {
+                if (log.isTraceEnabled()) {
+                    log.tracef("Using cached authorization decision %s for %s", authorized, cacheKey);
+                }
+                authorized(ctx, req, authorized);
+                return;
+            }
+        }
+
         try {
             // Put current request as attribute of the request, which will be sent to AuthzService
             RequestAttributes attribs = new DefaultRequestAttributes();
@@ -78,14 +107,10 @@ public class AuthzInterceptor extends DefaultInterceptor {
                         ResourceState state = resourceResponse.state();
 
                         boolean authorized = (Boolean) state.getProperty(AuthzConstants.ATTR_AUTHZ_RESULT);
-
-                        if (authorized) {
-                            ctx.forward();
-                        } else {
-                            boolean authenticated = req.requestContext().securityContext().isAuthenticated();
-                            ResourceErrorResponse.ErrorType errorType = authenticated ? ResourceErrorResponse.ErrorType.FORBIDDEN : ResourceErrorResponse.ErrorType.NOT_AUTHORIZED;
-                            ctx.replyWith(new DefaultResourceErrorResponse(req, errorType));
+                        if (cacheKey != null) {
+                            decisionCache.put(cacheKey, authorized, generation);
                         }
+                        authorized(ctx, req, authorized);
                     } catch (Throwable t) {
                         ctx.replyWith(new DefaultResourceErrorResponse(req, ResourceErrorResponse.ErrorType.INTERNAL_ERROR));
                     }
@@ -96,6 +121,26 @@ public class AuthzInterceptor extends DefaultInterceptor {
         }
     }
 
+    private void authorized(InboundInterceptorContext ctx, ResourceRequest req, boolean authorized) {
+        if (authorized) {
+            ctx.forward();
+        } else {
+            boolean authenticated = req.requestContext().securityContext().isAuthenticated();
+            ResourceErrorResponse.ErrorType errorType = authenticated ? ResourceErrorResponse.ErrorType.FORBIDDEN : ResourceErrorResponse.ErrorType.NOT_AUTHORIZED;
+            ctx.replyWith(new DefaultResourceErrorResponse(req, errorType));
+        }
+    }
+
+    private boolean isStateless(ResourceRequest req) {
+        ResourceState state = req.state();
+        return state == null || (state.getPropertyNames().isEmpty() && state.members().isEmpty());
+    }
+
+    @Override
+    public boolean requiresResponseState() {
+        // members are filtered out of the outbound state
+        return true;
+    }
 
     @Override
     public void onOutbound(OutboundInterceptorContext context) throws Exception {
@@ -120,69 +165,77 @@ public class AuthzInterceptor extends DefaultInterceptor {
     }
 
     protected void processMembers(ResourcePath currentResourcePath, ResourceState resourceState, SecurityContext securityContext, Consumer<ResourceState> callback) {
-        if (resourceState.members().isEmpty()) {
+        // Members without properties and members are just links, so there is nothing to check
+        List<ResourceState> candidates = new ArrayList<>();
+        for (ResourceState childState : resourceState.members()) {
+            if (!childState.getPropertyNames().isEmpty() || !childState.members().isEmpty()) {
+                candidates.add(childState);
+            }
+        }
+        if (candidates.isEmpty()) {
             callback.accept(resourceState);
             return;
         }
 
-        // First check all, which are going to be counted
-        final AtomicInteger pendingRequests = new AtomicInteger(resourceState.members().size());
-
-        // Copy to avoid concurrent modification
-        List<ResourceState> childResourcesCopy = new ArrayList<>(resourceState.members());
+        // Send one authz request for all members, using the states of the resources, which are going to be returned
+        RequestContext parentToAuthorize = new RequestContext.Builder()
+                .resourcePath(currentResourcePath)
+                .requestType(RequestType.READ)
+                .securityContext(securityContext);
+        RequestAttributes attribs = new DefaultRequestAttributes();
+        attribs.setAttribute(AuthzConstants.ATTR_REQUEST_CONTEXT, parentToAuthorize);
+        attribs.setAttribute(AuthzConstants.ATTR_MEMBER_RESOURCE_STATES, candidates);
+        RequestContext authzRequest = new RequestContext.Builder().requestAttributes(attribs).build();
+
+        client.read(authzRequest, getPrefix(currentResourcePath) + "/authz/authzCheck", new Consumer<ClientResourceResponse>() {
+
+            @Override
+            public void accept(ClientResourceResponse authzResponse) {
+                BitSet authorized = new BitSet(candidates.size());
+                if (authzResponse.responseType() == ClientResourceResponse.ResponseType.NO_SUCH_RESOURCE) {
+                    authorized.set(0, candidates.size());
+                } else if (authzResponse.state() != null && authzResponse.state().getProperty(AuthzConstants.ATTR_AUTHZ_MEMBER_RESULTS) != null) {
+                    authorized = AuthzMemberDecisions.decode((String) authzResponse.state().getProperty(AuthzConstants.ATTR_AUTHZ_MEMBER_RESULTS));
+                } else {
+                    log.warn("Member authorization results not available in response: " + authzResponse + ", path: " + currentResourcePath);
+                }
 
-        for (ResourceState childState : childResourcesCopy) {
-            if (!childState.getPropertyNames().isEmpty() || !childState.members().isEmpty()) {
-                // Send authz request now
-                ResourcePath childResourcePath = new ResourcePath(currentResourcePath);
-                childResourcePath.appendSegment(childState.id());
-                RequestContext reqToAuthorize = new RequestContext.Builder()
-                        .resourcePath(childResourcePath)
-                        .requestType(RequestType.READ)
-                        .securityContext(securityContext);
-                RequestAttributes attribs = new DefaultRequestAttributes();
-                attribs.setAttribute(AuthzConstants.ATTR_REQUEST_CONTEXT, reqToAuthorize);
-                // Use the state of the resource, which is going to be returned
-                attribs.setAttribute(AuthzConstants.ATTR_RESPONSE_RESOURCE_STATE, childState);
-                RequestContext authzRequest = new RequestContext.Builder().requestAttributes(attribs).build();
-
-                client.read(authzRequest, getPrefix(currentResourcePath) + "/authz/authzCheck", new Consumer<ClientResourceResponse>() {
-
-                    @Override
-                    public void accept(ClientResourceResponse authzResponse) {
-                        boolean authorized;
-                        if (authzResponse.responseType() == ClientResourceResponse.ResponseType.NO_SUCH_RESOURCE) {
-                            authorized = true;
-                        } else {
-                            ResourceState state = authzResponse.state();
-                            boolean authzResult = (Boolean) state.getProperty(AuthzConstants.ATTR_AUTHZ_RESULT);
-                            authorized = authzResult;
+                List<ResourceState> authorizedStates = new ArrayList<>();
+                List<ResourcePath> authorizedPaths = new ArrayList<>();
+                for (int i = 0; i < candidates.size(); i++) {
+                    ResourceState childState = candidates.get(i);
+                    ResourcePath childResourcePath = new ResourcePath(currentResourcePath);
+                    childResourcePath.appendSegment(childState.id());
+                    if (authorized.get(i)) {
+                        authorizedStates.add(childState);
+                        authorizedPaths.add(childResourcePath);
+                    } else {
+                        if (log.isTraceEnabled()) {
+                            log.tracef("Resource %s not authorized and removed from the response", childResourcePath);
                         }
+                        notAuthorized(resourceState, childState);
+                    }
+                }
 
-                        if (authorized) {
-                            // Recursive call to check members of this one
-                            processMembers(childResourcePath, childState, securityContext, new Consumer<ResourceState>() {
-
-                                @Override
-                                public void accept(ResourceState childState) {
-                                    checkAuthzFinished(pendingRequests, resourceState, callback);
-                                }
-
-                            });
-                        } else {
-                            if (log.isTraceEnabled()) {
-                                log.tracef("Resource %s not authorized and removed from the response", childResourcePath);
-                            }
-                            notAuthorized(resourceState, childState);
+                if (authorizedStates.isEmpty()) {
+                    callback.accept(resourceState);
+                    return;
+                }
+
+                // Recursive call to check members of authorized ones
+                final AtomicInteger pendingRequests = new AtomicInteger(authorizedStates.size());
+                for (int i = 0; i < authorizedStates.size(); i++) {
+                    processMembers(authorizedPaths.get(i), authorizedStates.get(i), securityContext, new Consumer<ResourceState>() {
+
+                        @Override
+                        public void accept(ResourceState childState) {
                             checkAuthzFinished(pendingRequests, resourceState, callback);
                         }
-                    }
-                });
-            } else {
-                checkAuthzFinished(pendingRequests, resourceState, callback);
-            }
-        }
 
+                    });
+                }
+            }
+        });
     }
 
     private void checkAuthzFinished(AtomicInteger pendingRequests, ResourceState resourceState, Consumer<ResourceState> callback) {
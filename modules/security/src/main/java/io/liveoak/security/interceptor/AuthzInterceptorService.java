@@ -1,6 +1,10 @@
 package io.liveoak.security.interceptor;
 
+import java.util.function.Consumer;
+
+import io.liveoak.common.security.AuthzDecisionInvalidator;
 import io.liveoak.spi.client.Client;
+import org.jboss.logging.Logger;
 import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.StartContext;
@@ -13,16 +17,24 @@ import org.jboss.msc.value.InjectedValue;
  */
 public class AuthzInterceptorService implements Service<AuthzInterceptor> {
 
+    private static final Logger log = Logger.getLogger(AuthzInterceptorService.class);
+
     private InjectedValue<Client> clientInjector = new InjectedValue<>();
     private AuthzInterceptor authzInterceptor;
+    private Consumer<String> invalidationListener;
 
     @Override
     public void start(StartContext context) throws StartException {
-        authzInterceptor = new AuthzInterceptor(clientInjector.getValue());
+        AuthzDecisionCache decisionCache = new AuthzDecisionCache();
+        authzInterceptor = new AuthzInterceptor(clientInjector.getValue(), decisionCache);
+        invalidationListener = decisionCache::invalidate;
+        AuthzDecisionInvalidator.addListener(invalidationListener);
     }
 
     @Override
     public void stop(StopContext context) {
+        AuthzDecisionInvalidator.removeListener(invalidationListener);
+        log.debug("Authorization decisions: " + authzInterceptor.decisionCache());
         authzInterceptor = null;
     }
 
@@ -8,6 +8,8 @@ package io.liveoak.security.spi;
 
 import java.util.List;
 
+import io.liveoak.common.security.AuthzDecision;
+
 /**
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
  */
@@ -15,6 +17,10 @@ public class AuthzServiceConfig {
 
     private List<AuthzPolicyEntry> policies;
 
+    // Decision for returned members no policy is mapped to. ACCEPT returns them, as a request no policy is mapped to is
+    // accepted; IGNORE leaves them out, like any member no policy accepts
+    private AuthzDecision unmappedMemberDecision = AuthzDecision.ACCEPT;
+
     public void setPolicies(List<AuthzPolicyEntry> policies) {
         this.policies = policies;
     }
@@ -23,10 +29,20 @@ public class AuthzServiceConfig {
         return policies;
     }
 
+    public AuthzDecision getUnmappedMemberDecision() {
+        return unmappedMemberDecision;
+    }
+
+    public void setUnmappedMemberDecision(AuthzDecision unmappedMemberDecision) {
+        this.unmappedMemberDecision = unmappedMemberDecision != null ? unmappedMemberDecision : AuthzDecision.ACCEPT;
+    }
+
     @Override
     public String toString() {
         return new StringBuilder("AuthzServiceConfig [ policies=")
                 .append(policies)
+                .append(", unmappedMemberDecision=")
+                .append(unmappedMemberDecision)
                 .append(" ]").toString();
     }
 }
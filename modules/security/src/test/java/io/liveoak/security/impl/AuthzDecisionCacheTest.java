@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package io.liveoak.security.impl;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.liveoak.common.DefaultResourceParams;
+import io.liveoak.common.security.DefaultSecurityContext;
+import io.liveoak.security.interceptor.AuthzDecisionCache;
+import io.liveoak.spi.RequestType;
+import io.liveoak.spi.ResourceParams;
+import io.liveoak.spi.ResourcePath;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AuthzDecisionCacheTest {
+
+    @Test
+    public void testHitsAndMisses() {
+        AuthzDecisionCache cache = new AuthzDecisionCache();
+        AuthzDecisionCache.Key key = AuthzDecisionCache.key(context("john", "user"), new ResourcePath("/testApp/storage/foo"), RequestType.READ);
+
+        Assert.assertNull(cache.get(key));
+        cache.put(key, true);
+        Assert.assertTrue(cache.get(key));
+
+        // matrix parameters don't make a different resource
+        Assert.assertTrue(cache.get(AuthzDecisionCache.key(context("john", "user"), new ResourcePath("/testApp/storage;a=b/foo"), RequestType.READ)));
+
+        // different roles, subject or request type do
+        Assert.assertNull(cache.get(AuthzDecisionCache.key(context("john", "admin"), new ResourcePath("/testApp/storage/foo"), RequestType.READ)));
+        Assert.assertNull(cache.get(AuthzDecisionCache.key(context("bob", "user"), new ResourcePath("/testApp/storage/foo"), RequestType.READ)));
+        Assert.assertNull(cache.get(AuthzDecisionCache.key(context("john", "user"), new ResourcePath("/testApp/storage/foo"), RequestType.UPDATE)));
+
+        Assert.assertEquals(2, cache.hits());
+        Assert.assertEquals(4, cache.misses());
+    }
+
+    @Test
+    public void testParams() {
+        AuthzDecisionCache cache = new AuthzDecisionCache();
+        ResourcePath path = new ResourcePath("/testApp/storage/todos");
+        cache.put(AuthzDecisionCache.key(context("john", "user"), path, RequestType.READ, params("q", "{\"user\":\"john\"}", "sort", "title")), true);
+        cache.put(AuthzDecisionCache.key(context("john", "user"), path, RequestType.READ, params("q", "{\"user\":\"bob\"}", "sort", "title")), false);
+
+        // the same path queried differently gets the decision made for that query
+        Assert.assertTrue(cache.get(AuthzDecisionCache.key(context("john", "user"), path, RequestType.READ, params("sort", "title", "q", "{\"user\":\"john\"}"))));
+        Assert.assertFalse(cache.get(AuthzDecisionCache.key(context("john", "user"), path, RequestType.READ, params("q", "{\"user\":\"bob\"}", "sort", "title"))));
+        Assert.assertNull(cache.get(AuthzDecisionCache.key(context("john", "user"), path, RequestType.READ, params("q", "{\"user\":\"bob\"}"))));
+        Assert.assertNull(cache.get(AuthzDecisionCache.key(context("john", "user"), path, RequestType.READ)));
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        AuthzDecisionCache cache = new AuthzDecisionCache(10, 1);
+        AuthzDecisionCache.Key key = AuthzDecisionCache.key(context("john", "user"), new ResourcePath("/testApp/storage"), RequestType.READ);
+        cache.put(key, false);
+        Thread.sleep(10);
+        Assert.assertNull(cache.get(key));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEviction() {
+        AuthzDecisionCache cache = new AuthzDecisionCache(2, 60000);
+        for (String subject : Arrays.asList("a", "b", "c")) {
+            cache.put(AuthzDecisionCache.key(context(subject, "user"), new ResourcePath("/testApp"), RequestType.READ), true);
+        }
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNull(cache.get(AuthzDecisionCache.key(context("a", "user"), new ResourcePath("/testApp"), RequestType.READ)));
+    }
+
+    @Test
+    public void testInvalidateApplication() {
+        AuthzDecisionCache cache = new AuthzDecisionCache();
+        AuthzDecisionCache.Key app = AuthzDecisionCache.key(context("john", "user"), new ResourcePath("/testApp/storage"), RequestType.READ);
+        AuthzDecisionCache.Key similar = AuthzDecisionCache.key(context("john", "user"), new ResourcePath("/testApp2/storage"), RequestType.READ);
+        cache.put(app, true);
+        cache.put(similar, true);
+
+        cache.invalidate("/testApp");
+        Assert.assertNull(cache.get(app));
+        Assert.assertTrue(cache.get(similar));
+
+        cache.invalidate(null);
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testDecisionMadeBeforeInvalidation() {
+        AuthzDecisionCache cache = new AuthzDecisionCache();
+        AuthzDecisionCache.Key key = AuthzDecisionCache.key(context("john", "user"), new ResourcePath("/testApp/storage"), RequestType.READ);
+
+        // the policy changes while the decision is being made
+        long generation = cache.generation();
+        cache.invalidate("/testApp");
+        Assert.assertFalse(cache.put(key, true, generation));
+        Assert.assertNull(cache.get(key));
+
+        Assert.assertTrue(cache.put(key, true, cache.generation()));
+        Assert.assertTrue(cache.get(key));
+    }
+
+    private ResourceParams params(String... namesAndValues) {
+        Map<String, List<String>> params = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            params.put(namesAndValues[i], Arrays.asList(namesAndValues[i + 1]));
+        }
+        return DefaultResourceParams.instance(params);
+    }
+
+    private DefaultSecurityContext context(String subject, String... roles) {
+        DefaultSecurityContext context = new DefaultSecurityContext();
+        context.setRealm("liveoak-apps");
+        context.setSubject(subject);
+        context.setRoles(new HashSet<>(Arrays.asList(roles)));
+        return context;
+    }
+}
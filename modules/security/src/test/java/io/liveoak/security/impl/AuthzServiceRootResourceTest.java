@@ -5,14 +5,18 @@
  */
 package io.liveoak.security.impl;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.liveoak.common.DefaultRequestAttributes;
+import io.liveoak.common.codec.DefaultResourceState;
 import io.liveoak.common.security.AuthzConstants;
 import io.liveoak.common.security.AuthzDecision;
+import io.liveoak.common.security.AuthzMemberDecisions;
 import io.liveoak.common.security.DefaultSecurityContext;
 import io.liveoak.security.extension.SecurityExtension;
 import io.liveoak.security.integration.AuthzServiceConfigResource;
@@ -156,6 +160,55 @@ public class AuthzServiceRootResourceTest extends AbstractTestCaseWithTestApp {
         Assert.assertTrue(getAuthzResult(reqCtxToCheck));
     }
 
+    @Test
+    public void unmappedMembersTests() throws Exception {
+        RequestContext reqCtx = new RequestContext.Builder();
+        ResourceState original = client.read(reqCtx, "/admin/applications/testApp/resources/authz");
+
+        try {
+            // No policy is mapped to any of the members
+            ResourceState config = client.read(reqCtx, "/admin/applications/testApp/resources/authz");
+            ((List<ResourceState>) config.getProperty(AuthzServiceConfigResource.POLICIES_PROPERTY)).clear();
+            client.update(reqCtx, "/admin/applications/testApp/resources/authz", config);
+
+            DefaultSecurityContext securityContext = new DefaultSecurityContext();
+            securityContext.setRealm("liveoak-apps");
+            RequestContext parentCtx = new RequestContext.Builder().requestType(RequestType.READ).resourcePath(new ResourcePath("/testApp/storage")).securityContext(securityContext);
+
+            // Test #1 - Unmapped members are accepted by default, like a single unmapped resource
+            BitSet authorized = getMemberResults(parentCtx, "foo", "bar");
+            Assert.assertTrue(authorized.get(0));
+            Assert.assertTrue(authorized.get(1));
+            Assert.assertEquals(AuthzDecision.ACCEPT, authzService.getConfig().getUnmappedMemberDecision());
+
+            // Test #2 - Unmapped members left out once configured so
+            config = client.read(reqCtx, "/admin/applications/testApp/resources/authz");
+            config.putProperty(AuthzServiceConfigResource.UNMAPPED_MEMBER_DECISION_PROPERTY, AuthzDecision.IGNORE.toString());
+            client.update(reqCtx, "/admin/applications/testApp/resources/authz", config);
+
+            authorized = getMemberResults(parentCtx, "foo", "bar");
+            Assert.assertFalse(authorized.get(0));
+            Assert.assertFalse(authorized.get(1));
+            Assert.assertEquals(AuthzDecision.IGNORE, authzService.getConfig().getUnmappedMemberDecision());
+        } finally {
+            original.putProperty(AuthzServiceConfigResource.UNMAPPED_MEMBER_DECISION_PROPERTY, AuthzDecision.ACCEPT.toString());
+            client.update(reqCtx, "/admin/applications/testApp/resources/authz", original);
+        }
+    }
+
+    private BitSet getMemberResults(RequestContext parentCtx, String... memberIds) throws Exception {
+        List<ResourceState> members = new ArrayList<>();
+        for (String id : memberIds) {
+            members.add(new DefaultResourceState(id));
+        }
+        RequestAttributes attribs = new DefaultRequestAttributes();
+        attribs.setAttribute(AuthzConstants.ATTR_REQUEST_CONTEXT, parentCtx);
+        attribs.setAttribute(AuthzConstants.ATTR_MEMBER_RESOURCE_STATES, members);
+        RequestContext reqCtx = new RequestContext.Builder().requestAttributes(attribs).build();
+        ResourceState state = client.read(reqCtx, "/testApp/authz/authzCheck");
+        return AuthzMemberDecisions.decode((String) state.getProperty(AuthzConstants.ATTR_AUTHZ_MEMBER_RESULTS));
+    }
+
     private void setMockDecision(AuthzDecision decision) {
         mockPolicy.setAuthzDecision(decision);
     }
@@ -11,6 +11,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.liveoak.common.DefaultReturnFields;
 import io.liveoak.common.security.AuthzConstants;
 import io.liveoak.common.security.AuthzDecision;
+import io.liveoak.common.security.AuthzDecisionInvalidator;
 import io.liveoak.common.security.DefaultSecurityContext;
 import io.liveoak.interceptor.extension.InterceptorExtension;
 import io.liveoak.security.extension.SecurityExtension;
@@ -75,6 +76,8 @@ public class AuthzInterceptorTest extends AbstractTestCaseWithTestApp {
     public void before() throws Exception {
         AuthzServiceRootResource authzRootResource = (AuthzServiceRootResource) system.service(Services.resource("testApp", "authz"));
         this.mockPolicy = (InterceptorTestAuthzResource) system.service(Services.resource("testApp", "mock-policy"));
+        // the mock policy changes its decisions between tests without announcing it
+        AuthzDecisionInvalidator.invalidateAll();
     }
 
     @Test
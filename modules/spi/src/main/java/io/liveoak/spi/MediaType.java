@@ -5,9 +5,12 @@
  */
 package io.liveoak.spi;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Bob McWhirter
@@ -50,6 +53,9 @@ public class MediaType {
     public static final MediaType ZIP = new MediaType("application/zip");
     public static final MediaType GZIP = new MediaType("application/gzip");
 
+    private static final Set<String> COMPRESSED_APPLICATION_TYPES = new HashSet<>(Arrays.asList(
+            "zip", "gzip", "x-gzip", "x-bzip2", "x-xz", "x-7z-compressed", "x-rar-compressed", "java-archive", "pdf", "font-woff"));
+
     private static Map<String, MediaType> EXTENSIONS = new HashMap<>();
 
     public static void registerExtensions(MediaType mediaType, String... extensions) {
@@ -166,6 +172,24 @@ public class MediaType {
         return this.suffix;
     }
 
+    /**
+     * Whether content of this type is compressed already, so that compressing it again for transfer gains nothing.
+     */
+    public boolean isCompressed() {
+        switch (this.type) {
+            case "image":
+                // but not svg+xml
+                return this.suffix == null && !this.subtype.equals("bmp");
+            case "audio":
+            case "video":
+                return true;
+            case "application":
+                return COMPRESSED_APPLICATION_TYPES.contains(this.subtype);
+            default:
+                return false;
+        }
+    }
+
     public boolean isCompatible(MediaType other) {
         if (!this.type.equals(other.type)) {
             if (!this.type.equals(WILDCARD) && !other.type.equals(WILDCARD)) {
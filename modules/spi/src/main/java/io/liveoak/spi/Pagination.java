@@ -49,4 +49,18 @@ public interface Pagination {
      */
     int limit();
 
+    /**
+     * Get the continuation token.
+     *
+     * <p>
+     * A token asks for the page following the one it was issued with, instead of the one at the offset.
+     * An empty token asks for the first page, with a token for the next page in the links.
+     * </p>
+     *
+     * @return The token, or null if paging by offset.
+     */
+    default String cursor() {
+        return null;
+    }
+
 }
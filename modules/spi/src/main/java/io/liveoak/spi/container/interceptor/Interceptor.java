@@ -12,4 +12,17 @@ public interface Interceptor {
     void onOutbound(OutboundInterceptorContext context) throws Exception;
 
     void onComplete(UUID requestId);
+
+    /**
+     * Whether this interceptor inspects or modifies the ResourceState of READ responses in {@link #onOutbound}.
+     *
+     * <p>Responses to READ requests are encoded straight from the resource to the wire when no interceptor
+     * on the chain asks for the state, in which case {@link io.liveoak.spi.ResourceResponse#state()} is null
+     * during the outbound pass.</p>
+     *
+     * @return true if the response state has to be materialized before onOutbound is invoked
+     */
+    default boolean requiresResponseState() {
+        return false;
+    }
 }
@@ -19,6 +19,8 @@ public interface InterceptorManager {
 
     void fireComplete(String chainName, UUID requestId);
 
+    boolean requiresResponseState(String chainName, ResourceRequest request);
+
     void register(String interceptorName, Interceptor interceptor);
 
     void unregister(Interceptor interceptor);
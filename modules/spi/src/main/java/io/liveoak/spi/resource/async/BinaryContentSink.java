@@ -14,4 +14,11 @@ import java.util.function.Consumer;
  */
 public interface BinaryContentSink extends Consumer<ByteBuf>, AutoCloseable {
     void close();
+
+    /**
+     * Give up on the content before all of it has been accepted, such as when the connection it was coming in on is closed.
+     */
+    default void abort() {
+        close();
+    }
 }
@@ -5,9 +5,12 @@
  */
 package io.liveoak.spi.resource.async;
 
+import java.io.File;
+
 import io.liveoak.spi.MediaType;
 import io.liveoak.spi.RequestContext;
 import io.liveoak.spi.state.ResourceState;
+import io.netty.buffer.ByteBuf;
 
 /**
  * @author Bob McWhirter
@@ -29,6 +32,68 @@ public interface BinaryResource extends Resource {
      */
     long contentLength();
 
+    /**
+     * Retrieve the time of the last modification of the content.
+     *
+     * @return Milliseconds since the epoch, or -1 if not known
+     */
+    default long lastModified() {
+        return -1;
+    }
+
+    /**
+     * Retrieve the entity tag of the current content, used to tell if a copy held by a client is still current.
+     *
+     * <p>By default the tag is made of the last modification time and the content length.</p>
+     *
+     * @return A quoted entity tag, or null if there is none
+     */
+    default String entityTag() {
+        long lastModified = lastModified();
+        if (lastModified < 0) {
+            return null;
+        }
+        return "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(contentLength()) + "\"";
+    }
+
+    /**
+     * Retrieve the file holding the content as is, so it can be sent straight from the file rather than through readContent().
+     *
+     * @return The file, or null if the content is not held in a file
+     */
+    default File file() {
+        return null;
+    }
+
+    /**
+     * Retrieve the content if it is held in memory, so it can be written out as is rather than through readContent().
+     *
+     * @return The content, retained for the caller to release, or null if it is not held in memory
+     */
+    default ByteBuf cachedContent() {
+        return null;
+    }
+
+    /**
+     * Retrieve the content coding already applied to the content, such as "gzip".
+     *
+     * @return The content coding, or null if the content is not encoded
+     */
+    default String contentEncoding() {
+        return null;
+    }
+
+    /**
+     * Retrieve a variant of this resource with the content encoded with the given content coding, so that it
+     * doesn't have to be compressed on the way out.
+     *
+     * @param contentCoding A content coding, such as "gzip"
+     * @return The variant, or null if there is none
+     */
+    default BinaryResource encodedVariant(String contentCoding) {
+        return null;
+    }
+
     /**
      * Write the content of this object to the provided sink.
      *
@@ -36,6 +101,27 @@ public interface BinaryResource extends Resource {
      */
     void readContent(RequestContext ctx, BinaryContentSink sink) throws Exception;
 
+    /**
+     * Tell whether this resource can write out a byte range of its content with
+     * {@link #readContent(RequestContext, long, long, BinaryContentSink)}.
+     *
+     * @return true if byte ranges are supported
+     */
+    default boolean supportsRanges() {
+        return false;
+    }
+
+    /**
+     * Write a byte range of the content of this object to the provided sink.
+     *
+     * @param offset Position of the first byte to write
+     * @param length Number of bytes to write
+     * @param sink The sink to stream content to.
+     */
+    default void readContent(RequestContext ctx, long offset, long length, BinaryContentSink sink) throws Exception {
+        throw new UnsupportedOperationException("Byte ranges not supported by: " + this);
+    }
+
     /**
      * Update this object's content.
      *
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.InputStream;
 
 import io.liveoak.spi.MediaType;
+import io.liveoak.spi.resource.async.BinaryContentSink;
 import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.multipart.FileUpload;
 
@@ -27,4 +28,20 @@ public interface LazyResourceState extends ResourceState {
     void fileUpload(FileUpload fileUpload);
 
     void content(ByteBuf content);
+
+    /**
+     * Have the body streamed into the sink as it arrives, rather than buffered in memory or on disk first.
+     *
+     * <p>To be set from {@link io.liveoak.spi.resource.async.BinaryResource#willProcessUpdate}. The sink is handed
+     * the body one buffer at a time, and is responsible for releasing them. It is closed once the whole body has been
+     * accepted, before updateContent() is invoked, or aborted if the body is cut short.</p>
+     *
+     * @param sink The sink to stream the body to
+     */
+    void contentSink(BinaryContentSink sink);
+
+    /**
+     * @return The sink the body is streamed to, or null if it is buffered
+     */
+    BinaryContentSink contentSink();
 }
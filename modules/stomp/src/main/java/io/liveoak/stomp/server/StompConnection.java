@@ -10,6 +10,7 @@ import java.util.UUID;
 import io.liveoak.spi.security.SecurityContext;
 import io.liveoak.stomp.StompMessage;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 
 /**
  * @author Bob McWhirter
@@ -43,8 +44,15 @@ public class StompConnection {
         return this.securityContext;
     }
 
-    public void send(StompMessage message) {
-        this.channel.writeAndFlush(message);
+    /**
+     * @return Future completing once the message has been written out
+     */
+    public ChannelFuture send(StompMessage message) {
+        return this.channel.writeAndFlush(message);
+    }
+
+    public void close() {
+        this.channel.close();
     }
 
     private final String connectionId;